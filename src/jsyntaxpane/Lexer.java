@@ -60,4 +60,10 @@ public interface Lexer {
      * Returns the text matched by the current regular expression.
      */
     public String yytext();
+
+    /**
+     * Returns the current lexical state. The initial state is <tt>0</tt>,
+     * other states are used inside multi-token constructs like comments.
+     */
+    public int yystate();
 }
\ No newline at end of file
@@ -87,27 +87,160 @@ public class SyntaxDocument extends PlainDocument {
         }
     }
 
+    /**
+     * Re-lex only the region damaged by an edit and splice the result into
+     * the existing token list.  Lexing restarts at a token boundary before the
+     * edit where the lexer is known to be in its initial state, and stops as
+     * soon as a freshly lexed token after the edit matches an old token at its
+     * shifted position with the lexer back in its initial state.  All tokens
+     * after that point are reused and only moved by the edit delta.
+     * @param offset start of the edit
+     * @param inserted number of inserted characters
+     * @param removed number of removed characters
+     */
+    private void reparse(int offset, int inserted, int removed) {
+        if (lexer == null || tokens == null) {
+            parse();
+            return;
+        }
+        long ts = System.nanoTime();
+        int delta = inserted - removed;
+        int oldDamageEnd = offset + removed;
+        int newDamageEnd = offset + inserted;
+
+        int restart = getRestartIndex(offset);
+        int restartOffset = (restart == 0) ? 0 : tokens.get(restart).start;
+        // first old token that lies completely behind the damaged region
+        int reuse = restart;
+        while (reuse < tokens.size() && tokens.get(reuse).start < oldDamageEnd) {
+            reuse++;
+        }
+
+        List<Token> toks = new ArrayList<Token>();
+        boolean synced = false;
+        try {
+            Segment seg = new Segment();
+            getText(restartOffset, getLength() - restartOffset, seg);
+            CharArrayReader reader = new CharArrayReader(seg.array, seg.offset, seg.count);
+            lexer.yyreset(reader);
+            Token token;
+            while ((token = lexer.yylex()) != null) {
+                Token shifted = new Token(token.type, token.start + restartOffset, token.length, token.pairValue);
+                if (shifted.start >= newDamageEnd) {
+                    while (reuse < tokens.size() && tokens.get(reuse).start + delta < shifted.start) {
+                        reuse++;
+                    }
+                    if (reuse < tokens.size() && lexer.yystate() == 0) {
+                        Token old = tokens.get(reuse);
+                        if (old.start + delta == shifted.start && old.length == shifted.length && old.type == shifted.type) {
+                            synced = true;
+                            break;
+                        }
+                    }
+                }
+                toks.add(shifted);
+            }
+        } catch (BadLocationException ex) {
+            log.log(Level.SEVERE, null, ex);
+            parse();
+            return;
+        } catch (IOException ex) {
+            // This will not be thrown from the Lexer
+            log.log(Level.SEVERE, null, ex);
+            parse();
+            return;
+        }
+
+        if (!synced) {
+            reuse = tokens.size();
+        }
+        tokens.subList(restart, reuse).clear();
+        tokens.addAll(restart, toks);
+        if (delta != 0) {
+            for (int i = restart + toks.size(); i < tokens.size(); i++) {
+                Token t = tokens.get(i);
+                tokens.set(i, new Token(t.type, t.start + delta, t.length, t.pairValue));
+            }
+        }
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest(String.format("Re-lexed from %d in %d ms, giving %d new tokens%s\n",
+                    restartOffset, (System.nanoTime() - ts) / 1000000, toks.size(), synced ? "" : " (no sync)"));
+        }
+    }
+
+    /**
+     * Find the index of the token where lexing can safely be restarted for an
+     * edit at the given offset.  The token must end before the edit, must not
+     * be part of a multi-token construct like a javadoc comment and is taken
+     * one token further back to leave room for lexer lookahead.
+     * @param offset start of the edit
+     * @return index into the tokens list
+     */
+    private int getRestartIndex(int offset) {
+        int low = 0;
+        int high = tokens.size() - 1;
+        // find the first token that ends at or after offset
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.get(mid).end() < offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int ndx = low - 2;
+        while (ndx >= 0 && !isRestartSafe(tokens.get(ndx))) {
+            ndx--;
+        }
+        return ndx < 0 ? 0 : ndx;
+    }
+
+    /**
+     * Tokens of these types may be emitted while the lexer is inside a
+     * comment or string state, so lexing cannot restart in front of them.
+     * @param token the token
+     * @return whether the lexer is in its initial state at the token start
+     */
+    private static boolean isRestartSafe(Token token) {
+        switch (token.type) {
+            case COMMENT:
+            case COMMENT2:
+            case WARNING:
+            case ERROR:
+                return false;
+            default:
+                return true;
+        }
+    }
+
     @Override
     protected void fireChangedUpdate(DocumentEvent e) {
-        parse();
+        // attribute changes do not touch the text
+        if (tokens == null) {
+            parse();
+        }
         super.fireChangedUpdate(e);
     }
 
     @Override
     protected void fireInsertUpdate(DocumentEvent e) {
-        parse();
+        reparse(e.getOffset(), e.getLength(), 0);
         super.fireInsertUpdate(e);
     }
 
     @Override
     protected void fireRemoveUpdate(DocumentEvent e) {
-        parse();
+        reparse(e.getOffset(), 0, e.getLength());
         super.fireRemoveUpdate(e);
     }
 
     @Override
     protected void fireUndoableEditUpdate(UndoableEditEvent e) {
-        parse();
+        // the tokens have already been updated by the insert or remove
+        // notification that precedes every undoable edit
+        if (tokens == null) {
+            parse();
+        }
         super.fireUndoableEditUpdate(e);
     }
 
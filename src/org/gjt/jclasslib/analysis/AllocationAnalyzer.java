@@ -0,0 +1,265 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.analysis.lint.BoxingRule;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.ImmediateByteInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.bytecode.OpcodesUtil;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.constants.ConstantNameAndTypeInfo;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+    Locates all allocation sites of a classpath: <tt>new</tt>, <tt>newarray</tt>,
+    <tt>anewarray</tt>, <tt>multianewarray</tt> and boxing calls. The report lists
+    every site and the totals per class and per package, with separate counts for
+    sites inside loops.
+    <p>
+    Command line usage:
+    <pre>
+    AllocationAnalyzer [-totalsOnly] [-loopsOnly] file...
+    </pre>
+    where <tt>file</tt> is a directory or an archive.
+*/
+public class AllocationAnalyzer extends ClasspathAnalyzer implements Opcodes {
+
+    private final boolean totalsOnly;
+    private final boolean loopsOnly;
+    private final List sites = new ArrayList();
+
+    /**
+     * Constructor.
+     * @param totalsOnly whether the report should only contain the totals per class and package.
+     * @param loopsOnly whether the report should only list sites inside loops.
+     */
+    public AllocationAnalyzer(boolean totalsOnly, boolean loopsOnly) {
+        this.totalsOnly = totalsOnly;
+        this.loopsOnly = loopsOnly;
+    }
+
+    /**
+     * Get all allocation sites ordered by class, method and offset.
+     * @return the list of <tt>AllocationSite</tt> objects.
+     */
+    public List getAllocationSites() {
+
+        List sortedSites;
+        synchronized (sites) {
+            sortedSites = new ArrayList(sites);
+        }
+        Collections.sort(sortedSites, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                AllocationSite site1 = (AllocationSite)o1;
+                AllocationSite site2 = (AllocationSite)o2;
+                int result = site1.getClassName().compareTo(site2.getClassName());
+                if (result == 0) {
+                    result = site1.getMethodName().compareTo(site2.getMethodName());
+                }
+                if (result == 0) {
+                    result = site1.getMethodDescriptor().compareTo(site2.getMethodDescriptor());
+                }
+                if (result == 0) {
+                    result = site1.getOffset() - site2.getOffset();
+                }
+                return result;
+            }
+        });
+        return sortedSites;
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException, IOException
+    {
+        List classSites = new ArrayList();
+        String className = classFile.getThisClassName();
+        List methodCodes = MethodCode.getMethodCodes(classFile);
+        for (int i = 0; i < methodCodes.size(); i++) {
+            MethodCode code = (MethodCode)methodCodes.get(i);
+            String methodName = code.getMethod().getName();
+            String methodDescriptor = code.getMethod().getDescriptor();
+            List instructions = code.getInstructions();
+            for (int j = 0; j < instructions.size(); j++) {
+                AbstractInstruction instruction = (AbstractInstruction)instructions.get(j);
+                String allocatedType = null;
+                int kind = AllocationSite.KIND_ARRAY;
+                switch (instruction.getOpcode()) {
+                    case OPCODE_NEW:
+                        allocatedType = getTypeName(code.getClassName(instruction));
+                        kind = AllocationSite.KIND_OBJECT;
+                        break;
+                    case OPCODE_NEWARRAY:
+                        allocatedType = OpcodesUtil.getArrayTypeVerbose(((ImmediateByteInstruction)instruction).getImmediateByte()) + "[]";
+                        break;
+                    case OPCODE_ANEWARRAY:
+                        allocatedType = getTypeName(code.getClassName(instruction));
+                        if (allocatedType != null) {
+                            allocatedType += "[]";
+                        }
+                        break;
+                    case OPCODE_MULTIANEWARRAY:
+                        allocatedType = getTypeName(code.getClassName(instruction));
+                        break;
+                    case OPCODE_INVOKESTATIC:
+                        allocatedType = getBoxedType(code.getMemberReference(instruction));
+                        kind = AllocationSite.KIND_BOXING;
+                        break;
+                }
+                if (allocatedType != null) {
+                    int offset = instruction.getOffset();
+                    classSites.add(new AllocationSite(className, methodName, methodDescriptor, offset,
+                            code.getLineNumber(offset), allocatedType, kind, code.isInLoop(offset)));
+                }
+            }
+        }
+        synchronized (sites) {
+            sites.addAll(classSites);
+        }
+    }
+
+    public void writeReport(PrintWriter writer) {
+
+        List sortedSites = getAllocationSites();
+        if (!totalsOnly) {
+            writer.println("class\tmethod\tdescriptor\toffset\tline\tkind\ttype\tin loop");
+            for (int i = 0; i < sortedSites.size(); i++) {
+                AllocationSite site = (AllocationSite)sortedSites.get(i);
+                if (loopsOnly && !site.isInLoop()) {
+                    continue;
+                }
+                writer.println(site.getClassName().replace('/', '.') + '\t' +
+                        site.getMethodName() + '\t' +
+                        site.getMethodDescriptor() + '\t' +
+                        site.getOffset() + '\t' +
+                        site.getLineNumber() + '\t' +
+                        AllocationSite.KIND_NAMES[site.getKind()] + '\t' +
+                        site.getAllocatedType() + '\t' +
+                        site.isInLoop());
+            }
+            writer.println();
+        }
+
+        Map classTotals = new TreeMap();
+        Map packageTotals = new TreeMap();
+        int[] total = new int[2];
+        for (int i = 0; i < sortedSites.size(); i++) {
+            AllocationSite site = (AllocationSite)sortedSites.get(i);
+            addTotal(classTotals, site.getClassName().replace('/', '.'), site);
+            addTotal(packageTotals, site.getPackageName(), site);
+            total[0]++;
+            total[1] += site.isInLoop() ? 1 : 0;
+        }
+        writeTotals(writer, "class", classTotals);
+        writer.println();
+        writeTotals(writer, "package", packageTotals);
+        writer.println("# " + total[0] + " allocation sites, " + total[1] + " inside loops");
+    }
+
+    private static void addTotal(Map totals, String name, AllocationSite site) {
+
+        int[] counts = (int[])totals.get(name);
+        if (counts == null) {
+            counts = new int[2];
+            totals.put(name, counts);
+        }
+        counts[0]++;
+        if (site.isInLoop()) {
+            counts[1]++;
+        }
+    }
+
+    private static void writeTotals(PrintWriter writer, String title, Map totals) {
+
+        writer.println(title + "\tsites\tsites in loops");
+        Iterator it = totals.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry)it.next();
+            int[] counts = (int[])mapEntry.getValue();
+            writer.println(mapEntry.getKey() + "\t" + counts[0] + '\t' + counts[1]);
+        }
+    }
+
+    private static String getBoxedType(ConstantReference reference) throws InvalidByteCodeException {
+
+        if (reference == null) {
+            return null;
+        }
+        String className = reference.getClassInfo().getName();
+        ConstantNameAndTypeInfo nameAndType = reference.getNameAndTypeInfo();
+        if (BoxingRule.isBoxing(className, nameAndType.getName(), nameAndType.getDescriptor())) {
+            return className.replace('/', '.');
+        }
+        return null;
+    }
+
+    private static String getTypeName(String className) {
+
+        if (className == null) {
+            return null;
+        }
+        int dimensions = 0;
+        while (dimensions < className.length() && className.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        if (dimensions == 0) {
+            return className.replace('/', '.');
+        }
+        String elementType = className.substring(dimensions);
+        StringBuffer buffer = new StringBuffer();
+        switch (elementType.charAt(0)) {
+            case 'Z': buffer.append("boolean"); break;
+            case 'B': buffer.append("byte"); break;
+            case 'C': buffer.append("char"); break;
+            case 'S': buffer.append("short"); break;
+            case 'I': buffer.append("int"); break;
+            case 'J': buffer.append("long"); break;
+            case 'F': buffer.append("float"); break;
+            case 'D': buffer.append("double"); break;
+            default:
+                buffer.append(elementType.substring(1, elementType.length() - 1).replace('/', '.'));
+        }
+        for (int i = 0; i < dimensions; i++) {
+            buffer.append("[]");
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        boolean totalsOnly = false;
+        boolean loopsOnly = false;
+        List fileNames = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-totalsOnly")) {
+                totalsOnly = true;
+            } else if (args[i].equals("-loopsOnly")) {
+                loopsOnly = true;
+            } else {
+                fileNames.add(args[i]);
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.err.println("Usage: AllocationAnalyzer [-totalsOnly] [-loopsOnly] file...");
+            System.exit(1);
+        }
+        run(new AllocationAnalyzer(totalsOnly, loopsOnly), fileNames);
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+/**
+    An instruction that allocates an object or an array, as reported by an
+    <tt>AllocationAnalyzer</tt>.
+*/
+public class AllocationSite {
+
+    /** Object allocation with <tt>new</tt>. */
+    public static final int KIND_OBJECT = 0;
+    /** Array allocation with <tt>newarray</tt>, <tt>anewarray</tt> or <tt>multianewarray</tt>. */
+    public static final int KIND_ARRAY = 1;
+    /** Allocation of a wrapper object by a <tt>valueOf</tt> boxing call. */
+    public static final int KIND_BOXING = 2;
+
+    /** Display names of the <tt>KIND_</tt> constants, indexed by the kind. */
+    public static final String[] KIND_NAMES = {"object", "array", "boxing"};
+
+    private final String className;
+    private final String methodName;
+    private final String methodDescriptor;
+    private final int offset;
+    private final int lineNumber;
+    private final String allocatedType;
+    private final int kind;
+    private final boolean inLoop;
+
+    /**
+     * Constructor.
+     * @param className the name of the allocating class.
+     * @param methodName the name of the allocating method.
+     * @param methodDescriptor the descriptor of the allocating method.
+     * @param offset the offset of the allocating instruction.
+     * @param lineNumber the source line, or -1.
+     * @param allocatedType the allocated type in Java notation.
+     * @param kind one of the <tt>KIND_</tt> constants.
+     * @param inLoop whether the allocating instruction is inside a loop.
+     */
+    public AllocationSite(String className, String methodName, String methodDescriptor, int offset,
+                          int lineNumber, String allocatedType, int kind, boolean inLoop) {
+        this.className = className;
+        this.methodName = methodName;
+        this.methodDescriptor = methodDescriptor;
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        this.allocatedType = allocatedType;
+        this.kind = kind;
+        this.inLoop = inLoop;
+    }
+
+    /**
+     * Get the name of the allocating class.
+     * @return the name with '/' as package separator.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the name of the package of the allocating class.
+     * @return the name with '.' as package separator, empty for the default package.
+     */
+    public String getPackageName() {
+        int index = className.lastIndexOf('/');
+        return index < 0 ? "" : className.substring(0, index).replace('/', '.');
+    }
+
+    /**
+     * Get the name of the allocating method.
+     * @return the name.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Get the descriptor of the allocating method.
+     * @return the descriptor.
+     */
+    public String getMethodDescriptor() {
+        return methodDescriptor;
+    }
+
+    /**
+     * Get the offset of the allocating instruction.
+     * @return the offset.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the source line of the allocating instruction.
+     * @return the line number, or -1 if it is unknown.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Get the allocated type.
+     * @return the type in Java notation, e.g. <tt>java.lang.String[]</tt>.
+     */
+    public String getAllocatedType() {
+        return allocatedType;
+    }
+
+    /**
+     * Get the kind of the allocation.
+     * @return one of the <tt>KIND_</tt> constants.
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Check whether the allocating instruction is inside a loop.
+     * @return the value.
+     */
+    public boolean isInLoop() {
+        return inLoop;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathArchiveEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathDirectoryEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+    Base class for analyses over all class files of a classpath. The class files are
+    read in parallel by a <tt>ClasspathScanner</tt> and passed to
+    {@link #analyzeClassFile(ClasspathEntry, String, ClassFile)} from several threads,
+    so derived classes must synchronize access to their results.
+*/
+public abstract class ClasspathAnalyzer implements ClasspathScanner.ClassFileHandler {
+
+    private final AtomicInteger classCount = new AtomicInteger();
+    private final AtomicInteger invalidCount = new AtomicInteger();
+
+    /**
+     * Analyze all class files of a classpath. This method blocks until the scan
+     * is complete or has been cancelled.
+     * @param scanner the scanner for the classpath entries.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void analyze(ClasspathScanner scanner) throws InterruptedException {
+        scanner.scan(this);
+    }
+
+    public void handleClassFile(ClasspathEntry entry, String classFileName, byte[] bytes) {
+
+        try {
+            analyzeClassFile(entry, classFileName, bytes);
+            classCount.incrementAndGet();
+        } catch (InvalidByteCodeException ex) {
+            invalidCount.incrementAndGet();
+        } catch (IOException ex) {
+            invalidCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of analyzed class files.
+     * @return the number.
+     */
+    public int getClassCount() {
+        return classCount.get();
+    }
+
+    /**
+     * Get the number of class files that could not be analyzed.
+     * @return the number.
+     */
+    public int getInvalidCount() {
+        return invalidCount.get();
+    }
+
+    /**
+     * Parse and analyze a single class file. Derived classes that need the raw
+     * bytes of the class file override this method.
+     * @param entry the classpath entry containing the class file.
+     * @param classFileName the name of the class file within the entry.
+     * @param bytes the contents of the class file.
+     * @throws InvalidByteCodeException if the class file is invalid.
+     * @throws IOException if the class file cannot be parsed.
+     */
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, byte[] bytes)
+        throws InvalidByteCodeException, IOException
+    {
+        analyzeClassFile(entry, classFileName, ClassFileReader.readFromInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Analyze a single class file. Called concurrently from the threads of the scanner.
+     * @param entry the classpath entry containing the class file.
+     * @param classFileName the name of the class file within the entry.
+     * @param classFile the class file.
+     * @throws InvalidByteCodeException if the class file is invalid.
+     * @throws IOException if the code of a method cannot be read.
+     */
+    protected abstract void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException, IOException;
+
+    /**
+     * Write the results of the analysis as a tab-separated report. Summary lines
+     * start with '#'.
+     * @param writer the writer.
+     */
+    public abstract void writeReport(PrintWriter writer);
+
+    /**
+     * Create classpath entries for a list of directories and archives.
+     * @param fileNames the file names.
+     * @return the list of <tt>ClasspathEntry</tt> objects.
+     */
+    public static List createClasspathEntries(List fileNames) {
+
+        List entries = new ArrayList();
+        for (int i = 0; i < fileNames.size(); i++) {
+            String fileName = (String)fileNames.get(i);
+            ClasspathEntry entry;
+            if (new File(fileName).isDirectory()) {
+                entry = new ClasspathDirectoryEntry();
+            } else {
+                entry = new ClasspathArchiveEntry();
+            }
+            entry.setFileName(fileName);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Run an analyzer from the command line over a list of directories and archives
+     * and write the report to standard output.
+     * @param analyzer the analyzer.
+     * @param fileNames the file names of the classpath entries.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    protected static void run(ClasspathAnalyzer analyzer, List fileNames) throws InterruptedException {
+
+        long startTime = System.currentTimeMillis();
+        analyzer.analyze(new ClasspathScanner(createClasspathEntries(fileNames)));
+        PrintWriter writer = new PrintWriter(System.out);
+        analyzer.writeReport(writer);
+        writer.println("# " + analyzer.getClassCount() + " classes analyzed in " +
+                (System.currentTimeMillis() - startTime) + " ms, " + analyzer.getInvalidCount() + " invalid");
+        writer.flush();
+    }
+
+}
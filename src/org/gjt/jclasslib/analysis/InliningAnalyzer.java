@@ -0,0 +1,148 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+import org.gjt.jclasslib.structures.attributes.CodeAttribute;
+
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+    Reports the bytecode size of all methods together with their inlining
+    category according to a set of <tt>InliningThresholds</tt>.
+    <p>
+    Command line usage:
+    <pre>
+    InliningAnalyzer [-maxInlineSize n] [-freqInlineSize n] [-hugeMethodLimit n] [-minSize n] file...
+    </pre>
+    where <tt>file</tt> is a directory or an archive.
+*/
+public class InliningAnalyzer extends ClasspathAnalyzer {
+
+    private final InliningThresholds thresholds;
+    private final int minimumSize;
+    private final List methodSizes = new ArrayList();
+
+    /**
+     * Constructor.
+     * @param thresholds the thresholds.
+     * @param minimumSize the minimum code length of a reported method.
+     */
+    public InliningAnalyzer(InliningThresholds thresholds, int minimumSize) {
+        this.thresholds = thresholds;
+        this.minimumSize = minimumSize;
+    }
+
+    /**
+     * Get the code sizes of all reported methods, largest first.
+     * @return the list of <tt>MethodSize</tt> objects.
+     */
+    public List getMethodSizes() {
+
+        List sortedSizes;
+        synchronized (methodSizes) {
+            sortedSizes = new ArrayList(methodSizes);
+        }
+        Collections.sort(sortedSizes, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                MethodSize size1 = (MethodSize)o1;
+                MethodSize size2 = (MethodSize)o2;
+                if (size1.getCodeLength() != size2.getCodeLength()) {
+                    return size2.getCodeLength() - size1.getCodeLength();
+                }
+                return size1.getClassName().compareTo(size2.getClassName());
+            }
+        });
+        return sortedSizes;
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException
+    {
+        List classMethodSizes = new ArrayList();
+        String className = classFile.getThisClassName();
+        MethodInfo[] methods = classFile.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            CodeAttribute codeAttribute = (CodeAttribute)methods[i].findAttribute(CodeAttribute.class);
+            if (codeAttribute == null || codeAttribute.getCode().length < minimumSize) {
+                continue;
+            }
+            int codeLength = codeAttribute.getCode().length;
+            classMethodSizes.add(new MethodSize(className, methods[i].getName(), methods[i].getDescriptor(),
+                    codeLength, codeAttribute.getMaxStack(), codeAttribute.getMaxLocals(),
+                    thresholds.getCategory(codeLength)));
+        }
+        synchronized (methodSizes) {
+            methodSizes.addAll(classMethodSizes);
+        }
+    }
+
+    public void writeReport(PrintWriter writer) {
+
+        List sortedSizes = getMethodSizes();
+        int[] categoryCounts = new int[InliningThresholds.CATEGORY_NAMES.length];
+        writer.println("class\tmethod\tdescriptor\tcode size\tmax stack\tmax locals\tcategory");
+        for (int i = 0; i < sortedSizes.size(); i++) {
+            MethodSize methodSize = (MethodSize)sortedSizes.get(i);
+            categoryCounts[methodSize.getCategory()]++;
+            writer.println(methodSize.getClassName().replace('/', '.') + '\t' +
+                    methodSize.getMethodName() + '\t' +
+                    methodSize.getDescriptor() + '\t' +
+                    methodSize.getCodeLength() + '\t' +
+                    methodSize.getMaxStack() + '\t' +
+                    methodSize.getMaxLocals() + '\t' +
+                    InliningThresholds.CATEGORY_NAMES[methodSize.getCategory()]);
+        }
+        writer.println("# thresholds: MaxInlineSize=" + thresholds.getMaxInlineSize() +
+                ", FreqInlineSize=" + thresholds.getFreqInlineSize() +
+                ", HugeMethodLimit=" + thresholds.getHugeMethodLimit());
+        for (int i = 0; i < categoryCounts.length; i++) {
+            writer.println("# " + InliningThresholds.CATEGORY_NAMES[i] + ": " + categoryCounts[i] + " methods");
+        }
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        InliningThresholds defaults = InliningThresholds.getDefault();
+        int maxInlineSize = defaults.getMaxInlineSize();
+        int freqInlineSize = defaults.getFreqInlineSize();
+        int hugeMethodLimit = defaults.getHugeMethodLimit();
+        int minimumSize = 0;
+        List fileNames = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-maxInlineSize") && i + 1 < args.length) {
+                maxInlineSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-freqInlineSize") && i + 1 < args.length) {
+                freqInlineSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-hugeMethodLimit") && i + 1 < args.length) {
+                hugeMethodLimit = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-minSize") && i + 1 < args.length) {
+                minimumSize = Integer.parseInt(args[++i]);
+            } else {
+                fileNames.add(args[i]);
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.err.println("Usage: InliningAnalyzer [-maxInlineSize n] [-freqInlineSize n] " +
+                    "[-hugeMethodLimit n] [-minSize n] file...");
+            System.exit(1);
+        }
+        run(new InliningAnalyzer(new InliningThresholds(maxInlineSize, freqInlineSize, hugeMethodLimit), minimumSize),
+                fileNames);
+    }
+
+}
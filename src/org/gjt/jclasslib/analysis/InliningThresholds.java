@@ -0,0 +1,109 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+/**
+    Bytecode size thresholds that decide how the JIT compiler treats a method.
+    The defaults are the values of the HotSpot flags <tt>MaxInlineSize</tt>,
+    <tt>FreqInlineSize</tt> and <tt>HugeMethodLimit</tt> on x86_64. They can be
+    changed with the system properties <tt>jclasslib.inlining.maxInlineSize</tt>,
+    <tt>jclasslib.inlining.freqInlineSize</tt> and <tt>jclasslib.inlining.hugeMethodLimit</tt>.
+*/
+public class InliningThresholds {
+
+    /** System property for the default of <tt>MaxInlineSize</tt>. */
+    public static final String SYSTEM_PROPERTY_MAX_INLINE_SIZE = "jclasslib.inlining.maxInlineSize";
+    /** System property for the default of <tt>FreqInlineSize</tt>. */
+    public static final String SYSTEM_PROPERTY_FREQ_INLINE_SIZE = "jclasslib.inlining.freqInlineSize";
+    /** System property for the default of <tt>HugeMethodLimit</tt>. */
+    public static final String SYSTEM_PROPERTY_HUGE_METHOD_LIMIT = "jclasslib.inlining.hugeMethodLimit";
+
+    /** The method is small enough to be inlined at any call site. */
+    public static final int CATEGORY_INLINE = 0;
+    /** The method is only inlined at frequently executed call sites. */
+    public static final int CATEGORY_INLINE_HOT = 1;
+    /** The method is too large to be inlined. */
+    public static final int CATEGORY_TOO_LARGE = 2;
+    /** The method is too large to be compiled at all. */
+    public static final int CATEGORY_HUGE = 3;
+
+    /** Display names of the <tt>CATEGORY_</tt> constants, indexed by the category. */
+    public static final String[] CATEGORY_NAMES = {"inline", "hot inline", "not inlined", "not compiled"};
+
+    private static final InliningThresholds defaultThresholds = new InliningThresholds(
+            Integer.getInteger(SYSTEM_PROPERTY_MAX_INLINE_SIZE, 35).intValue(),
+            Integer.getInteger(SYSTEM_PROPERTY_FREQ_INLINE_SIZE, 325).intValue(),
+            Integer.getInteger(SYSTEM_PROPERTY_HUGE_METHOD_LIMIT, 8000).intValue());
+
+    private int maxInlineSize;
+    private int freqInlineSize;
+    private int hugeMethodLimit;
+
+    /**
+     * Get the default thresholds.
+     * @return the thresholds.
+     */
+    public static InliningThresholds getDefault() {
+        return defaultThresholds;
+    }
+
+    /**
+     * Constructor.
+     * @param maxInlineSize the maximum bytecode size of a method that is inlined at any call site.
+     * @param freqInlineSize the maximum bytecode size of a method that is inlined at a hot call site.
+     * @param hugeMethodLimit the maximum bytecode size of a method that is compiled.
+     */
+    public InliningThresholds(int maxInlineSize, int freqInlineSize, int hugeMethodLimit) {
+        this.maxInlineSize = maxInlineSize;
+        this.freqInlineSize = freqInlineSize;
+        this.hugeMethodLimit = hugeMethodLimit;
+    }
+
+    /**
+     * Get the maximum bytecode size of a method that is inlined at any call site.
+     * @return the size in bytes.
+     */
+    public int getMaxInlineSize() {
+        return maxInlineSize;
+    }
+
+    /**
+     * Get the maximum bytecode size of a method that is inlined at a hot call site.
+     * @return the size in bytes.
+     */
+    public int getFreqInlineSize() {
+        return freqInlineSize;
+    }
+
+    /**
+     * Get the maximum bytecode size of a method that is compiled.
+     * @return the size in bytes.
+     */
+    public int getHugeMethodLimit() {
+        return hugeMethodLimit;
+    }
+
+    /**
+     * Get the category of a method.
+     * @param codeLength the length of the code of the method.
+     * @return one of the <tt>CATEGORY_</tt> constants.
+     */
+    public int getCategory(int codeLength) {
+
+        if (codeLength <= maxInlineSize) {
+            return CATEGORY_INLINE;
+        } else if (codeLength <= freqInlineSize) {
+            return CATEGORY_INLINE_HOT;
+        } else if (codeLength <= hugeMethodLimit) {
+            return CATEGORY_TOO_LARGE;
+        } else {
+            return CATEGORY_HUGE;
+        }
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.ImmediateByteInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.AccessFlags;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+import org.gjt.jclasslib.structures.constants.ConstantNameAndTypeInfo;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+    Maps the lock and monitor usage of a classpath: synchronized methods,
+    <tt>monitorenter</tt> and <tt>monitorexit</tt> instructions, calls of
+    <tt>java.util.concurrent.locks</tt> and calls of <tt>Object.wait</tt> and
+    <tt>Object.notify</tt>. The locked object is derived from the instruction that
+    loads it, which finds <tt>this</tt>, class literals, fields, local variables
+    and method results.
+    <p>
+    Command line usage:
+    <pre>
+    LockAnalyzer file...
+    </pre>
+    where <tt>file</tt> is a directory or an archive.
+*/
+public class LockAnalyzer extends ClasspathAnalyzer implements Opcodes {
+
+    private static final String LOCKS_PACKAGE = "java/util/concurrent/locks/";
+
+    private final List usages = new ArrayList();
+
+    /**
+     * Get all lock usages ordered by class, method and offset.
+     * @return the list of <tt>LockUsage</tt> objects.
+     */
+    public List getLockUsages() {
+
+        List sortedUsages;
+        synchronized (usages) {
+            sortedUsages = new ArrayList(usages);
+        }
+        Collections.sort(sortedUsages, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                LockUsage usage1 = (LockUsage)o1;
+                LockUsage usage2 = (LockUsage)o2;
+                int result = usage1.getClassName().compareTo(usage2.getClassName());
+                if (result == 0) {
+                    result = usage1.getMethodName().compareTo(usage2.getMethodName());
+                }
+                if (result == 0) {
+                    result = usage1.getMethodDescriptor().compareTo(usage2.getMethodDescriptor());
+                }
+                if (result == 0) {
+                    result = usage1.getOffset() - usage2.getOffset();
+                }
+                return result;
+            }
+        });
+        return sortedUsages;
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException, IOException
+    {
+        List classUsages = new ArrayList();
+        String fileName = entry.getClassFileLocation(classFileName);
+        String className = classFile.getThisClassName();
+        String displayClassName = className.replace('/', '.');
+
+        MethodInfo[] methods = classFile.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            if ((methods[i].getAccessFlags() & AccessFlags.ACC_SYNCHRONIZED) != 0) {
+                String lockedObject = isStatic(methods[i]) ? "class " + displayClassName : "this (" + displayClassName + ")";
+                classUsages.add(new LockUsage(fileName, className, methods[i].getName(), methods[i].getDescriptor(),
+                        -1, -1, -1, LockUsage.KIND_SYNCHRONIZED_METHOD, lockedObject));
+            }
+        }
+
+        List methodCodes = MethodCode.getMethodCodes(classFile);
+        for (int i = 0; i < methodCodes.size(); i++) {
+            MethodCode code = (MethodCode)methodCodes.get(i);
+            List instructions = code.getInstructions();
+            Map lockLocals = new HashMap();
+            for (int j = 0; j < instructions.size(); j++) {
+                AbstractInstruction instruction = (AbstractInstruction)instructions.get(j);
+                int kind;
+                String lockedObject;
+                if (instruction.getOpcode() == OPCODE_MONITORENTER) {
+                    kind = LockUsage.KIND_MONITOR_ENTER;
+                    lockedObject = describeLockedObject(code, j, lockLocals);
+                } else if (instruction.getOpcode() == OPCODE_MONITOREXIT) {
+                    kind = LockUsage.KIND_MONITOR_EXIT;
+                    lockedObject = describeLockedObject(code, j, lockLocals);
+                } else if (MethodCode.isInvokeInstruction(instruction)) {
+                    ConstantReference reference = code.getMemberReference(instruction);
+                    if (reference == null) {
+                        continue;
+                    }
+                    String owner = reference.getClassInfo().getName();
+                    ConstantNameAndTypeInfo nameAndType = reference.getNameAndTypeInfo();
+                    if (owner.startsWith(LOCKS_PACKAGE)) {
+                        kind = LockUsage.KIND_LOCK_API;
+                    } else if (isWaitOrNotify(nameAndType.getName(), nameAndType.getDescriptor())) {
+                        kind = LockUsage.KIND_WAIT_NOTIFY;
+                    } else {
+                        continue;
+                    }
+                    lockedObject = owner.substring(owner.lastIndexOf('/') + 1) + "." + nameAndType.getName();
+                    if (nameAndType.getDescriptor().startsWith("()") && instruction.getOpcode() != OPCODE_INVOKESTATIC
+                            && !nameAndType.getName().equals("<init>")) {
+                        lockedObject = describeValue(code, j - 1) + ": " + lockedObject;
+                    }
+                } else {
+                    continue;
+                }
+                int offset = instruction.getOffset();
+                classUsages.add(new LockUsage(fileName, className, code.getMethod().getName(), code.getMethod().getDescriptor(),
+                        code.getCodeAttributeIndex(), offset, code.getLineNumber(offset), kind, lockedObject));
+            }
+        }
+
+        synchronized (usages) {
+            usages.addAll(classUsages);
+        }
+    }
+
+    public void writeReport(PrintWriter writer) {
+
+        List sortedUsages = getLockUsages();
+        Map classTotals = new TreeMap();
+        Map objectTotals = new TreeMap();
+        writer.println("class\tmethod\tdescriptor\toffset\tline\tkind\tlocked object");
+        for (int i = 0; i < sortedUsages.size(); i++) {
+            LockUsage usage = (LockUsage)sortedUsages.get(i);
+            writer.println(usage.getClassName().replace('/', '.') + '\t' +
+                    usage.getMethodName() + '\t' +
+                    usage.getMethodDescriptor() + '\t' +
+                    usage.getOffset() + '\t' +
+                    usage.getLineNumber() + '\t' +
+                    LockUsage.KIND_NAMES[usage.getKind()] + '\t' +
+                    usage.getLockedObject());
+
+            int[] classCounts = (int[])classTotals.get(usage.getClassName().replace('/', '.'));
+            if (classCounts == null) {
+                classCounts = new int[LockUsage.KIND_NAMES.length];
+                classTotals.put(usage.getClassName().replace('/', '.'), classCounts);
+            }
+            classCounts[usage.getKind()]++;
+            if (usage.getKind() == LockUsage.KIND_SYNCHRONIZED_METHOD || usage.getKind() == LockUsage.KIND_MONITOR_ENTER) {
+                int[] objectCount = (int[])objectTotals.get(usage.getLockedObject());
+                if (objectCount == null) {
+                    objectCount = new int[1];
+                    objectTotals.put(usage.getLockedObject(), objectCount);
+                }
+                objectCount[0]++;
+            }
+        }
+
+        writer.println();
+        writer.print("class");
+        for (int i = 0; i < LockUsage.KIND_NAMES.length; i++) {
+            writer.print('\t' + LockUsage.KIND_NAMES[i]);
+        }
+        writer.println();
+        Iterator it = classTotals.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry)it.next();
+            int[] counts = (int[])mapEntry.getValue();
+            writer.print(mapEntry.getKey());
+            for (int i = 0; i < counts.length; i++) {
+                writer.print("\t" + counts[i]);
+            }
+            writer.println();
+        }
+
+        writer.println();
+        writer.println("locked object\tsynchronized methods and blocks");
+        it = objectTotals.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry)it.next();
+            writer.println(mapEntry.getKey() + "\t" + ((int[])mapEntry.getValue())[0]);
+        }
+    }
+
+    private static boolean isStatic(MethodInfo method) {
+        return (method.getAccessFlags() & AccessFlags.ACC_STATIC) != 0;
+    }
+
+    private static boolean isWaitOrNotify(String name, String descriptor) {
+        if (name.equals("wait")) {
+            return descriptor.equals("()V") || descriptor.equals("(J)V") || descriptor.equals("(JI)V");
+        }
+        return (name.equals("notify") || name.equals("notifyAll")) && descriptor.equals("()V");
+    }
+
+    private static String describeLockedObject(MethodCode code, int index, Map lockLocals) throws InvalidByteCodeException {
+
+        // javac stores the locked object in a local variable before monitorenter
+        // and loads it again before monitorexit
+        List instructions = code.getInstructions();
+        int producerIndex = index - 1;
+        int lockLocal = -1;
+        while (producerIndex >= 0) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(producerIndex);
+            int opcode = instruction.getOpcode();
+            if (opcode == OPCODE_ASTORE) {
+                lockLocal = ((ImmediateByteInstruction)instruction).getImmediateByte();
+            } else if (opcode >= OPCODE_ASTORE_0 && opcode <= OPCODE_ASTORE_3) {
+                lockLocal = opcode - OPCODE_ASTORE_0;
+            } else if (opcode != OPCODE_DUP) {
+                break;
+            }
+            producerIndex--;
+        }
+        int loadedLocal = getLoadedLocal(code, producerIndex);
+        if (loadedLocal >= 0 && lockLocals.containsKey(new Integer(loadedLocal))) {
+            return (String)lockLocals.get(new Integer(loadedLocal));
+        }
+        String lockedObject = describeValue(code, producerIndex);
+        if (lockLocal >= 0) {
+            lockLocals.put(new Integer(lockLocal), lockedObject);
+        }
+        return lockedObject;
+    }
+
+    private static int getLoadedLocal(MethodCode code, int index) {
+
+        if (index < 0) {
+            return -1;
+        }
+        AbstractInstruction instruction = (AbstractInstruction)code.getInstructions().get(index);
+        int opcode = instruction.getOpcode();
+        if (opcode == OPCODE_ALOAD) {
+            return ((ImmediateByteInstruction)instruction).getImmediateByte();
+        } else if (opcode >= OPCODE_ALOAD_0 && opcode <= OPCODE_ALOAD_3) {
+            return opcode - OPCODE_ALOAD_0;
+        } else {
+            return -1;
+        }
+    }
+
+    private static String describeValue(MethodCode code, int index) throws InvalidByteCodeException {
+
+        if (index < 0) {
+            return "unknown";
+        }
+        AbstractInstruction instruction = (AbstractInstruction)code.getInstructions().get(index);
+        int opcode = instruction.getOpcode();
+        switch (opcode) {
+            case OPCODE_ALOAD_0:
+                if (!isStatic(code.getMethod())) {
+                    return "this (" + code.getClassFile().getThisClassName().replace('/', '.') + ")";
+                }
+                return "local variable 0";
+            case OPCODE_ALOAD_1:
+            case OPCODE_ALOAD_2:
+            case OPCODE_ALOAD_3:
+                return "local variable " + (opcode - OPCODE_ALOAD_0);
+            case OPCODE_ALOAD:
+                return "local variable " + ((ImmediateByteInstruction)instruction).getImmediateByte();
+            case OPCODE_LDC:
+            case OPCODE_LDC_W:
+                String className = code.getClassName(instruction);
+                return className == null ? "constant" : "class " + className.replace('/', '.');
+            case OPCODE_GETFIELD:
+            case OPCODE_GETSTATIC:
+                return (opcode == OPCODE_GETSTATIC ? "static field " : "field ") + describeMember(code.getMemberReference(instruction));
+            case OPCODE_INVOKEVIRTUAL:
+            case OPCODE_INVOKESPECIAL:
+            case OPCODE_INVOKESTATIC:
+            case OPCODE_INVOKEINTERFACE:
+                return "result of " + describeMember(code.getMemberReference(instruction));
+            default:
+                return "unknown";
+        }
+    }
+
+    private static String describeMember(ConstantReference reference) throws InvalidByteCodeException {
+        if (reference == null) {
+            return "unknown";
+        }
+        return reference.getClassInfo().getName().replace('/', '.') + "." + reference.getNameAndTypeInfo().getName();
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length == 0) {
+            System.err.println("Usage: LockAnalyzer file...");
+            System.exit(1);
+        }
+        run(new LockAnalyzer(), Arrays.asList(args));
+    }
+
+}
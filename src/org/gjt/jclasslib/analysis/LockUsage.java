@@ -0,0 +1,149 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+/**
+    A synchronized method, a monitor instruction or a call of a locking API,
+    as reported by a <tt>LockAnalyzer</tt>.
+*/
+public class LockUsage {
+
+    /** A method with the <tt>ACC_SYNCHRONIZED</tt> flag. */
+    public static final int KIND_SYNCHRONIZED_METHOD = 0;
+    /** A <tt>monitorenter</tt> instruction. */
+    public static final int KIND_MONITOR_ENTER = 1;
+    /** A <tt>monitorexit</tt> instruction. */
+    public static final int KIND_MONITOR_EXIT = 2;
+    /** A call of a method in <tt>java.util.concurrent.locks</tt>. */
+    public static final int KIND_LOCK_API = 3;
+    /** A call of <tt>Object.wait</tt>, <tt>Object.notify</tt> or <tt>Object.notifyAll</tt>. */
+    public static final int KIND_WAIT_NOTIFY = 4;
+
+    /** Display names of the <tt>KIND_</tt> constants, indexed by the kind. */
+    public static final String[] KIND_NAMES = {"synchronized method", "monitorenter", "monitorexit", "lock API", "wait/notify"};
+
+    private final String fileName;
+    private final String className;
+    private final String methodName;
+    private final String methodDescriptor;
+    private final int attributeIndex;
+    private final int offset;
+    private final int lineNumber;
+    private final int kind;
+    private final String lockedObject;
+
+    /**
+     * Constructor.
+     * @param fileName the file name under which the class file can be opened.
+     * @param className the name of the class.
+     * @param methodName the name of the method.
+     * @param methodDescriptor the descriptor of the method.
+     * @param attributeIndex the index of the <tt>Code</tt> attribute of the method, or -1.
+     * @param offset the offset of the instruction, or -1 for synchronized methods.
+     * @param lineNumber the source line, or -1.
+     * @param kind one of the <tt>KIND_</tt> constants.
+     * @param lockedObject a description of the locked object or of the called method.
+     */
+    public LockUsage(String fileName, String className, String methodName, String methodDescriptor,
+                     int attributeIndex, int offset, int lineNumber, int kind, String lockedObject) {
+        this.fileName = fileName;
+        this.className = className;
+        this.methodName = methodName;
+        this.methodDescriptor = methodDescriptor;
+        this.attributeIndex = attributeIndex;
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        this.kind = kind;
+        this.lockedObject = lockedObject;
+    }
+
+    /**
+     * Get the file name under which the class file can be opened.
+     * @return the file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the name of the class.
+     * @return the name with '/' as package separator.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the name of the method.
+     * @return the name.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Get the descriptor of the method.
+     * @return the descriptor.
+     */
+    public String getMethodDescriptor() {
+        return methodDescriptor;
+    }
+
+    /**
+     * Get the index of the <tt>Code</tt> attribute of the method.
+     * @return the index, or -1 if the method has no code.
+     */
+    public int getAttributeIndex() {
+        return attributeIndex;
+    }
+
+    /**
+     * Get the offset of the instruction.
+     * @return the offset, or -1 for synchronized methods.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the source line of the instruction.
+     * @return the line number, or -1 if it is unknown.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Get the kind of the usage.
+     * @return one of the <tt>KIND_</tt> constants.
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Get a description of the locked object, such as <tt>this</tt>,
+     * <tt>class java.lang.String</tt> or <tt>field com.example.Cache.lock</tt>.
+     * For calls of locking APIs, this is the called method.
+     * @return the description.
+     */
+    public String getLockedObject() {
+        return lockedObject;
+    }
+
+    public String toString() {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(className.replace('/', '.')).append('.').append(methodName).append(methodDescriptor);
+        if (offset >= 0) {
+            buffer.append(" [pc ").append(offset).append(']');
+        }
+        buffer.append(' ').append(KIND_NAMES[kind]).append(": ").append(lockedObject);
+        return buffer.toString();
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.bytecode.AbstractBranchInstruction;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.LookupSwitchInstruction;
+import org.gjt.jclasslib.bytecode.MatchOffsetPair;
+import org.gjt.jclasslib.bytecode.TableSwitchInstruction;
+
+import java.util.List;
+
+/**
+    The loops of a method as found from its backward branches. Every branch to
+    a lower or equal offset closes a loop that spans the code from the branch target
+    to the branch instruction. This is exact for code produced by <tt>javac</tt>,
+    which always places the condition of a loop at its end.
+*/
+public class LoopRegions {
+
+    private final short[] depths;
+    private int loopCount;
+
+    /**
+     * Constructor.
+     * @param instructions the list of instructions of the method.
+     * @param codeLength the length of the code of the method.
+     */
+    public LoopRegions(List instructions, int codeLength) {
+
+        int[] deltas = new int[codeLength + 1];
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            int offset = instruction.getOffset();
+            if (instruction instanceof AbstractBranchInstruction) {
+                addBranch(deltas, offset, ((AbstractBranchInstruction)instruction).getBranchOffset());
+            } else if (instruction instanceof TableSwitchInstruction) {
+                TableSwitchInstruction tableSwitch = (TableSwitchInstruction)instruction;
+                addBranch(deltas, offset, tableSwitch.getDefaultOffset());
+                int[] jumpOffsets = tableSwitch.getJumpOffsets();
+                for (int j = 0; j < jumpOffsets.length; j++) {
+                    addBranch(deltas, offset, jumpOffsets[j]);
+                }
+            } else if (instruction instanceof LookupSwitchInstruction) {
+                LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction)instruction;
+                addBranch(deltas, offset, lookupSwitch.getDefaultOffset());
+                List pairs = lookupSwitch.getMatchOffsetPairs();
+                for (int j = 0; j < pairs.size(); j++) {
+                    addBranch(deltas, offset, ((MatchOffsetPair)pairs.get(j)).getOffset());
+                }
+            }
+        }
+
+        depths = new short[codeLength];
+        int depth = 0;
+        for (int i = 0; i < codeLength; i++) {
+            depth += deltas[i];
+            depths[i] = (short)Math.min(depth, Short.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Get the number of loops.
+     * @return the number.
+     */
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    /**
+     * Check whether an instruction is inside a loop.
+     * @param offset the offset of the instruction.
+     * @return the value.
+     */
+    public boolean isInLoop(int offset) {
+        return getLoopDepth(offset) > 0;
+    }
+
+    /**
+     * Get the number of loops that contain an instruction.
+     * @param offset the offset of the instruction.
+     * @return the number.
+     */
+    public int getLoopDepth(int offset) {
+        if (offset < 0 || offset >= depths.length) {
+            return 0;
+        }
+        return depths[offset];
+    }
+
+    private void addBranch(int[] deltas, int offset, int branchOffset) {
+
+        int target = offset + branchOffset;
+        if (branchOffset > 0 || target < 0 || offset >= deltas.length - 1) {
+            return;
+        }
+        deltas[target]++;
+        deltas[offset + 1]--;
+        loopCount++;
+    }
+
+}
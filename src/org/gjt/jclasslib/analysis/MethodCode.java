@@ -0,0 +1,250 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.ImmediateByteInstruction;
+import org.gjt.jclasslib.bytecode.ImmediateShortInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+import org.gjt.jclasslib.structures.attributes.CodeAttribute;
+import org.gjt.jclasslib.structures.attributes.LineNumberTableAttribute;
+import org.gjt.jclasslib.structures.attributes.LineNumberTableEntry;
+import org.gjt.jclasslib.structures.constants.ConstantClassInfo;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+    The decoded code of a method together with its loops and helpers to
+    resolve the constant pool references of its instructions.
+*/
+public class MethodCode implements Opcodes {
+
+    private final ClassFile classFile;
+    private final MethodInfo method;
+    private final CodeAttribute codeAttribute;
+    private final List instructions;
+    private LoopRegions loopRegions;
+
+    /**
+     * Constructor.
+     * @param classFile the class file.
+     * @param method the method.
+     * @param codeAttribute the <tt>Code</tt> attribute of the method.
+     * @throws IOException if the code cannot be read.
+     */
+    public MethodCode(ClassFile classFile, MethodInfo method, CodeAttribute codeAttribute) throws IOException {
+        this.classFile = classFile;
+        this.method = method;
+        this.codeAttribute = codeAttribute;
+        this.instructions = ByteCodeReader.readByteCode(codeAttribute.getCode());
+    }
+
+    /**
+     * Decode the code of all methods of a class file.
+     * @param classFile the class file.
+     * @return the list of <tt>MethodCode</tt> objects. Methods without code are skipped.
+     * @throws IOException if the code of a method cannot be read.
+     */
+    public static List getMethodCodes(ClassFile classFile) throws IOException {
+
+        List methodCodes = new ArrayList();
+        MethodInfo[] methods = classFile.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            CodeAttribute codeAttribute = (CodeAttribute)methods[i].findAttribute(CodeAttribute.class);
+            if (codeAttribute != null) {
+                methodCodes.add(new MethodCode(classFile, methods[i], codeAttribute));
+            }
+        }
+        return methodCodes;
+    }
+
+    /**
+     * Get the class file.
+     * @return the class file.
+     */
+    public ClassFile getClassFile() {
+        return classFile;
+    }
+
+    /**
+     * Get the method.
+     * @return the method.
+     */
+    public MethodInfo getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the <tt>Code</tt> attribute of the method.
+     * @return the attribute.
+     */
+    public CodeAttribute getCodeAttribute() {
+        return codeAttribute;
+    }
+
+    /**
+     * Get the index of the <tt>Code</tt> attribute in the attributes of the method.
+     * @return the index.
+     */
+    public int getCodeAttributeIndex() {
+
+        AttributeInfo[] attributes = method.getAttributes();
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i] == codeAttribute) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the instructions of the method.
+     * @return the list of <tt>AbstractInstruction</tt> objects.
+     */
+    public List getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Get the loops of the method.
+     * @return the loops.
+     */
+    public LoopRegions getLoopRegions() {
+        if (loopRegions == null) {
+            loopRegions = new LoopRegions(instructions, codeAttribute.getCode().length);
+        }
+        return loopRegions;
+    }
+
+    /**
+     * Check whether an instruction is inside a loop.
+     * @param offset the offset of the instruction.
+     * @return the value.
+     */
+    public boolean isInLoop(int offset) {
+        return getLoopRegions().isInLoop(offset);
+    }
+
+    /**
+     * Get the source line of an instruction.
+     * @param offset the offset of the instruction.
+     * @return the line number or -1 if the method has no line number table.
+     */
+    public int getLineNumber(int offset) {
+
+        LineNumberTableAttribute lineNumbers = codeAttribute.getLineNumbers();
+        if (lineNumbers == null || lineNumbers.getLineNumberTable() == null) {
+            return -1;
+        }
+        LineNumberTableEntry[] entries = lineNumbers.getLineNumberTable();
+        int lineNumber = -1;
+        int startPc = -1;
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].getStartPc() <= offset && entries[i].getStartPc() > startPc) {
+                startPc = entries[i].getStartPc();
+                lineNumber = entries[i].getLineNumber();
+            }
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Get the constant pool entry that is referenced by an instruction.
+     * @param instruction the instruction.
+     * @return the entry or <tt>null</tt> if the instruction has no valid constant pool reference.
+     */
+    public CPInfo getConstantPoolEntry(AbstractInstruction instruction) {
+
+        int index;
+        if (instruction.getOpcode() == OPCODE_LDC) {
+            index = ((ImmediateByteInstruction)instruction).getImmediateByte();
+        } else if (instruction instanceof ImmediateShortInstruction && instruction.getOpcode() != OPCODE_SIPUSH) {
+            index = ((ImmediateShortInstruction)instruction).getImmediateShort();
+        } else {
+            return null;
+        }
+        CPInfo[] constantPool = classFile.getConstantPool();
+        if (index <= 0 || index >= constantPool.length) {
+            return null;
+        }
+        return constantPool[index];
+    }
+
+    /**
+     * Get the field or method that is referenced by an instruction.
+     * @param instruction the instruction.
+     * @return the reference or <tt>null</tt> if the instruction does not reference a field or method.
+     */
+    public ConstantReference getMemberReference(AbstractInstruction instruction) {
+
+        CPInfo cpInfo = getConstantPoolEntry(instruction);
+        return cpInfo instanceof ConstantReference ? (ConstantReference)cpInfo : null;
+    }
+
+    /**
+     * Get the name of the class that is referenced by an instruction such as <tt>new</tt>
+     * or <tt>checkcast</tt>.
+     * @param instruction the instruction.
+     * @return the name with '/' as package separator, or <tt>null</tt> if the instruction
+     *         does not reference a class.
+     * @throws InvalidByteCodeException if the constant pool entry is invalid.
+     */
+    public String getClassName(AbstractInstruction instruction) throws InvalidByteCodeException {
+
+        CPInfo cpInfo = getConstantPoolEntry(instruction);
+        return cpInfo instanceof ConstantClassInfo ? ((ConstantClassInfo)cpInfo).getName() : null;
+    }
+
+    /**
+     * Check whether an instruction is an invocation of a method.
+     * @param instruction the instruction.
+     * @param className the name of the class with '/' as package separator.
+     * @param methodName the name of the method.
+     * @return the value.
+     * @throws InvalidByteCodeException if the constant pool entry is invalid.
+     */
+    public boolean isInvocation(AbstractInstruction instruction, String className, String methodName)
+        throws InvalidByteCodeException
+    {
+        if (!isInvokeInstruction(instruction)) {
+            return false;
+        }
+        ConstantReference reference = getMemberReference(instruction);
+        return reference != null &&
+                reference.getNameAndTypeInfo().getName().equals(methodName) &&
+                reference.getClassInfo().getName().equals(className);
+    }
+
+    /**
+     * Check whether an instruction invokes a method through a constant pool reference.
+     * @param instruction the instruction.
+     * @return the value.
+     */
+    public static boolean isInvokeInstruction(AbstractInstruction instruction) {
+
+        switch (instruction.getOpcode()) {
+            case OPCODE_INVOKEVIRTUAL:
+            case OPCODE_INVOKESPECIAL:
+            case OPCODE_INVOKESTATIC:
+            case OPCODE_INVOKEINTERFACE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+/**
+    The code size of a method as reported by an <tt>InliningAnalyzer</tt>.
+*/
+public class MethodSize {
+
+    private final String className;
+    private final String methodName;
+    private final String descriptor;
+    private final int codeLength;
+    private final int maxStack;
+    private final int maxLocals;
+    private final int category;
+
+    /**
+     * Constructor.
+     * @param className the name of the class.
+     * @param methodName the name of the method.
+     * @param descriptor the descriptor of the method.
+     * @param codeLength the length of the code.
+     * @param maxStack the maximum stack size.
+     * @param maxLocals the number of local variables.
+     * @param category one of the <tt>CATEGORY_</tt> constants of <tt>InliningThresholds</tt>.
+     */
+    public MethodSize(String className, String methodName, String descriptor,
+                      int codeLength, int maxStack, int maxLocals, int category) {
+        this.className = className;
+        this.methodName = methodName;
+        this.descriptor = descriptor;
+        this.codeLength = codeLength;
+        this.maxStack = maxStack;
+        this.maxLocals = maxLocals;
+        this.category = category;
+    }
+
+    /**
+     * Get the name of the class.
+     * @return the name with '/' as package separator.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the name of the method.
+     * @return the name.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Get the descriptor of the method.
+     * @return the descriptor.
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Get the length of the code.
+     * @return the length in bytes.
+     */
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    /**
+     * Get the maximum stack size.
+     * @return the size.
+     */
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * Get the number of local variables.
+     * @return the number.
+     */
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    /**
+     * Get the inlining category.
+     * @return one of the <tt>CATEGORY_</tt> constants of <tt>InliningThresholds</tt>.
+     */
+    public int getCategory() {
+        return category;
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import java.util.Comparator;
+
+/**
+    The startup cost indicators of a class or of all classes of a classpath entry,
+    as computed by a <tt>StartupCostAnalyzer</tt>.
+*/
+public class StartupCost {
+
+    /** Orders by descending size of the static initializers. */
+    public static final Comparator CLINIT_SIZE_COMPARATOR = new Comparator() {
+        public int compare(Object o1, Object o2) {
+            return compareDescending(((StartupCost)o1).clinitSize, ((StartupCost)o2).clinitSize, o1, o2);
+        }
+    };
+
+    /** Orders by descending number of <tt>invokedynamic</tt> instructions. */
+    public static final Comparator INVOKE_DYNAMIC_COMPARATOR = new Comparator() {
+        public int compare(Object o1, Object o2) {
+            return compareDescending(((StartupCost)o1).invokeDynamicCount, ((StartupCost)o2).invokeDynamicCount, o1, o2);
+        }
+    };
+
+    /** Orders by descending size of the class files. */
+    public static final Comparator BYTE_COUNT_COMPARATOR = new Comparator() {
+        public int compare(Object o1, Object o2) {
+            return compareDescending(((StartupCost)o1).byteCount, ((StartupCost)o2).byteCount, o1, o2);
+        }
+    };
+
+    private final String name;
+    private final String fileName;
+    private int classCount;
+    private long byteCount;
+    private int clinitCount;
+    private int clinitSize;
+    private int invokeDynamicCount;
+    private int bootstrapMethodCount;
+
+    /**
+     * Constructor.
+     * @param name the name of the class or of the classpath entry.
+     * @param fileName the file name under which the class file can be opened,
+     *                 or the file name of the classpath entry.
+     */
+    public StartupCost(String name, String fileName) {
+        this.name = name;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Constructor for the cost of a single class.
+     * @param name the name of the class.
+     * @param fileName the file name under which the class file can be opened.
+     * @param byteCount the size of the class file.
+     * @param clinitSize the code length of the static initializer, or -1 if there is none.
+     * @param invokeDynamicCount the number of <tt>invokedynamic</tt> instructions.
+     * @param bootstrapMethodCount the number of entries in the <tt>BootstrapMethods</tt> attribute.
+     */
+    public StartupCost(String name, String fileName, long byteCount, int clinitSize,
+                       int invokeDynamicCount, int bootstrapMethodCount) {
+        this(name, fileName);
+        this.classCount = 1;
+        this.byteCount = byteCount;
+        if (clinitSize >= 0) {
+            this.clinitCount = 1;
+            this.clinitSize = clinitSize;
+        }
+        this.invokeDynamicCount = invokeDynamicCount;
+        this.bootstrapMethodCount = bootstrapMethodCount;
+    }
+
+    /**
+     * Add the cost of a class or of another entry to this cost.
+     * @param cost the cost.
+     */
+    public void add(StartupCost cost) {
+        classCount += cost.classCount;
+        byteCount += cost.byteCount;
+        clinitCount += cost.clinitCount;
+        clinitSize += cost.clinitSize;
+        invokeDynamicCount += cost.invokeDynamicCount;
+        bootstrapMethodCount += cost.bootstrapMethodCount;
+    }
+
+    /**
+     * Get the name of the class or of the classpath entry.
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the file name under which the class file can be opened, or the
+     * file name of the classpath entry.
+     * @return the file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the number of classes.
+     * @return the number.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Get the total size of the class files.
+     * @return the size in bytes.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Get the number of static initializers.
+     * @return the number.
+     */
+    public int getClinitCount() {
+        return clinitCount;
+    }
+
+    /**
+     * Get the total code length of the static initializers.
+     * @return the length in bytes.
+     */
+    public int getClinitSize() {
+        return clinitSize;
+    }
+
+    /**
+     * Get the number of <tt>invokedynamic</tt> instructions.
+     * @return the number.
+     */
+    public int getInvokeDynamicCount() {
+        return invokeDynamicCount;
+    }
+
+    /**
+     * Get the number of entries in <tt>BootstrapMethods</tt> attributes.
+     * @return the number.
+     */
+    public int getBootstrapMethodCount() {
+        return bootstrapMethodCount;
+    }
+
+    public String toString() {
+        return name + ": " + classCount + " classes, " + byteCount + " bytes, " +
+                clinitCount + " <clinit> (" + clinitSize + " bytes), " +
+                invokeDynamicCount + " invokedynamic, " + bootstrapMethodCount + " bootstrap methods";
+    }
+
+    private static int compareDescending(long value1, long value2, Object o1, Object o2) {
+        if (value1 != value2) {
+            return value1 > value2 ? -1 : 1;
+        }
+        return ((StartupCost)o1).name.compareTo(((StartupCost)o2).name);
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.attributes.BootstrapMethodsAttribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+    Estimates the startup cost of each entry of a classpath. For every entry, the
+    number and total size of its classes, the number and code length of the static
+    initializers, the number of <tt>invokedynamic</tt> instructions and the number of
+    bootstrap methods are reported. The classes with the largest static initializers
+    and the most <tt>invokedynamic</tt> instructions are listed as the worst offenders.
+    <p>
+    Command line usage:
+    <pre>
+    StartupCostAnalyzer [-top n] file...
+    </pre>
+    where <tt>file</tt> is a directory or an archive and <tt>n</tt> is the number of
+    classes in the rankings, 20 by default.
+*/
+public class StartupCostAnalyzer extends ClasspathAnalyzer implements Opcodes {
+
+    private static final int DEFAULT_TOP_COUNT = 20;
+
+    private final int topCount;
+    private final Map entryCosts = new HashMap();
+    private final List classCosts = new ArrayList();
+
+    /**
+     * Constructor.
+     * @param topCount the number of classes in the rankings of the report.
+     */
+    public StartupCostAnalyzer(int topCount) {
+        this.topCount = topCount;
+    }
+
+    /**
+     * Get the cost of each classpath entry ordered by descending size.
+     * @return the list of <tt>StartupCost</tt> objects.
+     */
+    public List getEntryCosts() {
+
+        List sortedCosts;
+        synchronized (entryCosts) {
+            sortedCosts = new ArrayList(entryCosts.values());
+        }
+        Collections.sort(sortedCosts, StartupCost.BYTE_COUNT_COMPARATOR);
+        return sortedCosts;
+    }
+
+    /**
+     * Get the cost of the classes with a static initializer or <tt>invokedynamic</tt> instructions.
+     * @param comparator the order of the classes, one of the comparators in <tt>StartupCost</tt>.
+     * @param maximumCount the maximum number of classes returned.
+     * @return the list of <tt>StartupCost</tt> objects.
+     */
+    public List getClassCosts(Comparator comparator, int maximumCount) {
+
+        List sortedCosts;
+        synchronized (classCosts) {
+            sortedCosts = new ArrayList(classCosts);
+        }
+        Collections.sort(sortedCosts, comparator);
+        return sortedCosts.size() > maximumCount ? sortedCosts.subList(0, maximumCount) : sortedCosts;
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, byte[] bytes)
+        throws InvalidByteCodeException, IOException
+    {
+        ClassFile classFile = ClassFileReader.readFromInputStream(new ByteArrayInputStream(bytes));
+        addClassFile(entry, classFileName, classFile, bytes.length);
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException, IOException
+    {
+        // only called if the raw class file is not available
+        addClassFile(entry, classFileName, classFile, 0);
+    }
+
+    public void writeReport(PrintWriter writer) {
+
+        writer.println("entry\tclasses\tbytes\tstatic initializers\tstatic initializer bytes\tinvokedynamic\tbootstrap methods");
+        List sortedEntryCosts = getEntryCosts();
+        StartupCost totalCost = new StartupCost("total", null);
+        for (int i = 0; i < sortedEntryCosts.size(); i++) {
+            StartupCost cost = (StartupCost)sortedEntryCosts.get(i);
+            writeCost(writer, cost);
+            totalCost.add(cost);
+        }
+        writeCost(writer, totalCost);
+
+        writer.println();
+        writer.println("# largest static initializers");
+        writeClassCosts(writer, getClassCosts(StartupCost.CLINIT_SIZE_COMPARATOR, topCount), true);
+        writer.println();
+        writer.println("# most invokedynamic instructions");
+        writeClassCosts(writer, getClassCosts(StartupCost.INVOKE_DYNAMIC_COMPARATOR, topCount), false);
+    }
+
+    private void addClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile, long byteCount)
+        throws InvalidByteCodeException, IOException
+    {
+        int clinitSize = -1;
+        int invokeDynamicCount = 0;
+        List methodCodes = MethodCode.getMethodCodes(classFile);
+        for (int i = 0; i < methodCodes.size(); i++) {
+            MethodCode code = (MethodCode)methodCodes.get(i);
+            if (code.getMethod().getName().equals("<clinit>")) {
+                clinitSize = code.getCodeAttribute().getCode().length;
+            }
+            List instructions = code.getInstructions();
+            for (int j = 0; j < instructions.size(); j++) {
+                if (((AbstractInstruction)instructions.get(j)).getOpcode() == OPCODE_INVOKEDYNAMIC) {
+                    invokeDynamicCount++;
+                }
+            }
+        }
+        BootstrapMethodsAttribute bootstrapMethods =
+                (BootstrapMethodsAttribute)classFile.findAttribute(BootstrapMethodsAttribute.class);
+        int bootstrapMethodCount = bootstrapMethods == null ? 0 : bootstrapMethods.getBootstrapMethods().length;
+
+        StartupCost classCost = new StartupCost(classFile.getThisClassName().replace('/', '.'),
+                entry.getClassFileLocation(classFileName), byteCount, clinitSize, invokeDynamicCount, bootstrapMethodCount);
+        if (clinitSize >= 0 || invokeDynamicCount > 0) {
+            synchronized (classCosts) {
+                classCosts.add(classCost);
+            }
+        }
+        synchronized (entryCosts) {
+            StartupCost entryCost = (StartupCost)entryCosts.get(entry.getFileName());
+            if (entryCost == null) {
+                entryCost = new StartupCost(entry.getFileName(), entry.getFileName());
+                entryCosts.put(entry.getFileName(), entryCost);
+            }
+            entryCost.add(classCost);
+        }
+    }
+
+    private static void writeClassCosts(PrintWriter writer, List costs, boolean clinitRanking) {
+
+        writer.println("class\tclasses\tbytes\tstatic initializers\tstatic initializer bytes\tinvokedynamic\tbootstrap methods");
+        for (int i = 0; i < costs.size(); i++) {
+            StartupCost cost = (StartupCost)costs.get(i);
+            if ((clinitRanking ? cost.getClinitCount() : cost.getInvokeDynamicCount()) == 0) {
+                break;
+            }
+            writeCost(writer, cost);
+        }
+    }
+
+    private static void writeCost(PrintWriter writer, StartupCost cost) {
+        writer.println(cost.getName() + '\t' +
+                cost.getClassCount() + '\t' +
+                cost.getByteCount() + '\t' +
+                cost.getClinitCount() + '\t' +
+                cost.getClinitSize() + '\t' +
+                cost.getInvokeDynamicCount() + '\t' +
+                cost.getBootstrapMethodCount());
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int topCount = DEFAULT_TOP_COUNT;
+        List fileNames = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-top") && i + 1 < args.length) {
+                topCount = Integer.parseInt(args[++i]);
+            } else {
+                fileNames.add(args[i]);
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.err.println("Usage: StartupCostAnalyzer [-top n] file...");
+            System.exit(1);
+        }
+        run(new StartupCostAnalyzer(topCount), fileNames);
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.bytecode.Opcodes;
+
+/**
+    Base class for lint rules with a fixed identifier and description.
+*/
+public abstract class AbstractLintRule implements LintRule, Opcodes {
+
+    private final String id;
+    private final String description;
+
+    /**
+     * Constructor.
+     * @param id the identifier of the rule.
+     * @param description the description of the anti-pattern.
+     */
+    protected AbstractLintRule(String id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+}
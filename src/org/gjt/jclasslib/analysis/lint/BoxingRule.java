@@ -0,0 +1,67 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.constants.ConstantNameAndTypeInfo;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
+
+import java.util.List;
+
+/**
+    Finds autoboxing inside loops, i.e. calls of the <tt>valueOf</tt> methods
+    of the wrapper classes with a primitive argument.
+*/
+public class BoxingRule extends AbstractLintRule {
+
+    /**
+     * Constructor.
+     */
+    public BoxingRule() {
+        super("boxing", "Autoboxing inside a loop");
+    }
+
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException {
+
+        List instructions = code.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            if (instruction.getOpcode() != OPCODE_INVOKESTATIC || !code.isInLoop(instruction.getOffset())) {
+                continue;
+            }
+            ConstantReference reference = code.getMemberReference(instruction);
+            if (reference == null) {
+                continue;
+            }
+            String className = reference.getClassInfo().getName();
+            ConstantNameAndTypeInfo nameAndType = reference.getNameAndTypeInfo();
+            if (isBoxing(className, nameAndType.getName(), nameAndType.getDescriptor())) {
+                reporter.report(this, code, instruction.getOffset(),
+                        className.substring(className.lastIndexOf('/') + 1) + ".valueOf boxes a primitive inside a loop");
+            }
+        }
+    }
+
+    /**
+     * Check whether a method is a boxing method of a wrapper class.
+     * @param className the name of the class with '/' as package separator.
+     * @param methodName the name of the method.
+     * @param descriptor the descriptor of the method.
+     * @return the value.
+     */
+    public static boolean isBoxing(String className, String methodName, String descriptor) {
+        return methodName.equals("valueOf") && descriptor.length() > 3 &&
+                descriptor.charAt(0) == '(' && descriptor.charAt(2) == ')' &&
+                "ZBCSIJFD".indexOf(descriptor.charAt(1)) >= 0 &&
+                descriptor.endsWith("L" + className + ";") &&
+                className.startsWith("java/lang/");
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.attributes.ExceptionTableEntry;
+
+import java.util.List;
+
+/**
+    Finds exceptions that are created and thrown inside a <tt>try</tt> block of the
+    same method, i.e. exceptions that are used for control flow. A <tt>throw</tt>
+    is reported if the exception is constructed directly before it and the
+    instruction is covered by a typed exception handler.
+*/
+public class ExceptionControlFlowRule extends AbstractLintRule {
+
+    /**
+     * Constructor.
+     */
+    public ExceptionControlFlowRule() {
+        super("exception-control-flow", "Exception thrown and caught in the same method");
+    }
+
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException {
+
+        ExceptionTableEntry[] exceptionTable = code.getCodeAttribute().getExceptionTable();
+        if (exceptionTable == null || exceptionTable.length == 0) {
+            return;
+        }
+        List instructions = code.getInstructions();
+        for (int i = 1; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            if (instruction.getOpcode() != OPCODE_ATHROW || !isConstructorCall(code, (AbstractInstruction)instructions.get(i - 1))) {
+                continue;
+            }
+            int offset = instruction.getOffset();
+            for (int j = 0; j < exceptionTable.length; j++) {
+                ExceptionTableEntry entry = exceptionTable[j];
+                if (entry.getCatchType() != 0 && entry.getStartPc() <= offset && offset < entry.getEndPc()) {
+                    String catchType = code.getClassFile().getConstantPoolEntryName(entry.getCatchType());
+                    String message = "exception thrown inside a try block that catches " +
+                            (catchType == null ? "an exception" : catchType.replace('/', '.'));
+                    if (code.isInLoop(offset)) {
+                        message += " inside a loop";
+                    }
+                    reporter.report(this, code, offset, message);
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean isConstructorCall(MethodCode code, AbstractInstruction instruction) throws InvalidByteCodeException {
+        return instruction.getOpcode() == OPCODE_INVOKESPECIAL &&
+                code.getMemberReference(instruction) != null &&
+                code.getMemberReference(instruction).getNameAndTypeInfo().getName().equals("<init>");
+    }
+
+}
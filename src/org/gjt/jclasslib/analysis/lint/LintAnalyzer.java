@@ -0,0 +1,201 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.ClasspathAnalyzer;
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+
+/**
+    Runs a set of <tt>LintRule</tt>s over all methods of a classpath and reports
+    the findings as tab-separated lines, one finding per line.
+    <p>
+    Command line usage:
+    <pre>
+    LintAnalyzer [-noDefaultRules] [-rule className]... file...
+    </pre>
+    where <tt>className</tt> is the fully qualified name of a custom <tt>LintRule</tt>
+    on the class path and <tt>file</tt> is a directory or an archive.
+*/
+public class LintAnalyzer extends ClasspathAnalyzer {
+
+    private final LintRule[] rules;
+    private final List findings = new ArrayList();
+
+    /**
+     * Constructor.
+     * @param rules the list of <tt>LintRule</tt> objects.
+     */
+    public LintAnalyzer(List rules) {
+        this.rules = (LintRule[])rules.toArray(new LintRule[rules.size()]);
+    }
+
+    /**
+     * Create the default rules.
+     * @return the list of <tt>LintRule</tt> objects.
+     */
+    public static List createDefaultRules() {
+
+        List rules = new ArrayList();
+        rules.add(new BoxingRule());
+        rules.add(new StringBuilderInLoopRule());
+        rules.add(new StringFormatInLoopRule());
+        rules.add(new SynchronizationRule());
+        rules.add(new ReflectionRule());
+        rules.add(new ExceptionControlFlowRule());
+        return rules;
+    }
+
+    /**
+     * Create a custom rule.
+     * @param className the fully qualified name of a class that implements <tt>LintRule</tt>.
+     * @return the rule.
+     * @throws IllegalArgumentException if the rule cannot be created.
+     */
+    public static LintRule createRule(String className) {
+
+        try {
+            Object rule = Class.forName(className).getConstructor().newInstance();
+            if (!(rule instanceof LintRule)) {
+                throw new IllegalArgumentException(className + " does not implement " + LintRule.class.getName());
+            }
+            return (LintRule)rule;
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("rule class " + className + " not found");
+        } catch (InstantiationException ex) {
+            throw new IllegalArgumentException("rule class " + className + " cannot be instantiated");
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("rule class " + className + " has no public constructor");
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("rule class " + className + " has no public constructor");
+        } catch (InvocationTargetException ex) {
+            throw new IllegalArgumentException("rule class " + className + " cannot be instantiated: " + ex.getCause());
+        }
+    }
+
+    /**
+     * Get all findings ordered by class, method and offset.
+     * @return the list of <tt>LintFinding</tt> objects.
+     */
+    public List getFindings() {
+
+        List sortedFindings;
+        synchronized (findings) {
+            sortedFindings = new ArrayList(findings);
+        }
+        Collections.sort(sortedFindings, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                LintFinding finding1 = (LintFinding)o1;
+                LintFinding finding2 = (LintFinding)o2;
+                int result = finding1.getClassName().compareTo(finding2.getClassName());
+                if (result == 0) {
+                    result = finding1.getMethodName().compareTo(finding2.getMethodName());
+                }
+                if (result == 0) {
+                    result = finding1.getMethodDescriptor().compareTo(finding2.getMethodDescriptor());
+                }
+                if (result == 0) {
+                    result = finding1.getOffset() - finding2.getOffset();
+                }
+                return result;
+            }
+        });
+        return sortedFindings;
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException, IOException
+    {
+        final List classFindings = new ArrayList();
+        final String className = classFile.getThisClassName();
+        LintReporter reporter = new LintReporter() {
+            public void report(LintRule rule, MethodCode code, int offset, String message) {
+                try {
+                    classFindings.add(new LintFinding(rule.getId(), className,
+                            code.getMethod().getName(), code.getMethod().getDescriptor(),
+                            offset, offset < 0 ? -1 : code.getLineNumber(offset),
+                            offset >= 0 && code.isInLoop(offset), message));
+                } catch (InvalidByteCodeException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        };
+
+        List methodCodes = MethodCode.getMethodCodes(classFile);
+        for (int i = 0; i < methodCodes.size(); i++) {
+            MethodCode code = (MethodCode)methodCodes.get(i);
+            for (int j = 0; j < rules.length; j++) {
+                rules[j].check(code, reporter);
+            }
+        }
+        synchronized (findings) {
+            findings.addAll(classFindings);
+        }
+    }
+
+    public void writeReport(PrintWriter writer) {
+
+        List sortedFindings = getFindings();
+        Map ruleCounts = new TreeMap();
+        writer.println("rule\tclass\tmethod\tdescriptor\toffset\tline\tin loop\tmessage");
+        for (int i = 0; i < sortedFindings.size(); i++) {
+            LintFinding finding = (LintFinding)sortedFindings.get(i);
+            Integer count = (Integer)ruleCounts.get(finding.getRuleId());
+            ruleCounts.put(finding.getRuleId(), new Integer(count == null ? 1 : count.intValue() + 1));
+            writer.println(finding.getRuleId() + '\t' +
+                    finding.getClassName().replace('/', '.') + '\t' +
+                    finding.getMethodName() + '\t' +
+                    finding.getMethodDescriptor() + '\t' +
+                    finding.getOffset() + '\t' +
+                    finding.getLineNumber() + '\t' +
+                    finding.isInLoop() + '\t' +
+                    finding.getMessage());
+        }
+        for (int i = 0; i < rules.length; i++) {
+            Integer count = (Integer)ruleCounts.get(rules[i].getId());
+            writer.println("# " + rules[i].getId() + ": " + (count == null ? 0 : count.intValue()) +
+                    " findings (" + rules[i].getDescription() + ")");
+        }
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        boolean defaultRules = true;
+        List customRules = new ArrayList();
+        List fileNames = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-noDefaultRules")) {
+                defaultRules = false;
+            } else if (args[i].equals("-rule") && i + 1 < args.length) {
+                customRules.add(createRule(args[++i]));
+            } else {
+                fileNames.add(args[i]);
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.err.println("Usage: LintAnalyzer [-noDefaultRules] [-rule className]... file...");
+            System.exit(1);
+        }
+        List rules = defaultRules ? createDefaultRules() : new ArrayList();
+        rules.addAll(customRules);
+        run(new LintAnalyzer(rules), fileNames);
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+/**
+    A finding of a <tt>LintRule</tt>.
+*/
+public class LintFinding {
+
+    private final String ruleId;
+    private final String className;
+    private final String methodName;
+    private final String methodDescriptor;
+    private final int offset;
+    private final int lineNumber;
+    private final boolean inLoop;
+    private final String message;
+
+    /**
+     * Constructor.
+     * @param ruleId the identifier of the rule.
+     * @param className the name of the class.
+     * @param methodName the name of the method.
+     * @param methodDescriptor the descriptor of the method.
+     * @param offset the offset of the offending instruction, or -1.
+     * @param lineNumber the source line, or -1.
+     * @param inLoop whether the offending instruction is inside a loop.
+     * @param message the message.
+     */
+    public LintFinding(String ruleId, String className, String methodName, String methodDescriptor,
+                       int offset, int lineNumber, boolean inLoop, String message) {
+        this.ruleId = ruleId;
+        this.className = className;
+        this.methodName = methodName;
+        this.methodDescriptor = methodDescriptor;
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        this.inLoop = inLoop;
+        this.message = message;
+    }
+
+    /**
+     * Get the identifier of the rule.
+     * @return the identifier.
+     */
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    /**
+     * Get the name of the class.
+     * @return the name with '/' as package separator.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the name of the method.
+     * @return the name.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Get the descriptor of the method.
+     * @return the descriptor.
+     */
+    public String getMethodDescriptor() {
+        return methodDescriptor;
+    }
+
+    /**
+     * Get the offset of the offending instruction.
+     * @return the offset, or -1 if the finding concerns the whole method.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the source line of the offending instruction.
+     * @return the line number, or -1 if it is unknown.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Check whether the offending instruction is inside a loop.
+     * @return the value.
+     */
+    public boolean isInLoop() {
+        return inLoop;
+    }
+
+    /**
+     * Get the message.
+     * @return the message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+}
@@ -0,0 +1,27 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+
+/**
+    Receives the findings of <tt>LintRule</tt>s.
+*/
+public interface LintReporter {
+
+    /**
+     * Report a finding.
+     * @param rule the rule.
+     * @param code the code of the method.
+     * @param offset the offset of the offending instruction, or -1 if the finding
+     *               concerns the whole method.
+     * @param message the message.
+     */
+    public void report(LintRule rule, MethodCode code, int offset, String message);
+
+}
@@ -0,0 +1,41 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+/**
+    A check for a performance anti-pattern in the code of a method. Rules are
+    called concurrently for different methods and must not keep state between calls.
+    Custom rules must have a public no-argument constructor so that they can be
+    loaded by <tt>LintAnalyzer</tt>.
+*/
+public interface LintRule {
+
+    /**
+     * Get the identifier of this rule as used in the report.
+     * @return the identifier.
+     */
+    public String getId();
+
+    /**
+     * Get a short description of the anti-pattern.
+     * @return the description.
+     */
+    public String getDescription();
+
+    /**
+     * Check the code of a method.
+     * @param code the code.
+     * @param reporter the reporter for findings.
+     * @throws InvalidByteCodeException if the class file is invalid.
+     */
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException;
+
+}
@@ -0,0 +1,72 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+    Finds reflective lookups and invocations.
+*/
+public class ReflectionRule extends AbstractLintRule {
+
+    private static final Set REFLECTIVE_METHODS = new HashSet(Arrays.asList(new String[] {
+        "java/lang/Class.forName",
+        "java/lang/Class.newInstance",
+        "java/lang/Class.getMethod",
+        "java/lang/Class.getMethods",
+        "java/lang/Class.getDeclaredMethod",
+        "java/lang/Class.getDeclaredMethods",
+        "java/lang/Class.getField",
+        "java/lang/Class.getDeclaredField",
+        "java/lang/Class.getConstructor",
+        "java/lang/Class.getDeclaredConstructor",
+        "java/lang/reflect/Method.invoke",
+        "java/lang/reflect/Constructor.newInstance",
+        "java/lang/reflect/Field.get",
+        "java/lang/reflect/Field.set"
+    }));
+
+    /**
+     * Constructor.
+     */
+    public ReflectionRule() {
+        super("reflection", "Reflective lookup or invocation");
+    }
+
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException {
+
+        List instructions = code.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            if (!MethodCode.isInvokeInstruction(instruction)) {
+                continue;
+            }
+            ConstantReference reference = code.getMemberReference(instruction);
+            if (reference == null) {
+                continue;
+            }
+            String method = reference.getClassInfo().getName() + "." + reference.getNameAndTypeInfo().getName();
+            if (REFLECTIVE_METHODS.contains(method)) {
+                String message = method.replace('/', '.');
+                if (code.isInLoop(instruction.getOffset())) {
+                    message += " inside a loop";
+                }
+                reporter.report(this, code, instruction.getOffset(), message);
+            }
+        }
+    }
+
+}
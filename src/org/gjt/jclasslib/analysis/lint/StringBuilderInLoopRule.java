@@ -0,0 +1,45 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.util.List;
+
+/**
+    Finds <tt>StringBuilder</tt> and <tt>StringBuffer</tt> objects that are created
+    inside a loop, typically by string concatenation in the loop body.
+*/
+public class StringBuilderInLoopRule extends AbstractLintRule {
+
+    /**
+     * Constructor.
+     */
+    public StringBuilderInLoopRule() {
+        super("string-builder-in-loop", "StringBuilder created inside a loop");
+    }
+
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException {
+
+        List instructions = code.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            if (instruction.getOpcode() != OPCODE_NEW || !code.isInLoop(instruction.getOffset())) {
+                continue;
+            }
+            String className = code.getClassName(instruction);
+            if ("java/lang/StringBuilder".equals(className) || "java/lang/StringBuffer".equals(className)) {
+                reporter.report(this, code, instruction.getOffset(),
+                        "new " + className.replace('/', '.') + " inside a loop");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.util.List;
+
+/**
+    Finds calls of <tt>String.format</tt> inside loops. Every call parses the
+    format string again.
+*/
+public class StringFormatInLoopRule extends AbstractLintRule {
+
+    /**
+     * Constructor.
+     */
+    public StringFormatInLoopRule() {
+        super("string-format-in-loop", "String.format called inside a loop");
+    }
+
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException {
+
+        List instructions = code.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            if (code.isInLoop(instruction.getOffset()) && code.isInvocation(instruction, "java/lang/String", "format")) {
+                reporter.report(this, code, instruction.getOffset(), "String.format inside a loop");
+            }
+        }
+    }
+
+}
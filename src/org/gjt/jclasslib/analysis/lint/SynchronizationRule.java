@@ -0,0 +1,43 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.lint;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.structures.AccessFlags;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.util.List;
+
+/**
+    Finds synchronized methods and <tt>monitorenter</tt> instructions inside loops.
+*/
+public class SynchronizationRule extends AbstractLintRule {
+
+    /**
+     * Constructor.
+     */
+    public SynchronizationRule() {
+        super("synchronization", "Synchronized method or monitor acquired inside a loop");
+    }
+
+    public void check(MethodCode code, LintReporter reporter) throws InvalidByteCodeException {
+
+        if ((code.getMethod().getAccessFlags() & AccessFlags.ACC_SYNCHRONIZED) != 0) {
+            reporter.report(this, code, -1, "synchronized method");
+        }
+        List instructions = code.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            if (instruction.getOpcode() == OPCODE_MONITORENTER && code.isInLoop(instruction.getOffset())) {
+                reporter.report(this, code, instruction.getOffset(), "monitorenter inside a loop");
+            }
+        }
+    }
+
+}
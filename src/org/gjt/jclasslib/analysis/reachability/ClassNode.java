@@ -0,0 +1,98 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.reachability;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.FieldInfo;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+    A class in the reachability graph with its supertypes, its fields and the edges of its methods.
+*/
+class ClassNode {
+
+    final String name;
+    final String superName;
+    final String[] interfaceNames;
+    final int accessFlags;
+    final String entryName;
+    final String fileName;
+    /** The methods of the class, keyed by signature. */
+    final Map methods = new HashMap();
+    /** The signatures of the fields of the class. */
+    final Set fields = new HashSet();
+
+    private ClassNode(String name, String superName, String[] interfaceNames, int accessFlags,
+                      String entryName, String fileName) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaceNames = interfaceNames;
+        this.accessFlags = accessFlags;
+        this.entryName = entryName;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Create the node for a class file.
+     * @param classFile the class file.
+     * @param entryName the file name of the classpath entry.
+     * @param fileName the file name under which the class file can be opened.
+     * @return the node.
+     * @throws InvalidByteCodeException if the class file is invalid.
+     * @throws IOException if the code of a method cannot be read.
+     */
+    static ClassNode create(ClassFile classFile, String entryName, String fileName)
+        throws InvalidByteCodeException, IOException
+    {
+        int[] interfaces = classFile.getInterfaces();
+        String[] interfaceNames = new String[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceNames[i] = classFile.getConstantPoolEntryName(interfaces[i]);
+        }
+        String superName = classFile.getSuperClass() == 0 ? null : classFile.getSuperClassName();
+        ClassNode node = new ClassNode(classFile.getThisClassName(), superName, interfaceNames,
+                classFile.getAccessFlags(), entryName, fileName);
+
+        FieldInfo[] fields = classFile.getFields();
+        for (int i = 0; i < fields.length; i++) {
+            node.fields.add(MethodNode.getFieldSignature(fields[i].getName(), fields[i].getDescriptor()));
+        }
+        MethodInfo[] methods = classFile.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            MethodNode methodNode = MethodNode.create(methods[i]);
+            node.methods.put(methodNode.signature, methodNode);
+        }
+        List methodCodes = MethodCode.getMethodCodes(classFile);
+        for (int i = 0; i < methodCodes.size(); i++) {
+            MethodNode methodNode = MethodNode.create((MethodCode)methodCodes.get(i));
+            node.methods.put(methodNode.signature, methodNode);
+        }
+        return node;
+    }
+
+    /**
+     * Get the names of the direct supertypes.
+     * @return the names, the superclass first.
+     */
+    String[] getSupertypeNames() {
+
+        if (superName == null) {
+            return interfaceNames;
+        }
+        String[] names = new String[interfaceNames.length + 1];
+        names[0] = superName;
+        System.arraycopy(interfaceNames, 0, names, 1, interfaceNames.length);
+        return names;
+    }
+
+}
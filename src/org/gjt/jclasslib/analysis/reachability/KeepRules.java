@@ -0,0 +1,135 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.reachability;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+    Rules for classes and members that must be kept by a <tt>ReachabilityAnalyzer</tt>
+    although they are not reachable through bytecode, for example because they are
+    used through reflection. A rules file contains one rule per line, lines starting
+    with '#' are comments:
+    <pre>
+    keep com.example.Plugin
+    keep com.example.model.**
+    keepannotated com.example.Inject
+    </pre>
+    <tt>keep</tt> keeps all classes matching a pattern together with all their
+    members. In patterns, <tt>*</tt> matches any part of a class name within a
+    package and <tt>**</tt> matches any part including subpackages.
+    <tt>keepannotated</tt> keeps all classes, methods and fields that carry
+    the given annotation.
+*/
+public class KeepRules {
+
+    private static final String KEEP = "keep";
+    private static final String KEEP_ANNOTATED = "keepannotated";
+
+    private final List classPatterns = new ArrayList();
+    private final List annotationDescriptors = new ArrayList();
+
+    /**
+     * Read rules from a file.
+     * @param file the file.
+     * @return the rules.
+     * @throws IOException if the file cannot be read or contains an invalid rule.
+     */
+    public static KeepRules read(File file) throws IOException {
+
+        KeepRules rules = new KeepRules();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length == 2 && parts[0].equals(KEEP)) {
+                    rules.addKeptClassPattern(parts[1]);
+                } else if (parts.length == 2 && parts[0].equals(KEEP_ANNOTATED)) {
+                    rules.addKeepAnnotation(parts[1]);
+                } else {
+                    throw new IOException(file.getPath() + ":" + lineNumber + ": invalid rule \"" + line + "\"");
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return rules;
+    }
+
+    /**
+     * Keep all classes matching a pattern together with their members.
+     * @param pattern the pattern with '.' or '/' as package separator.
+     */
+    public void addKeptClassPattern(String pattern) {
+
+        StringBuffer regex = new StringBuffer();
+        String internalPattern = pattern.replace('.', '/');
+        for (int i = 0; i < internalPattern.length(); i++) {
+            char c = internalPattern.charAt(i);
+            if (c == '*' && i + 1 < internalPattern.length() && internalPattern.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        classPatterns.add(Pattern.compile(regex.toString()));
+    }
+
+    /**
+     * Keep all classes and members with an annotation.
+     * @param annotationClassName the name of the annotation type with '.' or '/' as package separator.
+     */
+    public void addKeepAnnotation(String annotationClassName) {
+        annotationDescriptors.add("L" + annotationClassName.replace('.', '/') + ";");
+    }
+
+    /**
+     * Check whether a class is kept by a <tt>keep</tt> rule.
+     * @param className the name of the class with '/' as package separator.
+     * @return the value.
+     */
+    public boolean isKeptClass(String className) {
+
+        for (int i = 0; i < classPatterns.size(); i++) {
+            if (((Pattern)classPatterns.get(i)).matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether an annotation keeps the annotated element.
+     * @param typeDescriptor the field descriptor of the annotation type.
+     * @return the value.
+     */
+    public boolean isKeepAnnotation(String typeDescriptor) {
+        return annotationDescriptors.contains(typeDescriptor);
+    }
+
+    /**
+     * Check whether any <tt>keepannotated</tt> rules exist.
+     * @return the value.
+     */
+    public boolean hasKeepAnnotations() {
+        return !annotationDescriptors.isEmpty();
+    }
+
+}
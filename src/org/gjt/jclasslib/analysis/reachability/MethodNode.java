@@ -0,0 +1,312 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.reachability;
+
+import org.gjt.jclasslib.analysis.MethodCode;
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.AccessFlags;
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+import org.gjt.jclasslib.structures.attributes.BootstrapMethodEntry;
+import org.gjt.jclasslib.structures.attributes.BootstrapMethodsAttribute;
+import org.gjt.jclasslib.structures.attributes.ExceptionTableEntry;
+import org.gjt.jclasslib.structures.constants.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+    The outgoing edges of a method in the reachability graph. Method references
+    are stored as pairs of the owner class name and the method signature, which is
+    the name followed by the descriptor. Field signatures separate the name and
+    the descriptor by a colon.
+*/
+class MethodNode implements Opcodes, AccessFlags {
+
+    private static final String[] EMPTY = new String[0];
+
+    final String signature;
+    final int accessFlags;
+
+    /** Classes that are loaded by the method. */
+    String[] classReferences = EMPTY;
+    /** Classes that are instantiated by the method. */
+    String[] instantiations = EMPTY;
+    /** Pairs of owner and signature for calls that are not dispatched virtually. */
+    String[] directCalls = EMPTY;
+    /** Pairs of owner and signature for calls that are dispatched virtually. */
+    String[] virtualCalls = EMPTY;
+    /** Pairs of owner and field signature for field accesses. */
+    String[] fieldAccesses = EMPTY;
+
+    private MethodNode(String signature, int accessFlags) {
+        this.signature = signature;
+        this.accessFlags = accessFlags;
+    }
+
+    /**
+     * Create the node for a method without code.
+     * @param method the method.
+     * @return the node.
+     * @throws InvalidByteCodeException if the method is invalid.
+     */
+    static MethodNode create(MethodInfo method) throws InvalidByteCodeException {
+        return new MethodNode(method.getName() + method.getDescriptor(), method.getAccessFlags());
+    }
+
+    /**
+     * Create the node for a method with code and collect its edges.
+     * @param code the code of the method.
+     * @return the node.
+     * @throws InvalidByteCodeException if the code is invalid.
+     */
+    static MethodNode create(MethodCode code) throws InvalidByteCodeException {
+
+        MethodNode node = create(code.getMethod());
+        EdgeCollector collector = new EdgeCollector(code.getClassFile());
+        collector.addDescriptor(code.getMethod().getDescriptor());
+        List instructions = code.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            switch (instruction.getOpcode()) {
+                case OPCODE_INVOKEVIRTUAL:
+                case OPCODE_INVOKEINTERFACE:
+                    collector.addCall(code.getMemberReference(instruction), true);
+                    break;
+                case OPCODE_INVOKESTATIC:
+                case OPCODE_INVOKESPECIAL:
+                    collector.addCall(code.getMemberReference(instruction), false);
+                    break;
+                case OPCODE_INVOKEDYNAMIC:
+                    collector.addInvokeDynamic(code.getConstantPoolEntry(instruction));
+                    break;
+                case OPCODE_GETSTATIC:
+                case OPCODE_PUTSTATIC:
+                case OPCODE_GETFIELD:
+                case OPCODE_PUTFIELD:
+                    collector.addFieldAccess(code.getMemberReference(instruction));
+                    break;
+                case OPCODE_NEW:
+                    collector.addInstantiation(code.getClassName(instruction));
+                    break;
+                case OPCODE_ANEWARRAY:
+                case OPCODE_CHECKCAST:
+                case OPCODE_INSTANCEOF:
+                case OPCODE_MULTIANEWARRAY:
+                case OPCODE_LDC:
+                case OPCODE_LDC_W:
+                    collector.addConstant(code.getConstantPoolEntry(instruction));
+                    break;
+            }
+        }
+        ExceptionTableEntry[] exceptionTable = code.getCodeAttribute().getExceptionTable();
+        for (int i = 0; exceptionTable != null && i < exceptionTable.length; i++) {
+            if (exceptionTable[i].getCatchType() > 0) {
+                collector.addConstant(code.getClassFile().getConstantPool()[exceptionTable[i].getCatchType()]);
+            }
+        }
+
+        node.classReferences = collector.toArray(collector.classReferences);
+        node.instantiations = collector.toArray(collector.instantiations);
+        node.directCalls = collector.toArray(collector.directCalls);
+        node.virtualCalls = collector.toArray(collector.virtualCalls);
+        node.fieldAccesses = collector.toArray(collector.fieldAccesses);
+        return node;
+    }
+
+    /**
+     * Check whether the method is static.
+     * @return the value.
+     */
+    boolean isStatic() {
+        return (accessFlags & ACC_STATIC) != 0;
+    }
+
+    /**
+     * Check whether the method can be the target of a virtual call.
+     * @return the value.
+     */
+    boolean isVirtual() {
+        return (accessFlags & (ACC_STATIC | ACC_PRIVATE)) == 0 && !signature.startsWith("<");
+    }
+
+    /**
+     * Get the signature of a field.
+     * @param name the name of the field.
+     * @param descriptor the descriptor of the field.
+     * @return the signature.
+     */
+    static String getFieldSignature(String name, String descriptor) {
+        return name + ':' + descriptor;
+    }
+
+    /**
+     * Strip the array dimensions from a class name as it appears in a <tt>CONSTANT_Class</tt> entry.
+     * @param className the class name.
+     * @return the name of the element class or <tt>null</tt> for arrays of primitive types.
+     */
+    static String getElementClassName(String className) {
+
+        if (className == null || !className.startsWith("[")) {
+            return className;
+        }
+        int index = className.lastIndexOf('[') + 1;
+        if (className.charAt(index) == 'L' && className.endsWith(";")) {
+            return className.substring(index + 1, className.length() - 1);
+        }
+        return null;
+    }
+
+    private static class EdgeCollector {
+
+        private ClassFile classFile;
+        private BootstrapMethodEntry[] bootstrapMethods;
+
+        List classReferences = new ArrayList();
+        List instantiations = new ArrayList();
+        List directCalls = new ArrayList();
+        List virtualCalls = new ArrayList();
+        List fieldAccesses = new ArrayList();
+
+        EdgeCollector(ClassFile classFile) {
+            this.classFile = classFile;
+        }
+
+        void addCall(ConstantReference reference, boolean virtual) throws InvalidByteCodeException {
+
+            if (reference == null) {
+                return;
+            }
+            List calls = virtual ? virtualCalls : directCalls;
+            ConstantNameAndTypeInfo nameAndType = reference.getNameAndTypeInfo();
+            calls.add(getElementClassName(reference.getClassInfo().getName()));
+            calls.add(nameAndType.getName() + nameAndType.getDescriptor());
+            addDescriptor(nameAndType.getDescriptor());
+        }
+
+        void addDescriptor(String descriptor) {
+
+            // the verifier may load the classes in descriptors to check assignments
+            int startIndex = descriptor.indexOf('L');
+            while (startIndex >= 0) {
+                int endIndex = descriptor.indexOf(';', startIndex);
+                if (endIndex < 0) {
+                    break;
+                }
+                classReferences.add(descriptor.substring(startIndex + 1, endIndex));
+                startIndex = descriptor.indexOf('L', endIndex);
+            }
+        }
+
+        void addFieldAccess(ConstantReference reference) throws InvalidByteCodeException {
+
+            if (reference == null) {
+                return;
+            }
+            ConstantNameAndTypeInfo nameAndType = reference.getNameAndTypeInfo();
+            addClassReference(reference.getClassInfo().getName());
+            fieldAccesses.add(reference.getClassInfo().getName());
+            fieldAccesses.add(getFieldSignature(nameAndType.getName(), nameAndType.getDescriptor()));
+            addDescriptor(nameAndType.getDescriptor());
+        }
+
+        void addInstantiation(String className) {
+            if (className != null) {
+                instantiations.add(className);
+            }
+        }
+
+        void addConstant(CPInfo cpInfo) throws InvalidByteCodeException {
+
+            if (cpInfo instanceof ConstantClassInfo) {
+                addClassReference(((ConstantClassInfo)cpInfo).getName());
+            } else if (cpInfo instanceof ConstantMethodHandleInfo) {
+                addMethodHandle(cpInfo);
+            }
+        }
+
+        void addInvokeDynamic(CPInfo cpInfo) throws InvalidByteCodeException {
+
+            if (!(cpInfo instanceof ConstantInvokeDynamicInfo)) {
+                return;
+            }
+            int bootstrapIndex = ((ConstantInvokeDynamicInfo)cpInfo).getBootstrapMethodAttributeIndex();
+            BootstrapMethodEntry[] entries = getBootstrapMethods();
+            if (bootstrapIndex < 0 || bootstrapIndex >= entries.length) {
+                return;
+            }
+            addMethodHandle(getEntry(entries[bootstrapIndex].getBootstrapMethodRef()));
+            int[] arguments = entries[bootstrapIndex].getBootstrapArguments();
+            for (int i = 0; i < arguments.length; i++) {
+                addConstant(getEntry(arguments[i]));
+            }
+        }
+
+        String[] toArray(List list) {
+            return list.isEmpty() ? EMPTY : (String[])list.toArray(new String[list.size()]);
+        }
+
+        private void addMethodHandle(CPInfo cpInfo) throws InvalidByteCodeException {
+
+            if (!(cpInfo instanceof ConstantMethodHandleInfo)) {
+                return;
+            }
+            ConstantMethodHandleInfo methodHandle = (ConstantMethodHandleInfo)cpInfo;
+            CPInfo referenced = getEntry(methodHandle.getReferenceIndex());
+            if (!(referenced instanceof ConstantReference)) {
+                return;
+            }
+            ConstantReference reference = (ConstantReference)referenced;
+            switch (methodHandle.getType()) {
+                case ConstantMethodHandleInfo.TYPE_INVOKE_VIRTUAL:
+                case ConstantMethodHandleInfo.TYPE_INVOKE_INTERFACE:
+                    addCall(reference, true);
+                    break;
+                case ConstantMethodHandleInfo.TYPE_NEW_INVOKE_SPECIAL:
+                    addInstantiation(reference.getClassInfo().getName());
+                    addCall(reference, false);
+                    break;
+                case ConstantMethodHandleInfo.TYPE_INVOKE_STATIC:
+                case ConstantMethodHandleInfo.TYPE_INVOKE_SPECIAL:
+                    addCall(reference, false);
+                    break;
+                default:
+                    addFieldAccess(reference);
+            }
+        }
+
+        private void addClassReference(String className) {
+            String elementClassName = getElementClassName(className);
+            if (elementClassName != null) {
+                classReferences.add(elementClassName);
+            }
+        }
+
+        private CPInfo getEntry(int index) {
+            CPInfo[] constantPool = classFile.getConstantPool();
+            return index > 0 && index < constantPool.length ? constantPool[index] : null;
+        }
+
+        private BootstrapMethodEntry[] getBootstrapMethods() {
+
+            if (bootstrapMethods == null) {
+                BootstrapMethodsAttribute attribute = (BootstrapMethodsAttribute)classFile.findAttribute(BootstrapMethodsAttribute.class);
+                if (attribute == null || attribute.getBootstrapMethods() == null) {
+                    bootstrapMethods = new BootstrapMethodEntry[0];
+                } else {
+                    bootstrapMethods = attribute.getBootstrapMethods();
+                }
+            }
+            return bootstrapMethods;
+        }
+    }
+
+}
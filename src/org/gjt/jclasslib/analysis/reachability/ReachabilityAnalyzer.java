@@ -0,0 +1,787 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.reachability;
+
+import org.gjt.jclasslib.analysis.ClasspathAnalyzer;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.structures.*;
+import org.gjt.jclasslib.structures.attributes.RuntimeAnnotationsAttribute;
+import org.gjt.jclasslib.structures.elementvalues.AnnotationElementValue;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+    Computes the classes and methods of a classpath that are reachable from a set of
+    entry points. The analysis follows calls, field accesses, instantiations, class
+    constants, exception handlers, supertypes, static initializers and the method handles
+    of <tt>invokedynamic</tt> bootstrap methods. Virtual calls are dispatched to the
+    overriding methods of all instantiated subtypes of the receiver class.
+    <p>
+    Classes that extend or implement a type outside of the classpath may be called back
+    by that type, so all their virtual methods are considered reachable once they are
+    instantiated. Reflection, serialization and native code are not modelled; such
+    entry points have to be added with {@link #addKeptClass(String)} or with
+    {@link KeepRules}. Enum methods and serialization members that the runtime
+    library calls reflectively are kept for all reachable classes.
+    <p>
+    The class files are summarized in parallel by a <tt>ClasspathScanner</tt>, the
+    graph is then traversed by a work-stealing <tt>ForkJoinPool</tt>. The result can
+    be written as a class list for <tt>-XX:SharedClassListFile</tt>.
+    <p>
+    Command line usage:
+    <pre>
+    ReachabilityAnalyzer [-main class]... [-keep class]... [-method class#name]...
+                         [-keepRules file] [-classList file] [-classpathOnly] file...
+    </pre>
+    where <tt>file</tt> is a directory or an archive. The format of the keep rules
+    file is described in {@link KeepRules}.
+*/
+public class ReachabilityAnalyzer extends ClasspathAnalyzer {
+
+    private static final String MAIN_SIGNATURE = "main([Ljava/lang/String;)V";
+    private static final String CLINIT_SIGNATURE = "<clinit>()V";
+    private static final String OBJECT_CLASS_NAME = "java/lang/Object";
+    private static final String[] OBJECT_CALLBACK_SIGNATURES = {
+        "toString()Ljava/lang/String;", "hashCode()I", "equals(Ljava/lang/Object;)Z", "finalize()V"
+    };
+    private static final String[] SERIALIZATION_SIGNATURES = {
+        "writeObject(Ljava/io/ObjectOutputStream;)V", "readObject(Ljava/io/ObjectInputStream;)V",
+        "readObjectNoData()V", "writeReplace()Ljava/lang/Object;", "readResolve()Ljava/lang/Object;"
+    };
+    private static final String SERIAL_VERSION_UID_SIGNATURE = "serialVersionUID:J";
+
+    private static final int TASK_CLASS = 0;
+    private static final int TASK_METHOD = 1;
+    private static final int TASK_INSTANTIATION = 2;
+    private static final int TASK_VIRTUAL_CALL = 3;
+
+    private final Map classNodes = new ConcurrentHashMap();
+    private final List roots = Collections.synchronizedList(new ArrayList());
+    private final Map entryOrder = new HashMap();
+    private KeepRules keepRules;
+
+    private Map subtypes;
+    private Set reachableClasses;
+    private Set reachableMethods;
+    private Set reachableFields;
+    private Set instantiatedClasses;
+    private Map virtualCallOwners;
+
+    private ForkJoinPool pool;
+    private AtomicInteger pendingTasks;
+    private CountDownLatch finished;
+    private volatile RuntimeException failure;
+
+    /**
+     * Add a class whose <tt>main</tt> method is an entry point.
+     * @param className the name of the class.
+     */
+    public void addMainClass(String className) {
+        roots.add(new Root(toInternalName(className), MAIN_SIGNATURE, false));
+    }
+
+    /**
+     * Add a class whose methods are all entry points and which is assumed to be instantiated.
+     * @param className the name of the class.
+     */
+    public void addKeptClass(String className) {
+        roots.add(new Root(toInternalName(className), null, false));
+    }
+
+    /**
+     * Add all methods with a given name in a class as entry points.
+     * @param className the name of the class.
+     * @param methodName the name of the methods, or the name followed by the
+     *                   descriptor for a single method.
+     */
+    public void addRootMethod(String className, String methodName) {
+        roots.add(new Root(toInternalName(className), methodName, false));
+    }
+
+    /**
+     * Add a field that is kept although it may not be accessed through bytecode.
+     * @param className the name of the class.
+     * @param name the name of the field.
+     * @param descriptor the descriptor of the field.
+     */
+    public void addKeptField(String className, String name, String descriptor) {
+        roots.add(new Root(toInternalName(className), MethodNode.getFieldSignature(name, descriptor), true));
+    }
+
+    /**
+     * Set the rules for classes and members that are kept in addition to the entry points.
+     * Must be called before {@link #analyze(ClasspathScanner)}.
+     * @param keepRules the rules.
+     */
+    public void setKeepRules(KeepRules keepRules) {
+        this.keepRules = keepRules;
+    }
+
+    /**
+     * Analyze a classpath and compute the reachable classes and methods from the entry points.
+     * @param scanner the scanner for the classpath entries.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void analyze(ClasspathScanner scanner) throws InterruptedException {
+
+        List classpathEntries = scanner.getClasspathEntries();
+        for (int i = classpathEntries.size() - 1; i >= 0; i--) {
+            entryOrder.put(((ClasspathEntry)classpathEntries.get(i)).getFileName(), new Integer(i));
+        }
+        super.analyze(scanner);
+        if (!scanner.isCancelled()) {
+            computeReachability();
+        }
+    }
+
+    /**
+     * Get the reachable classes, including classes outside of the classpath.
+     * @return the sorted list of class names with '/' as package separator.
+     */
+    public List getReachableClasses() {
+        return sort(reachableClasses);
+    }
+
+    /**
+     * Get the reachable methods.
+     * @return the sorted list of method keys, each consisting of the class name, a '.'
+     *         and the method signature.
+     */
+    public List getReachableMethods() {
+        return sort(reachableMethods);
+    }
+
+    /**
+     * Check whether a method is reachable.
+     * @param className the name of the class with '/' as package separator.
+     * @param signature the name of the method followed by its descriptor.
+     * @return the value.
+     */
+    public boolean isReachable(String className, String signature) {
+        return reachableMethods != null && reachableMethods.contains(getMethodKey(className, signature));
+    }
+
+    /**
+     * Check whether a field is reachable.
+     * @param className the name of the class with '/' as package separator.
+     * @param name the name of the field.
+     * @param descriptor the descriptor of the field.
+     * @return the value.
+     */
+    public boolean isReachable(String className, String name, String descriptor) {
+        return reachableFields != null &&
+                reachableFields.contains(getMethodKey(className, MethodNode.getFieldSignature(name, descriptor)));
+    }
+
+    /**
+     * Get the number of reachable fields.
+     * @return the number.
+     */
+    public int getReachableFieldCount() {
+        return reachableFields == null ? 0 : reachableFields.size();
+    }
+
+    /**
+     * Check whether a class is reachable.
+     * @param className the name of the class with '/' as package separator.
+     * @return the value.
+     */
+    public boolean isReachable(String className) {
+        return reachableClasses != null && reachableClasses.contains(className);
+    }
+
+    /**
+     * Get the classes of the classpath that are not reachable.
+     * @return the sorted list of class names with '/' as package separator.
+     */
+    public List getUnreachableClasses() {
+
+        List classNames = new ArrayList();
+        Iterator it = classNodes.keySet().iterator();
+        while (it.hasNext()) {
+            String className = (String)it.next();
+            if (!isReachable(className)) {
+                classNames.add(className);
+            }
+        }
+        Collections.sort(classNames);
+        return classNames;
+    }
+
+    /**
+     * Write the reachable classes in the format of <tt>-XX:SharedClassListFile</tt>.
+     * @param writer the writer.
+     * @param classpathOnly whether classes outside of the classpath should be omitted.
+     */
+    public void writeClassList(PrintWriter writer, boolean classpathOnly) {
+
+        List classNames = getReachableClasses();
+        for (int i = 0; i < classNames.size(); i++) {
+            String className = (String)classNames.get(i);
+            if (!classpathOnly || classNodes.containsKey(className)) {
+                writer.println(className);
+            }
+        }
+    }
+
+    protected void analyzeClassFile(ClasspathEntry entry, String classFileName, ClassFile classFile)
+        throws InvalidByteCodeException, IOException
+    {
+        ClassNode node = ClassNode.create(classFile, entry.getFileName(), entry.getClassFileLocation(classFileName));
+
+        // the class in the first classpath entry wins, independent of the scanning order
+        ConcurrentHashMap nodes = (ConcurrentHashMap)classNodes;
+        ClassNode existingNode = (ClassNode)nodes.putIfAbsent(node.name, node);
+        while (existingNode != null && comparePrecedence(node, existingNode) < 0) {
+            if (nodes.replace(node.name, existingNode, node)) {
+                break;
+            }
+            existingNode = (ClassNode)nodes.get(node.name);
+        }
+        if (keepRules != null) {
+            addKeptElements(classFile, node);
+        }
+    }
+
+    public void writeReport(PrintWriter writer) {
+
+        if (reachableClasses == null) {
+            writer.println("# reachability not computed");
+            return;
+        }
+        int classpathCount = 0;
+        List classNames = getReachableClasses();
+        for (int i = 0; i < classNames.size(); i++) {
+            if (classNodes.containsKey(classNames.get(i))) {
+                classpathCount++;
+            }
+        }
+        List unreachableClasses = getUnreachableClasses();
+        writer.println("entry\tunreachable class");
+        for (int i = 0; i < unreachableClasses.size(); i++) {
+            ClassNode node = (ClassNode)classNodes.get(unreachableClasses.get(i));
+            writer.println(node.entryName + '\t' + node.name.replace('/', '.'));
+        }
+        writer.println("# " + classpathCount + " of " + classNodes.size() + " classpath classes reachable, " +
+                (classNames.size() - classpathCount) + " classes outside of the classpath, " +
+                reachableMethods.size() + " methods, " + reachableFields.size() + " fields, " +
+                instantiatedClasses.size() + " instantiated classes");
+    }
+
+    private void computeReachability() throws InterruptedException {
+
+        subtypes = new HashMap();
+        Iterator it = classNodes.values().iterator();
+        while (it.hasNext()) {
+            ClassNode node = (ClassNode)it.next();
+            String[] supertypeNames = node.getSupertypeNames();
+            for (int i = 0; i < supertypeNames.length; i++) {
+                List directSubtypes = (List)subtypes.get(supertypeNames[i]);
+                if (directSubtypes == null) {
+                    directSubtypes = new ArrayList();
+                    subtypes.put(supertypeNames[i], directSubtypes);
+                }
+                directSubtypes.add(node.name);
+            }
+        }
+        reachableClasses = Collections.newSetFromMap(new ConcurrentHashMap());
+        reachableMethods = Collections.newSetFromMap(new ConcurrentHashMap());
+        reachableFields = Collections.newSetFromMap(new ConcurrentHashMap());
+        instantiatedClasses = Collections.newSetFromMap(new ConcurrentHashMap());
+        virtualCallOwners = new ConcurrentHashMap();
+
+        pool = new ForkJoinPool();
+        pendingTasks = new AtomicInteger(1);
+        finished = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < roots.size(); i++) {
+                addRoot((Root)roots.get(i));
+            }
+            taskFinished();
+            finished.await();
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void addRoot(Root root) {
+
+        ClassNode node = (ClassNode)classNodes.get(root.className);
+        reachClass(root.className);
+        if (node == null) {
+            return;
+        }
+        if (root.field) {
+            reachField(root.className, root.memberName);
+            return;
+        }
+        if (root.memberName == null) {
+            schedule(TASK_INSTANTIATION, root.className, null);
+            Iterator it = node.fields.iterator();
+            while (it.hasNext()) {
+                reachableFields.add(getMethodKey(root.className, (String)it.next()));
+            }
+        }
+        Iterator it = node.methods.values().iterator();
+        while (it.hasNext()) {
+            MethodNode method = (MethodNode)it.next();
+            if (root.memberName == null || method.signature.equals(root.memberName) ||
+                    method.signature.startsWith(root.memberName + "(")) {
+                reachMethod(root.className, method.signature);
+            }
+        }
+    }
+
+    private void addKeptElements(ClassFile classFile, ClassNode node) throws InvalidByteCodeException {
+
+        if (keepRules.isKeptClass(node.name) || hasKeepAnnotation(classFile, classFile)) {
+            addKeptClass(node.name);
+            return;
+        }
+        if (!keepRules.hasKeepAnnotations()) {
+            return;
+        }
+        MethodInfo[] methods = classFile.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            if (hasKeepAnnotation(classFile, methods[i])) {
+                addRootMethod(node.name, methods[i].getName() + methods[i].getDescriptor());
+            }
+        }
+        FieldInfo[] fields = classFile.getFields();
+        for (int i = 0; i < fields.length; i++) {
+            if (hasKeepAnnotation(classFile, fields[i])) {
+                addKeptField(node.name, fields[i].getName(), fields[i].getDescriptor());
+            }
+        }
+    }
+
+    private boolean hasKeepAnnotation(ClassFile classFile, AbstractStructureWithAttributes structure)
+        throws InvalidByteCodeException
+    {
+        AttributeInfo[] attributes = structure.getAttributes();
+        for (int i = 0; attributes != null && i < attributes.length; i++) {
+            if (!(attributes[i] instanceof RuntimeAnnotationsAttribute)) {
+                continue;
+            }
+            AnnotationElementValue[] annotations = ((RuntimeAnnotationsAttribute)attributes[i]).getRuntimeAnnotations();
+            for (int j = 0; annotations != null && j < annotations.length; j++) {
+                String typeDescriptor = classFile.getConstantPoolUtf8Entry(annotations[j].getTypeIndex()).getString();
+                if (keepRules.isKeepAnnotation(typeDescriptor)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int comparePrecedence(ClassNode node1, ClassNode node2) {
+
+        // versioned class files in multi-release archives have longer names
+        int result = getEntryOrder(node1) - getEntryOrder(node2);
+        if (result == 0) {
+            result = node1.fileName.length() - node2.fileName.length();
+        }
+        if (result == 0) {
+            result = node1.fileName.compareTo(node2.fileName);
+        }
+        return result;
+    }
+
+    private int getEntryOrder(ClassNode node) {
+        Integer order = (Integer)entryOrder.get(node.entryName);
+        return order == null ? Integer.MAX_VALUE : order.intValue();
+    }
+
+    private void reachClass(String className) {
+        if (className != null && reachableClasses.add(className)) {
+            schedule(TASK_CLASS, className, null);
+        }
+    }
+
+    private void reachMethod(String className, String signature) {
+        ClassNode node = (ClassNode)classNodes.get(className);
+        if (node != null && node.methods.containsKey(signature) && reachableMethods.add(getMethodKey(className, signature))) {
+            schedule(TASK_METHOD, className, signature);
+        }
+    }
+
+    private void reachField(String className, String signature) {
+
+        // fields are looked up in the superclasses and superinterfaces
+        Set visited = new HashSet();
+        LinkedList queue = new LinkedList();
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            String currentName = (String)queue.removeFirst();
+            ClassNode node = (ClassNode)classNodes.get(currentName);
+            if (node == null || !visited.add(currentName)) {
+                continue;
+            }
+            if (node.fields.contains(signature)) {
+                reachableFields.add(getMethodKey(currentName, signature));
+                return;
+            }
+            queue.addAll(Arrays.asList(node.getSupertypeNames()));
+        }
+    }
+
+    private void reachImplementation(String className, String signature) {
+        String implementationClassName = resolve(className, signature);
+        if (implementationClassName != null) {
+            reachMethod(implementationClassName, signature);
+        }
+    }
+
+    private void processClass(String className) {
+
+        ClassNode node = (ClassNode)classNodes.get(className);
+        if (node == null) {
+            return;
+        }
+        String[] supertypeNames = node.getSupertypeNames();
+        for (int i = 0; i < supertypeNames.length; i++) {
+            reachClass(supertypeNames[i]);
+        }
+        if (node.methods.containsKey(CLINIT_SIGNATURE)) {
+            reachMethod(className, CLINIT_SIGNATURE);
+        }
+
+        // members that are used reflectively by the runtime library
+        if ((node.accessFlags & AccessFlags.ACC_ENUM) != 0) {
+            reachMethod(className, "values()[L" + className + ";");
+            reachMethod(className, "valueOf(Ljava/lang/String;)L" + className + ";");
+        }
+        if ((node.accessFlags & AccessFlags.ACC_ANNOTATION) != 0) {
+            // the elements of an annotation are read by the annotation proxy
+            Iterator it = node.methods.keySet().iterator();
+            while (it.hasNext()) {
+                reachMethod(className, (String)it.next());
+            }
+        }
+        if (node.fields.contains(SERIAL_VERSION_UID_SIGNATURE)) {
+            reachableFields.add(getMethodKey(className, SERIAL_VERSION_UID_SIGNATURE));
+        }
+        for (int i = 0; i < SERIALIZATION_SIGNATURES.length; i++) {
+            if (node.methods.containsKey(SERIALIZATION_SIGNATURES[i])) {
+                reachMethod(className, SERIALIZATION_SIGNATURES[i]);
+            }
+        }
+    }
+
+    private void processMethod(String className, String signature) {
+
+        ClassNode node = (ClassNode)classNodes.get(className);
+        MethodNode method = node == null ? null : (MethodNode)node.methods.get(signature);
+        if (method == null) {
+            return;
+        }
+        for (int i = 0; i < method.classReferences.length; i++) {
+            reachClass(method.classReferences[i]);
+        }
+        for (int i = 0; i < method.instantiations.length; i++) {
+            reachClass(method.instantiations[i]);
+            if (instantiatedClasses.add(method.instantiations[i])) {
+                schedule(TASK_INSTANTIATION, method.instantiations[i], null);
+            }
+        }
+        for (int i = 0; i < method.fieldAccesses.length; i += 2) {
+            reachField(method.fieldAccesses[i], method.fieldAccesses[i + 1]);
+        }
+        for (int i = 0; i < method.directCalls.length; i += 2) {
+            reachClass(method.directCalls[i]);
+            reachImplementation(method.directCalls[i], method.directCalls[i + 1]);
+        }
+        for (int i = 0; i < method.virtualCalls.length; i += 2) {
+            String ownerName = method.virtualCalls[i];
+            String callSignature = method.virtualCalls[i + 1];
+            reachClass(ownerName);
+            reachImplementation(ownerName, callSignature);
+            Set owners = (Set)virtualCallOwners.get(callSignature);
+            if (owners == null) {
+                Set newOwners = Collections.newSetFromMap(new ConcurrentHashMap());
+                owners = (Set)((ConcurrentHashMap)virtualCallOwners).putIfAbsent(callSignature, newOwners);
+                if (owners == null) {
+                    owners = newOwners;
+                }
+            }
+            if (owners.add(ownerName)) {
+                schedule(TASK_VIRTUAL_CALL, ownerName, callSignature);
+            }
+        }
+    }
+
+    private void processInstantiation(String className) {
+
+        // the class is added to instantiatedClasses before the registered virtual calls are read,
+        // processVirtualCall does the reverse, so every pair is dispatched at least once
+        instantiatedClasses.add(className);
+        boolean hasExternalSupertype = false;
+        Set visited = new HashSet();
+        LinkedList queue = new LinkedList();
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            String typeName = (String)queue.removeFirst();
+            ClassNode node = (ClassNode)classNodes.get(typeName);
+            if (!visited.add(typeName)) {
+                continue;
+            } else if (node == null) {
+                hasExternalSupertype |= !typeName.equals(OBJECT_CLASS_NAME);
+                continue;
+            }
+            Iterator it = node.methods.values().iterator();
+            while (it.hasNext()) {
+                MethodNode method = (MethodNode)it.next();
+                if (!method.isVirtual()) {
+                    continue;
+                }
+                Set owners = (Set)virtualCallOwners.get(method.signature);
+                if (owners == null) {
+                    continue;
+                }
+                Iterator ownerIt = owners.iterator();
+                while (ownerIt.hasNext()) {
+                    if (isSupertype((String)ownerIt.next(), className)) {
+                        reachImplementation(className, method.signature);
+                        break;
+                    }
+                }
+            }
+            queue.addAll(Arrays.asList(node.getSupertypeNames()));
+        }
+
+        for (int i = 0; i < OBJECT_CALLBACK_SIGNATURES.length; i++) {
+            reachImplementation(className, OBJECT_CALLBACK_SIGNATURES[i]);
+        }
+        if (hasExternalSupertype) {
+            Iterator it = visited.iterator();
+            while (it.hasNext()) {
+                ClassNode node = (ClassNode)classNodes.get(it.next());
+                if (node == null) {
+                    continue;
+                }
+                Iterator methodIt = node.methods.values().iterator();
+                while (methodIt.hasNext()) {
+                    MethodNode method = (MethodNode)methodIt.next();
+                    if (method.isVirtual()) {
+                        reachImplementation(className, method.signature);
+                    }
+                }
+            }
+        }
+    }
+
+    private void processVirtualCall(String ownerName, String signature) {
+
+        Set visited = new HashSet();
+        LinkedList queue = new LinkedList();
+        queue.add(ownerName);
+        while (!queue.isEmpty()) {
+            String typeName = (String)queue.removeFirst();
+            if (!visited.add(typeName)) {
+                continue;
+            }
+            if (instantiatedClasses.contains(typeName)) {
+                reachImplementation(typeName, signature);
+            }
+            List directSubtypes = (List)subtypes.get(typeName);
+            if (directSubtypes != null) {
+                queue.addAll(directSubtypes);
+            }
+        }
+    }
+
+    private boolean isSupertype(String typeName, String className) {
+
+        Set visited = new HashSet();
+        LinkedList queue = new LinkedList();
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            String currentName = (String)queue.removeFirst();
+            if (currentName.equals(typeName)) {
+                return true;
+            }
+            ClassNode node = (ClassNode)classNodes.get(currentName);
+            if (node != null && visited.add(currentName)) {
+                queue.addAll(Arrays.asList(node.getSupertypeNames()));
+            }
+        }
+        return false;
+    }
+
+    private String resolve(String className, String signature) {
+
+        // superclasses first, then default methods of the superinterfaces
+        for (String currentName = className; currentName != null; ) {
+            ClassNode node = (ClassNode)classNodes.get(currentName);
+            if (node == null) {
+                break;
+            }
+            if (node.methods.containsKey(signature)) {
+                return currentName;
+            }
+            currentName = node.superName;
+        }
+        Set visited = new HashSet();
+        LinkedList queue = new LinkedList();
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            String currentName = (String)queue.removeFirst();
+            ClassNode node = (ClassNode)classNodes.get(currentName);
+            if (node == null || !visited.add(currentName)) {
+                continue;
+            }
+            MethodNode method = (MethodNode)node.methods.get(signature);
+            if (method != null && method.isVirtual()) {
+                return currentName;
+            }
+            queue.addAll(Arrays.asList(node.getSupertypeNames()));
+        }
+        return null;
+    }
+
+    private void schedule(int kind, String name, String signature) {
+
+        pendingTasks.incrementAndGet();
+        ReachabilityTask task = new ReachabilityTask(kind, name, signature);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    private void taskFinished() {
+        if (pendingTasks.decrementAndGet() == 0) {
+            finished.countDown();
+        }
+    }
+
+    private static String getMethodKey(String className, String signature) {
+        return className + '.' + signature;
+    }
+
+    private static String toInternalName(String className) {
+        return className.replace('.', '/');
+    }
+
+    private static List sort(Set set) {
+
+        List list = set == null ? new ArrayList() : new ArrayList(set);
+        Collections.sort(list);
+        return list;
+    }
+
+    private static class Root {
+
+        private final String className;
+        private final String memberName;
+        private final boolean field;
+
+        private Root(String className, String memberName, boolean field) {
+            this.className = className;
+            this.memberName = memberName;
+            this.field = field;
+        }
+    }
+
+    private class ReachabilityTask extends RecursiveAction {
+
+        private final int kind;
+        private final String name;
+        private final String signature;
+
+        private ReachabilityTask(int kind, String name, String signature) {
+            this.kind = kind;
+            this.name = name;
+            this.signature = signature;
+        }
+
+        protected void compute() {
+            try {
+                switch (kind) {
+                    case TASK_CLASS:
+                        processClass(name);
+                        break;
+                    case TASK_METHOD:
+                        processMethod(name, signature);
+                        break;
+                    case TASK_INSTANTIATION:
+                        processInstantiation(name);
+                        break;
+                    default:
+                        processVirtualCall(name, signature);
+                }
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } finally {
+                taskFinished();
+            }
+        }
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer();
+        String classListFileName = null;
+        boolean classpathOnly = false;
+        boolean hasRoots = false;
+        List fileNames = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-main") && i + 1 < args.length) {
+                analyzer.addMainClass(args[++i]);
+                hasRoots = true;
+            } else if (args[i].equals("-keep") && i + 1 < args.length) {
+                analyzer.addKeptClass(args[++i]);
+                hasRoots = true;
+            } else if (args[i].equals("-method") && i + 1 < args.length && args[i + 1].indexOf('#') > 0) {
+                String method = args[++i];
+                analyzer.addRootMethod(method.substring(0, method.indexOf('#')), method.substring(method.indexOf('#') + 1));
+                hasRoots = true;
+            } else if (args[i].equals("-keepRules") && i + 1 < args.length) {
+                analyzer.setKeepRules(KeepRules.read(new File(args[++i])));
+            } else if (args[i].equals("-classList") && i + 1 < args.length) {
+                classListFileName = args[++i];
+            } else if (args[i].equals("-classpathOnly")) {
+                classpathOnly = true;
+            } else {
+                fileNames.add(args[i]);
+            }
+        }
+        if (fileNames.isEmpty() || !hasRoots) {
+            System.err.println("Usage: ReachabilityAnalyzer [-main class]... [-keep class]... [-method class#name]... " +
+                    "[-keepRules file] [-classList file] [-classpathOnly] file...");
+            System.exit(1);
+        }
+        run(analyzer, fileNames);
+        if (classListFileName != null) {
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(classListFileName)));
+            try {
+                analyzer.writeClassList(writer, classpathOnly);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+}
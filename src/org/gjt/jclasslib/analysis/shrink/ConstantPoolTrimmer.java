@@ -0,0 +1,421 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.shrink;
+
+import org.gjt.jclasslib.bytecode.InstructionList;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.structures.*;
+import org.gjt.jclasslib.structures.attributes.*;
+import org.gjt.jclasslib.structures.constants.*;
+import org.gjt.jclasslib.structures.elementvalues.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+    Removes the contents of constant pool entries that are no longer referenced,
+    for example after methods have been removed from a class. Unreferenced entries
+    are replaced by empty <tt>CONSTANT_Utf8</tt> entries and unreferenced entries at
+    the end of the constant pool are dropped. The indices of all other entries stay
+    the same, so no references have to be rewritten.
+    <p>
+    Attributes that are not parsed by jclasslib are scanned for constant pool
+    references if their format is known. If a class contains an attribute with an
+    unknown format, its constant pool is left unchanged.
+*/
+public class ConstantPoolTrimmer implements Opcodes {
+
+    private final ClassFile classFile;
+    private final CPInfo[] constantPool;
+    private final boolean[] used;
+
+    /**
+     * Trim the constant pool of a class file.
+     * @param classFile the class file.
+     * @return whether the constant pool could be trimmed.
+     * @throws InvalidByteCodeException if the class file is invalid.
+     * @throws IOException if the code of a method cannot be read.
+     */
+    public static boolean trim(ClassFile classFile) throws InvalidByteCodeException, IOException {
+
+        ConstantPoolTrimmer trimmer = new ConstantPoolTrimmer(classFile);
+        if (!trimmer.markClassFile()) {
+            return false;
+        }
+        trimmer.markReferencedEntries();
+        trimmer.removeUnusedEntries();
+        return true;
+    }
+
+    private ConstantPoolTrimmer(ClassFile classFile) {
+        this.classFile = classFile;
+        this.constantPool = classFile.getConstantPool();
+        this.used = new boolean[constantPool.length];
+    }
+
+    private boolean markClassFile() throws InvalidByteCodeException, IOException {
+
+        mark(classFile.getThisClass());
+        mark(classFile.getSuperClass());
+        int[] interfaces = classFile.getInterfaces();
+        for (int i = 0; i < interfaces.length; i++) {
+            mark(interfaces[i]);
+        }
+        boolean known = markAttributes(classFile.getAttributes());
+        ClassMember[][] members = {classFile.getFields(), classFile.getMethods()};
+        for (int i = 0; i < members.length; i++) {
+            for (int j = 0; j < members[i].length; j++) {
+                mark(members[i][j].getNameIndex());
+                mark(members[i][j].getDescriptorIndex());
+                known &= markAttributes(members[i][j].getAttributes());
+            }
+        }
+        return known;
+    }
+
+    private boolean markAttributes(AttributeInfo[] attributes) throws InvalidByteCodeException, IOException {
+
+        boolean known = true;
+        for (int i = 0; attributes != null && i < attributes.length; i++) {
+            known &= markAttribute(attributes[i]);
+        }
+        return known;
+    }
+
+    private boolean markAttribute(AttributeInfo attribute) throws InvalidByteCodeException, IOException {
+
+        mark(attribute.getAttributeNameIndex());
+        if (attribute instanceof CodeAttribute) {
+            return markCode((CodeAttribute)attribute);
+        } else if (attribute instanceof ConstantValueAttribute) {
+            mark(((ConstantValueAttribute)attribute).getConstantvalueIndex());
+        } else if (attribute instanceof ExceptionsAttribute) {
+            int[] exceptions = ((ExceptionsAttribute)attribute).getExceptionIndexTable();
+            for (int i = 0; i < exceptions.length; i++) {
+                mark(exceptions[i]);
+            }
+        } else if (attribute instanceof InnerClassesAttribute) {
+            InnerClassesEntry[] entries = ((InnerClassesAttribute)attribute).getClasses();
+            for (int i = 0; i < entries.length; i++) {
+                mark(entries[i].getInnerClassInfoIndex());
+                mark(entries[i].getOuterClassInfoIndex());
+                mark(entries[i].getInnerNameIndex());
+            }
+        } else if (attribute instanceof SourceFileAttribute) {
+            mark(((SourceFileAttribute)attribute).getSourcefileIndex());
+        } else if (attribute instanceof SignatureAttribute) {
+            mark(((SignatureAttribute)attribute).getSignatureIndex());
+        } else if (attribute instanceof EnclosingMethodAttribute) {
+            mark(((EnclosingMethodAttribute)attribute).getClassInfoIndex());
+            mark(((EnclosingMethodAttribute)attribute).getMethodInfoIndex());
+        } else if (attribute instanceof LocalVariableCommonAttribute) {
+            LocalVariableCommonEntry[] entries = ((LocalVariableCommonAttribute)attribute).getLocalVariableEntries();
+            for (int i = 0; i < entries.length; i++) {
+                mark(entries[i].getNameIndex());
+                mark(entries[i].getDescriptorOrSignatureIndex());
+            }
+        } else if (attribute instanceof RuntimeAnnotationsAttribute) {
+            AnnotationElementValue[] annotations = ((RuntimeAnnotationsAttribute)attribute).getRuntimeAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                markElementValue(annotations[i]);
+            }
+        } else if (attribute instanceof AnnotationDefaultAttribute) {
+            markElementValue(((AnnotationDefaultAttribute)attribute).getDefaultValue());
+        } else if (attribute instanceof BootstrapMethodsAttribute) {
+            BootstrapMethodEntry[] entries = ((BootstrapMethodsAttribute)attribute).getBootstrapMethods();
+            for (int i = 0; i < entries.length; i++) {
+                mark(entries[i].getBootstrapMethodRef());
+                int[] arguments = entries[i].getBootstrapArguments();
+                for (int j = 0; j < arguments.length; j++) {
+                    mark(arguments[j]);
+                }
+            }
+        } else if (attribute.getClass() == AttributeInfo.class) {
+            return markRawAttribute(attribute.getName(), attribute.getInfo());
+        }
+        return true;
+    }
+
+    private boolean markCode(CodeAttribute code) throws InvalidByteCodeException, IOException {
+
+        InstructionList instructions = ByteCodeReader.readInstructionList(code.getCode());
+        for (int i = 0; i < instructions.size(); i++) {
+            switch (instructions.getOpcode(i)) {
+                case OPCODE_LDC:
+                    mark(instructions.getOperand(i));
+                    break;
+                case OPCODE_LDC_W:
+                case OPCODE_LDC2_W:
+                case OPCODE_GETSTATIC:
+                case OPCODE_PUTSTATIC:
+                case OPCODE_GETFIELD:
+                case OPCODE_PUTFIELD:
+                case OPCODE_INVOKEVIRTUAL:
+                case OPCODE_INVOKESPECIAL:
+                case OPCODE_INVOKESTATIC:
+                case OPCODE_INVOKEINTERFACE:
+                case OPCODE_INVOKEDYNAMIC:
+                case OPCODE_NEW:
+                case OPCODE_ANEWARRAY:
+                case OPCODE_CHECKCAST:
+                case OPCODE_INSTANCEOF:
+                case OPCODE_MULTIANEWARRAY:
+                    mark(instructions.getOperand(i));
+                    break;
+            }
+        }
+        ExceptionTableEntry[] exceptionTable = code.getExceptionTable();
+        for (int i = 0; exceptionTable != null && i < exceptionTable.length; i++) {
+            mark(exceptionTable[i].getCatchType());
+        }
+        return markAttributes(code.getAttributes());
+    }
+
+    private void markElementValue(ElementValue elementValue) {
+
+        if (elementValue instanceof ConstElementValue) {
+            mark(((ConstElementValue)elementValue).getConstValueIndex());
+        } else if (elementValue instanceof EnumElementValue) {
+            mark(((EnumElementValue)elementValue).getTypeNameIndex());
+            mark(((EnumElementValue)elementValue).getConstNameIndex());
+        } else if (elementValue instanceof ClassElementValue) {
+            mark(((ClassElementValue)elementValue).getClassInfoIndex());
+        } else if (elementValue instanceof AnnotationElementValue) {
+            AnnotationElementValue annotation = (AnnotationElementValue)elementValue;
+            mark(annotation.getTypeIndex());
+            ElementValuePair[] pairs = annotation.getElementValuePairEntries();
+            for (int i = 0; pairs != null && i < pairs.length; i++) {
+                mark(pairs[i].getElementNameIndex());
+                markElementValue(pairs[i].getElementValue());
+            }
+        } else if (elementValue instanceof ArrayElementValue) {
+            ElementValue[] entries = ((ArrayElementValue)elementValue).getElementValueEntries();
+            for (int i = 0; entries != null && i < entries.length; i++) {
+                markElementValue(entries[i]);
+            }
+        }
+    }
+
+    private boolean markRawAttribute(String name, byte[] info) throws InvalidByteCodeException, IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(info));
+        if (name.equals("StackMapTable")) {
+            int frameCount = in.readUnsignedShort();
+            for (int i = 0; i < frameCount; i++) {
+                markStackMapFrame(in);
+            }
+        } else if (name.equals("NestHost")) {
+            mark(in.readUnsignedShort());
+        } else if (name.equals("NestMembers") || name.equals("PermittedSubclasses")) {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                mark(in.readUnsignedShort());
+            }
+        } else if (name.equals("MethodParameters")) {
+            int count = in.readUnsignedByte();
+            for (int i = 0; i < count; i++) {
+                mark(in.readUnsignedShort());
+                in.readUnsignedShort();
+            }
+        } else if (name.equals("RuntimeVisibleParameterAnnotations") || name.equals("RuntimeInvisibleParameterAnnotations")) {
+            int parameterCount = in.readUnsignedByte();
+            for (int i = 0; i < parameterCount; i++) {
+                int annotationCount = in.readUnsignedShort();
+                for (int j = 0; j < annotationCount; j++) {
+                    markRawAnnotation(in);
+                }
+            }
+        } else if (name.equals("Record")) {
+            int componentCount = in.readUnsignedShort();
+            boolean known = true;
+            for (int i = 0; i < componentCount; i++) {
+                mark(in.readUnsignedShort());
+                mark(in.readUnsignedShort());
+                int attributeCount = in.readUnsignedShort();
+                for (int j = 0; j < attributeCount; j++) {
+                    int nameIndex = in.readUnsignedShort();
+                    byte[] attributeInfo = new byte[in.readInt()];
+                    in.readFully(attributeInfo);
+                    mark(nameIndex);
+                    known &= markRawAttribute(classFile.getConstantPoolUtf8Entry(nameIndex).getString(), attributeInfo);
+                }
+            }
+            return known;
+        } else if (name.equals("Signature") || name.equals("SourceFile")) {
+            mark(in.readUnsignedShort());
+        } else if (name.equals("RuntimeVisibleAnnotations") || name.equals("RuntimeInvisibleAnnotations")) {
+            int annotationCount = in.readUnsignedShort();
+            for (int i = 0; i < annotationCount; i++) {
+                markRawAnnotation(in);
+            }
+        } else if (!name.equals("SourceDebugExtension") && !name.equals("Deprecated") && !name.equals("Synthetic")) {
+            return false;
+        }
+        return true;
+    }
+
+    private void markStackMapFrame(DataInputStream in) throws IOException {
+
+        int frameType = in.readUnsignedByte();
+        if (frameType < 64) {
+            return;
+        } else if (frameType < 128) {
+            markVerificationType(in);
+        } else if (frameType == 247) {
+            in.readUnsignedShort();
+            markVerificationType(in);
+        } else if (frameType >= 248 && frameType <= 251) {
+            in.readUnsignedShort();
+        } else if (frameType >= 252 && frameType <= 254) {
+            in.readUnsignedShort();
+            for (int i = 0; i < frameType - 251; i++) {
+                markVerificationType(in);
+            }
+        } else if (frameType == 255) {
+            in.readUnsignedShort();
+            int localCount = in.readUnsignedShort();
+            for (int i = 0; i < localCount; i++) {
+                markVerificationType(in);
+            }
+            int stackCount = in.readUnsignedShort();
+            for (int i = 0; i < stackCount; i++) {
+                markVerificationType(in);
+            }
+        } else {
+            throw new IOException("invalid stack map frame type " + frameType);
+        }
+    }
+
+    private void markVerificationType(DataInputStream in) throws IOException {
+
+        int tag = in.readUnsignedByte();
+        if (tag == 7) {
+            // Object_variable_info
+            mark(in.readUnsignedShort());
+        } else if (tag == 8) {
+            // Uninitialized_variable_info
+            in.readUnsignedShort();
+        }
+    }
+
+    private void markRawAnnotation(DataInputStream in) throws IOException {
+
+        mark(in.readUnsignedShort());
+        int pairCount = in.readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            mark(in.readUnsignedShort());
+            markRawElementValue(in);
+        }
+    }
+
+    private void markRawElementValue(DataInputStream in) throws IOException {
+
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e':
+                mark(in.readUnsignedShort());
+                mark(in.readUnsignedShort());
+                break;
+            case '@':
+                markRawAnnotation(in);
+                break;
+            case '[':
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    markRawElementValue(in);
+                }
+                break;
+            default:
+                // constants and class literals
+                mark(in.readUnsignedShort());
+        }
+    }
+
+    private void markReferencedEntries() throws InvalidByteCodeException {
+
+        // constant pool entries only reference entries with lower or higher indices,
+        // so the references are followed until no more entries are marked
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < constantPool.length; i++) {
+                if (!used[i] || constantPool[i] == null) {
+                    continue;
+                }
+                CPInfo cpInfo = constantPool[i];
+                if (cpInfo instanceof ConstantClassInfo) {
+                    changed |= mark(((ConstantClassInfo)cpInfo).getNameIndex());
+                } else if (cpInfo instanceof ConstantStringInfo) {
+                    changed |= mark(((ConstantStringInfo)cpInfo).getStringIndex());
+                } else if (cpInfo instanceof ConstantReference) {
+                    changed |= mark(((ConstantReference)cpInfo).getClassIndex());
+                    changed |= mark(((ConstantReference)cpInfo).getNameAndTypeIndex());
+                } else if (cpInfo instanceof ConstantNameAndTypeInfo) {
+                    changed |= mark(((ConstantNameAndTypeInfo)cpInfo).getNameIndex());
+                    changed |= mark(((ConstantNameAndTypeInfo)cpInfo).getDescriptorIndex());
+                } else if (cpInfo instanceof ConstantMethodHandleInfo) {
+                    changed |= mark(((ConstantMethodHandleInfo)cpInfo).getReferenceIndex());
+                } else if (cpInfo instanceof ConstantMethodTypeInfo) {
+                    changed |= mark(((ConstantMethodTypeInfo)cpInfo).getDescriptorIndex());
+                } else if (cpInfo instanceof ConstantInvokeDynamicInfo) {
+                    changed |= mark(((ConstantInvokeDynamicInfo)cpInfo).getNameAndTypeIndex());
+                }
+            }
+        }
+    }
+
+    private void removeUnusedEntries() {
+
+        CPInfo[] trimmedConstantPool = new CPInfo[constantPool.length];
+        int lastUsedIndex = 0;
+        for (int i = 1; i < constantPool.length; i++) {
+            if (constantPool[i] == null) {
+                continue;
+            }
+            if (used[i]) {
+                trimmedConstantPool[i] = constantPool[i];
+                lastUsedIndex = constantPool[i] instanceof ConstantLargeNumeric ? i + 1 : i;
+            } else {
+                trimmedConstantPool[i] = createPlaceholder();
+                if (constantPool[i] instanceof ConstantLargeNumeric) {
+                    trimmedConstantPool[i + 1] = createPlaceholder();
+                }
+            }
+        }
+        // the class file writer determines the constant pool count from the last
+        // non-null entry, which must not be the second slot of a long or double
+        int endIndex = lastUsedIndex;
+        if (endIndex > 0 && constantPool[endIndex] == null && endIndex + 1 < constantPool.length) {
+            endIndex++;
+        }
+        for (int i = endIndex + 1; i < trimmedConstantPool.length; i++) {
+            trimmedConstantPool[i] = null;
+        }
+        classFile.setConstantPool(trimmedConstantPool);
+    }
+
+    private CPInfo createPlaceholder() {
+
+        ConstantUtf8Info placeholder = new ConstantUtf8Info();
+        placeholder.setClassFile(classFile);
+        placeholder.setString("");
+        return placeholder;
+    }
+
+    private boolean mark(int index) {
+
+        if (index <= 0 || index >= used.length || used[index]) {
+            return false;
+        }
+        used[index] = true;
+        return true;
+    }
+
+}
@@ -0,0 +1,394 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.analysis.shrink;
+
+import org.gjt.jclasslib.analysis.ClasspathAnalyzer;
+import org.gjt.jclasslib.analysis.reachability.KeepRules;
+import org.gjt.jclasslib.analysis.reachability.ReachabilityAnalyzer;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathArchiveEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.structures.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.jar.*;
+
+/**
+    Removes the classes, methods and fields that a <tt>ReachabilityAnalyzer</tt> found
+    to be unreachable and writes the remaining class files together with the resources
+    of the classpath into a new archive. The constant pools of the remaining classes
+    are trimmed with a <tt>ConstantPoolTrimmer</tt>.
+    <p>
+    Class files are processed in parallel by a <tt>ClasspathScanner</tt>. The archive
+    is written in the order of the entry names with fixed time stamps, so the same
+    input always produces the same archive. If a class file occurs in several
+    classpath entries, the first one is used. Signature files of signed archives
+    are dropped since the signatures are no longer valid.
+    <p>
+    Command line usage:
+    <pre>
+    Shrinker -out file [-main class]... [-keep class]... [-method class#name]...
+             [-keepRules file] file...
+    </pre>
+    where <tt>file</tt> is a directory or an archive. The format of the keep rules
+    file is described in <tt>KeepRules</tt>.
+*/
+public class Shrinker implements ClasspathScanner.ClassFileHandler {
+
+    // 1980-01-01, the earliest time that can be stored in a zip file
+    private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.JANUARY, 1).getTimeInMillis();
+
+    private static final String CLASSFILE_SUFFIX = ".class";
+
+    private final ReachabilityAnalyzer analyzer;
+
+    private final Map entryOrder = new HashMap();
+    private final Map outputFiles = new HashMap();
+    private final Map statistics = new HashMap();
+    private Manifest manifest;
+
+    /**
+     * Constructor.
+     * @param analyzer the analyzer that has already analyzed the classpath.
+     */
+    public Shrinker(ReachabilityAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Shrink a classpath and write the result to an archive.
+     * @param classpathEntries the list of <tt>ClasspathEntry</tt> objects that
+     *                         have been analyzed by the analyzer.
+     * @param outputFile the archive that is written.
+     * @throws IOException if a resource cannot be read or the archive cannot be written.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void shrink(List classpathEntries, File outputFile) throws IOException, InterruptedException {
+
+        for (int i = 0; i < classpathEntries.size(); i++) {
+            ClasspathEntry entry = (ClasspathEntry)classpathEntries.get(i);
+            entryOrder.put(entry, new Integer(i));
+            statistics.put(entry.getFileName(), new Statistics(entry.getFileName()));
+        }
+        new ClasspathScanner(classpathEntries).scan(this);
+        for (int i = 0; i < classpathEntries.size(); i++) {
+            addResources((ClasspathEntry)classpathEntries.get(i));
+        }
+        writeArchive(outputFile);
+    }
+
+    public void handleClassFile(ClasspathEntry entry, String classFileName, byte[] bytes) {
+
+        Statistics entryStatistics = (Statistics)statistics.get(entry.getFileName());
+        byte[] shrunkBytes;
+        try {
+            shrunkBytes = shrinkClassFile(bytes, entryStatistics);
+        } catch (InvalidByteCodeException ex) {
+            shrunkBytes = bytes;
+            entryStatistics.addInvalidClass();
+        } catch (IOException ex) {
+            shrunkBytes = bytes;
+            entryStatistics.addInvalidClass();
+        }
+        entryStatistics.addClassFile(bytes.length, shrunkBytes == null ? 0 : shrunkBytes.length);
+        if (shrunkBytes != null) {
+            addOutputFile(classFileName, shrunkBytes, ((Integer)entryOrder.get(entry)).intValue());
+        }
+    }
+
+    /**
+     * Write a report with the savings for each classpath entry.
+     * @param writer the writer.
+     */
+    public void writeReport(PrintWriter writer) {
+
+        writer.println("entry\tclasses\tremoved classes\tremoved methods\tremoved fields\t" +
+                "untrimmed constant pools\tbytes before\tbytes after");
+        Statistics total = new Statistics("total");
+        List entryStatistics = new ArrayList(statistics.values());
+        Collections.sort(entryStatistics);
+        for (int i = 0; i < entryStatistics.size(); i++) {
+            Statistics current = (Statistics)entryStatistics.get(i);
+            current.write(writer);
+            total.add(current);
+        }
+        total.write(writer);
+        long savedBytes = total.bytesBefore - total.bytesAfter;
+        writer.println("# " + savedBytes + " bytes saved (" +
+                (total.bytesBefore == 0 ? 0 : savedBytes * 100 / total.bytesBefore) + "%), " +
+                total.invalidClasses + " class files copied unchanged because they could not be read");
+    }
+
+    private byte[] shrinkClassFile(byte[] bytes, Statistics entryStatistics) throws InvalidByteCodeException, IOException {
+
+        ClassFile classFile = ClassFileReader.readFromInputStream(new ByteArrayInputStream(bytes));
+        String className = classFile.getThisClassName();
+        if (!analyzer.isReachable(className)) {
+            entryStatistics.addRemovedClass();
+            return null;
+        }
+
+        List methods = new ArrayList();
+        MethodInfo[] allMethods = classFile.getMethods();
+        for (int i = 0; i < allMethods.length; i++) {
+            if (analyzer.isReachable(className, allMethods[i].getName() + allMethods[i].getDescriptor())) {
+                methods.add(allMethods[i]);
+            }
+        }
+        List fields = new ArrayList();
+        FieldInfo[] allFields = classFile.getFields();
+        for (int i = 0; i < allFields.length; i++) {
+            if (analyzer.isReachable(className, allFields[i].getName(), allFields[i].getDescriptor())) {
+                fields.add(allFields[i]);
+            }
+        }
+        if (methods.size() == allMethods.length && fields.size() == allFields.length) {
+            return bytes;
+        }
+        entryStatistics.addRemovedMembers(allMethods.length - methods.size(), allFields.length - fields.size());
+        classFile.setMethods((MethodInfo[])methods.toArray(new MethodInfo[methods.size()]));
+        classFile.setFields((FieldInfo[])fields.toArray(new FieldInfo[fields.size()]));
+        if (!ConstantPoolTrimmer.trim(classFile)) {
+            entryStatistics.addUntrimmedConstantPool();
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length);
+        DataOutputStream out = new DataOutputStream(bos);
+        classFile.write(out);
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private void addResources(ClasspathEntry entry) throws IOException {
+
+        File file = new File(entry.getFileName());
+        int order = ((Integer)entryOrder.get(entry)).intValue();
+        if (entry instanceof ClasspathArchiveEntry) {
+            JarFile jarFile = new JarFile(file);
+            try {
+                if (manifest == null && jarFile.getManifest() != null) {
+                    manifest = new Manifest();
+                    manifest.getMainAttributes().putAll(jarFile.getManifest().getMainAttributes());
+                }
+                Enumeration en = jarFile.entries();
+                while (en.hasMoreElements()) {
+                    JarEntry jarEntry = (JarEntry)en.nextElement();
+                    if (!jarEntry.isDirectory() && isResource(jarEntry.getName())) {
+                        addOutputFile(jarEntry.getName(), readFully(jarFile.getInputStream(jarEntry)), order);
+                    }
+                }
+            } finally {
+                jarFile.close();
+            }
+        } else if (file.isDirectory()) {
+            addDirectoryResources(file, "", order);
+        }
+    }
+
+    private void addDirectoryResources(File directory, String path, int order) throws IOException {
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            String name = path + files[i].getName();
+            if (files[i].isDirectory()) {
+                addDirectoryResources(files[i], name + "/", order);
+            } else if (isResource(name)) {
+                addOutputFile(name, readFully(new FileInputStream(files[i])), order);
+            }
+        }
+    }
+
+    private void addOutputFile(String name, byte[] bytes, int order) {
+
+        synchronized (outputFiles) {
+            OutputFile existingFile = (OutputFile)outputFiles.get(name);
+            if (existingFile == null || existingFile.order > order) {
+                outputFiles.put(name, new OutputFile(bytes, order));
+            }
+        }
+    }
+
+    private void writeArchive(File outputFile) throws IOException {
+
+        if (manifest == null) {
+            manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        }
+        JarOutputStream out = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
+        try {
+            JarEntry manifestEntry = new JarEntry(JarFile.MANIFEST_NAME);
+            manifestEntry.setTime(ENTRY_TIME);
+            out.putNextEntry(manifestEntry);
+            manifest.write(out);
+            out.closeEntry();
+
+            Iterator it = new TreeMap(outputFiles).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry mapEntry = (Map.Entry)it.next();
+                JarEntry jarEntry = new JarEntry((String)mapEntry.getKey());
+                jarEntry.setTime(ENTRY_TIME);
+                out.putNextEntry(jarEntry);
+                out.write(((OutputFile)mapEntry.getValue()).bytes);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static boolean isResource(String name) {
+
+        String upperCaseName = name.toUpperCase();
+        if (upperCaseName.endsWith(CLASSFILE_SUFFIX.toUpperCase()) || upperCaseName.equals(JarFile.MANIFEST_NAME)) {
+            return false;
+        }
+        return !(upperCaseName.startsWith("META-INF/") && (upperCaseName.endsWith(".SF") ||
+                upperCaseName.endsWith(".RSA") || upperCaseName.endsWith(".DSA") || upperCaseName.endsWith(".EC")));
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                bos.write(buffer, 0, count);
+            }
+            return bos.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class OutputFile {
+
+        private final byte[] bytes;
+        private final int order;
+
+        private OutputFile(byte[] bytes, int order) {
+            this.bytes = bytes;
+            this.order = order;
+        }
+    }
+
+    private static class Statistics implements Comparable {
+
+        private final String name;
+        private int classCount;
+        private int removedClasses;
+        private int removedMethods;
+        private int removedFields;
+        private int untrimmedConstantPools;
+        private int invalidClasses;
+        private long bytesBefore;
+        private long bytesAfter;
+
+        private Statistics(String name) {
+            this.name = name;
+        }
+
+        public int compareTo(Object other) {
+            return name.compareTo(((Statistics)other).name);
+        }
+
+        private synchronized void addClassFile(int sizeBefore, int sizeAfter) {
+            classCount++;
+            bytesBefore += sizeBefore;
+            bytesAfter += sizeAfter;
+        }
+
+        private synchronized void addRemovedClass() {
+            removedClasses++;
+        }
+
+        private synchronized void addRemovedMembers(int methodCount, int fieldCount) {
+            removedMethods += methodCount;
+            removedFields += fieldCount;
+        }
+
+        private synchronized void addUntrimmedConstantPool() {
+            untrimmedConstantPools++;
+        }
+
+        private synchronized void addInvalidClass() {
+            invalidClasses++;
+        }
+
+        private void add(Statistics other) {
+            classCount += other.classCount;
+            removedClasses += other.removedClasses;
+            removedMethods += other.removedMethods;
+            removedFields += other.removedFields;
+            untrimmedConstantPools += other.untrimmedConstantPools;
+            invalidClasses += other.invalidClasses;
+            bytesBefore += other.bytesBefore;
+            bytesAfter += other.bytesAfter;
+        }
+
+        private void write(PrintWriter writer) {
+            writer.println(name + '\t' + classCount + '\t' + removedClasses + '\t' + removedMethods + '\t' +
+                    removedFields + '\t' + untrimmedConstantPools + '\t' + bytesBefore + '\t' + bytesAfter);
+        }
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the arguments.
+     * @throws Exception if the analysis fails.
+     */
+    public static void main(String[] args) throws Exception {
+
+        ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer();
+        File outputFile = null;
+        boolean hasRoots = false;
+        List fileNames = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-out") && i + 1 < args.length) {
+                outputFile = new File(args[++i]);
+            } else if (args[i].equals("-main") && i + 1 < args.length) {
+                analyzer.addMainClass(args[++i]);
+                hasRoots = true;
+            } else if (args[i].equals("-keep") && i + 1 < args.length) {
+                analyzer.addKeptClass(args[++i]);
+                hasRoots = true;
+            } else if (args[i].equals("-method") && i + 1 < args.length && args[i + 1].indexOf('#') > 0) {
+                String method = args[++i];
+                analyzer.addRootMethod(method.substring(0, method.indexOf('#')), method.substring(method.indexOf('#') + 1));
+                hasRoots = true;
+            } else if (args[i].equals("-keepRules") && i + 1 < args.length) {
+                analyzer.setKeepRules(KeepRules.read(new File(args[++i])));
+                hasRoots = true;
+            } else {
+                fileNames.add(args[i]);
+            }
+        }
+        if (outputFile == null || fileNames.isEmpty() || !hasRoots) {
+            System.err.println("Usage: Shrinker -out file [-main class]... [-keep class]... [-method class#name]... " +
+                    "[-keepRules file] file...");
+            System.exit(1);
+        }
+
+        long startTime = System.currentTimeMillis();
+        List classpathEntries = ClasspathAnalyzer.createClasspathEntries(fileNames);
+        analyzer.analyze(new ClasspathScanner(classpathEntries));
+        Shrinker shrinker = new Shrinker(analyzer);
+        shrinker.shrink(classpathEntries, outputFile);
+
+        PrintWriter writer = new PrintWriter(System.out);
+        shrinker.writeReport(writer);
+        writer.println("# " + outputFile.getPath() + " written in " + (System.currentTimeMillis() - startTime) + " ms");
+        writer.flush();
+    }
+
+}
@@ -216,6 +216,18 @@ public class BrowserComponent extends JComponent
         }
     }
 
+    /**
+     * Show the detail pane for the selected node again, e.g. after the source file
+     * of the class file has changed.
+     */
+    public void updateDetailPane() {
+
+        TreePath selectionPath = treePane.getTree().getSelectionPath();
+        if (selectionPath != null) {
+            showDetailPaneForPath(selectionPath);
+        }
+    }
+
     public void valueChanged(TreeSelectionEvent selectionEvent) {
 
         services.activate();
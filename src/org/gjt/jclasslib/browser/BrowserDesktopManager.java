@@ -9,40 +9,165 @@ package org.gjt.jclasslib.browser;
 
 import org.gjt.jclasslib.mdi.BasicDesktopManager;
 
+import javax.swing.*;
 import javax.swing.event.InternalFrameEvent;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.Area;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
     The desktop manager for the class file browser application.
+    <p>
+    Frames that are iconified or completely covered by other frames are hidden.
+    Frames that have been hidden for the time given by the
+    <tt>jclasslib.browser.frameReleaseDelay</tt> system property are unloaded, so
+    that their class files and browser components can be garbage collected. If the
+    used heap exceeds the ratio given by <tt>jclasslib.browser.frameReleaseHeapRatio</tt>,
+    all hidden frames are unloaded. An unloaded frame is loaded again with its
+    previous selection when it is activated.
  
     @author <a href="mailto:jclasslib@ej-technologies.com">Ingo Kegel</a>
     @version $Revision: 1.6 $ $Date: 2003-08-18 08:05:39 $
 */
 public class BrowserDesktopManager extends BasicDesktopManager {
 
+    /**
+        Set this JVM System property to the number of minutes after which a
+        hidden frame is unloaded. 0 disables unloading by time. The default is 10.
+     */
+    public static final String SYSTEM_PROPERTY_RELEASE_DELAY = "jclasslib.browser.frameReleaseDelay";
+
+    /**
+        Set this JVM System property to the percentage of the maximum heap above
+        which all hidden frames are unloaded. 0 disables unloading by heap usage.
+        The default is 75.
+     */
+    public static final String SYSTEM_PROPERTY_RELEASE_HEAP_RATIO = "jclasslib.browser.frameReleaseHeapRatio";
+
+    private static final int DEFAULT_RELEASE_DELAY = 10;
+    private static final int DEFAULT_RELEASE_HEAP_RATIO = 75;
+    private static final int RELEASE_CHECK_INTERVAL = 30 * 1000;
+
+    private final long releaseDelay = Integer.getInteger(SYSTEM_PROPERTY_RELEASE_DELAY, DEFAULT_RELEASE_DELAY).intValue() * 60L * 1000;
+    private final int releaseHeapRatio = Integer.getInteger(SYSTEM_PROPERTY_RELEASE_HEAP_RATIO, DEFAULT_RELEASE_HEAP_RATIO).intValue();
+
+    // frame -> time in milliseconds since which the frame has been hidden
+    private final Map hiddenSince = new HashMap();
+    private Timer releaseTimer;
+
     /**
         Constructor.
         @param parentFrame the parent frame
      */
     public BrowserDesktopManager(BrowserMDIFrame parentFrame) {
         super(parentFrame);
+
+        if (releaseDelay > 0 || releaseHeapRatio > 0) {
+            releaseTimer = new Timer(RELEASE_CHECK_INTERVAL, new ActionListener() {
+                public void actionPerformed(ActionEvent event) {
+                    releaseHiddenFrames();
+                }
+            });
+            releaseTimer.start();
+            parentFrame.addWindowListener(new WindowAdapter() {
+                public void windowClosed(WindowEvent event) {
+                    releaseTimer.stop();
+                }
+            });
+        }
     }
 
     public void internalFrameActivated(InternalFrameEvent event) {
         BrowserInternalFrame internalFrame = (BrowserInternalFrame)event.getInternalFrame();
         actionStatus(internalFrame);
-        internalFrame.getBrowserComponent().checkSelection();
+        if (internalFrame.isLoaded()) {
+            internalFrame.getBrowserComponent().checkSelection();
+        } else if (!((BrowserMDIFrame)parentFrame).isRestoringWorkspace()) {
+            internalFrame.load();
+        }
     }
 
     public void internalFrameDeactivated(InternalFrameEvent event) {
         actionStatus(null);
     }
 
+    public void internalFrameClosed(InternalFrameEvent event) {
+        hiddenSince.remove(event.getInternalFrame());
+        super.internalFrameClosed(event);
+    }
+
+    /**
+        Unload the frames that have been hidden for longer than the release delay,
+        or all hidden frames if the heap usage exceeds the release ratio. Called
+        periodically on the event dispatch thread.
+     */
+    public void releaseHiddenFrames() {
+
+        long now = System.currentTimeMillis();
+        boolean heapExceeded = isHeapRatioExceeded();
+        Iterator it = getOpenFrames().iterator();
+        while (it.hasNext()) {
+            BrowserInternalFrame internalFrame = (BrowserInternalFrame)it.next();
+            if (!isHidden(internalFrame)) {
+                hiddenSince.remove(internalFrame);
+                continue;
+            }
+            Long since = (Long)hiddenSince.get(internalFrame);
+            if (since == null) {
+                since = new Long(now);
+                hiddenSince.put(internalFrame, since);
+            }
+            if (internalFrame.isLoaded() &&
+                    (heapExceeded || (releaseDelay > 0 && now - since.longValue() >= releaseDelay)))
+            {
+                internalFrame.unload();
+            }
+        }
+    }
+
+    private boolean isHidden(JInternalFrame frame) {
+
+        if (frame.isIcon() || !frame.isVisible()) {
+            return true;
+        }
+        if (frame.isSelected()) {
+            return false;
+        }
+        // subtract the frames in front of the frame, which have lower z-order indices
+        Area visibleArea = new Area(frame.getBounds());
+        JDesktopPane desktopPane = getDesktopPane();
+        int zOrder = desktopPane.getComponentZOrder(frame);
+        for (int i = 0; i < zOrder && !visibleArea.isEmpty(); i++) {
+            Component component = desktopPane.getComponent(i);
+            if (component instanceof JInternalFrame && component.isVisible() && !((JInternalFrame)component).isIcon()) {
+                visibleArea.subtract(new Area(component.getBounds()));
+            }
+        }
+        return visibleArea.isEmpty();
+    }
+
+    private boolean isHeapRatioExceeded() {
+
+        if (releaseHeapRatio <= 0) {
+            return false;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+        return usedMemory > runtime.maxMemory() / 100 * releaseHeapRatio;
+    }
+
 
     private void actionStatus(BrowserInternalFrame internalFrame) {
 
         BrowserMDIFrame browserParentFrame = (BrowserMDIFrame)parentFrame;
 
-        if (internalFrame != null) {
+        if (internalFrame != null && internalFrame.isLoaded()) {
             internalFrame.getBrowserComponent().getHistory().updateActions();
         } else {
             browserParentFrame.getActionReload().setEnabled(false);
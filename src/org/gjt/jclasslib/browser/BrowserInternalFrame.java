@@ -7,24 +7,24 @@
 
 package org.gjt.jclasslib.browser;
 
+import org.gjt.jclasslib.browser.config.BrowserConfig;
 import org.gjt.jclasslib.browser.config.classpath.FindResult;
 import org.gjt.jclasslib.browser.config.window.BrowserPath;
 import org.gjt.jclasslib.browser.config.window.WindowState;
-import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.io.ClassFileCache;
 import org.gjt.jclasslib.mdi.BasicDesktopManager;
 import org.gjt.jclasslib.mdi.BasicInternalFrame;
 import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.ContentHash;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 import org.gjt.jclasslib.util.GUIHelper;
+import org.gjt.jclasslib.util.TaskService;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.beans.PropertyVetoException;
 import java.io.File;
 import java.io.IOException;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * A child window of the class file browser application.
@@ -45,10 +45,13 @@ public class BrowserInternalFrame extends BasicInternalFrame
 
     private String fileName;
     private ClassFile classFile;
+    private File sourceFile;
+    private WindowState deferredWindowState;
 
     // Visual Components
 
     private BrowserComponent browserComponent;
+    private JLabel lblPlaceholder;
 
     /**
      * Constructor.
@@ -58,22 +61,125 @@ public class BrowserInternalFrame extends BasicInternalFrame
      *                       information present within this object.
      */
     public BrowserInternalFrame(BasicDesktopManager desktopManager, WindowState windowState) {
+        this(desktopManager, windowState, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param desktopManager the associated desktop manager
+     * @param windowState    the window state object. The frame will load the class file from
+     *                       information present within this object.
+     * @param deferred       whether the frame should only show a placeholder until it is
+     *                       selected for the first time. The class file is then read in the
+     *                       background.
+     */
+    public BrowserInternalFrame(BasicDesktopManager desktopManager, WindowState windowState, boolean deferred) {
         super(desktopManager, windowState.getFileName());
         this.fileName = windowState.getFileName();
 
         setFrameIcon(BrowserMDIFrame.ICON_APPLICATION);
-        readClassFile();
-        setupInternalFrame(windowState.getBrowserPath());
-        desktopManager.setActiveFrame(this);
+        if (deferred) {
+            deferredWindowState = windowState;
+            setupPlaceholder();
+        } else {
+            classFile = readClassFile(fileName);
+            updateSourceFile();
+            setupInternalFrame(windowState.getBrowserPath());
+            desktopManager.setActiveFrame(this);
+        }
     }
 
     public Object getInitParam() {
+        if (browserComponent == null) {
+            return deferredWindowState;
+        }
         WindowState windowState = new WindowState(fileName, browserComponent.getBrowserPath());
         return windowState;
     }
 
+    /**
+     * Set the source file for the displayed class file. The source file is kept
+     * by the frame, since the class file is shared through the <tt>ClassFileCache</tt>.
+     *
+     * @param sourceFile the source file
+     */
     public void setSourceFile(File sourceFile) {
-       classFile.setSourceFile(sourceFile);
+        this.sourceFile = sourceFile;
+        if (browserComponent != null) {
+            browserComponent.updateDetailPane();
+        }
+    }
+
+    /**
+     * Select the node described by a <tt>BrowserPath</tt>. If the frame has not been
+     * loaded yet, the path is applied as soon as loading is finished.
+     *
+     * @param browserPath the browser path. May be <tt>null</tt>.
+     */
+    public void setBrowserPath(BrowserPath browserPath) {
+        if (browserComponent == null) {
+            deferredWindowState = new WindowState(fileName, browserPath);
+        } else {
+            browserComponent.setBrowserPath(browserPath);
+        }
+    }
+
+    /**
+     * Check whether the class file has been read and the browser component
+     * has been built.
+     *
+     * @return the value
+     */
+    public boolean isLoaded() {
+        return browserComponent != null;
+    }
+
+    /**
+     * Read the class file of a frame that was created with a placeholder. Parsing
+     * is done by the task service of the parent frame, the browser component is built
+     * afterwards on the event dispatch thread. Does nothing if the frame is already loaded,
+     * requests for a frame that is currently loading are coalesced.
+     */
+    public void load() {
+        if (browserComponent != null) {
+            return;
+        }
+        getParentFrame().getTaskService().submit(this, "Loading " + fileName, new TaskService.Task() {
+            protected Object run(TaskService.Handle handle) {
+                return readClassFile(fileName);
+            }
+
+            protected void succeeded(Object result) {
+                if (browserComponent == null && !isClosed()) {
+                    classFile = (ClassFile)result;
+                    updateSourceFile();
+                    replacePlaceholder();
+                }
+            }
+        });
+    }
+
+    /**
+     * Release the class file and the browser component of a loaded frame and show
+     * the placeholder instead. The class file is demoted to a soft reference in the
+     * <tt>ClassFileCache</tt>. The selected browser path is kept and restored when
+     * the frame is loaded again with <tt>load</tt>.
+     */
+    public void unload() {
+        if (browserComponent == null) {
+            return;
+        }
+        deferredWindowState = new WindowState(fileName, browserComponent.getBrowserPath());
+
+        Container contentPane = getContentPane();
+        contentPane.remove(browserComponent);
+        browserComponent = null;
+        classFile = null;
+        demoteClassFile(fileName);
+        addPlaceholder();
+        contentPane.validate();
+        repaint();
     }
 
     // Browser services
@@ -82,6 +188,10 @@ public class BrowserInternalFrame extends BasicInternalFrame
         return classFile;
     }
 
+    public File getSourceFile() {
+        return sourceFile;
+    }
+
     public void activate() {
 
         // force sync of toolbar state with this frame
@@ -117,26 +227,11 @@ public class BrowserInternalFrame extends BasicInternalFrame
             }
         }
 
-        BrowserInternalFrame frame = (BrowserInternalFrame)desktopManager.getOpenFrame(new WindowState(findResult.getFileName()));
-        if (frame != null) {
-            try {
-                frame.setSelected(true);
-                frame.browserComponent.setBrowserPath(browserPath);
-                desktopManager.scrollToVisible(frame);
-            } catch (PropertyVetoException e) {
-            }
-        } else {
-            WindowState windowState = new WindowState(findResult.getFileName(), browserPath);
-            frame = new BrowserInternalFrame(desktopManager, windowState);
-            if (isMaximum()) {
-                try {
-                    frame.setMaximum(true);
-                } catch (PropertyVetoException ex) {
-                }
-            } else {
-                desktopManager.scrollToVisible(frame);
-            }
-        }
+        getParentFrame().openClassFile(findResult.getFileName(), browserPath);
+    }
+
+    public void findUsages(String key) {
+        getParentFrame().showUsages(key);
     }
 
     public boolean canOpenClassFiles() {
@@ -151,7 +246,13 @@ public class BrowserInternalFrame extends BasicInternalFrame
      * Reload class file.
      */
     public void reload() {
-        readClassFile();
+        if (browserComponent == null) {
+            load();
+            return;
+        }
+        invalidateClassFile(fileName);
+        classFile = readClassFile(fileName);
+        updateSourceFile();
         browserComponent.rebuild();
     }
 
@@ -179,29 +280,109 @@ public class BrowserInternalFrame extends BasicInternalFrame
 
     }
 
+    private void setupPlaceholder() {
+
+        Container contentPane = getContentPane();
+        contentPane.setLayout(new BorderLayout());
+        addPlaceholder();
+
+        setupInternalFrame();
+    }
+
+    private void addPlaceholder() {
+
+        lblPlaceholder = new JLabel("Loading " + fileName + " ...", JLabel.CENTER);
+        getContentPane().add(lblPlaceholder, BorderLayout.CENTER);
+    }
+
+    private void replacePlaceholder() {
+
+        Container contentPane = getContentPane();
+        contentPane.remove(lblPlaceholder);
+        lblPlaceholder = null;
+
+        browserComponent = new BrowserComponent(this);
+        contentPane.add(browserComponent, BorderLayout.CENTER);
+        browserComponent.setBrowserPath(deferredWindowState.getBrowserPath());
+        deferredWindowState = null;
+        contentPane.validate();
+
+        if (isSelected()) {
+            desktopManager.setActiveFrame(this);
+            browserComponent.getHistory().updateActions();
+            browserComponent.checkSelection();
+        }
+    }
+
     private BrowserMDIFrame getParentFrame() {
         return (BrowserMDIFrame)desktopManager.getParentFrame();
     }
 
-    private void readClassFile() {
+    private void updateSourceFile() {
+        if (classFile == null || sourceFile != null) {
+            return;
+        }
+        final ClassFile lookupClassFile = classFile;
+        final BrowserConfig config = getParentFrame().getConfig();
+        getParentFrame().getTaskService().submit(null, "Locating source of " + fileName, new TaskService.Task() {
+            protected Object run(TaskService.Handle handle) {
+                return config.findSourceFile(lookupClassFile);
+            }
+
+            protected void succeeded(Object result) {
+                // a source file chosen by the user in the meantime takes precedence
+                if (result != null && sourceFile == null && classFile == lookupClassFile) {
+                    sourceFile = (File)result;
+                    if (browserComponent != null) {
+                        browserComponent.updateDetailPane();
+                    }
+                }
+            }
+        });
+    }
+
+    private static void invalidateClassFile(String fileName) {
+        try {
+            int index = fileName.indexOf('!');
+            if (index > -1) {
+                ClassFileCache.getInstance().invalidate(new File(fileName.substring(0, index)), fileName.substring(index + 1));
+            } else {
+                ClassFileCache.getInstance().invalidate(new File(fileName), null);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static void demoteClassFile(String fileName) {
+        try {
+            int index = fileName.indexOf('!');
+            if (index > -1) {
+                ClassFileCache.getInstance().demote(new File(fileName.substring(0, index)), fileName.substring(index + 1));
+            } else {
+                ClassFileCache.getInstance().demote(new File(fileName), null);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static ClassFile readClassFile(String fileName) {
         try {
             int index = fileName.indexOf('!');
             if (index > -1) {
                 String jarFileName = fileName.substring(0, index);
                 String classFileName = fileName.substring(index + 1);
-                JarFile jarFile = new JarFile(jarFileName);
-                JarEntry jarEntry = jarFile.getJarEntry(classFileName);
-                if (jarEntry != null) {
-                    classFile = ClassFileReader.readFromInputStream(jarFile.getInputStream(jarEntry));
-                }
+                return ClassFileCache.getInstance().getClassFile(new File(jarFileName), classFileName, ContentHash.NONE);
             } else {
-                classFile = ClassFileReader.readFromFile(new File(fileName));
+                return ClassFileCache.getInstance().getClassFile(new File(fileName), null, ContentHash.NONE);
             }
         } catch (InvalidByteCodeException ex) {
             ex.printStackTrace();
         } catch (IOException ex) {
             ex.printStackTrace();
         }
+        return null;
     }
 
 }
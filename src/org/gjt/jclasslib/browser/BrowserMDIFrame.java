@@ -7,21 +7,36 @@
 
 package org.gjt.jclasslib.browser;
 
+import org.gjt.jclasslib.browser.analysis.LockUsageDialog;
+import org.gjt.jclasslib.browser.analysis.StartupCostDialog;
 import org.gjt.jclasslib.browser.config.BrowserConfig;
+import org.gjt.jclasslib.browser.config.WorkspaceFile;
 import org.gjt.jclasslib.browser.config.classpath.*;
+import org.gjt.jclasslib.browser.config.window.BrowserPath;
 import org.gjt.jclasslib.browser.config.window.WindowState;
+import org.gjt.jclasslib.browser.search.SearchDialog;
+import org.gjt.jclasslib.browser.xref.CrossReferenceIndex;
+import org.gjt.jclasslib.browser.xref.UsagesDialog;
 import org.gjt.jclasslib.mdi.*;
 import org.gjt.jclasslib.structures.ClassFile;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 import org.gjt.jclasslib.util.GUIHelper;
+import org.gjt.jclasslib.util.TaskService;
+import org.gjt.jclasslib.util.TaskStatusBar;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.beans.*;
 import java.io.*;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.prefs.Preferences;
 
 
@@ -38,6 +53,8 @@ public class BrowserMDIFrame extends BasicMDIFrame {
     private static final String SETTINGS_WORKSPACE_CHOOSER_PATH = "workspaceChooserPath";
     private static final String SETTINGS_CLASSES_CHOOSER_PATH = "classesChooserPath";
 
+    private static final int AUTOSAVE_INTERVAL = 30000;
+
     private static final ImageIcon ICON_OPEN_CLASS_FILE = loadIcon("open_small.png");
     private static final ImageIcon ICON_OPEN_CLASS_FILE_LARGE = loadIcon("open_class_large.png");
     private static final ImageIcon ICON_OPEN_SOURCE_FILE_LARGE = loadIcon("open_source_large.png");
@@ -73,6 +90,11 @@ public class BrowserMDIFrame extends BasicMDIFrame {
     private Action actionOpenSourceFile;
     private Action actionBrowseClasspath;
     private Action actionSetupClasspath;
+    private Action actionAddSourceRoot;
+    private Action actionRemoveSourceRoot;
+    private Action actionSearchClasspath;
+    private Action actionShowLockUsage;
+    private Action actionShowStartupCost;
     private Action actionNewWorkspace;
     private Action actionOpenWorkspace;
     private Action actionSaveWorkspace;
@@ -90,17 +112,31 @@ public class BrowserMDIFrame extends BasicMDIFrame {
     private String workspaceChooserPath = "";
     private String classesChooserPath = "";
     private BrowserConfig config;
+    private CrossReferenceIndex crossReferenceIndex;
+    private TaskService taskService = new TaskService();
+    private boolean restoringWorkspace;
+
+    private Timer autosaveTimer;
+    private ExecutorService autosaveExecutor;
+    private boolean autosaveEnabled;
+    private byte[] lastSavedWorkspace;
 
     // Visual Components
 
     private JFileChooser workspaceFileChooser;
     private JFileChooser classesFileChooser;
     private JFileChooser sourceFileChooser;
+    private JFileChooser sourceRootChooser;
 
     private RecentMenu recentMenu;
+    private TaskStatusBar statusBar;
     private ClasspathSetupDialog classpathSetupDialog;
     private ClasspathBrowser classpathBrowser;
     private ClasspathBrowser jarBrowser;
+    private SearchDialog searchDialog;
+    private LockUsageDialog lockUsageDialog;
+    private StartupCostDialog startupCostDialog;
+    private UsagesDialog usagesDialog;
 
     /**
      * Constructor.
@@ -114,6 +150,7 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         setupActions();
         setupMenu();
         setupFrame();
+        setupAutosave();
     }
 
     /**
@@ -132,6 +169,24 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         }
     }
 
+    /**
+     * Get the task service for running background tasks.
+     *
+     * @return the task service
+     */
+    public TaskService getTaskService() {
+        return taskService;
+    }
+
+    /**
+     * Check whether the frames of a workspace are currently being restored.
+     *
+     * @return the value
+     */
+    public boolean isRestoringWorkspace() {
+        return restoringWorkspace;
+    }
+
     /**
      * Get the action for displaying the classpath setup dialog.
      *
@@ -197,16 +252,17 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
         closeAllFrames();
         try {
-            FileInputStream fos = new FileInputStream(file);
-            XMLDecoder decoder = new XMLDecoder(fos);
-            config = (BrowserConfig)decoder.readObject();
+            config = WorkspaceFile.read(file);
+            // workspaces in the old XML format are only converted by an explicit save
+            autosaveEnabled = WorkspaceFile.isBinary(file);
+            lastSavedWorkspace = null;
             readMDIConfig(config.getMDIConfig());
-            decoder.close();
             recentMenu.addRecentWorkspace(file);
             if (classpathBrowser != null) {
                 classpathBrowser.setClasspathComponent(config);
             }
-        } catch (FileNotFoundException e) {
+            updateCrossReferenceIndex();
+        } catch (IOException e) {
             GUIHelper.showMessage(this, "An error occured while reading " + file.getPath(), JOptionPane.ERROR_MESSAGE);
         } finally {
             setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
@@ -250,8 +306,71 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         return frame;
     }
 
+    /**
+     * Open a class file in an internal frame. If the class file is already
+     * open, its frame is selected instead.
+     *
+     * @param fileName the file name of the class file, <tt>archive!entry</tt> for class files in archives
+     * @param browserPath an optional <tt>BrowserPath</tt> object. May be <tt>null</tt>.
+     * @return the internal frame
+     */
+    public BrowserInternalFrame openClassFile(String fileName, BrowserPath browserPath) {
+
+        BrowserInternalFrame frame = (BrowserInternalFrame)desktopManager.getOpenFrame(new WindowState(fileName));
+        if (frame != null) {
+            try {
+                frame.setSelected(true);
+                frame.setBrowserPath(browserPath);
+                desktopManager.scrollToVisible(frame);
+            } catch (PropertyVetoException e) {
+            }
+        } else {
+            JInternalFrame activeFrame = desktopPane.getSelectedFrame();
+            boolean maximized = activeFrame != null && activeFrame.isMaximum();
+            frame = new BrowserInternalFrame(desktopManager, new WindowState(fileName, browserPath), true);
+            frame.load();
+            if (maximized) {
+                try {
+                    frame.setMaximum(true);
+                } catch (PropertyVetoException ex) {
+                }
+            } else {
+                desktopManager.scrollToVisible(frame);
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Show the usages of a class, field or method in the classpath. The cross-reference
+     * index of the classpath is built on first use and kept up to date with
+     * the classpath afterwards.
+     *
+     * @param key the key of the element as returned by one of the
+     *            <tt>getXXXKey</tt> methods of <tt>ReferenceCollector</tt>.
+     */
+    public void showUsages(String key) {
+
+        if (crossReferenceIndex == null) {
+            crossReferenceIndex = new CrossReferenceIndex(CrossReferenceIndex.getDefaultIndexDirectory());
+            config.addClasspathChangeListener(crossReferenceIndex);
+            crossReferenceIndex.setClasspath(config.getClasspath());
+        }
+        if (usagesDialog == null) {
+            usagesDialog = new UsagesDialog(this, crossReferenceIndex);
+        }
+        usagesDialog.showUsages(key);
+    }
+
     protected void doQuit() {
         saveSettings();
+        autosaveTimer.stop();
+        autosaveExecutor.shutdown();
+        try {
+            autosaveExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+        }
+        taskService.shutdown();
         super.doQuit();
     }
 
@@ -263,6 +382,30 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         return BrowserInternalFrame.CONSTRUCTOR_ARGUMENTS;
     }
 
+    protected void readMDIConfig(MDIConfig config) {
+
+        restoringWorkspace = true;
+        try {
+            super.readMDIConfig(config);
+        } finally {
+            restoringWorkspace = false;
+        }
+        BrowserInternalFrame selectedFrame = (BrowserInternalFrame)desktopPane.getSelectedFrame();
+        if (selectedFrame != null) {
+            selectedFrame.load();
+        }
+    }
+
+    protected BasicInternalFrame createInternalFrame(MDIConfig.InternalFrameDesc internalFrameDesc, boolean active) {
+        // only the active frame is read immediately, all other frames are
+        // loaded in the background when they are selected for the first time
+        Object initParam = internalFrameDesc.getInitParam();
+        if (!(initParam instanceof WindowState)) {
+            return super.createInternalFrame(internalFrameDesc, active);
+        }
+        return new BrowserInternalFrame(desktopManager, (WindowState)initParam, !active);
+    }
+
     private void setupActions() {
 
         actionOpenClassFile = new DefaultAction("Open class file", ICON_OPEN_CLASS_FILE);
@@ -277,6 +420,21 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         actionSetupClasspath = new DefaultAction("Setup classpath", GUIHelper.ICON_EMPTY);
         actionSetupClasspath.putValue(Action.SHORT_DESCRIPTION, "Configure the classpath");
 
+        actionSearchClasspath = new DefaultAction("Search classpath", GUIHelper.ICON_EMPTY);
+        actionSearchClasspath.putValue(Action.SHORT_DESCRIPTION, "Search the constant pools of all classes in the classpath");
+
+        actionShowLockUsage = new DefaultAction("Lock usage", GUIHelper.ICON_EMPTY);
+        actionShowLockUsage.putValue(Action.SHORT_DESCRIPTION, "Show the synchronization and lock usage of all classes in the classpath");
+
+        actionShowStartupCost = new DefaultAction("Startup cost", GUIHelper.ICON_EMPTY);
+        actionShowStartupCost.putValue(Action.SHORT_DESCRIPTION, "Estimate the class loading and static initialization cost of the classpath entries");
+
+        actionAddSourceRoot = new DefaultAction("Add source root", GUIHelper.ICON_EMPTY);
+        actionAddSourceRoot.putValue(Action.SHORT_DESCRIPTION, "Add a source directory or source archive to the source path");
+
+        actionRemoveSourceRoot = new DefaultAction("Remove source root", GUIHelper.ICON_EMPTY);
+        actionRemoveSourceRoot.putValue(Action.SHORT_DESCRIPTION, "Remove a source directory or source archive from the source path");
+
         actionNewWorkspace = new DefaultAction("New workspace", GUIHelper.ICON_EMPTY);
         actionNewWorkspace.putValue(Action.SHORT_DESCRIPTION, "Close all frames and open a new workspace");
 
@@ -341,6 +499,12 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         JMenu menuClasspath = new JMenu("Classpath");
         menuClasspath.add(actionBrowseClasspath);
         menuClasspath.add(actionSetupClasspath);
+        menuClasspath.add(actionSearchClasspath);
+        menuClasspath.add(actionShowLockUsage);
+        menuClasspath.add(actionShowStartupCost);
+        menuClasspath.addSeparator();
+        menuClasspath.add(actionAddSourceRoot);
+        menuClasspath.add(actionRemoveSourceRoot);
 
         JMenu menuBrowse = new JMenu("Browse");
         menuItem = menuBrowse.add(actionBackward);
@@ -372,6 +536,8 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         Container contentPane = getContentPane();
 
         contentPane.add(buildToolbar(), BorderLayout.NORTH);
+        statusBar = new TaskStatusBar(taskService);
+        contentPane.add(statusBar, BorderLayout.SOUTH);
         setIconImage(ICON_APPLICATION.getImage());
     }
 
@@ -466,30 +632,89 @@ public class BrowserMDIFrame extends BasicMDIFrame {
     private void saveWorkspaceToFile(File file) {
 
         try {
-            FileOutputStream fos = new FileOutputStream(file);
-            XMLEncoder encoder = new XMLEncoder(fos);
-            encoder.writeObject(config);
-            encoder.close();
+            byte[] data = WorkspaceFile.encode(config);
+            WorkspaceFile.write(data, file);
+            lastSavedWorkspace = data;
+            autosaveEnabled = true;
             recentMenu.addRecentWorkspace(file);
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             GUIHelper.showMessage(this, "An error occured while saving to " + file.getPath(), JOptionPane.ERROR_MESSAGE);
+            return;
         }
         GUIHelper.showMessage(this, "Workspace saved to " + file.getPath(), JOptionPane.INFORMATION_MESSAGE);
         actionSaveWorkspaceAs.setEnabled(true);
     }
 
+    private void setupAutosave() {
+
+        autosaveExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jclasslib workspace autosave");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        autosaveTimer = new Timer(AUTOSAVE_INTERVAL, new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                autosaveWorkspace();
+            }
+        });
+        autosaveTimer.start();
+    }
+
+    private void autosaveWorkspace() {
+
+        if (!autosaveEnabled || workspaceFile == null) {
+            return;
+        }
+        // the snapshot is taken on the event dispatch thread, only changed
+        // workspaces are written in the background
+        final File file = workspaceFile;
+        final byte[] data;
+        try {
+            config.setMDIConfig(createMDIConfig());
+            data = WorkspaceFile.encode(config);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        if (Arrays.equals(data, lastSavedWorkspace)) {
+            return;
+        }
+        lastSavedWorkspace = data;
+        autosaveExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    WorkspaceFile.write(data, file);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
     private void doNewWorkspace() {
 
         closeAllFrames();
         workspaceFile = null;
+        autosaveEnabled = false;
+        lastSavedWorkspace = null;
         config = new BrowserConfig();
         config.addRuntimeLib();
         if (classpathBrowser != null) {
             classpathBrowser.setClasspathComponent(config);
         }
+        updateCrossReferenceIndex();
         updateTitle();
     }
 
+    private void updateCrossReferenceIndex() {
+        if (crossReferenceIndex != null) {
+            config.addClasspathChangeListener(crossReferenceIndex);
+            crossReferenceIndex.setClasspath(config.getClasspath());
+        }
+    }
+
     private void doOpenWorkspace() {
 
         JFileChooser fileChooser = getWorkspaceFileChooser();
@@ -583,14 +808,12 @@ public class BrowserMDIFrame extends BasicMDIFrame {
             return;
         }
 
-        repaintNow();
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        BrowserInternalFrame frame = new BrowserInternalFrame(desktopManager, new WindowState(findResult.getFileName()));
+        BrowserInternalFrame frame = new BrowserInternalFrame(desktopManager, new WindowState(findResult.getFileName()), true);
+        frame.load();
         try {
             frame.setMaximum(true);
         } catch (PropertyVetoException ex) {
         }
-        setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
 
     }
 
@@ -602,16 +825,61 @@ public class BrowserMDIFrame extends BasicMDIFrame {
         classpathSetupDialog.setVisible(true);
     }
 
+    private void doSearchClasspath() {
+        if (searchDialog == null) {
+            searchDialog = new SearchDialog(this);
+        }
+        searchDialog.setVisible(true);
+    }
+
+    private void doShowLockUsage() {
+        if (lockUsageDialog == null) {
+            lockUsageDialog = new LockUsageDialog(this);
+        }
+        lockUsageDialog.setVisible(true);
+    }
+
+    private void doShowStartupCost() {
+        if (startupCostDialog == null) {
+            startupCostDialog = new StartupCostDialog(this);
+        }
+        startupCostDialog.setVisible(true);
+    }
+
+    private void doAddSourceRoot() {
+
+        JFileChooser fileChooser = getSourceRootChooser();
+        int result = fileChooser.showOpenDialog(this);
+        if (result == JFileChooser.APPROVE_OPTION) {
+            config.addSourcepathEntry(fileChooser.getSelectedFile().getPath());
+        }
+    }
+
+    private void doRemoveSourceRoot() {
+
+        java.util.List sourcepath = config.getSourcepath();
+        if (sourcepath.isEmpty()) {
+            GUIHelper.showMessage(this, "The source path is empty.", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Object[] sourceRoots = sourcepath.toArray();
+        Object selectedRoot = JOptionPane.showInputDialog(this, "Choose the source root to remove:",
+                GUIHelper.MESSAGE_TITLE, JOptionPane.QUESTION_MESSAGE, null, sourceRoots, sourceRoots[0]);
+        if (selectedRoot != null) {
+            config.removeSourcepathEntry((String)selectedRoot);
+        }
+    }
+
     private void doBackward() {
         BrowserInternalFrame frame = (BrowserInternalFrame)desktopPane.getSelectedFrame();
-        if (frame != null) {
+        if (frame != null && frame.isLoaded()) {
             frame.getBrowserComponent().getHistory().historyBackward();
         }
     }
 
     private void doForward() {
         BrowserInternalFrame frame = (BrowserInternalFrame)desktopPane.getSelectedFrame();
-        if (frame != null) {
+        if (frame != null && frame.isLoaded()) {
             frame.getBrowserComponent().getHistory().historyForward();
         }
     }
@@ -657,6 +925,19 @@ public class BrowserMDIFrame extends BasicMDIFrame {
 
        return sourceFileChooser;
     }
+
+    private JFileChooser getSourceRootChooser() {
+
+        if (sourceRootChooser == null) {
+            sourceRootChooser = new JFileChooser(classesChooserPath);
+            sourceRootChooser.setDialogTitle("Choose source directory or source archive");
+            sourceRootChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+            sourceRootChooser.setFileFilter(new BasicFileFilter(new String[]{"zip", "jar"}, "source archives"));
+        }
+
+        return sourceRootChooser;
+    }
+
     private void doAbout() {
         new BrowserAboutDialog(this).setVisible(true);
     }
@@ -677,6 +958,16 @@ public class BrowserMDIFrame extends BasicMDIFrame {
                 doBrowseClasspath();
             } else if (this == actionSetupClasspath) {
                 doSetupClasspath();
+            } else if (this == actionSearchClasspath) {
+                doSearchClasspath();
+            } else if (this == actionShowLockUsage) {
+                doShowLockUsage();
+            } else if (this == actionShowStartupCost) {
+                doShowStartupCost();
+            } else if (this == actionAddSourceRoot) {
+                doAddSourceRoot();
+            } else if (this == actionRemoveSourceRoot) {
+                doRemoveSourceRoot();
             } else if (this == actionNewWorkspace) {
                 doNewWorkspace();
             } else if (this == actionOpenWorkspace) {
@@ -11,6 +11,7 @@ import org.gjt.jclasslib.browser.config.window.BrowserPath;
 import org.gjt.jclasslib.structures.ClassFile;
 
 import javax.swing.*;
+import java.io.File;
 
 /**
     Container services for a <tt>BrowserComponent</tt>.
@@ -25,6 +26,12 @@ public interface BrowserServices {
      */
     ClassFile getClassFile();
 
+    /**
+        Get the source file for the shown class file.
+        @return the source file or <tt>null</tt> if no source file is known
+     */
+    File getSourceFile();
+
     /**
         Activate this view.
      */
@@ -58,6 +65,13 @@ public interface BrowserServices {
      */
     void openClassFile(String className, BrowserPath browserPath);
 
+    /**
+        Show the usages of a class, field or method in the classpath.
+        @param key the key of the element as returned by one of the
+                   <tt>getXXXKey</tt> methods of <tt>ReferenceCollector</tt>.
+     */
+    void findUsages(String key);
+
     /**
         Indicates whether <tt>openClassFile</tt> will be able to show class files or not.
         @return the value
@@ -7,6 +7,7 @@
 
 package org.gjt.jclasslib.browser;
 
+import org.gjt.jclasslib.analysis.InliningThresholds;
 import org.gjt.jclasslib.structures.*;
 import org.gjt.jclasslib.structures.attributes.*;
 import org.gjt.jclasslib.structures.constants.ConstantLargeNumeric;
@@ -76,25 +77,37 @@ public class BrowserTreePane extends JPanel {
         if (methodsPath == null) {
             return;
         }
-        MethodInfo[] methods = services.getClassFile().getMethods();
+        ClassFile classFile = services.getClassFile();
+        MethodInfo[] methods = classFile.getMethods();
+        int methodIndex = -1;
+        try {
+            // the signature may only be a prefix of the descriptor
+            int[] candidates = classFile.getMethodIndices(methodName);
+            for (int i = 0; i < candidates.length && methodIndex < 0; i++) {
+                if (methods[candidates[i]].getDescriptor().startsWith(methodSignature)) {
+                    methodIndex = candidates[i];
+                }
+            }
+        } catch (InvalidByteCodeException ex) {
+        }
+        if (methodIndex < 0) {
+            return;
+        }
+
         TreeNode methodsNode = (TreeNode)methodsPath.getLastPathComponent();
         for (int i = 0; i < methodsNode.getChildCount(); i++) {
             BrowserTreeNode treeNode = (BrowserTreeNode)methodsNode.getChildAt(i);
-            MethodInfo testMethod = methods[treeNode.getIndex()];
-            try {
-                if (testMethod.getName().equals(methodName) && testMethod.getDescriptor().startsWith(methodSignature)) {
-                    TreePath path = methodsPath.pathByAddingChild(treeNode);
-                    BrowserTreeNode codeNode = findCodeNode(treeNode, testMethod);
-                    if (codeNode != null) {
-                        path = path.pathByAddingChild(codeNode);
-                    }
-
-                    tree.makeVisible(path);
-                    tree.scrollPathToVisible(path);
-                    tree.setSelectionPath(path);
-                    return;
+            if (treeNode.getIndex() == methodIndex) {
+                TreePath path = methodsPath.pathByAddingChild(treeNode);
+                BrowserTreeNode codeNode = findCodeNode(treeNode, methods[methodIndex]);
+                if (codeNode != null) {
+                    path = path.pathByAddingChild(codeNode);
                 }
-            } catch (InvalidByteCodeException ex) {
+
+                tree.makeVisible(path);
+                tree.scrollPathToVisible(path);
+                tree.setSelectionPath(path);
+                return;
             }
         }
     }
@@ -280,7 +293,7 @@ public class BrowserTreePane extends JPanel {
             try {
                 BrowserTreeNode entryNode =
                         new BrowserTreeNode(getFormattedIndex(index, classMembersCount) +
-                        classMember.getName(),
+                        classMember.getName() + getCodeSizeBadge(classMember),
                                 type,
                                 index);
 
@@ -293,6 +306,21 @@ public class BrowserTreePane extends JPanel {
         }
     }
 
+    private String getCodeSizeBadge(ClassMember classMember) {
+
+        CodeAttribute codeAttribute = (CodeAttribute)classMember.findAttribute(CodeAttribute.class);
+        if (codeAttribute == null) {
+            return "";
+        }
+        int codeLength = codeAttribute.getCode().length;
+        int category = InliningThresholds.getDefault().getCategory(codeLength);
+        if (category == InliningThresholds.CATEGORY_INLINE) {
+            return " [" + codeLength + " B]";
+        } else {
+            return " [" + codeLength + " B, " + InliningThresholds.CATEGORY_NAMES[category] + "]";
+        }
+    }
+
     private BrowserTreeNode buildAttributesNode() {
         BrowserTreeNode attributesNode = new BrowserTreeNode("Attributes");
 
@@ -0,0 +1,238 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.analysis;
+
+import org.gjt.jclasslib.analysis.ClasspathAnalyzer;
+import org.gjt.jclasslib.browser.BrowserMDIFrame;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.util.GUIHelper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+
+/**
+    Base class for non-modal windows that run a <tt>ClasspathAnalyzer</tt> over the
+    configured classpath in a background thread and show its results.
+*/
+public abstract class AnalysisDialog extends JDialog implements ActionListener {
+
+    private static final int DIALOG_WIDTH = 700;
+    private static final int DIALOG_HEIGHT = 450;
+    private static final int UPDATE_INTERVAL = 200;
+
+    /** The parent frame. */
+    protected BrowserMDIFrame frame;
+
+    private String description;
+
+    private JButton btnAnalyze;
+    private JButton btnCancel;
+    private JProgressBar progressBar;
+    private JLabel lblStatus;
+
+    private Timer updateTimer;
+    private volatile ClasspathScanner scanner;
+    private long startTime;
+
+    /**
+     * Constructor.
+     * @param frame the parent frame.
+     * @param title the title of the window.
+     * @param description the description of the analysis shown above the results.
+     */
+    protected AnalysisDialog(BrowserMDIFrame frame, String title, String description) {
+        super(frame);
+        this.frame = frame;
+        this.description = description;
+
+        setupControls();
+        setupComponent(title);
+        setupEventHandlers();
+    }
+
+    public void actionPerformed(ActionEvent event) {
+        Object source = event.getSource();
+        if (source == btnAnalyze) {
+            doAnalyze();
+        } else if (source == btnCancel) {
+            doCancel();
+        } else if (source == updateTimer) {
+            updateProgress();
+        }
+    }
+
+    /**
+     * Create the analyzer for a new run.
+     * @return the analyzer.
+     */
+    protected abstract ClasspathAnalyzer createAnalyzer();
+
+    /**
+     * Create the component that shows the results. Called from the constructor.
+     * @return the component.
+     */
+    protected abstract JComponent createResultComponent();
+
+    /**
+     * Remove the results of the previous run.
+     */
+    protected abstract void clearResults();
+
+    /**
+     * Show the results of a finished or cancelled run.
+     * @param analyzer the analyzer of the run.
+     * @return a short summary of the results for the status line.
+     */
+    protected abstract String showResults(ClasspathAnalyzer analyzer);
+
+    private void setupControls() {
+
+        btnAnalyze = new JButton("Analyze");
+        btnCancel = new JButton("Cancel");
+        btnCancel.setEnabled(false);
+
+        progressBar = new JProgressBar();
+        lblStatus = new JLabel(" ");
+
+        updateTimer = new Timer(UPDATE_INTERVAL, this);
+    }
+
+    private void setupComponent(String title) {
+
+        Container contentPane = getContentPane();
+        contentPane.setLayout(new GridBagLayout());
+        GridBagConstraints gc = new GridBagConstraints();
+        gc.gridx = 0;
+        gc.gridy = 0;
+        gc.insets = new Insets(5, 5, 0, 5);
+        gc.anchor = GridBagConstraints.NORTHWEST;
+        gc.weightx = 1;
+        contentPane.add(new JLabel(description), gc);
+        gc.gridx++;
+        gc.weightx = 0;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(btnAnalyze, gc);
+        gc.gridx++;
+        contentPane.add(btnCancel, gc);
+
+        gc.gridx = 0;
+        gc.gridy++;
+        gc.gridwidth = 3;
+        gc.weightx = 1;
+        gc.weighty = 1;
+        gc.fill = GridBagConstraints.BOTH;
+        contentPane.add(createResultComponent(), gc);
+
+        gc.gridy++;
+        gc.weighty = 0;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(progressBar, gc);
+        gc.gridy++;
+        gc.insets.bottom = 5;
+        contentPane.add(lblStatus, gc);
+        getRootPane().setDefaultButton(btnAnalyze);
+
+        setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
+        setModal(false);
+        setTitle(title);
+        GUIHelper.centerOnParentWindow(this, getOwner());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+    }
+
+    private void setupEventHandlers() {
+
+        btnAnalyze.addActionListener(this);
+        btnCancel.addActionListener(this);
+
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent event) {
+                doCancel();
+                setVisible(false);
+            }
+        });
+    }
+
+    private void doAnalyze() {
+
+        if (scanner != null) {
+            return;
+        }
+        final ClasspathAnalyzer analyzer = createAnalyzer();
+        final ClasspathScanner currentScanner = new ClasspathScanner(frame.getConfig().getClasspath());
+        scanner = currentScanner;
+
+        clearResults();
+        btnAnalyze.setEnabled(false);
+        btnCancel.setEnabled(true);
+        progressBar.setIndeterminate(true);
+        lblStatus.setText("Scanning classpath ...");
+        startTime = System.currentTimeMillis();
+        updateTimer.start();
+
+        Thread thread = new Thread("jclasslib analysis") {
+            public void run() {
+                try {
+                    analyzer.analyze(currentScanner);
+                } catch (InterruptedException ex) {
+                } finally {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            analysisFinished(currentScanner, analyzer);
+                        }
+                    });
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void doCancel() {
+        ClasspathScanner currentScanner = scanner;
+        if (currentScanner != null) {
+            currentScanner.cancel();
+        }
+    }
+
+    private void analysisFinished(ClasspathScanner finishedScanner, ClasspathAnalyzer analyzer) {
+
+        updateTimer.stop();
+        scanner = null;
+        String summary = showResults(analyzer);
+        btnAnalyze.setEnabled(true);
+        btnCancel.setEnabled(false);
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(progressBar.getMaximum());
+
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(summary).append(" in ");
+        buffer.append(finishedScanner.getProcessedCount()).append(" classes (");
+        buffer.append(System.currentTimeMillis() - startTime).append(" ms)");
+        if (finishedScanner.isCancelled()) {
+            buffer.append(", cancelled");
+        }
+        if (finishedScanner.getErrorCount() > 0) {
+            buffer.append(", ").append(finishedScanner.getErrorCount()).append(" unreadable");
+        }
+        lblStatus.setText(buffer.toString());
+    }
+
+    private void updateProgress() {
+
+        ClasspathScanner currentScanner = scanner;
+        if (currentScanner != null && currentScanner.getTotalCount() > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(currentScanner.getTotalCount());
+            progressBar.setValue(currentScanner.getProcessedCount());
+            lblStatus.setText(currentScanner.getProcessedCount() + " of " +
+                    currentScanner.getTotalCount() + " classes analyzed");
+        }
+    }
+
+}
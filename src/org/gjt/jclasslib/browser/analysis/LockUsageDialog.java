@@ -0,0 +1,92 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.analysis;
+
+import org.gjt.jclasslib.analysis.ClasspathAnalyzer;
+import org.gjt.jclasslib.analysis.LockAnalyzer;
+import org.gjt.jclasslib.analysis.LockUsage;
+import org.gjt.jclasslib.browser.BrowserMDIFrame;
+import org.gjt.jclasslib.browser.BrowserTreeNode;
+import org.gjt.jclasslib.browser.config.window.BrowserPath;
+import org.gjt.jclasslib.browser.config.window.CategoryHolder;
+import org.gjt.jclasslib.browser.config.window.IndexHolder;
+import org.gjt.jclasslib.browser.config.window.ReferenceHolder;
+
+import javax.swing.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+    Non-modal window that shows the lock and monitor usage of all classes in the
+    configured classpath as found by <tt>LockAnalyzer</tt>. A double click on a
+    usage opens the <tt>Code</tt> attribute of the method or the synchronized
+    method itself.
+*/
+public class LockUsageDialog extends AnalysisDialog {
+
+    private JList lstUsages;
+    private DefaultListModel usagesModel;
+
+    /**
+     * Constructor.
+     * @param frame the parent frame.
+     */
+    public LockUsageDialog(BrowserMDIFrame frame) {
+        super(frame, "Lock usage", "Synchronized methods, monitors, locks and wait/notify calls in the classpath");
+    }
+
+    protected ClasspathAnalyzer createAnalyzer() {
+        return new LockAnalyzer();
+    }
+
+    protected JComponent createResultComponent() {
+
+        usagesModel = new DefaultListModel();
+        lstUsages = new JList(usagesModel);
+        lstUsages.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lstUsages.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent event) {
+                if (event.getClickCount() == 2) {
+                    openSelectedUsage();
+                }
+            }
+        });
+
+        return new JScrollPane(lstUsages);
+    }
+
+    protected void clearResults() {
+        usagesModel.clear();
+    }
+
+    protected String showResults(ClasspathAnalyzer analyzer) {
+
+        List usages = ((LockAnalyzer)analyzer).getLockUsages();
+        for (int i = 0; i < usages.size(); i++) {
+            usagesModel.addElement(usages.get(i));
+        }
+        return usages.size() + " usages";
+    }
+
+    private void openSelectedUsage() {
+
+        LockUsage usage = (LockUsage)lstUsages.getSelectedValue();
+        if (usage == null) {
+            return;
+        }
+        BrowserPath browserPath = new BrowserPath();
+        browserPath.addPathComponent(new CategoryHolder(BrowserTreeNode.NODE_METHOD));
+        browserPath.addPathComponent(new ReferenceHolder(usage.getMethodName(), usage.getMethodDescriptor()));
+        if (usage.getAttributeIndex() >= 0) {
+            browserPath.addPathComponent(new IndexHolder(usage.getAttributeIndex()));
+        }
+        frame.openClassFile(usage.getFileName(), browserPath);
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.analysis;
+
+import org.gjt.jclasslib.analysis.ClasspathAnalyzer;
+import org.gjt.jclasslib.analysis.StartupCost;
+import org.gjt.jclasslib.analysis.StartupCostAnalyzer;
+import org.gjt.jclasslib.browser.BrowserMDIFrame;
+import org.gjt.jclasslib.browser.BrowserTreeNode;
+import org.gjt.jclasslib.browser.config.window.BrowserPath;
+import org.gjt.jclasslib.browser.config.window.CategoryHolder;
+import org.gjt.jclasslib.browser.config.window.ReferenceHolder;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Collections;
+import java.util.List;
+
+/**
+    Non-modal window that shows the startup cost of all entries in the configured
+    classpath as estimated by <tt>StartupCostAnalyzer</tt>, together with the classes
+    with the largest static initializers and the most <tt>invokedynamic</tt>
+    instructions. A double click on a class opens its static initializer.
+*/
+public class StartupCostDialog extends AnalysisDialog {
+
+    private static final int TOP_COUNT = 100;
+
+    private static final String[] COLUMN_NAMES = {
+        "Name", "Classes", "Bytes", "<clinit>", "<clinit> bytes", "invokedynamic", "Bootstrap methods"
+    };
+
+    private StartupCostTableModel entriesModel;
+    private StartupCostTableModel clinitModel;
+    private StartupCostTableModel invokeDynamicModel;
+
+    /**
+     * Constructor.
+     * @param frame the parent frame.
+     */
+    public StartupCostDialog(BrowserMDIFrame frame) {
+        super(frame, "Startup cost", "Class loading and static initialization cost of the classpath entries");
+    }
+
+    protected ClasspathAnalyzer createAnalyzer() {
+        return new StartupCostAnalyzer(TOP_COUNT);
+    }
+
+    protected JComponent createResultComponent() {
+
+        entriesModel = new StartupCostTableModel();
+        clinitModel = new StartupCostTableModel();
+        invokeDynamicModel = new StartupCostTableModel();
+
+        JTabbedPane tabbedPane = new JTabbedPane();
+        tabbedPane.addTab("Classpath entries", new JScrollPane(new JTable(entriesModel)));
+        tabbedPane.addTab("Largest static initializers", new JScrollPane(createClassTable(clinitModel)));
+        tabbedPane.addTab("Most invokedynamic", new JScrollPane(createClassTable(invokeDynamicModel)));
+
+        return tabbedPane;
+    }
+
+    protected void clearResults() {
+        entriesModel.setCosts(Collections.EMPTY_LIST);
+        clinitModel.setCosts(Collections.EMPTY_LIST);
+        invokeDynamicModel.setCosts(Collections.EMPTY_LIST);
+    }
+
+    protected String showResults(ClasspathAnalyzer analyzer) {
+
+        StartupCostAnalyzer startupCostAnalyzer = (StartupCostAnalyzer)analyzer;
+        List entryCosts = startupCostAnalyzer.getEntryCosts();
+        entriesModel.setCosts(entryCosts);
+        clinitModel.setCosts(startupCostAnalyzer.getClassCosts(StartupCost.CLINIT_SIZE_COMPARATOR, TOP_COUNT));
+        invokeDynamicModel.setCosts(startupCostAnalyzer.getClassCosts(StartupCost.INVOKE_DYNAMIC_COMPARATOR, TOP_COUNT));
+        return entryCosts.size() + " classpath entries";
+    }
+
+    private JTable createClassTable(final StartupCostTableModel model) {
+
+        final JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent event) {
+                if (event.getClickCount() == 2 && table.getSelectedRow() >= 0) {
+                    openClass(model.getCost(table.getSelectedRow()));
+                }
+            }
+        });
+        return table;
+    }
+
+    private void openClass(StartupCost cost) {
+
+        BrowserPath browserPath = null;
+        if (cost.getClinitCount() > 0) {
+            browserPath = new BrowserPath();
+            browserPath.addPathComponent(new CategoryHolder(BrowserTreeNode.NODE_METHOD));
+            browserPath.addPathComponent(new ReferenceHolder("<clinit>", "()V"));
+        }
+        frame.openClassFile(cost.getFileName(), browserPath);
+    }
+
+    private static class StartupCostTableModel extends AbstractTableModel {
+
+        private List costs = Collections.EMPTY_LIST;
+
+        public void setCosts(List costs) {
+            this.costs = costs;
+            fireTableDataChanged();
+        }
+
+        public StartupCost getCost(int row) {
+            return (StartupCost)costs.get(row);
+        }
+
+        public int getRowCount() {
+            return costs.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        public Class getColumnClass(int column) {
+            return column == 0 ? String.class : Number.class;
+        }
+
+        public Object getValueAt(int row, int column) {
+
+            StartupCost cost = getCost(row);
+            switch (column) {
+                case 0:
+                    return cost.getName();
+                case 1:
+                    return new Integer(cost.getClassCount());
+                case 2:
+                    return new Long(cost.getByteCount());
+                case 3:
+                    return new Integer(cost.getClinitCount());
+                case 4:
+                    return new Integer(cost.getClinitSize());
+                case 5:
+                    return new Integer(cost.getInvokeDynamicCount());
+                default:
+                    return new Integer(cost.getBootstrapMethodCount());
+            }
+        }
+    }
+
+}
@@ -9,6 +9,10 @@ package org.gjt.jclasslib.browser.config;
 
 import org.gjt.jclasslib.browser.config.classpath.*;
 import org.gjt.jclasslib.mdi.MDIConfig;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.attributes.SourceFileAttribute;
+import org.gjt.jclasslib.util.TaskService;
 
 import javax.swing.tree.DefaultTreeModel;
 import java.io.File;
@@ -27,6 +31,9 @@ public class BrowserConfig implements ClasspathComponent {
 
     private MDIConfig mdiConfig;
     private List classpath = new ArrayList();
+    private List sourcepath = new ArrayList();
+    private SourceLocator sourceLocator = new SourceLocator();
+    private boolean sourceRootsChanged;
     private Set mergedEntries = new HashSet();
     private Set changeListeners = new HashSet();
 
@@ -62,6 +69,80 @@ public class BrowserConfig implements ClasspathComponent {
         this.classpath = classpath;
     }
 
+    /**
+     * Get the list of source directories and source archives as file names.
+     * @return the list
+     */
+    public List getSourcepath() {
+        return sourcepath;
+    }
+
+    /**
+     * Set the list of source directories and source archives as file names.
+     * @param sourcepath the list
+     */
+    public synchronized void setSourcepath(List sourcepath) {
+        this.sourcepath = sourcepath;
+    }
+
+    /**
+     * Add a source directory or source archive. All source roots are
+     * scanned again on the next lookup.
+     * Has no effect if the entry is already present.
+     * @param fileName the name of the directory or archive.
+     */
+    public synchronized void addSourcepathEntry(String fileName) {
+        if (sourcepath.indexOf(fileName) < 0) {
+            sourcepath.add(fileName);
+            sourceRootsChanged = true;
+        }
+    }
+
+    /**
+     * Remove a source directory or source archive. All source roots are
+     * scanned again on the next lookup.
+     * @param fileName the name of the directory or archive.
+     */
+    public synchronized void removeSourcepathEntry(String fileName) {
+        if (sourcepath.remove(fileName)) {
+            sourceRootsChanged = true;
+        }
+    }
+
+    /**
+     * Find the source file for a class file on the source path. May be called
+     * on any thread. Source roots that have not been indexed yet are scanned
+     * by this call, so it should not be called on the event dispatch thread.
+     * @param classFile the class file.
+     * @return the source file, or <tt>null</tt> if no source file could be found.
+     *         Source files in archives are returned as <tt>archive!entry</tt>.
+     */
+    public File findSourceFile(ClassFile classFile) {
+
+        try {
+            String sourceFileName = null;
+            SourceFileAttribute sourceFileAttribute = (SourceFileAttribute)classFile.findAttribute(SourceFileAttribute.class);
+            if (sourceFileAttribute != null) {
+                sourceFileName = classFile.getConstantPoolUtf8Entry(sourceFileAttribute.getSourcefileIndex()).getString();
+            }
+            List currentSourcepath;
+            boolean reset;
+            synchronized (this) {
+                // the list may have been filled without setSourcepath, e.g. by the XMLDecoder
+                currentSourcepath = new ArrayList(sourcepath);
+                reset = sourceRootsChanged;
+                sourceRootsChanged = false;
+            }
+            if (reset) {
+                sourceLocator.reset();
+            }
+            sourceLocator.setSourcepath(currentSourcepath);
+            return sourceLocator.findSource(classFile.getThisClassName(), sourceFileName);
+        } catch (InvalidByteCodeException e) {
+            return null;
+        }
+    }
+
     public void addClasspathChangeListener(ClasspathChangeListener listener) {
         changeListeners.add(listener);
     }
@@ -152,14 +233,68 @@ public class BrowserConfig implements ClasspathComponent {
 
     public void mergeClassesIntoTree(DefaultTreeModel model, boolean reset) {
 
+        List entries = getEntriesToMerge(reset);
+        for (int i = 0; i < entries.size(); i++) {
+            ((ClasspathEntry)entries.get(i)).mergeClassesIntoTree(model, reset);
+        }
+        setEntriesMerged(entries, reset);
+    }
+
+    /**
+     * Merge the classes of the classpath entries into a tree model that is not
+     * displayed and report the progress to a task handle. No change events are fired
+     * and the entries are not marked as merged, so this method can be called on
+     * a worker thread. Call <tt>setEntriesMerged</tt> after the nodes have been
+     * applied to the displayed model.
+     * @param model the tree model.
+     * @param reset whether all entries should be merged or only the entries that have
+     *              not been merged yet.
+     * @param handle the task handle. May be <tt>null</tt>.
+     * @return the list of merged <tt>ClasspathEntry</tt> objects or <tt>null</tt> if
+     *         the task has been cancelled.
+     */
+    public List buildClassTree(DefaultTreeModel model, boolean reset, TaskService.Handle handle) {
+
+        List entries = getEntriesToMerge(reset);
+        for (int i = 0; i < entries.size(); i++) {
+            if (handle != null) {
+                if (handle.isCancelled()) {
+                    return null;
+                }
+                handle.setProgress(i, entries.size());
+            }
+            ClasspathEntry entry = (ClasspathEntry)entries.get(i);
+            if (handle != null) {
+                handle.setMessage(entry.getFileName());
+            }
+            entry.mergeClassesIntoTree(model, true);
+        }
+        return entries;
+    }
+
+    /**
+     * Mark classpath entries as merged into the displayed tree model.
+     * @param entries the list of <tt>ClasspathEntry</tt> objects.
+     * @param reset whether the entries replace all previously merged entries.
+     */
+    public synchronized void setEntriesMerged(List entries, boolean reset) {
+        if (reset) {
+            mergedEntries.clear();
+        }
+        mergedEntries.addAll(entries);
+    }
+
+    private synchronized List getEntriesToMerge(boolean reset) {
+
+        List entries = new ArrayList();
         Iterator it = classpath.iterator();
         while (it.hasNext()) {
             ClasspathEntry entry = (ClasspathEntry)it.next();
             if (reset || !mergedEntries.contains(entry)) {
-                entry.mergeClassesIntoTree(model, reset);
-                mergedEntries.add(entry);
+                entries.add(entry);
             }
         }
+        return entries;
     }
 
     private void fireClasspathChanged(boolean removal) {
@@ -0,0 +1,459 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.config;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathArchiveEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathDirectoryEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.browser.config.window.*;
+import org.gjt.jclasslib.mdi.MDIConfig;
+
+import java.beans.XMLDecoder;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+    Reads and writes workspace files. Workspaces are written in a compact
+    versioned binary format. Workspaces written with <tt>XMLEncoder</tt> by
+    earlier versions are still read and are converted when they are saved again.
+    <p>
+    All strings are stored once in a string table at the beginning of the file
+    and are referenced by index, so repeated class names and file names
+    only take a few bytes.
+*/
+public class WorkspaceFile {
+
+    /** Magic number at the beginning of a binary workspace file ("JCLW"). */
+    public static final int MAGIC = 0x4A434C57;
+    /** Current version of the binary workspace format. */
+    public static final int VERSION = 1;
+
+    private static final int CLASSPATH_DIRECTORY = 0;
+    private static final int CLASSPATH_ARCHIVE = 1;
+
+    private static final int INIT_PARAM_NONE = 0;
+    private static final int INIT_PARAM_WINDOW_STATE = 1;
+
+    private static final int PATH_CATEGORY = 0;
+    private static final int PATH_INDEX = 1;
+    private static final int PATH_REFERENCE = 2;
+
+    private static final int FLAG_MAXIMIZED = 1;
+    private static final int FLAG_ICONIFIED = 2;
+    private static final int FLAG_ACTIVE = 4;
+
+    private WorkspaceFile() {
+    }
+
+    /**
+     * Check whether a file is a binary workspace file.
+     * @param file the file.
+     * @return the value
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinary(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt() == MAGIC;
+        } catch (EOFException ex) {
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read a workspace file in the binary or in the XML format.
+     * @param file the file.
+     * @return the workspace configuration
+     * @throws IOException if the file cannot be read or is not a workspace file
+     */
+    public static BrowserConfig read(File file) throws IOException {
+        if (isBinary(file)) {
+            InputStream is = new BufferedInputStream(new FileInputStream(file));
+            try {
+                return decode(is);
+            } finally {
+                is.close();
+            }
+        } else {
+            return readXml(file);
+        }
+    }
+
+    /**
+     * Write a workspace file in the binary format. The data is written to a temporary
+     * file first that then replaces the target file, so an existing workspace is never
+     * left half-written.
+     * @param config the workspace configuration.
+     * @param file the file.
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(BrowserConfig config, File file) throws IOException {
+        write(encode(config), file);
+    }
+
+    /**
+     * Write the encoded form of a workspace configuration to a file.
+     * @param data the data as returned by {@link #encode(BrowserConfig)}.
+     * @param file the file.
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(byte[] data, File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            OutputStream os = new FileOutputStream(tempFile);
+            try {
+                os.write(data);
+            } finally {
+                os.close();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Encode a workspace configuration in the binary format.
+     * @param config the workspace configuration.
+     * @return the encoded data
+     * @throws IOException if the configuration contains unsupported objects
+     */
+    public static byte[] encode(BrowserConfig config) throws IOException {
+
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+
+        List classpath = config.getClasspath();
+        writeVarInt(out, classpath.size());
+        Iterator it = classpath.iterator();
+        while (it.hasNext()) {
+            ClasspathEntry entry = (ClasspathEntry)it.next();
+            if (entry instanceof ClasspathArchiveEntry) {
+                out.writeByte(CLASSPATH_ARCHIVE);
+            } else if (entry instanceof ClasspathDirectoryEntry) {
+                out.writeByte(CLASSPATH_DIRECTORY);
+            } else {
+                throw new IOException("unsupported classpath entry " + entry.getClass().getName());
+            }
+            writeString(out, strings, entry.getFileName());
+        }
+
+        List sourcepath = config.getSourcepath();
+        writeVarInt(out, sourcepath.size());
+        it = sourcepath.iterator();
+        while (it.hasNext()) {
+            writeString(out, strings, (String)it.next());
+        }
+
+        MDIConfig mdiConfig = config.getMDIConfig();
+        List internalFrameDescs = mdiConfig == null ? null : mdiConfig.getInternalFrameDescs();
+        if (internalFrameDescs == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeVarInt(out, internalFrameDescs.size());
+            it = internalFrameDescs.iterator();
+            while (it.hasNext()) {
+                MDIConfig.InternalFrameDesc internalFrameDesc = (MDIConfig.InternalFrameDesc)it.next();
+                writeInternalFrameDesc(out, strings, internalFrameDesc,
+                        internalFrameDesc == mdiConfig.getActiveFrameDesc());
+            }
+        }
+        out.flush();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + 16 * strings.size());
+        DataOutputStream header = new DataOutputStream(result);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        strings.write(header);
+        header.flush();
+        body.writeTo(result);
+
+        return result.toByteArray();
+    }
+
+    /**
+     * Decode a workspace configuration from the binary format.
+     * @param is the input stream.
+     * @return the workspace configuration
+     * @throws IOException if the stream cannot be read or has an unsupported version
+     */
+    public static BrowserConfig decode(InputStream is) throws IOException {
+
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a workspace file");
+        }
+        int version = in.readUnsignedShort();
+        if (version > VERSION) {
+            throw new IOException("unsupported workspace version " + version);
+        }
+
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        BrowserConfig config = new BrowserConfig();
+
+        int count = readVarInt(in);
+        List classpath = new ArrayList(count);
+        for (int i = 0; i < count; i++) {
+            int type = in.readUnsignedByte();
+            ClasspathEntry entry;
+            if (type == CLASSPATH_ARCHIVE) {
+                entry = new ClasspathArchiveEntry();
+            } else if (type == CLASSPATH_DIRECTORY) {
+                entry = new ClasspathDirectoryEntry();
+            } else {
+                throw new IOException("invalid classpath entry type " + type);
+            }
+            entry.setFileName(readString(in, strings));
+            classpath.add(entry);
+        }
+        config.setClasspath(classpath);
+
+        count = readVarInt(in);
+        List sourcepath = new ArrayList(count);
+        for (int i = 0; i < count; i++) {
+            sourcepath.add(readString(in, strings));
+        }
+        config.setSourcepath(sourcepath);
+
+        if (in.readBoolean()) {
+            MDIConfig mdiConfig = new MDIConfig();
+            count = readVarInt(in);
+            List internalFrameDescs = new ArrayList(count);
+            for (int i = 0; i < count; i++) {
+                MDIConfig.InternalFrameDesc internalFrameDesc = new MDIConfig.InternalFrameDesc();
+                if (readInternalFrameDesc(in, strings, internalFrameDesc)) {
+                    mdiConfig.setActiveFrameDesc(internalFrameDesc);
+                }
+                internalFrameDescs.add(internalFrameDesc);
+            }
+            mdiConfig.setInternalFrameDescs(internalFrameDescs);
+            config.setMDIConfig(mdiConfig);
+        }
+
+        return config;
+    }
+
+    private static BrowserConfig readXml(File file) throws IOException {
+        XMLDecoder decoder = new XMLDecoder(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            Object object = decoder.readObject();
+            if (!(object instanceof BrowserConfig)) {
+                throw new IOException("not a workspace file");
+            }
+            BrowserConfig config = (BrowserConfig)object;
+            // the decoder adds the entries to the list returned by getSourcepath
+            config.setSourcepath(config.getSourcepath());
+            return config;
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            // thrown by XMLDecoder if the file contains no objects
+            throw new IOException("not a workspace file");
+        } finally {
+            decoder.close();
+        }
+    }
+
+    private static void writeInternalFrameDesc(DataOutputStream out,
+                                               StringTable strings,
+                                               MDIConfig.InternalFrameDesc internalFrameDesc,
+                                               boolean active)
+            throws IOException
+    {
+        writeString(out, strings, internalFrameDesc.getClassName());
+        out.writeInt(internalFrameDesc.getX());
+        out.writeInt(internalFrameDesc.getY());
+        writeVarInt(out, internalFrameDesc.getWidth());
+        writeVarInt(out, internalFrameDesc.getHeight());
+
+        int flags = 0;
+        if (internalFrameDesc.isMaximized()) {
+            flags |= FLAG_MAXIMIZED;
+        }
+        if (internalFrameDesc.isIconified()) {
+            flags |= FLAG_ICONIFIED;
+        }
+        if (active) {
+            flags |= FLAG_ACTIVE;
+        }
+        out.writeByte(flags);
+
+        Object initParam = internalFrameDesc.getInitParam();
+        if (initParam instanceof WindowState) {
+            WindowState windowState = (WindowState)initParam;
+            out.writeByte(INIT_PARAM_WINDOW_STATE);
+            writeString(out, strings, windowState.getFileName());
+            writeBrowserPath(out, strings, windowState.getBrowserPath());
+        } else if (initParam == null) {
+            out.writeByte(INIT_PARAM_NONE);
+        } else {
+            throw new IOException("unsupported init parameter " + initParam.getClass().getName());
+        }
+    }
+
+    private static boolean readInternalFrameDesc(DataInputStream in,
+                                                 String[] strings,
+                                                 MDIConfig.InternalFrameDesc internalFrameDesc)
+            throws IOException
+    {
+        internalFrameDesc.setClassName(readString(in, strings));
+        internalFrameDesc.setX(in.readInt());
+        internalFrameDesc.setY(in.readInt());
+        internalFrameDesc.setWidth(readVarInt(in));
+        internalFrameDesc.setHeight(readVarInt(in));
+
+        int flags = in.readUnsignedByte();
+        internalFrameDesc.setMaximized((flags & FLAG_MAXIMIZED) != 0);
+        internalFrameDesc.setIconified((flags & FLAG_ICONIFIED) != 0);
+
+        int initParamType = in.readUnsignedByte();
+        if (initParamType == INIT_PARAM_WINDOW_STATE) {
+            String fileName = readString(in, strings);
+            internalFrameDesc.setInitParam(new WindowState(fileName, readBrowserPath(in, strings)));
+        } else if (initParamType != INIT_PARAM_NONE) {
+            throw new IOException("invalid init parameter type " + initParamType);
+        }
+
+        return (flags & FLAG_ACTIVE) != 0;
+    }
+
+    private static void writeBrowserPath(DataOutputStream out, StringTable strings, BrowserPath browserPath)
+            throws IOException
+    {
+        if (browserPath == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+
+        List pathComponents = browserPath.getPathComponents();
+        writeVarInt(out, pathComponents.size());
+        Iterator it = pathComponents.iterator();
+        while (it.hasNext()) {
+            PathComponent pathComponent = (PathComponent)it.next();
+            if (pathComponent instanceof CategoryHolder) {
+                out.writeByte(PATH_CATEGORY);
+                writeString(out, strings, ((CategoryHolder)pathComponent).getCategory());
+            } else if (pathComponent instanceof IndexHolder) {
+                out.writeByte(PATH_INDEX);
+                out.writeInt(((IndexHolder)pathComponent).getIndex());
+            } else if (pathComponent instanceof ReferenceHolder) {
+                ReferenceHolder referenceHolder = (ReferenceHolder)pathComponent;
+                out.writeByte(PATH_REFERENCE);
+                writeString(out, strings, referenceHolder.getName());
+                writeString(out, strings, referenceHolder.getType());
+            } else {
+                throw new IOException("unsupported path component " + pathComponent.getClass().getName());
+            }
+        }
+    }
+
+    private static BrowserPath readBrowserPath(DataInputStream in, String[] strings) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        BrowserPath browserPath = new BrowserPath();
+        int count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case PATH_CATEGORY:
+                    browserPath.addPathComponent(new CategoryHolder(readString(in, strings)));
+                    break;
+                case PATH_INDEX:
+                    browserPath.addPathComponent(new IndexHolder(in.readInt()));
+                    break;
+                case PATH_REFERENCE:
+                    String name = readString(in, strings);
+                    browserPath.addPathComponent(new ReferenceHolder(name, readString(in, strings)));
+                    break;
+                default:
+                    throw new IOException("invalid path component type " + type);
+            }
+        }
+        return browserPath;
+    }
+
+    // strings are written as index + 1 into the string table, 0 stands for null
+
+    private static void writeString(DataOutputStream out, StringTable strings, String string)
+            throws IOException
+    {
+        writeVarInt(out, string == null ? 0 : strings.getIndex(string) + 1);
+    }
+
+    private static String readString(DataInputStream in, String[] strings) throws IOException {
+        int index = readVarInt(in);
+        if (index == 0) {
+            return null;
+        }
+        if (index > strings.length) {
+            throw new IOException("invalid string index " + index);
+        }
+        return strings[index - 1];
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed variable length integer");
+    }
+
+    private static class StringTable {
+
+        private Map stringToIndex = new HashMap();
+        private List strings = new ArrayList();
+
+        int getIndex(String string) {
+            Integer index = (Integer)stringToIndex.get(string);
+            if (index == null) {
+                index = new Integer(strings.size());
+                stringToIndex.put(string, index);
+                strings.add(string);
+            }
+            return index.intValue();
+        }
+
+        int size() {
+            return strings.size();
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeVarInt(out, strings.size());
+            Iterator it = strings.iterator();
+            while (it.hasNext()) {
+                out.writeUTF((String)it.next());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.config.classpath;
+
+import java.io.IOException;
+
+/**
+    An opened classpath entry from which the raw bytes of class files can be read.
+*/
+public interface ClassFileSource {
+
+    /**
+     * Read the bytes of a class file.
+     * @param classFileName the name of the class file as returned by
+     *                      {@link ClasspathEntry#getClassFileNames()}.
+     * @return the bytes.
+     * @throws IOException if the class file cannot be read.
+     */
+    public byte[] readClassFile(String classFileName) throws IOException;
+
+    /**
+     * Release all resources held by this source.
+     * @throws IOException if an exception occurs while closing.
+     */
+    public void close() throws IOException;
+}
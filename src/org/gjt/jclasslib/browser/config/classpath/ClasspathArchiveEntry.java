@@ -9,8 +9,11 @@ package org.gjt.jclasslib.browser.config.classpath;
 
 import javax.swing.tree.DefaultTreeModel;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -42,6 +45,59 @@ public class ClasspathArchiveEntry extends ClasspathEntry {
         return null;
     }
 
+    public List getClassFileNames() {
+
+        List classFileNames = new ArrayList();
+        File archive = getFile();
+        if (archive == null) {
+            return classFileNames;
+        }
+        try {
+            JarFile jarFile = new JarFile(archive);
+            try {
+                Enumeration en = jarFile.entries();
+                while (en.hasMoreElements()) {
+                    JarEntry entry = (JarEntry)en.nextElement();
+                    if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(CLASSFILE_SUFFIX)) {
+                        classFileNames.add(entry.getName());
+                    }
+                }
+            } finally {
+                jarFile.close();
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        return classFileNames;
+    }
+
+    public ClassFileSource openClassFileSource() throws IOException {
+
+        File archive = getFile();
+        if (archive == null) {
+            throw new FileNotFoundException(getFileName());
+        }
+        final JarFile jarFile = new JarFile(archive);
+        return new ClassFileSource() {
+            public byte[] readClassFile(String classFileName) throws IOException {
+                JarEntry entry = jarFile.getJarEntry(classFileName);
+                if (entry == null) {
+                    throw new FileNotFoundException(classFileName);
+                }
+                return readFully(jarFile.getInputStream(entry), (int)entry.getSize());
+            }
+
+            public void close() throws IOException {
+                jarFile.close();
+            }
+        };
+    }
+
+    public String getClassFileLocation(String classFileName) {
+        File file = getFile();
+        return (file == null ? getFileName() : file.getPath()) + "!" + classFileName;
+    }
+
     public void mergeClassesIntoTree(DefaultTreeModel model, boolean reset) {
 
         File archive = getFile();
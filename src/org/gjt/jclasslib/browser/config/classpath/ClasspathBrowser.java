@@ -9,7 +9,9 @@ package org.gjt.jclasslib.browser.config.classpath;
 
 import org.gjt.jclasslib.browser.BrowserMDIFrame;
 import org.gjt.jclasslib.util.GUIHelper;
-import org.gjt.jclasslib.util.ProgressDialog;
+import org.gjt.jclasslib.browser.config.BrowserConfig;
+import org.gjt.jclasslib.util.TaskService;
+import org.gjt.jclasslib.util.TaskStatusBar;
 
 import javax.swing.*;
 import javax.swing.event.TreeSelectionEvent;
@@ -44,7 +46,7 @@ public class ClasspathBrowser extends JDialog
     private JButton btnOk;
     private JButton btnCancel;
 
-    private ProgressDialog progressDialog;
+    private TaskStatusBar statusBar;
     private boolean resetOnNextMerge;
     private boolean needsMerge;
 
@@ -148,7 +150,7 @@ public class ClasspathBrowser extends JDialog
         btnCancel = new JButton("Cancel");
         btnOk.setPreferredSize(btnCancel.getPreferredSize());
 
-        progressDialog = new ProgressDialog(this, null, "Scanning classpath ...");
+        statusBar = new TaskStatusBar(frame.getTaskService());
 
     }
 
@@ -175,6 +177,10 @@ public class ClasspathBrowser extends JDialog
         gc.insets.top = 3;
         gc.insets.bottom = 5;
         contentPane.add(createButtonBox(), gc);
+        gc.gridy++;
+        gc.insets.top = 0;
+        gc.insets.bottom = 0;
+        contentPane.add(statusBar, gc);
         getRootPane().setDefaultButton(btnOk);
 
         setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
@@ -297,22 +303,61 @@ public class ClasspathBrowser extends JDialog
 
     private void doSync(final boolean reset) {
 
-        final DefaultTreeModel model = reset ? new DefaultTreeModel(new ClassTreeNode()) : (DefaultTreeModel)tree.getModel();
-        Runnable mergeTask = new Runnable() {
-            public void run() {
-                if (classpathComponent != null) {
-                    classpathComponent.mergeClassesIntoTree(model, reset);
+        final ClasspathComponent mergedComponent = classpathComponent;
+        if (mergedComponent == null) {
+            return;
+        }
+        // the nodes are built in a model that is not displayed and applied on the event dispatch thread
+        final DefaultTreeModel builtModel = new DefaultTreeModel(new ClassTreeNode());
+        TaskService.Task mergeTask = new TaskService.Task() {
+            protected Object run(TaskService.Handle handle) {
+                if (mergedComponent instanceof BrowserConfig) {
+                    return ((BrowserConfig)mergedComponent).buildClassTree(builtModel, reset, handle);
+                } else {
+                    mergedComponent.mergeClassesIntoTree(builtModel, true);
+                    return null;
                 }
             }
-        };
 
-        progressDialog.setRunnable(mergeTask);
-        progressDialog.setVisible(true);
+            protected void succeeded(Object result) {
+                if (mergedComponent instanceof BrowserConfig && result == null) {
+                    cancelled();
+                    return;
+                }
+                if (mergedComponent == classpathComponent) {
+                    DefaultTreeModel model;
+                    if (reset) {
+                        model = builtModel;
+                        tree.setModel(model);
+                    } else {
+                        model = (DefaultTreeModel)tree.getModel();
+                        ClasspathEntry.mergeTreeIntoModel(model, (ClassTreeNode)builtModel.getRoot());
+                    }
+                    if (mergedComponent instanceof BrowserConfig) {
+                        ((BrowserConfig)mergedComponent).setEntriesMerged((java.util.List)result, reset);
+                    }
+                    tree.expandPath(new TreePath(model.getRoot()));
+                }
+                btnSync.setEnabled(true);
+            }
 
-        if (reset) {
-            tree.setModel(model);
-        }
-        tree.expandPath(new TreePath(model.getRoot()));
+            protected void failed(Throwable cause) {
+                super.failed(cause);
+                needsMerge = true;
+                resetOnNextMerge |= reset;
+                btnSync.setEnabled(true);
+            }
+
+            protected void cancelled() {
+                needsMerge = true;
+                resetOnNextMerge |= reset;
+                btnSync.setEnabled(true);
+            }
+        };
+
+        // repeated incremental merges are coalesced, a reset always builds a new model
+        frame.getTaskService().submit(reset ? null : this, "Scanning classpath", mergeTask);
+        btnSync.setEnabled(false);
         resetOnNextMerge = false;
         needsMerge = false;
     }
@@ -9,6 +9,11 @@ package org.gjt.jclasslib.browser.config.classpath;
 
 import javax.swing.tree.DefaultTreeModel;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
     Classpath entry for a directory.
@@ -33,6 +38,38 @@ public class ClasspathDirectoryEntry extends ClasspathEntry {
         return null;
     }
 
+    public List getClassFileNames() {
+
+        List classFileNames = new ArrayList();
+        File directory = getFile();
+        if (directory != null) {
+            collectClassFileNames(directory, "", classFileNames);
+        }
+        return classFileNames;
+    }
+
+    public ClassFileSource openClassFileSource() throws IOException {
+
+        final File directory = getFile();
+        if (directory == null) {
+            throw new FileNotFoundException(getFileName());
+        }
+        return new ClassFileSource() {
+            public byte[] readClassFile(String classFileName) throws IOException {
+                File file = new File(directory, classFileName);
+                return readFully(new FileInputStream(file), (int)file.length());
+            }
+
+            public void close() {
+            }
+        };
+    }
+
+    public String getClassFileLocation(String classFileName) {
+        File directory = getFile();
+        return new File(directory == null ? new File(getFileName()) : directory, classFileName).getPath();
+    }
+
     public void mergeClassesIntoTree(DefaultTreeModel model, boolean reset) {
 
         File directory = getFile();
@@ -45,6 +82,22 @@ public class ClasspathDirectoryEntry extends ClasspathEntry {
 
     }
 
+    private void collectClassFileNames(File directory, String prefix, List classFileNames) {
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            File file = files[i];
+            if (file.isDirectory()) {
+                collectClassFileNames(file, prefix + file.getName() + "/", classFileNames);
+            } else if (file.getName().toLowerCase().endsWith(CLASSFILE_SUFFIX)) {
+                classFileNames.add(prefix + file.getName());
+            }
+        }
+    }
+
     private void mergeDirectory(File directory, ClassTreeNode parentNode, DefaultTreeModel model, boolean reset) {
 
         File[] files = directory.listFiles();
@@ -10,6 +10,8 @@ package org.gjt.jclasslib.browser.config.classpath;
 import javax.swing.tree.DefaultTreeModel;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 /**
     Base class for classpath entries.
@@ -71,6 +73,31 @@ public abstract class ClasspathEntry implements ClasspathComponent {
     public void removeClasspathChangeListener(ClasspathChangeListener listener) {
     }
 
+    /**
+     * Get the names of all class files in this classpath entry. The names are
+     * relative to the root of the entry, use '/' as a separator and include
+     * the <tt>.class</tt> suffix.
+     * @return the list of names.
+     */
+    public abstract List getClassFileNames();
+
+    /**
+     * Open this classpath entry for reading class files. The returned source
+     * must be closed by the caller. Several sources may be open at the same time,
+     * each of them must only be used by one thread.
+     * @return the source.
+     * @throws IOException if the entry cannot be opened.
+     */
+    public abstract ClassFileSource openClassFileSource() throws IOException;
+
+    /**
+     * Get the file name under which a class file of this entry is shown in a browser frame.
+     * This is the same name that {@link #findClass(String)} reports.
+     * @param classFileName the name of the class file as returned by {@link #getClassFileNames()}.
+     * @return the file name.
+     */
+    public abstract String getClassFileLocation(String classFileName);
+
     /**
      * Get the file for the classpath entry. May be <tt>null</tt> if the entry is invalid.
      * @return the file.
@@ -94,6 +121,39 @@ public abstract class ClasspathEntry implements ClasspathComponent {
                                           boolean packageNode,
                                           DefaultTreeModel model,
                                           boolean reset)
+    {
+        return findOrInsertNode(newNodeName, parentNode, packageNode, model, reset);
+    }
+
+    /**
+     * Merge the nodes of a tree that is not displayed into a tree model. Nodes that are
+     * not present in the model yet are added in the same order as by <tt>addOrFindNode</tt>
+     * and insertion events are fired. Must be called on the event dispatch thread if
+     * the model is displayed.
+     * @param model the tree model.
+     * @param rootNode the root node of the tree that is merged into the model.
+     */
+    public static void mergeTreeIntoModel(DefaultTreeModel model, ClassTreeNode rootNode) {
+        mergeNode(rootNode, (ClassTreeNode)model.getRoot(), model);
+    }
+
+    private static void mergeNode(ClassTreeNode sourceNode, ClassTreeNode targetNode, DefaultTreeModel model) {
+
+        for (int i = 0; i < sourceNode.getChildCount(); i++) {
+            ClassTreeNode childNode = (ClassTreeNode)sourceNode.getChildAt(i);
+            ClassTreeNode targetChildNode = findOrInsertNode(childNode.toString(), targetNode,
+                    childNode.isPackageNode(), model, false);
+            if (childNode.isPackageNode()) {
+                mergeNode(childNode, targetChildNode, model);
+            }
+        }
+    }
+
+    private static ClassTreeNode findOrInsertNode(String newNodeName,
+                                                  ClassTreeNode parentNode,
+                                                  boolean packageNode,
+                                                  DefaultTreeModel model,
+                                                  boolean reset)
     {
         int childCount = parentNode.getChildCount();
 
@@ -127,11 +187,51 @@ public abstract class ClasspathEntry implements ClasspathComponent {
         return name.substring(0, name.length() - CLASSFILE_SUFFIX.length());
     }
 
-    private void insertNode(ClassTreeNode newNode,
-                              ClassTreeNode parentNode,
-                              int insertionIndex,
-                              DefaultTreeModel model,
-                              boolean reset)
+    /**
+     * Read a stream completely and close it.
+     * @param in the stream.
+     * @param sizeHint the expected number of bytes, -1 if unknown.
+     * @return the bytes.
+     * @throws IOException if an exception occurs while reading from the stream.
+     */
+    protected static byte[] readFully(InputStream in, int sizeHint) throws IOException {
+
+        try {
+            byte[] buffer = new byte[sizeHint >= 0 ? sizeHint : 4096];
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    int next = in.read();
+                    if (next < 0) {
+                        return buffer;
+                    }
+                    byte[] newBuffer = new byte[Math.max(4096, buffer.length * 2)];
+                    System.arraycopy(buffer, 0, newBuffer, 0, length);
+                    buffer = newBuffer;
+                    buffer[length++] = (byte)next;
+                }
+                int count = in.read(buffer, length, buffer.length - length);
+                if (count < 0) {
+                    break;
+                }
+                length += count;
+            }
+            if (length == buffer.length) {
+                return buffer;
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(buffer, 0, result, 0, length);
+            return result;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void insertNode(ClassTreeNode newNode,
+                                   ClassTreeNode parentNode,
+                                   int insertionIndex,
+                                   DefaultTreeModel model,
+                                   boolean reset)
     {
         parentNode.insert(newNode, insertionIndex);
         if (!reset) {
@@ -0,0 +1,231 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.config.classpath;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+    Reads all class files of a list of classpath entries in parallel and passes
+    their raw bytes to a handler. The class files of each entry are split into
+    chunks, and every chunk is read through its own <tt>ClassFileSource</tt>,
+    so that even a single large archive is processed by all threads.
+    <p>
+    A scan can be cancelled from any thread and reports its progress through
+    {@link #getProcessedCount()} and {@link #getTotalCount()}.
+*/
+public class ClasspathScanner {
+
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+        Receives the class files read by a <tt>ClasspathScanner</tt>. Handlers are
+        called concurrently from several threads.
+     */
+    public interface ClassFileHandler {
+
+        /**
+         * Handle the bytes of a class file.
+         * @param entry the classpath entry containing the class file.
+         * @param classFileName the name of the class file within the entry.
+         * @param bytes the bytes of the class file.
+         */
+        public void handleClassFile(ClasspathEntry entry, String classFileName, byte[] bytes);
+    }
+
+    private final List classpathEntries;
+    private final int threadCount;
+
+    private volatile boolean cancelled;
+    private volatile int totalCount;
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    /**
+     * Constructor that uses one thread per available processor.
+     * @param classpathEntries the list of <tt>ClasspathEntry</tt> objects to scan.
+     */
+    public ClasspathScanner(List classpathEntries) {
+        this(classpathEntries, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     * @param classpathEntries the list of <tt>ClasspathEntry</tt> objects to scan.
+     * @param threadCount the number of threads.
+     */
+    public ClasspathScanner(List classpathEntries, int threadCount) {
+        this.classpathEntries = new ArrayList(classpathEntries);
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Get the scanned classpath entries.
+     * @return the list of <tt>ClasspathEntry</tt> objects in classpath order.
+     */
+    public List getClasspathEntries() {
+        return Collections.unmodifiableList(classpathEntries);
+    }
+
+    /**
+     * Scan all class files. This method blocks until all class files have been
+     * handled or the scan has been cancelled.
+     * @param handler the handler for the class files.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void scan(final ClassFileHandler handler) throws InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jclasslib classpath scanner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List listTasks = new ArrayList();
+            for (int i = 0; i < classpathEntries.size(); i++) {
+                final ClasspathEntry entry = (ClasspathEntry)classpathEntries.get(i);
+                listTasks.add(new Callable() {
+                    public Object call() {
+                        return entry.getClassFileNames();
+                    }
+                });
+            }
+            List listResults = executor.invokeAll(listTasks);
+
+            List chunkTasks = new ArrayList();
+            int total = 0;
+            for (int i = 0; i < classpathEntries.size() && !cancelled; i++) {
+                ClasspathEntry entry = (ClasspathEntry)classpathEntries.get(i);
+                List classFileNames = (List)getResult((Future)listResults.get(i));
+                if (classFileNames == null) {
+                    continue;
+                }
+                total += classFileNames.size();
+                for (int start = 0; start < classFileNames.size(); start += CHUNK_SIZE) {
+                    List chunk = classFileNames.subList(start, Math.min(classFileNames.size(), start + CHUNK_SIZE));
+                    chunkTasks.add(Executors.callable(new ChunkTask(entry, chunk, handler)));
+                }
+            }
+            totalCount = total;
+
+            List chunkResults = executor.invokeAll(chunkTasks);
+            for (int i = 0; i < chunkResults.size(); i++) {
+                getResult((Future)chunkResults.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Cancel a running scan. Class files that are currently being handled
+     * are completed, no further class files are read.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether the scan has been cancelled.
+     * @return the value.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get the total number of class files. This is 0 until all classpath entries
+     * have been listed.
+     * @return the number.
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the number of class files that have been handled so far.
+     * @return the number.
+     */
+    public int getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * Get the number of class files that could not be read.
+     * @return the number.
+     */
+    public int getErrorCount() {
+        return errorCount.get();
+    }
+
+    private static Object getResult(Future future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (CancellationException ex) {
+            return null;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private class ChunkTask implements Runnable {
+
+        private final ClasspathEntry entry;
+        private final List classFileNames;
+        private final ClassFileHandler handler;
+
+        private ChunkTask(ClasspathEntry entry, List classFileNames, ClassFileHandler handler) {
+            this.entry = entry;
+            this.classFileNames = classFileNames;
+            this.handler = handler;
+        }
+
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            ClassFileSource source;
+            try {
+                source = entry.openClassFileSource();
+            } catch (IOException ex) {
+                errorCount.addAndGet(classFileNames.size());
+                processedCount.addAndGet(classFileNames.size());
+                return;
+            }
+            try {
+                for (int i = 0; i < classFileNames.size() && !cancelled; i++) {
+                    String classFileName = (String)classFileNames.get(i);
+                    try {
+                        handler.handleClassFile(entry, classFileName, source.readClassFile(classFileName));
+                    } catch (IOException ex) {
+                        errorCount.incrementAndGet();
+                    }
+                    processedCount.incrementAndGet();
+                }
+            } finally {
+                try {
+                    source.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.config.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+    Locates the source files for classes in a list of source directories and
+    source archives such as <tt>src.zip</tt>. Every source root is scanned only
+    once and the relative paths of all source files are merged into a single
+    map, so a lookup only checks the modification times of the roots. A root is
+    scanned again if its modification time has changed. For directories, this
+    only covers files that are added or removed directly in the root, other
+    changes are picked up after <tt>reset</tt>.
+    <p>
+    Source files in archives are reported as <tt>archive!entry</tt>, the same
+    notation that is used for class files in archives.
+*/
+public class SourceLocator {
+
+    /** Suffix for source files. */
+    private static final String SOURCE_SUFFIX = ".java";
+
+    private List sourcepath = Collections.EMPTY_LIST;
+    private Map rootIndices = new HashMap();
+    // root -> modification time of the root when it was indexed
+    private Map rootModificationTimes = new HashMap();
+    private Map mergedIndex;
+
+    /**
+     * Set the list of source directories and archives. Roots that have
+     * already been indexed are not scanned again. Has no effect if the list
+     * is equal to the current source path.
+     * @param sourcepath the list of file names.
+     */
+    public synchronized void setSourcepath(List sourcepath) {
+        if (this.sourcepath.equals(sourcepath)) {
+            return;
+        }
+        this.sourcepath = new ArrayList(sourcepath);
+        rootIndices.keySet().retainAll(this.sourcepath);
+        rootModificationTimes.keySet().retainAll(this.sourcepath);
+        mergedIndex = null;
+    }
+
+    /**
+     * Discard all indices, so that the source roots are scanned again on the next lookup.
+     */
+    public synchronized void reset() {
+        rootIndices.clear();
+        rootModificationTimes.clear();
+        mergedIndex = null;
+    }
+
+    /**
+     * Find the source file for a class.
+     * @param className the name of the class with '/' or '.' as package separator.
+     * @param sourceFileName the name from the <tt>SourceFile</tt> attribute. If <tt>null</tt>,
+     *                       the name is derived from the name of the outermost class.
+     * @return the source file, or <tt>null</tt> if no source file could be found.
+     */
+    public synchronized File findSource(String className, String sourceFileName) {
+
+        className = className.replace('.', '/');
+        int packageEnd = className.lastIndexOf('/');
+        if (sourceFileName == null) {
+            String simpleName = className.substring(packageEnd + 1);
+            int innerClassStart = simpleName.indexOf('$');
+            if (innerClassStart > 0) {
+                simpleName = simpleName.substring(0, innerClassStart);
+            }
+            sourceFileName = simpleName + SOURCE_SUFFIX;
+        }
+        String relativePath = className.substring(0, packageEnd + 1) + sourceFileName;
+
+        discardModifiedRoots();
+        String location = (String)getMergedIndex().get(relativePath);
+        return location == null ? null : new File(location);
+    }
+
+    private void discardModifiedRoots() {
+
+        Iterator it = rootModificationTimes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry entry = (Map.Entry)it.next();
+            String root = (String)entry.getKey();
+            if (new File(root).lastModified() != ((Long)entry.getValue()).longValue()) {
+                it.remove();
+                rootIndices.remove(root);
+                mergedIndex = null;
+            }
+        }
+    }
+
+    private Map getMergedIndex() {
+
+        if (mergedIndex == null) {
+            mergedIndex = new HashMap();
+            // iterate backwards so that earlier roots take precedence
+            for (int i = sourcepath.size() - 1; i >= 0; i--) {
+                mergedIndex.putAll(getRootIndex((String)sourcepath.get(i)));
+            }
+        }
+        return mergedIndex;
+    }
+
+    private Map getRootIndex(String root) {
+
+        Map index = (Map)rootIndices.get(root);
+        if (index == null) {
+            index = new HashMap();
+            File file = new File(root);
+            rootModificationTimes.put(root, new Long(file.lastModified()));
+            if (file.isDirectory()) {
+                indexDirectory(file, "", index);
+            } else if (file.isFile()) {
+                indexArchive(file, index);
+            }
+            rootIndices.put(root, index);
+        }
+        return index;
+    }
+
+    private void indexDirectory(File directory, String prefix, Map index) {
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            File file = files[i];
+            if (file.isDirectory()) {
+                indexDirectory(file, prefix + file.getName() + "/", index);
+            } else if (file.getName().endsWith(SOURCE_SUFFIX)) {
+                index.put(prefix + file.getName(), file.getPath());
+            }
+        }
+    }
+
+    private void indexArchive(File archive, Map index) {
+
+        try {
+            ZipFile zipFile = new ZipFile(archive);
+            try {
+                Enumeration en = zipFile.entries();
+                while (en.hasMoreElements()) {
+                    ZipEntry entry = (ZipEntry)en.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !name.endsWith(SOURCE_SUFFIX)) {
+                        continue;
+                    }
+                    String location = archive.getPath() + "!" + name;
+                    index.put(name, location);
+                    // src.zip of modular JDKs has the module name as the first path component
+                    int moduleEnd = name.indexOf('/');
+                    if (moduleEnd > 0 && name.lastIndexOf('.', moduleEnd) > 0 && !index.containsKey(name.substring(moduleEnd + 1))) {
+                        index.put(name.substring(moduleEnd + 1), location);
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+}
@@ -36,6 +36,8 @@ public class ClassMemberDetailPane extends FixedListDetailPane {
     private ExtendedJLabel lblDescriptor;
     private ExtendedJLabel lblDescriptorVerbose;
 
+    private ExtendedJLabel lblSignature;
+
     private ExtendedJLabel lblAccessFlags;
     private ExtendedJLabel lblAccessFlagsVerbose;
 
@@ -60,6 +62,9 @@ public class ClassMemberDetailPane extends FixedListDetailPane {
                            lblDescriptor = linkLabel(),
                            lblDescriptorVerbose = highlightLabel());
 
+        addDetailPaneEntry(normalLabel("Java signature:"),
+                           lblSignature = highlightLabel());
+
         addDetailPaneEntry(normalLabel("Access flags:"),
                            lblAccessFlags = highlightLabel(), 
                            lblAccessFlagsVerbose = highlightLabel());
@@ -90,13 +95,28 @@ public class ClassMemberDetailPane extends FixedListDetailPane {
         constantPoolHyperlink(lblDescriptor,
                               lblDescriptorVerbose,
                               classMember.getDescriptorIndex());
-        
+
+        lblSignature.setText(getJavaSignature(classMember));
+
         lblAccessFlags.setText(classMember.getFormattedAccessFlags());
         lblAccessFlagsVerbose.setText("[" + classMember.getAccessFlagsVerbose() + "]");
 
         super.show(treePath);
         
     }
+
+    private String getJavaSignature(ClassMember classMember) {
+
+        try {
+            if (mode == FIELDS) {
+                return MethodDescriptor.getJavaTypeName(classMember.getDescriptor()) + " " + classMember.getName();
+            } else {
+                return MethodDescriptor.forDescriptor(classMember.getDescriptor()).getJavaSignature(classMember.getName());
+            }
+        } catch (InvalidByteCodeException ex) {
+            return "invalid descriptor";
+        }
+    }
     
 }
 
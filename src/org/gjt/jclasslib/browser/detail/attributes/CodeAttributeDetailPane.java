@@ -8,15 +8,15 @@
 package org.gjt.jclasslib.browser.detail.attributes;
 
 import jsyntaxpane.JavaSyntaxKit;
-import jsyntaxpane.actions.ActionUtils;
 import org.gjt.jclasslib.browser.AbstractDetailPane;
 import org.gjt.jclasslib.browser.BrowserServices;
 import org.gjt.jclasslib.browser.detail.attributes.code.ByteCodeDetailPane;
 import org.gjt.jclasslib.browser.detail.attributes.code.ExceptionTableDetailPane;
 import org.gjt.jclasslib.browser.detail.attributes.code.MiscDetailPane;
+import org.gjt.jclasslib.io.SourceText;
+import org.gjt.jclasslib.io.SourceTextCache;
 import org.gjt.jclasslib.structures.attributes.CodeAttribute;
 import org.gjt.jclasslib.structures.attributes.LineNumberTableAttribute;
-import org.gjt.jclasslib.structures.attributes.SourceFileAttribute;
 
 import javax.swing.JEditorPane;
 import javax.swing.JPanel;
@@ -26,6 +26,8 @@ import javax.swing.ScrollPaneConstants;
 import javax.swing.tree.TreePath;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
 
 /**
     Detail pane showing a <tt>Code</tt> attribute. Contains three other detail
@@ -42,6 +44,8 @@ public class CodeAttributeDetailPane extends AbstractDetailPane {
     private ByteCodeDetailPane byteCodePane;
     private MiscDetailPane miscPane;
     private JEditorPane sourcePane;
+    private SourceText sourceText;
+    private File shownSourceFile;
     
     /**
         Constructor.
@@ -99,16 +103,13 @@ public class CodeAttributeDetailPane extends AbstractDetailPane {
         return miscPane;
     }
     private JPanel buildSourcePane() {
-       SourceFileAttribute source = (SourceFileAttribute) services.getClassFile().findAttribute(SourceFileAttribute.class);
-       String text = source.getSourceText();
-       int rows = source.getLineCount();
        JPanel frame = new JPanel(new BorderLayout());
        sourcePane = new JEditorPane();
        JScrollPane scrollPane = new JScrollPane (sourcePane);
      	 scrollPane.setHorizontalScrollBarPolicy (ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
      	 scrollPane.setVerticalScrollBarPolicy (ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED);
        sourcePane.setEditorKit(new JavaSyntaxKit());
-       sourcePane.setText(text);
+       sourcePane.setText("No Source");
        sourcePane.setEditable(true);
        Dimension size = new Dimension(50 * 12, 1024);
        sourcePane.setPreferredSize(size);
@@ -118,19 +119,37 @@ public class CodeAttributeDetailPane extends AbstractDetailPane {
        frame.validate();
        return frame;
     }
+
+    private void updateSourceText() {
+       // the source file of the frame may be set after this pane has been built
+       File sourceFile = services.getSourceFile();
+       if (sourceFile == null ? shownSourceFile == null : sourceFile.equals(shownSourceFile)) {
+          return;
+       }
+       shownSourceFile = sourceFile;
+       sourceText = null;
+       if (sourceFile != null) {
+          try {
+             sourceText = SourceTextCache.getInstance().getSourceText(sourceFile);
+          } catch (IOException e) {
+             e.printStackTrace();
+          }
+       }
+       sourcePane.setText((sourceText == null) ? "No Source" : sourceText.getText());
+    }
     
     public void show(TreePath treePath) {
 
+        updateSourceText();
         exceptionTablePane.show(treePath);
         byteCodePane.show(treePath);
         miscPane.show(treePath);
         CodeAttribute code = byteCodePane.getCodeAttribute();
         LineNumberTableAttribute lineNumbers = code.getLineNumbers();
-        if(lineNumbers != null) {
+        if(lineNumbers != null && sourceText != null) {
            int firstLine = byteCodePane.getFirstLineNumber();
-           int pos = ActionUtils.getDocumentPosition(sourcePane, firstLine, 0);
-           if(pos >= 0)
-            sourcePane.setCaretPosition(pos);
+           if(firstLine >= 0)
+            sourcePane.setCaretPosition(Math.min(sourceText.getLineStartOffset(firstLine), sourcePane.getDocument().getLength()));
         }
     }
     
@@ -9,6 +9,7 @@ package org.gjt.jclasslib.browser.detail.constants;
 
 import org.gjt.jclasslib.browser.BrowserTreeNode;
 import org.gjt.jclasslib.browser.config.window.*;
+import org.gjt.jclasslib.browser.xref.ReferenceCollector;
 import org.gjt.jclasslib.structures.CPInfo;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 import org.gjt.jclasslib.structures.constants.*;
@@ -19,7 +20,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 /**
-    Component that opens named references to methods and fields.
+    Component that opens named references to methods and fields and
+    shows their usages in the classpath.
 
     @author <a href="mailto:jclasslib@ej-technologies.com">Ingo Kegel</a>
     @version $Revision: 1.1 $ $Date: 2003-08-18 08:14:43 $
@@ -27,7 +29,9 @@ import java.awt.event.ActionListener;
 public class ClassElementOpener implements ActionListener {
 
     private JButton btnShow;
+    private JButton btnUsages;
     private CPInfo cpInfo;
+    private String usagesKey;
     private AbstractConstantInfoDetailPane detailPane;
 
     /**
@@ -39,10 +43,16 @@ public class ClassElementOpener implements ActionListener {
 
         btnShow = new JButton("Show");
         btnShow.addActionListener(this);
+        btnUsages = new JButton("Find usages");
+        btnUsages.addActionListener(this);
     }
 
     public void actionPerformed(ActionEvent event) {
 
+        if (event.getSource() == btnUsages) {
+            detailPane.getBrowserServices().findUsages(usagesKey);
+            return;
+        }
         try {
             ConstantClassInfo classInfo = null;
             BrowserPath browserPath = null;
@@ -90,7 +100,11 @@ public class ClassElementOpener implements ActionListener {
         gc.gridx = 0;
         gc.gridwidth = 3;
 
-        detailPane.add(btnShow, gc);
+        Box box = Box.createHorizontalBox();
+        box.add(btnShow);
+        box.add(Box.createHorizontalStrut(5));
+        box.add(btnUsages);
+        detailPane.add(box, gc);
 
         return 1;
     }
@@ -126,6 +140,21 @@ public class ClassElementOpener implements ActionListener {
         } else {
             btnShow.setVisible(false);
         }
+
+        usagesKey = null;
+        try {
+            if (cpInfo instanceof ConstantMethodHandleInfo) {
+                CPInfo[] constantPool = cpInfo.getClassFile().getConstantPool();
+                int referenceIndex = ((ConstantMethodHandleInfo)cpInfo).getReferenceIndex();
+                if (referenceIndex > 0 && referenceIndex < constantPool.length) {
+                    usagesKey = ReferenceCollector.getKey(constantPool[referenceIndex]);
+                }
+            } else if (cpInfo != null) {
+                usagesKey = ReferenceCollector.getKey(cpInfo);
+            }
+        } catch (InvalidByteCodeException e) {
+        }
+        btnUsages.setVisible(usagesKey != null);
     }
 
 }
@@ -0,0 +1,149 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.search;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.io.RawConstantPool;
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+    Searches the constant pools of class files for a text. The text is compared
+    with the raw bytes of the <tt>CONSTANT_Utf8</tt> entries, so class files that
+    do not match are never decoded beyond the offsets of their constant pool entries.
+
+    @see RawConstantPool
+*/
+public class ConstantPoolSearch {
+
+    /** Match any <tt>CONSTANT_Utf8</tt> entry. */
+    public static final int TYPE_ANY = 0;
+    /** Match the value of <tt>CONSTANT_String</tt> entries. */
+    public static final int TYPE_STRING = 1;
+    /** Match the names of <tt>CONSTANT_Class</tt> entries. */
+    public static final int TYPE_CLASS = 2;
+    /** Match the member names of field, method and interface method references. */
+    public static final int TYPE_MEMBER = 3;
+
+    /** Display names of the <tt>TYPE_</tt> constants, indexed by the type. */
+    public static final String[] TYPE_NAMES = {"Any constant", "String literal", "Class reference", "Field or method reference"};
+
+    private final int type;
+    private final boolean exactMatch;
+    private final byte[] pattern;
+
+    /**
+     * Constructor.
+     * @param text the text to search for. For class references, '.' may be used as package separator.
+     * @param type one of the <tt>TYPE_</tt> constants.
+     * @param exactMatch whether the text must match the whole constant or may be a part of it.
+     */
+    public ConstantPoolSearch(String text, int type, boolean exactMatch) {
+        this.type = type;
+        this.exactMatch = exactMatch;
+        this.pattern = RawConstantPool.encodeUtf8(type == TYPE_CLASS ? text.replace('.', '/') : text);
+    }
+
+    /**
+     * Search the class files of a classpath. This method blocks until the scan
+     * is complete or has been cancelled.
+     * @param scanner the scanner for the classpath entries.
+     * @param listener the listener that receives the results. It is called from the
+     *                 threads of the scanner.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void search(ClasspathScanner scanner, final SearchResultListener listener) throws InterruptedException {
+
+        scanner.scan(new ClasspathScanner.ClassFileHandler() {
+            public void handleClassFile(ClasspathEntry entry, String classFileName, byte[] bytes) {
+                List results = search(bytes, entry.getClassFileLocation(classFileName));
+                for (int i = 0; i < results.size(); i++) {
+                    listener.resultFound((SearchResult)results.get(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * Search a single class file.
+     * @param bytes the bytes of the class file.
+     * @param fileName the file name under which the class file can be opened.
+     * @return the list of <tt>SearchResult</tt> objects, empty for invalid class files.
+     */
+    public List search(byte[] bytes, String fileName) {
+
+        List results = new ArrayList();
+        try {
+            RawConstantPool constantPool = RawConstantPool.read(bytes);
+            boolean[] matches = matchUtf8Entries(constantPool);
+            if (matches == null) {
+                return results;
+            }
+            String className = null;
+            int count = constantPool.getCount();
+            for (int i = 1; i < count; i++) {
+                int utf8Index = getMatchedUtf8Index(constantPool, i);
+                if (utf8Index > 0 && utf8Index < count && matches[utf8Index]) {
+                    if (className == null) {
+                        className = constantPool.getThisClassName();
+                    }
+                    results.add(new SearchResult(fileName, className, i, constantPool.getUtf8(utf8Index)));
+                }
+            }
+        } catch (InvalidByteCodeException ex) {
+        } catch (ArrayIndexOutOfBoundsException ex) {
+        }
+        return results;
+    }
+
+    private boolean[] matchUtf8Entries(RawConstantPool constantPool) {
+
+        boolean[] matches = null;
+        int count = constantPool.getCount();
+        for (int i = 1; i < count; i++) {
+            if (constantPool.getTag(i) != CPInfo.CONSTANT_UTF8) {
+                continue;
+            }
+            if (exactMatch ? constantPool.utf8Equals(i, pattern) : constantPool.utf8Contains(i, pattern)) {
+                if (matches == null) {
+                    matches = new boolean[count];
+                }
+                matches[i] = true;
+            }
+        }
+        return matches;
+    }
+
+    private int getMatchedUtf8Index(RawConstantPool constantPool, int index) {
+
+        byte tag = constantPool.getTag(index);
+        switch (type) {
+            case TYPE_ANY:
+                return tag == CPInfo.CONSTANT_UTF8 ? index : 0;
+            case TYPE_STRING:
+                return tag == CPInfo.CONSTANT_STRING ? constantPool.getFirstIndex(index) : 0;
+            case TYPE_CLASS:
+                return tag == CPInfo.CONSTANT_CLASS ? constantPool.getFirstIndex(index) : 0;
+            case TYPE_MEMBER:
+                if (tag == CPInfo.CONSTANT_FIELDREF || tag == CPInfo.CONSTANT_METHODREF || tag == CPInfo.CONSTANT_INTERFACE_METHODREF) {
+                    int nameAndTypeIndex = constantPool.getSecondIndex(index);
+                    if (constantPool.getTag(nameAndTypeIndex) == CPInfo.CONSTANT_NAME_AND_TYPE) {
+                        return constantPool.getFirstIndex(nameAndTypeIndex);
+                    }
+                }
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.search;
+
+import org.gjt.jclasslib.browser.BrowserMDIFrame;
+import org.gjt.jclasslib.browser.BrowserTreeNode;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.browser.config.window.BrowserPath;
+import org.gjt.jclasslib.browser.config.window.CategoryHolder;
+import org.gjt.jclasslib.browser.config.window.IndexHolder;
+import org.gjt.jclasslib.util.GUIHelper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+    Non-modal window for searching the constant pools of all classes in the
+    configured classpath. Results are shown as they are found, a double click
+    on a result opens the class file and selects the matching constant pool entry.
+*/
+public class SearchDialog extends JDialog implements ActionListener {
+
+    private static final int DIALOG_WIDTH = 600;
+    private static final int DIALOG_HEIGHT = 450;
+    private static final int UPDATE_INTERVAL = 200;
+
+    private BrowserMDIFrame frame;
+
+    private JTextField txtSearch;
+    private JComboBox cmbType;
+    private JCheckBox chkExactMatch;
+    private JButton btnSearch;
+    private JButton btnCancel;
+    private JList lstResults;
+    private DefaultListModel resultsModel;
+    private JProgressBar progressBar;
+    private JLabel lblStatus;
+
+    private final ConcurrentLinkedQueue pendingResults = new ConcurrentLinkedQueue();
+    private Timer updateTimer;
+    private volatile ClasspathScanner scanner;
+    private long startTime;
+
+    /**
+     * Constructor.
+     * @param frame the parent frame.
+     */
+    public SearchDialog(BrowserMDIFrame frame) {
+        super(frame);
+        this.frame = frame;
+
+        setupControls();
+        setupComponent();
+        setupEventHandlers();
+    }
+
+    public void actionPerformed(ActionEvent event) {
+        Object source = event.getSource();
+        if (source == btnSearch || source == txtSearch) {
+            doSearch();
+        } else if (source == btnCancel) {
+            doCancel();
+        } else if (source == updateTimer) {
+            updateResults();
+        }
+    }
+
+    private void setupControls() {
+
+        txtSearch = new JTextField(30);
+        cmbType = new JComboBox(ConstantPoolSearch.TYPE_NAMES);
+        chkExactMatch = new JCheckBox("Whole constant");
+        btnSearch = new JButton("Search");
+        btnCancel = new JButton("Cancel");
+        btnCancel.setEnabled(false);
+
+        resultsModel = new DefaultListModel();
+        lstResults = new JList(resultsModel);
+        lstResults.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        progressBar = new JProgressBar();
+        lblStatus = new JLabel(" ");
+
+        updateTimer = new Timer(UPDATE_INTERVAL, this);
+    }
+
+    private void setupComponent() {
+
+        Container contentPane = getContentPane();
+        contentPane.setLayout(new GridBagLayout());
+        GridBagConstraints gc = new GridBagConstraints();
+        gc.gridx = 0;
+        gc.gridy = 0;
+        gc.insets = new Insets(5, 5, 0, 5);
+        gc.anchor = GridBagConstraints.NORTHWEST;
+        contentPane.add(new JLabel("Search for:"), gc);
+        gc.gridx++;
+        gc.weightx = 1;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(txtSearch, gc);
+        gc.gridx++;
+        gc.weightx = 0;
+        contentPane.add(btnSearch, gc);
+
+        gc.gridx = 1;
+        gc.gridy++;
+        gc.fill = GridBagConstraints.NONE;
+        contentPane.add(createOptionBox(), gc);
+        gc.gridx++;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(btnCancel, gc);
+
+        gc.gridx = 0;
+        gc.gridy++;
+        gc.gridwidth = 3;
+        gc.weightx = 1;
+        gc.weighty = 1;
+        gc.fill = GridBagConstraints.BOTH;
+        contentPane.add(new JScrollPane(lstResults), gc);
+
+        gc.gridy++;
+        gc.weighty = 0;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(progressBar, gc);
+        gc.gridy++;
+        gc.insets.bottom = 5;
+        contentPane.add(lblStatus, gc);
+        getRootPane().setDefaultButton(btnSearch);
+
+        setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
+        setModal(false);
+        setTitle("Search classpath");
+        GUIHelper.centerOnParentWindow(this, getOwner());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+    }
+
+    private Box createOptionBox() {
+
+        Box box = Box.createHorizontalBox();
+        box.add(cmbType);
+        box.add(Box.createHorizontalStrut(5));
+        box.add(chkExactMatch);
+
+        return box;
+    }
+
+    private void setupEventHandlers() {
+
+        btnSearch.addActionListener(this);
+        btnCancel.addActionListener(this);
+
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent event) {
+                doCancel();
+                setVisible(false);
+            }
+        });
+
+        lstResults.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent event) {
+                if (event.getClickCount() == 2) {
+                    openSelectedResult();
+                }
+            }
+        });
+    }
+
+    private void doSearch() {
+
+        String text = txtSearch.getText();
+        if (text.length() == 0 || scanner != null) {
+            return;
+        }
+        final ConstantPoolSearch search = new ConstantPoolSearch(text, cmbType.getSelectedIndex(), chkExactMatch.isSelected());
+        final ClasspathScanner currentScanner = new ClasspathScanner(frame.getConfig().getClasspath());
+        scanner = currentScanner;
+
+        resultsModel.clear();
+        pendingResults.clear();
+        btnSearch.setEnabled(false);
+        btnCancel.setEnabled(true);
+        progressBar.setIndeterminate(true);
+        lblStatus.setText("Scanning classpath ...");
+        startTime = System.currentTimeMillis();
+        updateTimer.start();
+
+        Thread thread = new Thread("jclasslib search") {
+            public void run() {
+                try {
+                    search.search(currentScanner, new SearchResultListener() {
+                        public void resultFound(SearchResult result) {
+                            pendingResults.add(result);
+                        }
+                    });
+                } catch (InterruptedException ex) {
+                } finally {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            searchFinished(currentScanner);
+                        }
+                    });
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void doCancel() {
+        ClasspathScanner currentScanner = scanner;
+        if (currentScanner != null) {
+            currentScanner.cancel();
+        }
+    }
+
+    private void searchFinished(ClasspathScanner finishedScanner) {
+
+        updateResults();
+        updateTimer.stop();
+        scanner = null;
+        btnSearch.setEnabled(true);
+        btnCancel.setEnabled(false);
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(progressBar.getMaximum());
+
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(resultsModel.size()).append(" results in ");
+        buffer.append(finishedScanner.getProcessedCount()).append(" classes (");
+        buffer.append(System.currentTimeMillis() - startTime).append(" ms)");
+        if (finishedScanner.isCancelled()) {
+            buffer.append(", cancelled");
+        }
+        if (finishedScanner.getErrorCount() > 0) {
+            buffer.append(", ").append(finishedScanner.getErrorCount()).append(" unreadable");
+        }
+        lblStatus.setText(buffer.toString());
+    }
+
+    private void updateResults() {
+
+        Object result;
+        while ((result = pendingResults.poll()) != null) {
+            resultsModel.addElement(result);
+        }
+        ClasspathScanner currentScanner = scanner;
+        if (currentScanner != null && currentScanner.getTotalCount() > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(currentScanner.getTotalCount());
+            progressBar.setValue(currentScanner.getProcessedCount());
+            lblStatus.setText(resultsModel.size() + " results, " + currentScanner.getProcessedCount() +
+                    " of " + currentScanner.getTotalCount() + " classes scanned");
+        }
+    }
+
+    private void openSelectedResult() {
+
+        SearchResult result = (SearchResult)lstResults.getSelectedValue();
+        if (result == null) {
+            return;
+        }
+        BrowserPath browserPath = new BrowserPath();
+        browserPath.addPathComponent(new CategoryHolder(BrowserTreeNode.NODE_CONSTANT_POOL));
+        browserPath.addPathComponent(new IndexHolder(result.getConstantPoolIndex() - 1));
+        frame.openClassFile(result.getFileName(), browserPath);
+    }
+
+}
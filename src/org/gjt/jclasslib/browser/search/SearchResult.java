@@ -0,0 +1,70 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.search;
+
+/**
+    A constant pool entry of a class file that matches a <tt>ConstantPoolSearch</tt>.
+*/
+public class SearchResult {
+
+    private final String fileName;
+    private final String className;
+    private final int constantPoolIndex;
+    private final String matchedText;
+
+    /**
+     * Constructor.
+     * @param fileName the file name under which the class file can be opened.
+     * @param className the name of the class.
+     * @param constantPoolIndex the index of the matching constant pool entry.
+     * @param matchedText the text of the matching <tt>CONSTANT_Utf8</tt> entry.
+     */
+    public SearchResult(String fileName, String className, int constantPoolIndex, String matchedText) {
+        this.fileName = fileName;
+        this.className = className;
+        this.constantPoolIndex = constantPoolIndex;
+        this.matchedText = matchedText;
+    }
+
+    /**
+     * Get the file name under which the class file can be opened.
+     * @return the file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the name of the class.
+     * @return the name with '/' as package separator.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the index of the matching constant pool entry.
+     * @return the index.
+     */
+    public int getConstantPoolIndex() {
+        return constantPoolIndex;
+    }
+
+    /**
+     * Get the text of the matching <tt>CONSTANT_Utf8</tt> entry.
+     * @return the text.
+     */
+    public String getMatchedText() {
+        return matchedText;
+    }
+
+    public String toString() {
+        return className.replace('/', '.') + " [cp_info #" + constantPoolIndex + "] " + matchedText;
+    }
+
+}
@@ -0,0 +1,21 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.search;
+
+/**
+    Listener for results of a <tt>ConstantPoolSearch</tt>.
+*/
+public interface SearchResultListener {
+
+    /**
+     * Invoked when a matching constant pool entry has been found. This
+     * method may be called concurrently from several threads.
+     * @param result the result.
+     */
+    public void resultFound(SearchResult result);
+}
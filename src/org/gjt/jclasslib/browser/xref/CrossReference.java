@@ -0,0 +1,94 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.xref;
+
+/**
+    An instruction that references a class, a field or a method, as
+    found in a <tt>CrossReferenceIndex</tt>.
+*/
+public class CrossReference {
+
+    private final String fileName;
+    private final String className;
+    private final String methodName;
+    private final String methodDescriptor;
+    private final int attributeIndex;
+    private final int offset;
+
+    /**
+     * Constructor.
+     * @param fileName the file name under which the referencing class file can be opened.
+     * @param className the name of the referencing class.
+     * @param methodName the name of the referencing method.
+     * @param methodDescriptor the descriptor of the referencing method.
+     * @param attributeIndex the index of the <tt>Code</tt> attribute of the referencing method.
+     * @param offset the offset of the referencing instruction in the code.
+     */
+    public CrossReference(String fileName, String className, String methodName, String methodDescriptor,
+                          int attributeIndex, int offset) {
+        this.fileName = fileName;
+        this.className = className;
+        this.methodName = methodName;
+        this.methodDescriptor = methodDescriptor;
+        this.attributeIndex = attributeIndex;
+        this.offset = offset;
+    }
+
+    /**
+     * Get the file name under which the referencing class file can be opened.
+     * @return the file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the name of the referencing class.
+     * @return the name with '/' as package separator.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the name of the referencing method.
+     * @return the name.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Get the descriptor of the referencing method.
+     * @return the descriptor.
+     */
+    public String getMethodDescriptor() {
+        return methodDescriptor;
+    }
+
+    /**
+     * Get the index of the <tt>Code</tt> attribute of the referencing method.
+     * @return the index.
+     */
+    public int getAttributeIndex() {
+        return attributeIndex;
+    }
+
+    /**
+     * Get the offset of the referencing instruction in the code.
+     * @return the offset.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public String toString() {
+        return className.replace('/', '.') + "." + methodName + methodDescriptor + " [pc " + offset + "]";
+    }
+
+}
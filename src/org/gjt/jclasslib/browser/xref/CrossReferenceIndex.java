@@ -0,0 +1,321 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.xref;
+
+import org.gjt.jclasslib.browser.config.BrowserConfig;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathChangeEvent;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathChangeListener;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.ContentHash;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+    Inverted index from classes, fields and methods to the instructions that
+    reference them, for all class files of a classpath.
+    <p>
+    Every classpath entry is indexed separately. Entry indices are built in parallel
+    with a <tt>ClasspathScanner</tt> and saved in the index directory, so that
+    an unchanged archive is never scanned twice. When the classpath changes, only
+    the added or modified entries are indexed again. Class files whose structural
+    content hash is the same as in the previous index of a modified entry are not
+    analyzed again. The hash ignores debug attributes and the order of the constant
+    pool, which do not affect the references.
+    <p>
+    Updates run on a background thread. Queries return the references of the
+    entries that have been indexed so far, {@link #waitForUpdate()} blocks until
+    the index reflects the current classpath.
+*/
+public class CrossReferenceIndex implements ClasspathChangeListener {
+
+    private static final String INDEX_FILE_SUFFIX = ".xref";
+    private static final int CONTENT_HASH_OPTIONS = ContentHash.IGNORE_DEBUG_INFO | ContentHash.IGNORE_CONSTANT_POOL_ORDER;
+
+    private final File indexDirectory;
+    private final ExecutorService updateExecutor;
+
+    private List classpath = Collections.EMPTY_LIST;
+    private Map entryIndices = new HashMap();
+    private Future pendingUpdate;
+    private volatile ClasspathScanner scanner;
+
+    /**
+     * Constructor.
+     * @param indexDirectory the directory where the index files are saved. May be <tt>null</tt>
+     *                       if the index should not be saved.
+     */
+    public CrossReferenceIndex(File indexDirectory) {
+        this.indexDirectory = indexDirectory;
+
+        updateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jclasslib cross-reference index");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the default index directory in the home directory of the user.
+     * @return the directory.
+     */
+    public static File getDefaultIndexDirectory() {
+        return new File(new File(System.getProperty("user.home"), ".jclasslib"), "xref");
+    }
+
+    public void classpathChanged(ClasspathChangeEvent event) {
+        if (event.getSource() instanceof BrowserConfig) {
+            setClasspath(((BrowserConfig)event.getSource()).getClasspath());
+        }
+    }
+
+    /**
+     * Set the classpath and start an update of the index in the background.
+     * @param classpathEntries the list of <tt>ClasspathEntry</tt> objects.
+     */
+    public synchronized void setClasspath(List classpathEntries) {
+
+        classpath = new ArrayList(classpathEntries);
+        final List updateEntries = classpath;
+        if (scanner != null) {
+            scanner.cancel();
+        }
+        pendingUpdate = updateExecutor.submit(new Callable() {
+            public Object call() throws InterruptedException {
+                update(updateEntries);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Check whether the index reflects the current classpath.
+     * @return the value.
+     */
+    public synchronized boolean isUpToDate() {
+        return pendingUpdate == null || pendingUpdate.isDone();
+    }
+
+    /**
+     * Wait until the index reflects the current classpath.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void waitForUpdate() throws InterruptedException {
+
+        while (true) {
+            Future update;
+            synchronized (this) {
+                update = pendingUpdate;
+            }
+            if (update == null) {
+                return;
+            }
+            try {
+                update.get();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+            }
+            synchronized (this) {
+                if (update == pendingUpdate) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the scanner of the running update. Progress can be tracked with
+     * its <tt>getProcessedCount</tt> and <tt>getTotalCount</tt> methods.
+     * @return the scanner or <tt>null</tt> if no classpath entries are being indexed.
+     */
+    public ClasspathScanner getScanner() {
+        return scanner;
+    }
+
+    /**
+     * Find all references to a class, field or method.
+     * @param key the key as returned by one of the <tt>getXXXKey</tt> methods
+     *            of <tt>ReferenceCollector</tt>.
+     * @return the list of <tt>CrossReference</tt> objects in classpath order.
+     */
+    public synchronized List findReferences(String key) {
+
+        List crossReferences = new ArrayList();
+        for (int i = 0; i < classpath.size(); i++) {
+            ClasspathEntry entry = (ClasspathEntry)classpath.get(i);
+            EntryIndex entryIndex = (EntryIndex)entryIndices.get(entry);
+            if (entryIndex != null) {
+                entryIndex.findReferences(key, entry, crossReferences);
+            }
+        }
+        return crossReferences;
+    }
+
+    private void update(List classpathEntries) throws InterruptedException {
+
+        Map currentIndices;
+        synchronized (this) {
+            currentIndices = new HashMap(entryIndices);
+        }
+
+        Map updatedIndices = new HashMap();
+        final Map builders = new HashMap();
+        for (int i = 0; i < classpathEntries.size(); i++) {
+            ClasspathEntry entry = (ClasspathEntry)classpathEntries.get(i);
+            long fingerprint = EntryIndex.getFingerprint(entry);
+            EntryIndex entryIndex = (EntryIndex)currentIndices.get(entry);
+            if (entryIndex == null || entryIndex.getFingerprint() != fingerprint) {
+                EntryIndex savedIndex = readEntryIndex(entry);
+                if (savedIndex != null) {
+                    entryIndex = savedIndex;
+                }
+            }
+            if (entryIndex != null && entryIndex.getFingerprint() == fingerprint) {
+                updatedIndices.put(entry, entryIndex);
+            } else {
+                builders.put(entry, new EntryIndex.Builder(fingerprint, entryIndex));
+            }
+        }
+        publish(updatedIndices);
+
+        if (builders.isEmpty()) {
+            return;
+        }
+        ClasspathScanner currentScanner = new ClasspathScanner(new ArrayList(builders.keySet()));
+        scanner = currentScanner;
+        try {
+            currentScanner.scan(new ClasspathScanner.ClassFileHandler() {
+                public void handleClassFile(ClasspathEntry entry, String classFileName, byte[] bytes) {
+                    addClassFile((EntryIndex.Builder)builders.get(entry), classFileName, bytes);
+                }
+            });
+        } finally {
+            scanner = null;
+        }
+        if (currentScanner.isCancelled()) {
+            return;
+        }
+
+        Iterator it = builders.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry)it.next();
+            ClasspathEntry entry = (ClasspathEntry)mapEntry.getKey();
+            EntryIndex entryIndex = ((EntryIndex.Builder)mapEntry.getValue()).build();
+            updatedIndices.put(entry, entryIndex);
+            writeEntryIndex(entry, entryIndex);
+        }
+        publish(updatedIndices);
+    }
+
+    private synchronized void publish(Map updatedIndices) {
+        entryIndices = new HashMap(updatedIndices);
+    }
+
+    private static void addClassFile(EntryIndex.Builder builder, String classFileName, byte[] bytes) {
+
+        ClassFile classFile;
+        try {
+            classFile = ClassFileReader.readFromInputStream(new ByteArrayInputStream(bytes), CONTENT_HASH_OPTIONS);
+        } catch (InvalidByteCodeException ex) {
+            ex.printStackTrace();
+            return;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        long contentHash = classFile.getContentHash();
+        if (builder.reuseClassFile(classFileName, contentHash)) {
+            return;
+        }
+        final List keys = new ArrayList();
+        final List methodNames = new ArrayList();
+        final List methodDescriptors = new ArrayList();
+        final List locations = new ArrayList();
+        String className;
+        try {
+            className = classFile.getThisClassName();
+            new ReferenceCollector(classFile).collect(new ReferenceCollector.ReferenceHandler() {
+                public void handleReference(String key, MethodInfo method, int attributeIndex, int offset) {
+                    try {
+                        String methodName = method.getName();
+                        String methodDescriptor = method.getDescriptor();
+                        keys.add(key);
+                        methodNames.add(methodName);
+                        methodDescriptors.add(methodDescriptor);
+                        locations.add(new int[] {attributeIndex, offset});
+                    } catch (InvalidByteCodeException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            });
+        } catch (InvalidByteCodeException ex) {
+            ex.printStackTrace();
+            return;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+
+        int[] locationArray = new int[locations.size() * 2];
+        for (int i = 0; i < locations.size(); i++) {
+            int[] location = (int[])locations.get(i);
+            locationArray[i * 2] = location[0];
+            locationArray[i * 2 + 1] = location[1];
+        }
+        builder.addClassFile(classFileName, contentHash, className, keys, methodNames, methodDescriptors, locationArray);
+    }
+
+    private EntryIndex readEntryIndex(ClasspathEntry entry) {
+
+        File indexFile = getIndexFile(entry);
+        if (indexFile == null || !indexFile.exists()) {
+            return null;
+        }
+        try {
+            return EntryIndex.read(indexFile, entry.getFileName());
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void writeEntryIndex(ClasspathEntry entry, EntryIndex entryIndex) {
+
+        File indexFile = getIndexFile(entry);
+        if (indexFile == null) {
+            return;
+        }
+        indexDirectory.mkdirs();
+        try {
+            entryIndex.write(indexFile, entry.getFileName());
+        } catch (IOException ex) {
+            indexFile.delete();
+            ex.printStackTrace();
+        }
+    }
+
+    private File getIndexFile(ClasspathEntry entry) {
+
+        if (indexDirectory == null) {
+            return null;
+        }
+        String fileName = entry.getFileName();
+        String baseName = new File(fileName).getName().replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(indexDirectory, baseName + "-" + Integer.toHexString(fileName.hashCode()) + INDEX_FILE_SUFFIX);
+    }
+
+}
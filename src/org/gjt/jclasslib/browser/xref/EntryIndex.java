@@ -0,0 +1,378 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.xref;
+
+import org.gjt.jclasslib.browser.config.classpath.ClasspathEntry;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+    The cross references of the class files in a single classpath entry.
+    All names are stored once in a string table, every reference is stored
+    as a group of <tt>REFERENCE_SIZE</tt> integers in an array for the
+    referenced key.
+    <p>
+    The on-disk format is a deflated stream with a header that contains the
+    fingerprint of the classpath entry, the string table, the reference
+    arrays and the content hashes of the class files. If the fingerprint of an
+    index does not match, the classpath entry is indexed again, but the references
+    of class files whose content hash has not changed are copied from the old index.
+*/
+class EntryIndex {
+
+    private static final int MAGIC = 0x58524546;
+    private static final int VERSION = 3;
+
+    private static final int REFERENCE_SIZE = 6;
+    private static final int CLASS_FILE_NAME = 0;
+    private static final int CLASS_NAME = 1;
+    private static final int METHOD_NAME = 2;
+    private static final int METHOD_DESCRIPTOR = 3;
+    private static final int ATTRIBUTE_INDEX = 4;
+    private static final int OFFSET = 5;
+
+    private final long fingerprint;
+    private final String[] strings;
+    private final Map references;
+    private final Map contentHashes;
+
+    private EntryIndex(long fingerprint, String[] strings, Map references, Map contentHashes) {
+        this.fingerprint = fingerprint;
+        this.strings = strings;
+        this.references = references;
+        this.contentHashes = contentHashes;
+    }
+
+    /**
+     * Calculate the fingerprint of a classpath entry. For archives, the fingerprint
+     * is derived from the size and the modification time of the file, for
+     * directories from the sizes and modification times of all contained files.
+     * @param entry the classpath entry.
+     * @return the fingerprint, 0 if the entry does not exist.
+     */
+    static long getFingerprint(ClasspathEntry entry) {
+
+        File file = new File(entry.getFileName());
+        if (!file.exists()) {
+            return 0;
+        }
+        return addFingerprint(file, 17);
+    }
+
+    private static long addFingerprint(File file, long fingerprint) {
+
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (int i = 0; i < children.length; i++) {
+                    fingerprint = addFingerprint(children[i], fingerprint * 31 + children[i].getName().hashCode());
+                }
+            }
+            return fingerprint;
+        } else {
+            return (fingerprint * 31 + file.length()) * 31 + file.lastModified();
+        }
+    }
+
+    /**
+     * Read an index file. The caller has to compare the fingerprint of the returned
+     * index with the fingerprint of the classpath entry.
+     * @param file the index file.
+     * @param entryFileName the file name of the classpath entry.
+     * @return the index or <tt>null</tt> if the index file does not belong to the classpath entry
+     *         or has been written by a different version.
+     * @throws IOException if the file cannot be read.
+     */
+    static EntryIndex read(File file, String entryFileName) throws IOException {
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file))));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(entryFileName)) {
+                return null;
+            }
+            long fingerprint = in.readLong();
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            int keyCount = in.readInt();
+            Map references = new HashMap(keyCount * 4 / 3 + 1);
+            for (int i = 0; i < keyCount; i++) {
+                String key = in.readUTF();
+                int[] data = new int[in.readInt() * REFERENCE_SIZE];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = in.readInt();
+                }
+                references.put(key, data);
+            }
+            int classFileCount = in.readInt();
+            Map contentHashes = new HashMap(classFileCount * 4 / 3 + 1);
+            for (int i = 0; i < classFileCount; i++) {
+                String classFileName = in.readUTF();
+                contentHashes.put(classFileName, new Long(in.readLong()));
+            }
+            return new EntryIndex(fingerprint, strings, references, contentHashes);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write this index to a file.
+     * @param file the index file.
+     * @param entryFileName the file name of the classpath entry.
+     * @throws IOException if the file cannot be written.
+     */
+    void write(File file, String entryFileName) throws IOException {
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(file))));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(entryFileName);
+            out.writeLong(fingerprint);
+            out.writeInt(strings.length);
+            for (int i = 0; i < strings.length; i++) {
+                out.writeUTF(strings[i]);
+            }
+            out.writeInt(references.size());
+            Iterator it = references.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry mapEntry = (Map.Entry)it.next();
+                int[] data = (int[])mapEntry.getValue();
+                out.writeUTF((String)mapEntry.getKey());
+                out.writeInt(data.length / REFERENCE_SIZE);
+                for (int i = 0; i < data.length; i++) {
+                    out.writeInt(data[i]);
+                }
+            }
+            out.writeInt(contentHashes.size());
+            it = contentHashes.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry mapEntry = (Map.Entry)it.next();
+                out.writeUTF((String)mapEntry.getKey());
+                out.writeLong(((Long)mapEntry.getValue()).longValue());
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Get the fingerprint of the indexed classpath entry.
+     * @return the fingerprint.
+     */
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Add the references to a key to a list.
+     * @param key the key.
+     * @param entry the indexed classpath entry.
+     * @param crossReferences the list to which <tt>CrossReference</tt> objects are added.
+     */
+    void findReferences(String key, ClasspathEntry entry, List crossReferences) {
+
+        int[] data = (int[])references.get(key);
+        if (data == null) {
+            return;
+        }
+        for (int i = 0; i < data.length; i += REFERENCE_SIZE) {
+            crossReferences.add(new CrossReference(
+                    entry.getClassFileLocation(strings[data[i + CLASS_FILE_NAME]]),
+                    strings[data[i + CLASS_NAME]],
+                    strings[data[i + METHOD_NAME]],
+                    strings[data[i + METHOD_DESCRIPTOR]],
+                    data[i + ATTRIBUTE_INDEX],
+                    data[i + OFFSET]));
+        }
+    }
+
+    /**
+        Collects the references of the class files in a classpath entry. Class files
+        may be added concurrently.
+     */
+    static class Builder {
+
+        private final long fingerprint;
+        private final List strings = new ArrayList();
+        private final Map stringIndices = new HashMap();
+        private final Map references = new HashMap();
+        private final Map contentHashes = new HashMap();
+
+        private String[] previousStrings;
+        private String[] previousKeys;
+        private int[][] previousData;
+        private Map previousContentHashes = Collections.EMPTY_MAP;
+        private Map previousClassFiles = Collections.EMPTY_MAP;
+
+        /**
+         * Constructor.
+         * @param fingerprint the fingerprint of the classpath entry.
+         * @param previousIndex an out of date index of the classpath entry from which
+         *                      the references of unchanged class files are copied.
+         *                      May be <tt>null</tt>.
+         */
+        Builder(long fingerprint, EntryIndex previousIndex) {
+            this.fingerprint = fingerprint;
+
+            if (previousIndex != null) {
+                initPrevious(previousIndex);
+            }
+        }
+
+        /**
+         * Copy the references of a class file from the previous index if the class file
+         * has not changed.
+         * @param classFileName the name of the class file within the classpath entry.
+         * @param contentHash the structural content hash of the class file as
+         *                    returned by <tt>ClassFile.getContentHash</tt>.
+         * @return whether the references have been copied.
+         */
+        synchronized boolean reuseClassFile(String classFileName, long contentHash) {
+
+            Long previousContentHash = (Long)previousContentHashes.get(classFileName);
+            if (previousContentHash == null || previousContentHash.longValue() != contentHash) {
+                return false;
+            }
+            IntList rows = (IntList)previousClassFiles.get(classFileName);
+            if (rows != null) {
+                // pairs of key index and start of the reference in the data of the key
+                for (int i = 0; i < rows.size; i += 2) {
+                    String key = previousKeys[rows.values[i]];
+                    int[] data = previousData[rows.values[i]];
+                    int start = rows.values[i + 1];
+                    IntList newData = getData(key);
+                    newData.add(getStringIndex(previousStrings[data[start + CLASS_FILE_NAME]]));
+                    newData.add(getStringIndex(previousStrings[data[start + CLASS_NAME]]));
+                    newData.add(getStringIndex(previousStrings[data[start + METHOD_NAME]]));
+                    newData.add(getStringIndex(previousStrings[data[start + METHOD_DESCRIPTOR]]));
+                    newData.add(data[start + ATTRIBUTE_INDEX]);
+                    newData.add(data[start + OFFSET]);
+                }
+            }
+            contentHashes.put(classFileName, previousContentHash);
+            return true;
+        }
+
+        /**
+         * Add the references of a class file.
+         * @param classFileName the name of the class file within the classpath entry.
+         * @param contentHash the structural content hash of the class file as
+         *                    returned by <tt>ClassFile.getContentHash</tt>.
+         * @param className the name of the class.
+         * @param keys the keys of the references.
+         * @param methodNames the names of the referencing methods.
+         * @param methodDescriptors the descriptors of the referencing methods.
+         * @param locations pairs of attribute index and offset for all references.
+         */
+        synchronized void addClassFile(String classFileName, long contentHash, String className, List keys,
+                                       List methodNames, List methodDescriptors, int[] locations)
+        {
+            int classFileNameIndex = getStringIndex(classFileName);
+            int classNameIndex = getStringIndex(className);
+            for (int i = 0; i < keys.size(); i++) {
+                IntList data = getData((String)keys.get(i));
+                data.add(classFileNameIndex);
+                data.add(classNameIndex);
+                data.add(getStringIndex((String)methodNames.get(i)));
+                data.add(getStringIndex((String)methodDescriptors.get(i)));
+                data.add(locations[i * 2]);
+                data.add(locations[i * 2 + 1]);
+            }
+            contentHashes.put(classFileName, new Long(contentHash));
+        }
+
+        /**
+         * Create the index.
+         * @return the index.
+         */
+        synchronized EntryIndex build() {
+
+            Map builtReferences = new HashMap(references.size() * 4 / 3 + 1);
+            Iterator it = references.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry mapEntry = (Map.Entry)it.next();
+                builtReferences.put(mapEntry.getKey(), ((IntList)mapEntry.getValue()).toArray());
+            }
+            return new EntryIndex(fingerprint, (String[])strings.toArray(new String[strings.size()]),
+                    builtReferences, new HashMap(contentHashes));
+        }
+
+        private void initPrevious(EntryIndex previousIndex) {
+
+            // group the references of the previous index by class file
+            previousStrings = previousIndex.strings;
+            previousContentHashes = previousIndex.contentHashes;
+            previousKeys = new String[previousIndex.references.size()];
+            previousData = new int[previousKeys.length][];
+            previousClassFiles = new HashMap(previousContentHashes.size() * 4 / 3 + 1);
+            Iterator it = previousIndex.references.entrySet().iterator();
+            for (int keyIndex = 0; it.hasNext(); keyIndex++) {
+                Map.Entry mapEntry = (Map.Entry)it.next();
+                previousKeys[keyIndex] = (String)mapEntry.getKey();
+                int[] data = (int[])mapEntry.getValue();
+                previousData[keyIndex] = data;
+                for (int i = 0; i < data.length; i += REFERENCE_SIZE) {
+                    String classFileName = previousStrings[data[i + CLASS_FILE_NAME]];
+                    IntList rows = (IntList)previousClassFiles.get(classFileName);
+                    if (rows == null) {
+                        rows = new IntList();
+                        previousClassFiles.put(classFileName, rows);
+                    }
+                    rows.add(keyIndex);
+                    rows.add(i);
+                }
+            }
+        }
+
+        private IntList getData(String key) {
+
+            IntList data = (IntList)references.get(key);
+            if (data == null) {
+                data = new IntList();
+                references.put(key, data);
+            }
+            return data;
+        }
+
+        private int getStringIndex(String string) {
+
+            Integer index = (Integer)stringIndices.get(string);
+            if (index == null) {
+                index = new Integer(strings.size());
+                strings.add(string);
+                stringIndices.put(string, index);
+            }
+            return index.intValue();
+        }
+    }
+
+    private static class IntList {
+
+        private int[] values = new int[REFERENCE_SIZE * 2];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.xref;
+
+import org.gjt.jclasslib.bytecode.InstructionList;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.structures.*;
+import org.gjt.jclasslib.structures.attributes.BootstrapMethodEntry;
+import org.gjt.jclasslib.structures.attributes.BootstrapMethodsAttribute;
+import org.gjt.jclasslib.structures.attributes.CodeAttribute;
+import org.gjt.jclasslib.structures.constants.*;
+
+import java.io.IOException;
+
+/**
+    Extracts the references from the code of all methods of a class file.
+    A reference is reported with the key of the referenced class, field or method
+    and the location of the referencing instruction.
+    <p>
+    Member references are keyed by the class that is named in the constant pool,
+    so a call that is resolved to an inherited method is only found under the
+    name of the class that was used at compile time.
+*/
+public class ReferenceCollector implements Opcodes {
+
+    /**
+        Receives the references found by a <tt>ReferenceCollector</tt>.
+     */
+    public interface ReferenceHandler {
+
+        /**
+         * Handle a reference.
+         * @param key the key of the referenced element as returned by
+         *            <tt>getClassKey</tt>, <tt>getFieldKey</tt> or <tt>getMethodKey</tt>.
+         * @param method the referencing method.
+         * @param attributeIndex the index of the <tt>Code</tt> attribute of the referencing method.
+         * @param offset the offset of the referencing instruction in the code.
+         */
+        public void handleReference(String key, MethodInfo method, int attributeIndex, int offset);
+    }
+
+    private static final String PREFIX_CLASS = "C ";
+    private static final String PREFIX_FIELD = "F ";
+    private static final String PREFIX_METHOD = "M ";
+
+    private final ClassFile classFile;
+    private final CPInfo[] constantPool;
+    private BootstrapMethodEntry[] bootstrapMethods;
+
+    /**
+     * Constructor.
+     * @param classFile the class file whose references should be collected.
+     */
+    public ReferenceCollector(ClassFile classFile) {
+        this.classFile = classFile;
+        this.constantPool = classFile.getConstantPool();
+    }
+
+    /**
+     * Get the key for references to a class.
+     * @param className the name of the class with '/' as package separator.
+     * @return the key.
+     */
+    public static String getClassKey(String className) {
+        return PREFIX_CLASS + className;
+    }
+
+    /**
+     * Get the key for references to a field.
+     * @param className the name of the class with '/' as package separator.
+     * @param name the name of the field.
+     * @param descriptor the descriptor of the field.
+     * @return the key.
+     */
+    public static String getFieldKey(String className, String name, String descriptor) {
+        return PREFIX_FIELD + className + '.' + name + ':' + descriptor;
+    }
+
+    /**
+     * Get the key for references to a method or an interface method.
+     * @param className the name of the class with '/' as package separator.
+     * @param name the name of the method.
+     * @param descriptor the descriptor of the method.
+     * @return the key.
+     */
+    public static String getMethodKey(String className, String name, String descriptor) {
+        return PREFIX_METHOD + className + '.' + name + descriptor;
+    }
+
+    /**
+     * Get the key for references to the element described by a constant pool entry.
+     * @param cpInfo a <tt>CONSTANT_Class</tt>, <tt>CONSTANT_Fieldref</tt>,
+     *               <tt>CONSTANT_Methodref</tt> or <tt>CONSTANT_InterfaceMethodref</tt> entry.
+     * @return the key or <tt>null</tt> if the entry cannot be referenced.
+     * @throws InvalidByteCodeException if the entry is invalid.
+     */
+    public static String getKey(CPInfo cpInfo) throws InvalidByteCodeException {
+
+        if (cpInfo instanceof ConstantClassInfo) {
+            String className = getElementClassName(((ConstantClassInfo)cpInfo).getName());
+            return className == null ? null : getClassKey(className);
+        } else if (cpInfo instanceof ConstantReference) {
+            ConstantReference reference = (ConstantReference)cpInfo;
+            String className = reference.getClassInfo().getName();
+            ConstantNameAndTypeInfo nameAndType = reference.getNameAndTypeInfo();
+            if (cpInfo instanceof ConstantFieldrefInfo) {
+                return getFieldKey(className, nameAndType.getName(), nameAndType.getDescriptor());
+            } else {
+                return getMethodKey(className, nameAndType.getName(), nameAndType.getDescriptor());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collect the references of all methods.
+     * @param handler the handler for the references.
+     * @throws InvalidByteCodeException if the class file is invalid.
+     * @throws IOException if the code of a method cannot be read.
+     */
+    public void collect(ReferenceHandler handler) throws InvalidByteCodeException, IOException {
+
+        MethodInfo[] methods = classFile.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            AttributeInfo[] attributes = methods[i].getAttributes();
+            for (int j = 0; j < attributes.length; j++) {
+                if (attributes[j] instanceof CodeAttribute) {
+                    collect(methods[i], j, ((CodeAttribute)attributes[j]).getCode(), handler);
+                }
+            }
+        }
+    }
+
+    private void collect(MethodInfo method, int attributeIndex, byte[] code, ReferenceHandler handler)
+        throws InvalidByteCodeException, IOException
+    {
+        InstructionList instructions = ByteCodeReader.readInstructionList(code);
+        for (int i = 0; i < instructions.size(); i++) {
+            int offset = instructions.getOffset(i);
+            switch (instructions.getOpcode(i)) {
+                case OPCODE_GETSTATIC:
+                case OPCODE_PUTSTATIC:
+                case OPCODE_GETFIELD:
+                case OPCODE_PUTFIELD:
+                case OPCODE_INVOKEVIRTUAL:
+                case OPCODE_INVOKESPECIAL:
+                case OPCODE_INVOKESTATIC:
+                case OPCODE_INVOKEINTERFACE:
+                    addMemberReference(getEntry(instructions.getOperand(i)),
+                            method, attributeIndex, offset, handler);
+                    break;
+
+                case OPCODE_NEW:
+                case OPCODE_ANEWARRAY:
+                case OPCODE_CHECKCAST:
+                case OPCODE_INSTANCEOF:
+                case OPCODE_MULTIANEWARRAY:
+                case OPCODE_LDC_W:
+                    addClassReference(getEntry(instructions.getOperand(i)),
+                            method, attributeIndex, offset, handler);
+                    break;
+
+                case OPCODE_LDC:
+                    addClassReference(getEntry(instructions.getOperand(i)),
+                            method, attributeIndex, offset, handler);
+                    break;
+
+                case OPCODE_INVOKEDYNAMIC:
+                    addDynamicReferences(getEntry(instructions.getOperand(i)),
+                            method, attributeIndex, offset, handler);
+                    break;
+            }
+        }
+    }
+
+    private void addClassReference(CPInfo cpInfo, MethodInfo method, int attributeIndex, int offset, ReferenceHandler handler)
+        throws InvalidByteCodeException
+    {
+        if (cpInfo instanceof ConstantClassInfo) {
+            String key = getKey(cpInfo);
+            if (key != null) {
+                handler.handleReference(key, method, attributeIndex, offset);
+            }
+        }
+    }
+
+    private void addMemberReference(CPInfo cpInfo, MethodInfo method, int attributeIndex, int offset, ReferenceHandler handler)
+        throws InvalidByteCodeException
+    {
+        if (cpInfo instanceof ConstantReference) {
+            handler.handleReference(getKey(cpInfo), method, attributeIndex, offset);
+            addClassReference(((ConstantReference)cpInfo).getClassInfo(), method, attributeIndex, offset, handler);
+        }
+    }
+
+    private void addDynamicReferences(CPInfo cpInfo, MethodInfo method, int attributeIndex, int offset, ReferenceHandler handler)
+        throws InvalidByteCodeException
+    {
+        if (!(cpInfo instanceof ConstantInvokeDynamicInfo)) {
+            return;
+        }
+        BootstrapMethodEntry[] entries = getBootstrapMethods();
+        int bootstrapIndex = ((ConstantInvokeDynamicInfo)cpInfo).getBootstrapMethodAttributeIndex();
+        if (bootstrapIndex < 0 || bootstrapIndex >= entries.length) {
+            return;
+        }
+        BootstrapMethodEntry entry = entries[bootstrapIndex];
+        addMethodHandleReference(getEntry(entry.getBootstrapMethodRef()), method, attributeIndex, offset, handler);
+        int[] arguments = entry.getBootstrapArguments();
+        for (int i = 0; i < arguments.length; i++) {
+            addMethodHandleReference(getEntry(arguments[i]), method, attributeIndex, offset, handler);
+        }
+    }
+
+    private void addMethodHandleReference(CPInfo cpInfo, MethodInfo method, int attributeIndex, int offset, ReferenceHandler handler)
+        throws InvalidByteCodeException
+    {
+        if (cpInfo instanceof ConstantMethodHandleInfo) {
+            addMemberReference(getEntry(((ConstantMethodHandleInfo)cpInfo).getReferenceIndex()),
+                    method, attributeIndex, offset, handler);
+        }
+    }
+
+    private BootstrapMethodEntry[] getBootstrapMethods() {
+
+        if (bootstrapMethods == null) {
+            BootstrapMethodsAttribute attribute = (BootstrapMethodsAttribute)classFile.findAttribute(BootstrapMethodsAttribute.class);
+            if (attribute == null || attribute.getBootstrapMethods() == null) {
+                bootstrapMethods = new BootstrapMethodEntry[0];
+            } else {
+                bootstrapMethods = attribute.getBootstrapMethods();
+            }
+        }
+        return bootstrapMethods;
+    }
+
+    private CPInfo getEntry(int index) {
+        if (index <= 0 || index >= constantPool.length) {
+            return null;
+        }
+        return constantPool[index];
+    }
+
+    private static String getElementClassName(String className) {
+
+        if (!className.startsWith("[")) {
+            return className;
+        }
+        int index = className.lastIndexOf('[') + 1;
+        if (index < className.length() && className.charAt(index) == 'L' && className.endsWith(";")) {
+            return className.substring(index + 1, className.length() - 1);
+        }
+        return null;
+    }
+
+}
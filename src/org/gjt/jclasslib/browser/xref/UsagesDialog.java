@@ -0,0 +1,202 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.browser.xref;
+
+import org.gjt.jclasslib.browser.BrowserMDIFrame;
+import org.gjt.jclasslib.browser.BrowserTreeNode;
+import org.gjt.jclasslib.browser.config.classpath.ClasspathScanner;
+import org.gjt.jclasslib.browser.config.window.BrowserPath;
+import org.gjt.jclasslib.browser.config.window.CategoryHolder;
+import org.gjt.jclasslib.browser.config.window.IndexHolder;
+import org.gjt.jclasslib.browser.config.window.ReferenceHolder;
+import org.gjt.jclasslib.util.GUIHelper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.List;
+
+/**
+    Non-modal window that shows the usages of a class, field or method
+    as found in the <tt>CrossReferenceIndex</tt> of the parent frame. If the
+    index is still being built, the window shows the progress and fills the
+    list as soon as the index is complete. A double click on a usage opens
+    the <tt>Code</tt> attribute of the referencing method.
+*/
+public class UsagesDialog extends JDialog implements ActionListener {
+
+    private static final int DIALOG_WIDTH = 600;
+    private static final int DIALOG_HEIGHT = 400;
+    private static final int UPDATE_INTERVAL = 200;
+
+    private BrowserMDIFrame frame;
+    private CrossReferenceIndex index;
+
+    private JLabel lblTitle;
+    private JList lstUsages;
+    private DefaultListModel usagesModel;
+    private JProgressBar progressBar;
+    private JLabel lblStatus;
+
+    private Timer updateTimer;
+    private String currentKey;
+
+    /**
+     * Constructor.
+     * @param frame the parent frame.
+     * @param index the index that is queried.
+     */
+    public UsagesDialog(BrowserMDIFrame frame, CrossReferenceIndex index) {
+        super(frame);
+        this.frame = frame;
+        this.index = index;
+
+        setupControls();
+        setupComponent();
+        setupEventHandlers();
+    }
+
+    /**
+     * Show the usages of a class, field or method.
+     * @param key the key as returned by one of the <tt>getXXXKey</tt> methods
+     *            of <tt>ReferenceCollector</tt>.
+     */
+    public void showUsages(final String key) {
+
+        currentKey = key;
+        lblTitle.setText("Usages of " + getDisplayName(key));
+        usagesModel.clear();
+        setVisible(true);
+
+        if (index.isUpToDate()) {
+            showReferences(key);
+            return;
+        }
+        progressBar.setIndeterminate(true);
+        lblStatus.setText("Indexing classpath ...");
+        updateTimer.start();
+
+        Thread thread = new Thread("jclasslib usages") {
+            public void run() {
+                try {
+                    index.waitForUpdate();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (key.equals(currentKey)) {
+                            showReferences(key);
+                        }
+                    }
+                });
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void actionPerformed(ActionEvent event) {
+
+        ClasspathScanner scanner = index.getScanner();
+        if (scanner != null && scanner.getTotalCount() > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(scanner.getTotalCount());
+            progressBar.setValue(scanner.getProcessedCount());
+            lblStatus.setText("Indexing classpath, " + scanner.getProcessedCount() + " of " +
+                    scanner.getTotalCount() + " classes");
+        }
+    }
+
+    private void setupControls() {
+
+        lblTitle = new JLabel(" ");
+        usagesModel = new DefaultListModel();
+        lstUsages = new JList(usagesModel);
+        lstUsages.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        progressBar = new JProgressBar();
+        lblStatus = new JLabel(" ");
+
+        updateTimer = new Timer(UPDATE_INTERVAL, this);
+    }
+
+    private void setupComponent() {
+
+        Container contentPane = getContentPane();
+        contentPane.setLayout(new GridBagLayout());
+        GridBagConstraints gc = new GridBagConstraints();
+        gc.gridx = 0;
+        gc.gridy = 0;
+        gc.weightx = 1;
+        gc.insets = new Insets(5, 5, 0, 5);
+        gc.anchor = GridBagConstraints.NORTHWEST;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(lblTitle, gc);
+
+        gc.gridy++;
+        gc.weighty = 1;
+        gc.fill = GridBagConstraints.BOTH;
+        contentPane.add(new JScrollPane(lstUsages), gc);
+
+        gc.gridy++;
+        gc.weighty = 0;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        contentPane.add(progressBar, gc);
+        gc.gridy++;
+        gc.insets.bottom = 5;
+        contentPane.add(lblStatus, gc);
+
+        setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
+        setModal(false);
+        setTitle("Usages");
+        GUIHelper.centerOnParentWindow(this, getOwner());
+    }
+
+    private void setupEventHandlers() {
+
+        lstUsages.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent event) {
+                if (event.getClickCount() == 2) {
+                    openSelectedUsage();
+                }
+            }
+        });
+    }
+
+    private void showReferences(String key) {
+
+        updateTimer.stop();
+        long startTime = System.currentTimeMillis();
+        List references = index.findReferences(key);
+        usagesModel.clear();
+        for (int i = 0; i < references.size(); i++) {
+            usagesModel.addElement(references.get(i));
+        }
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(progressBar.getMaximum());
+        lblStatus.setText(references.size() + " usages (" + (System.currentTimeMillis() - startTime) + " ms)");
+    }
+
+    private void openSelectedUsage() {
+
+        CrossReference reference = (CrossReference)lstUsages.getSelectedValue();
+        if (reference == null) {
+            return;
+        }
+        BrowserPath browserPath = new BrowserPath();
+        browserPath.addPathComponent(new CategoryHolder(BrowserTreeNode.NODE_METHOD));
+        browserPath.addPathComponent(new ReferenceHolder(reference.getMethodName(), reference.getMethodDescriptor()));
+        browserPath.addPathComponent(new IndexHolder(reference.getAttributeIndex()));
+        frame.openClassFile(reference.getFileName(), browserPath);
+    }
+
+    private static String getDisplayName(String key) {
+        return key.substring(key.indexOf(' ') + 1).replace('/', '.');
+    }
+
+}
@@ -0,0 +1,800 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.bytecode;
+
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.attributes.CodeAttribute;
+import org.gjt.jclasslib.structures.attributes.ExceptionTableEntry;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+    Control flow graph of the basic blocks of a method. A new block starts at
+    the first instruction, at the targets of branch and switch instructions,
+    after instructions that branch or do not continue with the next instruction
+    and at the start, end and handler offsets of the exception table. Each block
+    that is covered by an exception table entry has an exception edge to the
+    block of the handler. The subroutines of old class files are modeled with
+    edges from <tt>jsr</tt> to the subroutine and from each <tt>ret</tt> to
+    all instructions following a <tt>jsr</tt>.
+    <p>
+    The graph contains the immediate dominators of all blocks and the natural
+    loops that are formed by back edges to a dominating block. Loops with the
+    same header are merged. Entries into irreducible loops have no dominating
+    header and are not reported as loops.
+    <p>
+    Blocks, edges and loops are numbered and stored in arrays of primitive types
+    so that very large methods can be processed.
+*/
+public class ControlFlowGraph implements Opcodes {
+
+    /**
+        Create the control flow graph for the code of a <tt>Code</tt> attribute.
+        @param codeAttribute the <tt>CodeAttribute</tt>
+        @return the control flow graph
+        @throws InvalidByteCodeException if the code contains invalid branch targets
+                                         or an invalid exception table
+        @throws IOException if the code cannot be read
+     */
+    public static ControlFlowGraph create(CodeAttribute codeAttribute)
+        throws InvalidByteCodeException, IOException
+    {
+        return create(ByteCodeReader.readByteCode(codeAttribute.getCode()), codeAttribute.getExceptionTable());
+    }
+
+    /**
+        Create the control flow graph for a list of instructions such as the one
+        supplied by a <tt>ByteCodeReader</tt>.
+        @param instructions the list of instructions
+        @param exceptionTable the exception table of the code, may be <tt>null</tt>.
+        @return the control flow graph
+        @throws InvalidByteCodeException if the code contains invalid branch targets
+                                         or an invalid exception table
+     */
+    public static ControlFlowGraph create(List instructions, ExceptionTableEntry[] exceptionTable)
+        throws InvalidByteCodeException
+    {
+        ControlFlowGraph graph = new ControlFlowGraph(instructions, exceptionTable);
+        graph.createBlocks();
+        graph.createEdges();
+        graph.calculateDominators();
+        graph.calculateLoops();
+        return graph;
+    }
+
+    private final List instructions;
+    private final ExceptionTableEntry[] exceptionTable;
+    private final int[] offsets;
+    private final int codeLength;
+
+    // instruction index of the first instruction of each block, followed by the instruction count
+    private int[] blockStarts;
+    private int blockCount;
+
+    // successors and predecessors of block b are stored at [edgeStarts[b], edgeStarts[b + 1])
+    private int[] successorStarts;
+    private int[] successors;
+    private boolean[] exceptionEdges;
+    private int[] predecessorStarts;
+    private int[] predecessors;
+
+    private int[] immediateDominators;
+    private int[] preOrder;
+    private int[] postOrder;
+
+    // the blocks of loop l are stored at [loopBlockStarts[l], loopBlockStarts[l + 1])
+    private int[] loopHeaders;
+    private int[] loopParents;
+    private int[] loopBlockStarts;
+    private int[] loopBlocks;
+    private int[] loopDepths;
+    private int[] innermostLoops;
+
+    private ControlFlowGraph(List instructions, ExceptionTableEntry[] exceptionTable) {
+
+        this.instructions = instructions;
+        this.exceptionTable = exceptionTable == null ? new ExceptionTableEntry[0] : exceptionTable;
+
+        int instructionCount = instructions.size();
+        offsets = new int[instructionCount];
+        for (int i = 0; i < instructionCount; i++) {
+            offsets[i] = getInstruction(i).getOffset();
+        }
+        if (instructionCount == 0) {
+            codeLength = 0;
+        } else {
+            AbstractInstruction lastInstruction = getInstruction(instructionCount - 1);
+            if (lastInstruction instanceof PaddedInstruction) {
+                codeLength = lastInstruction.getOffset() + ((PaddedInstruction)lastInstruction).getPaddedSize(lastInstruction.getOffset());
+            } else {
+                codeLength = lastInstruction.getOffset() + lastInstruction.getSize();
+            }
+        }
+    }
+
+    /**
+        Get the list of instructions of this graph.
+        @return the list of <tt>AbstractInstruction</tt> elements
+     */
+    public List getInstructions() {
+        return instructions;
+    }
+
+    /**
+        Get the number of basic blocks. Block <tt>0</tt> is the entry block.
+        @return the number of blocks
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+        Get the index of the first instruction of a block.
+        @param block the block
+        @return the index in the list of instructions
+     */
+    public int getBlockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /**
+        Get the index after the last instruction of a block.
+        @param block the block
+        @return the index in the list of instructions
+     */
+    public int getBlockEnd(int block) {
+        return blockStarts[block + 1];
+    }
+
+    /**
+        Get the code offset of the first instruction of a block.
+        @param block the block
+        @return the offset
+     */
+    public int getBlockStartOffset(int block) {
+        return offsets[blockStarts[block]];
+    }
+
+    /**
+        Get the code offset after the last instruction of a block.
+        @param block the block
+        @return the offset
+     */
+    public int getBlockEndOffset(int block) {
+        return block + 1 < blockCount ? offsets[blockStarts[block + 1]] : codeLength;
+    }
+
+    /**
+        Get the block that contains an instruction.
+        @param instructionIndex the index in the list of instructions
+        @return the block
+     */
+    public int getBlockForInstruction(int instructionIndex) {
+
+        int block = Arrays.binarySearch(blockStarts, 0, blockCount + 1, instructionIndex);
+        return block >= 0 ? block : -block - 2;
+    }
+
+    /**
+        Get the block that contains a code offset.
+        @param offset the offset
+        @return the block or <tt>-1</tt> if the offset is not within the code
+     */
+    public int getBlockForOffset(int offset) {
+
+        if (offset < 0 || offset >= codeLength) {
+            return -1;
+        }
+        int instructionIndex = Arrays.binarySearch(offsets, offset);
+        return getBlockForInstruction(instructionIndex >= 0 ? instructionIndex : -instructionIndex - 2);
+    }
+
+    /**
+        Get the number of successors of a block.
+        @param block the block
+        @return the number of successors
+     */
+    public int getSuccessorCount(int block) {
+        return successorStarts[block + 1] - successorStarts[block];
+    }
+
+    /**
+        Get a successor of a block.
+        @param block the block
+        @param index the index of the successor from <tt>0</tt> to
+                     <tt>getSuccessorCount(block) - 1</tt>
+        @return the successor block
+     */
+    public int getSuccessor(int block, int index) {
+        return successors[successorStarts[block] + index];
+    }
+
+    /**
+        Check whether the edge to a successor of a block is only taken
+        if an exception is thrown.
+        @param block the block
+        @param index the index of the successor
+        @return the value
+     */
+    public boolean isExceptionEdge(int block, int index) {
+        return exceptionEdges[successorStarts[block] + index];
+    }
+
+    /**
+        Get the number of predecessors of a block.
+        @param block the block
+        @return the number of predecessors
+     */
+    public int getPredecessorCount(int block) {
+        return predecessorStarts[block + 1] - predecessorStarts[block];
+    }
+
+    /**
+        Get a predecessor of a block.
+        @param block the block
+        @param index the index of the predecessor from <tt>0</tt> to
+                     <tt>getPredecessorCount(block) - 1</tt>
+        @return the predecessor block
+     */
+    public int getPredecessor(int block, int index) {
+        return predecessors[predecessorStarts[block] + index];
+    }
+
+    /**
+        Check whether a block can be reached from the entry block.
+        @param block the block
+        @return the value
+     */
+    public boolean isReachable(int block) {
+        return preOrder[block] >= 0;
+    }
+
+    /**
+        Get the immediate dominator of a block.
+        @param block the block
+        @return the immediate dominator or <tt>-1</tt> for the entry block and
+                for blocks that cannot be reached
+     */
+    public int getImmediateDominator(int block) {
+        return immediateDominators[block];
+    }
+
+    /**
+        Check whether a block dominates another block. Every reachable block
+        dominates itself.
+        @param dominator the dominating block
+        @param block the dominated block
+        @return the value
+     */
+    public boolean dominates(int dominator, int block) {
+
+        return isReachable(dominator) && isReachable(block) &&
+               preOrder[dominator] <= preOrder[block] && postOrder[block] <= postOrder[dominator];
+    }
+
+    /**
+        Get the number of natural loops. Outer loops have lower indices than
+        the loops that are nested in them.
+        @return the number of loops
+     */
+    public int getLoopCount() {
+        return loopHeaders.length;
+    }
+
+    /**
+        Get the header block of a loop.
+        @param loop the loop
+        @return the header block
+     */
+    public int getLoopHeader(int loop) {
+        return loopHeaders[loop];
+    }
+
+    /**
+        Get the innermost loop that contains a loop.
+        @param loop the loop
+        @return the parent loop or <tt>-1</tt> for an outermost loop
+     */
+    public int getLoopParent(int loop) {
+        return loopParents[loop];
+    }
+
+    /**
+        Get the number of blocks in a loop, including the blocks of nested loops.
+        @param loop the loop
+        @return the number of blocks
+     */
+    public int getLoopBlockCount(int loop) {
+        return loopBlockStarts[loop + 1] - loopBlockStarts[loop];
+    }
+
+    /**
+        Get a block of a loop. The blocks are in ascending order.
+        @param loop the loop
+        @param index the index of the block from <tt>0</tt> to
+                     <tt>getLoopBlockCount(loop) - 1</tt>
+        @return the block
+     */
+    public int getLoopBlock(int loop, int index) {
+        return loopBlocks[loopBlockStarts[loop] + index];
+    }
+
+    /**
+        Check whether a block is part of a loop.
+        @param loop the loop
+        @param block the block
+        @return the value
+     */
+    public boolean isInLoop(int loop, int block) {
+        return Arrays.binarySearch(loopBlocks, loopBlockStarts[loop], loopBlockStarts[loop + 1], block) >= 0;
+    }
+
+    /**
+        Get the innermost loop that contains a block.
+        @param block the block
+        @return the loop or <tt>-1</tt> if the block is not part of a loop
+     */
+    public int getInnermostLoop(int block) {
+        return innermostLoops[block];
+    }
+
+    /**
+        Get the number of loops that contain a block.
+        @param block the block
+        @return the loop depth
+     */
+    public int getLoopDepth(int block) {
+        return loopDepths[block];
+    }
+
+    private void createBlocks() throws InvalidByteCodeException {
+
+        int instructionCount = instructions.size();
+        boolean[] leaders = new boolean[instructionCount + 1];
+        leaders[0] = true;
+        leaders[instructionCount] = true;
+        for (int i = 0; i < instructionCount; i++) {
+            AbstractInstruction instruction = getInstruction(i);
+            int[] targets = getBranchTargets(i);
+            for (int j = 0; j < targets.length; j++) {
+                leaders[targets[j]] = true;
+            }
+            if (targets.length > 0 || isUnconditional(instruction.getOpcode())) {
+                leaders[i + 1] = true;
+            }
+        }
+        for (int i = 0; i < exceptionTable.length; i++) {
+            leaders[getInstructionIndex(exceptionTable[i].getStartPc(), false)] = true;
+            leaders[getInstructionIndex(exceptionTable[i].getEndPc(), true)] = true;
+            leaders[getInstructionIndex(exceptionTable[i].getHandlerPc(), false)] = true;
+        }
+
+        blockStarts = new int[instructionCount + 1];
+        for (int i = 0; i <= instructionCount; i++) {
+            if (leaders[i]) {
+                blockStarts[blockCount++] = i;
+            }
+        }
+        // the end marker of the last block is not a block
+        blockCount = Math.max(0, blockCount - 1);
+        if (blockCount == 0) {
+            blockStarts = new int[] {0};
+        } else {
+            int[] trimmedBlockStarts = new int[blockCount + 1];
+            System.arraycopy(blockStarts, 0, trimmedBlockStarts, 0, blockCount + 1);
+            blockStarts = trimmedBlockStarts;
+        }
+    }
+
+    private void createEdges() throws InvalidByteCodeException {
+
+        int[] returnSites = getReturnSites();
+        int[] handlerStartBlocks = new int[exceptionTable.length];
+        int[] handlerEndBlocks = new int[exceptionTable.length];
+        int[] handlerBlocks = new int[exceptionTable.length];
+        for (int i = 0; i < exceptionTable.length; i++) {
+            handlerStartBlocks[i] = getBlockForInstruction(getInstructionIndex(exceptionTable[i].getStartPc(), false));
+            handlerEndBlocks[i] = getBlockForInstruction(getInstructionIndex(exceptionTable[i].getEndPc(), true));
+            handlerBlocks[i] = getBlockForInstruction(getInstructionIndex(exceptionTable[i].getHandlerPc(), false));
+        }
+
+        // all edges of a source block are added together, so duplicates are detected
+        // by remembering the last source block for which an edge to a target was added
+        IntList edgeSources = new IntList();
+        IntList edgeTargets = new IntList();
+        IntList edgeKinds = new IntList();
+        int[] lastSources = new int[blockCount];
+        int[] lastExceptionSources = new int[blockCount];
+        Arrays.fill(lastSources, -1);
+        Arrays.fill(lastExceptionSources, -1);
+        for (int block = 0; block < blockCount; block++) {
+            int lastIndex = blockStarts[block + 1] - 1;
+            int opcode = getInstruction(lastIndex).getOpcode();
+            IntList targetBlocks = new IntList();
+            if (!isUnconditional(opcode) && block + 1 < blockCount) {
+                targetBlocks.add(block + 1);
+            }
+            int[] targets = getBranchTargets(lastIndex);
+            for (int i = 0; i < targets.length; i++) {
+                targetBlocks.add(getBlockForInstruction(targets[i]));
+            }
+            if (opcode == OPCODE_RET) {
+                for (int i = 0; i < returnSites.length; i++) {
+                    targetBlocks.add(getBlockForInstruction(returnSites[i]));
+                }
+            }
+            for (int i = 0; i < targetBlocks.size(); i++) {
+                int target = targetBlocks.get(i);
+                if (lastSources[target] != block) {
+                    lastSources[target] = block;
+                    edgeSources.add(block);
+                    edgeTargets.add(target);
+                    edgeKinds.add(0);
+                }
+            }
+            for (int i = 0; i < exceptionTable.length; i++) {
+                int target = handlerBlocks[i];
+                if (block >= handlerStartBlocks[i] && block < handlerEndBlocks[i] && lastExceptionSources[target] != block) {
+                    lastExceptionSources[target] = block;
+                    edgeSources.add(block);
+                    edgeTargets.add(target);
+                    edgeKinds.add(1);
+                }
+            }
+        }
+
+        int edgeCount = edgeSources.size();
+        successorStarts = new int[blockCount + 1];
+        predecessorStarts = new int[blockCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            successorStarts[edgeSources.get(i) + 1]++;
+            predecessorStarts[edgeTargets.get(i) + 1]++;
+        }
+        for (int block = 0; block < blockCount; block++) {
+            successorStarts[block + 1] += successorStarts[block];
+            predecessorStarts[block + 1] += predecessorStarts[block];
+        }
+        successors = new int[edgeCount];
+        exceptionEdges = new boolean[edgeCount];
+        predecessors = new int[edgeCount];
+        int[] predecessorPositions = new int[blockCount];
+        System.arraycopy(predecessorStarts, 0, predecessorPositions, 0, blockCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int target = edgeTargets.get(i);
+            successors[i] = target;
+            exceptionEdges[i] = edgeKinds.get(i) != 0;
+            predecessors[predecessorPositions[target]++] = edgeSources.get(i);
+        }
+    }
+
+    private int[] getReturnSites() {
+
+        IntList returnSites = new IntList();
+        for (int i = 0; i < instructions.size() - 1; i++) {
+            int opcode = getInstruction(i).getOpcode();
+            if (opcode == OPCODE_JSR || opcode == OPCODE_JSR_W) {
+                returnSites.add(i + 1);
+            }
+        }
+        return returnSites.toArray();
+    }
+
+    private void calculateDominators() {
+
+        immediateDominators = new int[blockCount];
+        preOrder = new int[blockCount];
+        postOrder = new int[blockCount];
+        Arrays.fill(immediateDominators, -1);
+        Arrays.fill(preOrder, -1);
+        Arrays.fill(postOrder, -1);
+        if (blockCount == 0) {
+            return;
+        }
+
+        // reverse post order of the reachable blocks
+        int[] reversePostOrder = new int[blockCount];
+        int[] reversePostOrderNumbers = new int[blockCount];
+        Arrays.fill(reversePostOrderNumbers, -1);
+        int reachableCount = depthFirstSearch(successorStarts, successors, 0, null, reversePostOrder);
+        int[] order = new int[reachableCount];
+        for (int i = 0; i < reachableCount; i++) {
+            order[i] = reversePostOrder[reachableCount - 1 - i];
+            reversePostOrderNumbers[order[i]] = i;
+        }
+
+        // iterative algorithm by Cooper, Harvey and Kennedy
+        immediateDominators[0] = 0;
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = 1; i < reachableCount; i++) {
+                int block = order[i];
+                int newDominator = -1;
+                for (int j = predecessorStarts[block]; j < predecessorStarts[block + 1]; j++) {
+                    int predecessor = predecessors[j];
+                    if (immediateDominators[predecessor] < 0) {
+                        continue;
+                    }
+                    if (newDominator < 0) {
+                        newDominator = predecessor;
+                    } else {
+                        newDominator = intersect(predecessor, newDominator, reversePostOrderNumbers);
+                    }
+                }
+                if (immediateDominators[block] != newDominator) {
+                    immediateDominators[block] = newDominator;
+                    changed = true;
+                }
+            }
+        } while (changed);
+        immediateDominators[0] = -1;
+
+        // pre and post order numbers of the dominator tree for constant time dominance checks
+        int[] childStarts = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; block++) {
+            if (immediateDominators[block] >= 0) {
+                childStarts[immediateDominators[block] + 1]++;
+            }
+        }
+        for (int block = 0; block < blockCount; block++) {
+            childStarts[block + 1] += childStarts[block];
+        }
+        int[] children = new int[childStarts[blockCount]];
+        int[] childPositions = new int[blockCount];
+        System.arraycopy(childStarts, 0, childPositions, 0, blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            if (immediateDominators[block] >= 0) {
+                children[childPositions[immediateDominators[block]]++] = block;
+            }
+        }
+        depthFirstSearch(childStarts, children, 0, preOrder, postOrder);
+    }
+
+    private int intersect(int block1, int block2, int[] reversePostOrderNumbers) {
+
+        while (block1 != block2) {
+            while (reversePostOrderNumbers[block1] > reversePostOrderNumbers[block2]) {
+                block1 = immediateDominators[block1];
+            }
+            while (reversePostOrderNumbers[block2] > reversePostOrderNumbers[block1]) {
+                block2 = immediateDominators[block2];
+            }
+        }
+        return block1;
+    }
+
+    // Iterative depth first search over a graph in compressed form. If preOrder is not null,
+    // the pre and post order numbers are stored for each node, otherwise postOrder receives
+    // the nodes in post order. Returns the number of visited nodes.
+    private int depthFirstSearch(int[] edgeStarts, int[] edges, int start, int[] preOrder, int[] postOrder) {
+
+        int[] stack = new int[blockCount];
+        int[] positions = new int[blockCount];
+        boolean[] visited = new boolean[blockCount];
+        int stackSize = 0;
+        int preCount = 0;
+        int postCount = 0;
+
+        stack[stackSize++] = start;
+        positions[start] = edgeStarts[start];
+        visited[start] = true;
+        if (preOrder != null) {
+            preOrder[start] = preCount++;
+        }
+        while (stackSize > 0) {
+            int node = stack[stackSize - 1];
+            if (positions[node] < edgeStarts[node + 1]) {
+                int next = edges[positions[node]++];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    if (preOrder != null) {
+                        preOrder[next] = preCount++;
+                    }
+                    positions[next] = edgeStarts[next];
+                    stack[stackSize++] = next;
+                }
+            } else {
+                stackSize--;
+                if (preOrder != null) {
+                    postOrder[node] = postCount++;
+                } else {
+                    postOrder[postCount++] = node;
+                }
+            }
+        }
+        return postCount;
+    }
+
+    private void calculateLoops() {
+
+        loopDepths = new int[blockCount];
+        innermostLoops = new int[blockCount];
+        Arrays.fill(innermostLoops, -1);
+
+        // blocks of the natural loop of each header, collected from all back edges to the header
+        int[] headers = new int[blockCount];
+        int headerCount = 0;
+        IntList bodies = new IntList();
+        IntList bodyStarts = new IntList();
+        int[] marks = new int[blockCount];
+        Arrays.fill(marks, -1);
+        int[] stack = new int[blockCount];
+        for (int header = 0; header < blockCount; header++) {
+            int stackSize = 0;
+            for (int i = predecessorStarts[header]; i < predecessorStarts[header + 1]; i++) {
+                int source = predecessors[i];
+                if (dominates(header, source) && marks[source] != header) {
+                    marks[source] = header;
+                    stack[stackSize++] = source;
+                }
+            }
+            if (stackSize == 0) {
+                continue;
+            }
+            bodyStarts.add(bodies.size());
+            headers[headerCount++] = header;
+            marks[header] = header;
+            bodies.add(header);
+            while (stackSize > 0) {
+                int block = stack[--stackSize];
+                if (block == header) {
+                    continue;
+                }
+                bodies.add(block);
+                for (int i = predecessorStarts[block]; i < predecessorStarts[block + 1]; i++) {
+                    int predecessor = predecessors[i];
+                    if (marks[predecessor] != header && isReachable(predecessor)) {
+                        marks[predecessor] = header;
+                        stack[stackSize++] = predecessor;
+                    }
+                }
+            }
+        }
+        bodyStarts.add(bodies.size());
+
+        // order loops by decreasing size so that outer loops come first
+        Integer[] loopOrder = new Integer[headerCount];
+        final int[] sizes = new int[headerCount];
+        final int[] sortHeaders = headers;
+        for (int i = 0; i < headerCount; i++) {
+            loopOrder[i] = new Integer(i);
+            sizes[i] = bodyStarts.get(i + 1) - bodyStarts.get(i);
+        }
+        Arrays.sort(loopOrder, new java.util.Comparator() {
+            public int compare(Object o1, Object o2) {
+                int loop1 = ((Integer)o1).intValue();
+                int loop2 = ((Integer)o2).intValue();
+                if (sizes[loop1] != sizes[loop2]) {
+                    return sizes[loop2] - sizes[loop1];
+                }
+                return sortHeaders[loop1] - sortHeaders[loop2];
+            }
+        });
+
+        loopHeaders = new int[headerCount];
+        loopParents = new int[headerCount];
+        loopBlockStarts = new int[headerCount + 1];
+        loopBlocks = new int[bodies.size()];
+        int position = 0;
+        for (int loop = 0; loop < headerCount; loop++) {
+            int unsortedLoop = loopOrder[loop].intValue();
+            loopHeaders[loop] = headers[unsortedLoop];
+            loopParents[loop] = innermostLoops[headers[unsortedLoop]];
+            loopBlockStarts[loop] = position;
+            for (int i = bodyStarts.get(unsortedLoop); i < bodyStarts.get(unsortedLoop + 1); i++) {
+                int block = bodies.get(i);
+                loopBlocks[position++] = block;
+                innermostLoops[block] = loop;
+                loopDepths[block]++;
+            }
+            Arrays.sort(loopBlocks, loopBlockStarts[loop], position);
+        }
+        loopBlockStarts[headerCount] = position;
+    }
+
+    private int[] getBranchTargets(int instructionIndex) throws InvalidByteCodeException {
+
+        AbstractInstruction instruction = getInstruction(instructionIndex);
+        int offset = instruction.getOffset();
+        if (instruction instanceof TableSwitchInstruction) {
+            TableSwitchInstruction tableSwitch = (TableSwitchInstruction)instruction;
+            int[] jumpOffsets = tableSwitch.getJumpOffsets();
+            int[] targets = new int[jumpOffsets.length + 1];
+            targets[0] = getInstructionIndex(offset + tableSwitch.getDefaultOffset(), false);
+            for (int i = 0; i < jumpOffsets.length; i++) {
+                targets[i + 1] = getInstructionIndex(offset + jumpOffsets[i], false);
+            }
+            return targets;
+        } else if (instruction instanceof LookupSwitchInstruction) {
+            LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction)instruction;
+            List matchOffsetPairs = lookupSwitch.getMatchOffsetPairs();
+            int[] targets = new int[matchOffsetPairs.size() + 1];
+            targets[0] = getInstructionIndex(offset + lookupSwitch.getDefaultOffset(), false);
+            for (int i = 0; i < matchOffsetPairs.size(); i++) {
+                targets[i + 1] = getInstructionIndex(offset + ((MatchOffsetPair)matchOffsetPairs.get(i)).getOffset(), false);
+            }
+            return targets;
+        } else if (instruction instanceof AbstractBranchInstruction) {
+            return new int[] {getInstructionIndex(offset + ((AbstractBranchInstruction)instruction).getBranchOffset(), false)};
+        } else {
+            return new int[0];
+        }
+    }
+
+    private int getInstructionIndex(int offset, boolean allowEnd) throws InvalidByteCodeException {
+
+        if (allowEnd && offset == codeLength) {
+            return instructions.size();
+        }
+        int index = Arrays.binarySearch(offsets, offset);
+        if (index < 0) {
+            throw new InvalidByteCodeException("Invalid code offset " + offset);
+        }
+        return index;
+    }
+
+    private AbstractInstruction getInstruction(int index) {
+        return (AbstractInstruction)instructions.get(index);
+    }
+
+    private static boolean isUnconditional(int opcode) {
+
+        switch (opcode) {
+            case OPCODE_GOTO:
+            case OPCODE_GOTO_W:
+            case OPCODE_JSR:
+            case OPCODE_JSR_W:
+            case OPCODE_TABLESWITCH:
+            case OPCODE_LOOKUPSWITCH:
+            case OPCODE_IRETURN:
+            case OPCODE_LRETURN:
+            case OPCODE_FRETURN:
+            case OPCODE_DRETURN:
+            case OPCODE_ARETURN:
+            case OPCODE_RETURN:
+            case OPCODE_ATHROW:
+            case OPCODE_RET:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                int[] newValues = new int[size * 2];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            values[size++] = value;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+    }
+
+}
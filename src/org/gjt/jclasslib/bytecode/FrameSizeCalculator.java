@@ -0,0 +1,312 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.bytecode;
+
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.structures.AccessFlags;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodDescriptor;
+import org.gjt.jclasslib.structures.MethodInfo;
+import org.gjt.jclasslib.structures.attributes.CodeAttribute;
+import org.gjt.jclasslib.structures.constants.ConstantInvokeDynamicInfo;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+    Recomputes the <tt>max_stack</tt> and <tt>max_locals</tt> values of a
+    <tt>Code</tt> attribute after its code has been modified, for example with
+    <tt>CodeInsertion.apply</tt> or the <tt>PeepholeOptimizer</tt>.
+    <p>
+    The stack depth is propagated once through each basic block of the
+    <tt>ControlFlowGraph</tt> of the code, exception handlers start with the
+    exception on the stack. The stack effects of field accesses and invocations
+    are taken from the descriptors in the constant pool. The number of local
+    variables is the maximum of the size of the parameters and the highest
+    local variable that is accessed by an instruction.
+    <p>
+    Only the methods whose code has been changed have to be passed to
+    <tt>recompute</tt>, the values of other methods stay valid.
+*/
+public class FrameSizeCalculator implements Opcodes {
+
+    private static final int VARIABLE = Integer.MIN_VALUE;
+
+    private static final int[] STACK_EFFECTS = new int[256];
+
+    static {
+        setStackEffect(OPCODE_ACONST_NULL, OPCODE_ICONST_5, 1);
+        setStackEffect(OPCODE_LCONST_0, OPCODE_LCONST_1, 2);
+        setStackEffect(OPCODE_FCONST_0, OPCODE_FCONST_2, 1);
+        setStackEffect(OPCODE_DCONST_0, OPCODE_DCONST_1, 2);
+        setStackEffect(OPCODE_BIPUSH, OPCODE_LDC_W, 1);
+        setStackEffect(OPCODE_LDC2_W, OPCODE_LDC2_W, 2);
+        setStackEffect(OPCODE_ILOAD, OPCODE_ILOAD, 1);
+        setStackEffect(OPCODE_LLOAD, OPCODE_LLOAD, 2);
+        setStackEffect(OPCODE_FLOAD, OPCODE_FLOAD, 1);
+        setStackEffect(OPCODE_DLOAD, OPCODE_DLOAD, 2);
+        setStackEffect(OPCODE_ALOAD, OPCODE_ALOAD, 1);
+        setStackEffect(OPCODE_ILOAD_0, OPCODE_ILOAD_3, 1);
+        setStackEffect(OPCODE_LLOAD_0, OPCODE_LLOAD_3, 2);
+        setStackEffect(OPCODE_FLOAD_0, OPCODE_FLOAD_3, 1);
+        setStackEffect(OPCODE_DLOAD_0, OPCODE_DLOAD_3, 2);
+        setStackEffect(OPCODE_ALOAD_0, OPCODE_ALOAD_3, 1);
+        setStackEffect(OPCODE_IALOAD, OPCODE_SALOAD, -1);
+        setStackEffect(OPCODE_LALOAD, OPCODE_LALOAD, 0);
+        setStackEffect(OPCODE_DALOAD, OPCODE_DALOAD, 0);
+        setStackEffect(OPCODE_ISTORE, OPCODE_ISTORE, -1);
+        setStackEffect(OPCODE_LSTORE, OPCODE_LSTORE, -2);
+        setStackEffect(OPCODE_FSTORE, OPCODE_FSTORE, -1);
+        setStackEffect(OPCODE_DSTORE, OPCODE_DSTORE, -2);
+        setStackEffect(OPCODE_ASTORE, OPCODE_ASTORE, -1);
+        setStackEffect(OPCODE_ISTORE_0, OPCODE_ISTORE_3, -1);
+        setStackEffect(OPCODE_LSTORE_0, OPCODE_LSTORE_3, -2);
+        setStackEffect(OPCODE_FSTORE_0, OPCODE_FSTORE_3, -1);
+        setStackEffect(OPCODE_DSTORE_0, OPCODE_DSTORE_3, -2);
+        setStackEffect(OPCODE_ASTORE_0, OPCODE_ASTORE_3, -1);
+        setStackEffect(OPCODE_IASTORE, OPCODE_SASTORE, -3);
+        setStackEffect(OPCODE_LASTORE, OPCODE_LASTORE, -4);
+        setStackEffect(OPCODE_DASTORE, OPCODE_DASTORE, -4);
+        setStackEffect(OPCODE_POP, OPCODE_POP, -1);
+        setStackEffect(OPCODE_POP2, OPCODE_POP2, -2);
+        setStackEffect(OPCODE_DUP, OPCODE_DUP_X2, 1);
+        setStackEffect(OPCODE_DUP2, OPCODE_DUP2_X2, 2);
+        setStackEffect(OPCODE_SWAP, OPCODE_SWAP, 0);
+        // add, sub, mul, div and rem for int, long, float and double
+        for (int opcode = OPCODE_IADD; opcode <= OPCODE_DREM; opcode++) {
+            STACK_EFFECTS[opcode] = (opcode - OPCODE_IADD) % 2 == 0 ? -1 : -2;
+        }
+        setStackEffect(OPCODE_INEG, OPCODE_DNEG, 0);
+        setStackEffect(OPCODE_ISHL, OPCODE_LUSHR, -1);
+        setStackEffect(OPCODE_IAND, OPCODE_IAND, -1);
+        setStackEffect(OPCODE_LAND, OPCODE_LAND, -2);
+        setStackEffect(OPCODE_IOR, OPCODE_IOR, -1);
+        setStackEffect(OPCODE_LOR, OPCODE_LOR, -2);
+        setStackEffect(OPCODE_IXOR, OPCODE_IXOR, -1);
+        setStackEffect(OPCODE_LXOR, OPCODE_LXOR, -2);
+        setStackEffect(OPCODE_IINC, OPCODE_IINC, 0);
+        setStackEffect(OPCODE_I2L, OPCODE_I2L, 1);
+        setStackEffect(OPCODE_I2F, OPCODE_I2F, 0);
+        setStackEffect(OPCODE_I2D, OPCODE_I2D, 1);
+        setStackEffect(OPCODE_L2I, OPCODE_L2F, -1);
+        setStackEffect(OPCODE_L2D, OPCODE_L2D, 0);
+        setStackEffect(OPCODE_F2I, OPCODE_F2I, 0);
+        setStackEffect(OPCODE_F2L, OPCODE_F2D, 1);
+        setStackEffect(OPCODE_D2I, OPCODE_D2I, -1);
+        setStackEffect(OPCODE_D2L, OPCODE_D2L, 0);
+        setStackEffect(OPCODE_D2F, OPCODE_D2F, -1);
+        setStackEffect(OPCODE_I2B, OPCODE_I2S, 0);
+        setStackEffect(OPCODE_LCMP, OPCODE_LCMP, -3);
+        setStackEffect(OPCODE_FCMPL, OPCODE_FCMPG, -1);
+        setStackEffect(OPCODE_DCMPL, OPCODE_DCMPG, -3);
+        setStackEffect(OPCODE_IFEQ, OPCODE_IFLE, -1);
+        setStackEffect(OPCODE_IF_ICMPEQ, OPCODE_IF_ACMPNE, -2);
+        setStackEffect(OPCODE_GOTO, OPCODE_GOTO, 0);
+        setStackEffect(OPCODE_JSR, OPCODE_JSR, 1);
+        setStackEffect(OPCODE_RET, OPCODE_RET, 0);
+        setStackEffect(OPCODE_TABLESWITCH, OPCODE_LOOKUPSWITCH, -1);
+        setStackEffect(OPCODE_IRETURN, OPCODE_IRETURN, -1);
+        setStackEffect(OPCODE_LRETURN, OPCODE_LRETURN, -2);
+        setStackEffect(OPCODE_FRETURN, OPCODE_FRETURN, -1);
+        setStackEffect(OPCODE_DRETURN, OPCODE_DRETURN, -2);
+        setStackEffect(OPCODE_ARETURN, OPCODE_ARETURN, -1);
+        setStackEffect(OPCODE_RETURN, OPCODE_RETURN, 0);
+        setStackEffect(OPCODE_GETSTATIC, OPCODE_INVOKEDYNAMIC, VARIABLE);
+        setStackEffect(OPCODE_NEW, OPCODE_NEW, 1);
+        setStackEffect(OPCODE_NEWARRAY, OPCODE_INSTANCEOF, 0);
+        setStackEffect(OPCODE_ATHROW, OPCODE_ATHROW, -1);
+        setStackEffect(OPCODE_MONITORENTER, OPCODE_MONITOREXIT, -1);
+        setStackEffect(OPCODE_WIDE, OPCODE_WIDE, 0);
+        setStackEffect(OPCODE_MULTIANEWARRAY, OPCODE_MULTIANEWARRAY, VARIABLE);
+        setStackEffect(OPCODE_IFNULL, OPCODE_IFNONNULL, -1);
+        setStackEffect(OPCODE_GOTO_W, OPCODE_GOTO_W, 0);
+        setStackEffect(OPCODE_JSR_W, OPCODE_JSR_W, 1);
+    }
+
+    private static void setStackEffect(int fromOpcode, int toOpcode, int stackEffect) {
+
+        for (int opcode = fromOpcode; opcode <= toOpcode; opcode++) {
+            STACK_EFFECTS[opcode] = stackEffect;
+        }
+    }
+
+    /**
+        Recompute <tt>max_stack</tt> and <tt>max_locals</tt> for the code of a method.
+        @param methodInfo the method
+        @return whether one of the values has been changed
+        @throws InvalidByteCodeException if the code or the constant pool are invalid
+        @throws IOException if the code cannot be read
+     */
+    public static boolean recompute(MethodInfo methodInfo)
+        throws InvalidByteCodeException, IOException
+    {
+        CodeAttribute codeAttribute = (CodeAttribute)methodInfo.findAttribute(CodeAttribute.class);
+        if (codeAttribute == null) {
+            return false;
+        }
+        return recompute(methodInfo, ByteCodeReader.readByteCode(codeAttribute.getCode()));
+    }
+
+    /**
+        Recompute <tt>max_stack</tt> and <tt>max_locals</tt> for the code of a method
+        from a list of instructions such as the one returned by <tt>CodeInsertion.apply</tt>.
+        The instructions have to correspond to the current exception table of the
+        <tt>Code</tt> attribute.
+        @param methodInfo the method
+        @param instructions the list of instructions of the method
+        @return whether one of the values has been changed
+        @throws InvalidByteCodeException if the code or the constant pool are invalid
+     */
+    public static boolean recompute(MethodInfo methodInfo, List instructions)
+        throws InvalidByteCodeException
+    {
+        CodeAttribute codeAttribute = (CodeAttribute)methodInfo.findAttribute(CodeAttribute.class);
+        if (codeAttribute == null) {
+            return false;
+        }
+        FrameSizeCalculator calculator = new FrameSizeCalculator(methodInfo.getClassFile(), instructions);
+        int maxStack = calculator.calculateMaxStack(ControlFlowGraph.create(instructions, codeAttribute.getExceptionTable()));
+        boolean isStatic = (methodInfo.getAccessFlags() & AccessFlags.ACC_STATIC) != 0;
+        int maxLocals = calculator.calculateMaxLocals(
+                MethodDescriptor.forDescriptor(methodInfo.getDescriptor()).getArgumentsSize() + (isStatic ? 0 : 1));
+
+        boolean changed = maxStack != codeAttribute.getMaxStack() || maxLocals != codeAttribute.getMaxLocals();
+        codeAttribute.setMaxStack(maxStack);
+        codeAttribute.setMaxLocals(maxLocals);
+        return changed;
+    }
+
+    private final ClassFile classFile;
+    private final List instructions;
+
+    private FrameSizeCalculator(ClassFile classFile, List instructions) {
+        this.classFile = classFile;
+        this.instructions = instructions;
+    }
+
+    private int calculateMaxStack(ControlFlowGraph graph) throws InvalidByteCodeException {
+
+        int blockCount = graph.getBlockCount();
+        if (blockCount == 0) {
+            return 0;
+        }
+        int[] entryDepths = new int[blockCount];
+        Arrays.fill(entryDepths, -1);
+        int[] pendingBlocks = new int[blockCount];
+        int pendingCount = 0;
+        entryDepths[0] = 0;
+        pendingBlocks[pendingCount++] = 0;
+
+        int maxStack = 0;
+        while (pendingCount > 0) {
+            int block = pendingBlocks[--pendingCount];
+            int depth = entryDepths[block];
+            maxStack = Math.max(maxStack, depth);
+            for (int i = graph.getBlockStart(block); i < graph.getBlockEnd(block); i++) {
+                depth += getStackEffect((AbstractInstruction)instructions.get(i));
+                if (depth < 0) {
+                    throw new InvalidByteCodeException("Stack underflow at offset " +
+                                                       ((AbstractInstruction)instructions.get(i)).getOffset());
+                }
+                maxStack = Math.max(maxStack, depth);
+            }
+            for (int i = 0; i < graph.getSuccessorCount(block); i++) {
+                int successor = graph.getSuccessor(block, i);
+                if (entryDepths[successor] < 0) {
+                    // handlers are entered with the exception as the only stack element
+                    entryDepths[successor] = graph.isExceptionEdge(block, i) ? 1 : depth;
+                    pendingBlocks[pendingCount++] = successor;
+                }
+            }
+        }
+        return maxStack;
+    }
+
+    private int calculateMaxLocals(int parametersSize) {
+
+        int maxLocals = parametersSize;
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            int opcode = instruction.getOpcode();
+            if (opcode >= OPCODE_ILOAD_0 && opcode <= OPCODE_ALOAD_3) {
+                maxLocals = Math.max(maxLocals, (opcode - OPCODE_ILOAD_0) % 4 + getLocalVariableSize((opcode - OPCODE_ILOAD_0) / 4));
+            } else if (opcode >= OPCODE_ISTORE_0 && opcode <= OPCODE_ASTORE_3) {
+                maxLocals = Math.max(maxLocals, (opcode - OPCODE_ISTORE_0) % 4 + getLocalVariableSize((opcode - OPCODE_ISTORE_0) / 4));
+            } else if (opcode >= OPCODE_ILOAD && opcode <= OPCODE_ALOAD) {
+                maxLocals = Math.max(maxLocals, getImmediateByte(instruction) + getLocalVariableSize(opcode - OPCODE_ILOAD));
+            } else if (opcode >= OPCODE_ISTORE && opcode <= OPCODE_ASTORE) {
+                maxLocals = Math.max(maxLocals, getImmediateByte(instruction) + getLocalVariableSize(opcode - OPCODE_ISTORE));
+            } else if (opcode == OPCODE_IINC || opcode == OPCODE_RET) {
+                maxLocals = Math.max(maxLocals, getImmediateByte(instruction) + 1);
+            }
+        }
+        return maxLocals;
+    }
+
+    private int getStackEffect(AbstractInstruction instruction) throws InvalidByteCodeException {
+
+        int opcode = instruction.getOpcode();
+        int stackEffect = STACK_EFFECTS[opcode];
+        if (stackEffect != VARIABLE) {
+            return stackEffect;
+        }
+        switch (opcode) {
+            case OPCODE_GETSTATIC:
+                return MethodDescriptor.getTypeSize(getReferenceDescriptor(instruction));
+            case OPCODE_PUTSTATIC:
+                return -MethodDescriptor.getTypeSize(getReferenceDescriptor(instruction));
+            case OPCODE_GETFIELD:
+                return MethodDescriptor.getTypeSize(getReferenceDescriptor(instruction)) - 1;
+            case OPCODE_PUTFIELD:
+                return -MethodDescriptor.getTypeSize(getReferenceDescriptor(instruction)) - 1;
+            case OPCODE_INVOKESTATIC:
+                return getInvocationStackEffect(getReferenceDescriptor(instruction));
+            case OPCODE_INVOKEDYNAMIC:
+                ConstantInvokeDynamicInfo invokeDynamicInfo = (ConstantInvokeDynamicInfo)getConstantPoolEntry(
+                    instruction, ConstantInvokeDynamicInfo.class
+                );
+                return getInvocationStackEffect(invokeDynamicInfo.getNameAndTypeInfo().getDescriptor());
+            case OPCODE_MULTIANEWARRAY:
+                return 1 - ((MultianewarrayInstruction)instruction).getDimensions();
+            default:
+                // invokevirtual, invokespecial and invokeinterface
+                return getInvocationStackEffect(getReferenceDescriptor(instruction)) - 1;
+        }
+    }
+
+    private int getInvocationStackEffect(String descriptor) throws InvalidByteCodeException {
+        return MethodDescriptor.forDescriptor(descriptor).getStackEffect();
+    }
+
+    private String getReferenceDescriptor(AbstractInstruction instruction) throws InvalidByteCodeException {
+        return ((ConstantReference)getConstantPoolEntry(instruction, ConstantReference.class)).getNameAndTypeInfo().getDescriptor();
+    }
+
+    private Object getConstantPoolEntry(AbstractInstruction instruction, Class entryClass) throws InvalidByteCodeException {
+
+        int index = ((ImmediateShortInstruction)instruction).getImmediateShort();
+        Object entry = classFile.getConstantPoolEntry(index, entryClass);
+        if (entry == null) {
+            throw new InvalidByteCodeException("Invalid constant pool index " + index + " at offset " + instruction.getOffset());
+        }
+        return entry;
+    }
+
+    private static int getImmediateByte(AbstractInstruction instruction) {
+        return ((ImmediateByteInstruction)instruction).getImmediateByte();
+    }
+
+    // local variable types in the order int, long, float, double and reference
+    private static int getLocalVariableSize(int localVariableType) {
+        return localVariableType == 1 || localVariableType == 3 ? 2 : 1;
+    }
+
+}
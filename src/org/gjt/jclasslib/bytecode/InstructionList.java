@@ -0,0 +1,504 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.bytecode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+    Packed list of instructions. Opcodes, offsets and operands are kept in
+    parallel <tt>int</tt> arrays, the jump tables of <tt>tableswitch</tt> and
+    <tt>lookupswitch</tt> instructions in a side table. This needs a fraction of the
+    memory of a list of <tt>AbstractInstruction</tt> objects, which are only created
+    when requested with <tt>getInstruction</tt> or <tt>toInstructions</tt>.
+    <p>
+    As with the list supplied by a <tt>ByteCodeReader</tt>, a <tt>wide</tt> prefix
+    is an instruction of its own that modifies the following instruction.
+    <p>
+    The operand of an instruction depends on its kind:
+    <ul>
+        <li><tt>KIND_SIMPLE</tt>: no operand</li>
+        <li><tt>KIND_IMMEDIATE_BYTE</tt>, <tt>KIND_INCREMENT</tt>: the local variable index
+            or the unsigned immediate byte</li>
+        <li><tt>KIND_IMMEDIATE_SHORT</tt>, <tt>KIND_INVOKE_INTERFACE</tt>,
+            <tt>KIND_INVOKE_DYNAMIC</tt>, <tt>KIND_MULTIANEWARRAY</tt>: the unsigned
+            immediate short</li>
+        <li><tt>KIND_BRANCH</tt>, <tt>KIND_WIDE_BRANCH</tt>: the relative branch offset</li>
+        <li><tt>KIND_TABLE_SWITCH</tt>, <tt>KIND_LOOKUP_SWITCH</tt>: the default offset</li>
+    </ul>
+    The increment of <tt>iinc</tt>, the argument count of <tt>invokeinterface</tt>
+    and the dimensions of <tt>multianewarray</tt> are the extra operand.
+*/
+public class InstructionList implements Opcodes {
+
+    /** Kind of instructions without operands. */
+    public static final int KIND_SIMPLE = 0;
+    /** Kind of instructions with an immediate byte, see <tt>ImmediateByteInstruction</tt>. */
+    public static final int KIND_IMMEDIATE_BYTE = 1;
+    /** Kind of instructions with an immediate short, see <tt>ImmediateShortInstruction</tt>. */
+    public static final int KIND_IMMEDIATE_SHORT = 2;
+    /** Kind of instructions with a short branch offset, see <tt>BranchInstruction</tt>. */
+    public static final int KIND_BRANCH = 3;
+    /** Kind of instructions with an int branch offset, see <tt>WideBranchInstruction</tt>. */
+    public static final int KIND_WIDE_BRANCH = 4;
+    /** Kind of the <tt>iinc</tt> instruction. */
+    public static final int KIND_INCREMENT = 5;
+    /** Kind of the <tt>tableswitch</tt> instruction. */
+    public static final int KIND_TABLE_SWITCH = 6;
+    /** Kind of the <tt>lookupswitch</tt> instruction. */
+    public static final int KIND_LOOKUP_SWITCH = 7;
+    /** Kind of the <tt>invokeinterface</tt> instruction. */
+    public static final int KIND_INVOKE_INTERFACE = 8;
+    /** Kind of the <tt>invokedynamic</tt> instruction. */
+    public static final int KIND_INVOKE_DYNAMIC = 9;
+    /** Kind of the <tt>multianewarray</tt> instruction. */
+    public static final int KIND_MULTIANEWARRAY = 10;
+    /** Kind of undefined opcodes. */
+    public static final int KIND_INVALID = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int[] KINDS = new int[256];
+
+    static {
+        Arrays.fill(KINDS, KIND_INVALID);
+        setKind(OPCODE_NOP, OPCODE_DCONST_1, KIND_SIMPLE);
+        setKind(OPCODE_ILOAD_0, OPCODE_SALOAD, KIND_SIMPLE);
+        setKind(OPCODE_ISTORE_0, OPCODE_LXOR, KIND_SIMPLE);
+        setKind(OPCODE_I2L, OPCODE_DCMPG, KIND_SIMPLE);
+        setKind(OPCODE_IRETURN, OPCODE_RETURN, KIND_SIMPLE);
+        setKind(OPCODE_ARRAYLENGTH, OPCODE_ATHROW, KIND_SIMPLE);
+        setKind(OPCODE_MONITORENTER, OPCODE_WIDE, KIND_SIMPLE);
+        setKind(OPCODE_BREAKPOINT, OPCODE_BREAKPOINT, KIND_SIMPLE);
+        setKind(OPCODE_IMPDEP1, OPCODE_IMPDEP2, KIND_SIMPLE);
+
+        setKind(OPCODE_BIPUSH, OPCODE_BIPUSH, KIND_IMMEDIATE_BYTE);
+        setKind(OPCODE_LDC, OPCODE_LDC, KIND_IMMEDIATE_BYTE);
+        setKind(OPCODE_ILOAD, OPCODE_ALOAD, KIND_IMMEDIATE_BYTE);
+        setKind(OPCODE_ISTORE, OPCODE_ASTORE, KIND_IMMEDIATE_BYTE);
+        setKind(OPCODE_RET, OPCODE_RET, KIND_IMMEDIATE_BYTE);
+        setKind(OPCODE_NEWARRAY, OPCODE_NEWARRAY, KIND_IMMEDIATE_BYTE);
+
+        setKind(OPCODE_SIPUSH, OPCODE_SIPUSH, KIND_IMMEDIATE_SHORT);
+        setKind(OPCODE_LDC_W, OPCODE_LDC2_W, KIND_IMMEDIATE_SHORT);
+        setKind(OPCODE_GETSTATIC, OPCODE_INVOKESTATIC, KIND_IMMEDIATE_SHORT);
+        setKind(OPCODE_NEW, OPCODE_NEW, KIND_IMMEDIATE_SHORT);
+        setKind(OPCODE_ANEWARRAY, OPCODE_ANEWARRAY, KIND_IMMEDIATE_SHORT);
+        setKind(OPCODE_CHECKCAST, OPCODE_INSTANCEOF, KIND_IMMEDIATE_SHORT);
+
+        setKind(OPCODE_IFEQ, OPCODE_JSR, KIND_BRANCH);
+        setKind(OPCODE_IFNULL, OPCODE_IFNONNULL, KIND_BRANCH);
+        setKind(OPCODE_GOTO_W, OPCODE_JSR_W, KIND_WIDE_BRANCH);
+
+        setKind(OPCODE_IINC, OPCODE_IINC, KIND_INCREMENT);
+        setKind(OPCODE_TABLESWITCH, OPCODE_TABLESWITCH, KIND_TABLE_SWITCH);
+        setKind(OPCODE_LOOKUPSWITCH, OPCODE_LOOKUPSWITCH, KIND_LOOKUP_SWITCH);
+        setKind(OPCODE_INVOKEINTERFACE, OPCODE_INVOKEINTERFACE, KIND_INVOKE_INTERFACE);
+        setKind(OPCODE_INVOKEDYNAMIC, OPCODE_INVOKEDYNAMIC, KIND_INVOKE_DYNAMIC);
+        setKind(OPCODE_MULTIANEWARRAY, OPCODE_MULTIANEWARRAY, KIND_MULTIANEWARRAY);
+    }
+
+    private static void setKind(int fromOpcode, int toOpcode, int kind) {
+        for (int opcode = fromOpcode; opcode <= toOpcode; opcode++) {
+            KINDS[opcode] = kind;
+        }
+    }
+
+    /**
+        Get the kind of an opcode. The kind determines the operands of an instruction
+        and the <tt>AbstractInstruction</tt> subclass that describes it.
+        @param opcode the opcode.
+        @return one of the <tt>KIND_</tt> constants of this class
+     */
+    public static int getKind(int opcode) {
+        return (opcode >= 0 && opcode < KINDS.length) ? KINDS[opcode] : KIND_INVALID;
+    }
+
+    /**
+        Create a packed list from a list of instructions such as the one
+        supplied by a <tt>ByteCodeReader</tt>.
+        @param instructions the <tt>java.util.List</tt> with the instructions.
+        @return the packed list
+     */
+    public static InstructionList fromInstructions(List instructions) {
+
+        InstructionList instructionList = new InstructionList(instructions.size());
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            int opcode = instruction.getOpcode();
+            int offset = instruction.getOffset();
+            if (instruction instanceof TableSwitchInstruction) {
+                TableSwitchInstruction tableSwitch = (TableSwitchInstruction)instruction;
+                int[] jumpOffsets = tableSwitch.getJumpOffsets();
+                int[] table = new int[jumpOffsets.length + 2];
+                table[0] = tableSwitch.getLowByte();
+                table[1] = tableSwitch.getHighByte();
+                System.arraycopy(jumpOffsets, 0, table, 2, jumpOffsets.length);
+                instructionList.addSwitch(opcode, offset, tableSwitch.getDefaultOffset(), table);
+            } else if (instruction instanceof LookupSwitchInstruction) {
+                LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction)instruction;
+                List matchOffsetPairs = lookupSwitch.getMatchOffsetPairs();
+                int[] table = new int[2 * matchOffsetPairs.size()];
+                for (int j = 0; j < matchOffsetPairs.size(); j++) {
+                    MatchOffsetPair matchOffsetPair = (MatchOffsetPair)matchOffsetPairs.get(j);
+                    table[2 * j] = matchOffsetPair.getMatch();
+                    table[2 * j + 1] = matchOffsetPair.getOffset();
+                }
+                instructionList.addSwitch(opcode, offset, lookupSwitch.getDefaultOffset(), table);
+            } else if (instruction instanceof IncrementInstruction) {
+                IncrementInstruction increment = (IncrementInstruction)instruction;
+                instructionList.add(opcode, offset, increment.getImmediateByte(), increment.getIncrementConst());
+            } else if (instruction instanceof ImmediateByteInstruction) {
+                instructionList.add(opcode, offset, ((ImmediateByteInstruction)instruction).getImmediateByte());
+            } else if (instruction instanceof InvokeInterfaceInstruction) {
+                InvokeInterfaceInstruction invokeInterface = (InvokeInterfaceInstruction)instruction;
+                instructionList.add(opcode, offset, invokeInterface.getImmediateShort(), invokeInterface.getCount());
+            } else if (instruction instanceof MultianewarrayInstruction) {
+                MultianewarrayInstruction multianewarray = (MultianewarrayInstruction)instruction;
+                instructionList.add(opcode, offset, multianewarray.getImmediateShort(), multianewarray.getDimensions());
+            } else if (instruction instanceof ImmediateShortInstruction) {
+                instructionList.add(opcode, offset, ((ImmediateShortInstruction)instruction).getImmediateShort());
+            } else if (instruction instanceof AbstractBranchInstruction) {
+                instructionList.add(opcode, offset, ((AbstractBranchInstruction)instruction).getBranchOffset());
+            } else {
+                instructionList.add(opcode, offset, 0);
+            }
+        }
+        return instructionList;
+    }
+
+    private int size;
+    private int[] opcodes;
+    private int[] offsets;
+    private int[] operands;
+    private int[] extraOperands;
+    private int[][] switchTables;
+
+    /**
+        Constructor.
+     */
+    public InstructionList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+        Constructor.
+        @param capacity the initial number of instructions for which space is allocated.
+     */
+    public InstructionList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        opcodes = new int[capacity];
+        offsets = new int[capacity];
+        operands = new int[capacity];
+        extraOperands = new int[capacity];
+    }
+
+    /**
+        Append an instruction without an extra operand.
+        @param opcode the opcode.
+        @param offset the offset of the instruction in the code.
+        @param operand the operand.
+        @return the index of the instruction
+     */
+    public int add(int opcode, int offset, int operand) {
+        return add(opcode, offset, operand, 0);
+    }
+
+    /**
+        Append an instruction.
+        @param opcode the opcode.
+        @param offset the offset of the instruction in the code.
+        @param operand the operand.
+        @param extraOperand the extra operand.
+        @return the index of the instruction
+     */
+    public int add(int opcode, int offset, int operand, int extraOperand) {
+
+        ensureCapacity(size + 1);
+        opcodes[size] = opcode;
+        offsets[size] = offset;
+        operands[size] = operand;
+        extraOperands[size] = extraOperand;
+        return size++;
+    }
+
+    /**
+        Append a <tt>tableswitch</tt> or <tt>lookupswitch</tt> instruction.
+        @param opcode the opcode.
+        @param offset the offset of the instruction in the code.
+        @param defaultOffset the default branch offset.
+        @param table the jump table, see <tt>getSwitchTable</tt>. The array is not copied.
+        @return the index of the instruction
+     */
+    public int addSwitch(int opcode, int offset, int defaultOffset, int[] table) {
+
+        int index = add(opcode, offset, defaultOffset);
+        if (switchTables == null) {
+            switchTables = new int[opcodes.length][];
+        }
+        switchTables[index] = table;
+        return index;
+    }
+
+    /**
+        Get the number of instructions.
+        @return the number
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+        Get the opcode of an instruction.
+        @param index the index of the instruction.
+        @return the opcode
+     */
+    public int getOpcode(int index) {
+        checkIndex(index);
+        return opcodes[index];
+    }
+
+    /**
+        Get the offset of an instruction in the code.
+        @param index the index of the instruction.
+        @return the offset
+     */
+    public int getOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+        Get the operand of an instruction.
+        @param index the index of the instruction.
+        @return the operand
+     */
+    public int getOperand(int index) {
+        checkIndex(index);
+        return operands[index];
+    }
+
+    /**
+        Get the extra operand of an instruction.
+        @param index the index of the instruction.
+        @return the extra operand or 0 if the instruction has none
+     */
+    public int getExtraOperand(int index) {
+        checkIndex(index);
+        return extraOperands[index];
+    }
+
+    /**
+        Get the jump table of a switch instruction. For <tt>tableswitch</tt>, the table
+        contains the low and the high value followed by the jump offsets, for
+        <tt>lookupswitch</tt> it contains the match values and jump offsets in alternating
+        order. The returned array must not be modified.
+        @param index the index of the instruction.
+        @return the table or <tt>null</tt> if the instruction is not a switch instruction
+     */
+    public int[] getSwitchTable(int index) {
+        checkIndex(index);
+        return switchTables == null ? null : switchTables[index];
+    }
+
+    /**
+        Check whether an instruction is subject to a preceding <tt>wide</tt> instruction.
+        @param index the index of the instruction.
+        @return wide or not
+     */
+    public boolean isWide(int index) {
+        checkIndex(index);
+        return index > 0 && opcodes[index - 1] == OPCODE_WIDE;
+    }
+
+    /**
+        Get the size in bytes of an instruction including the padding of switch instructions.
+        @param index the index of the instruction.
+        @return the size
+     */
+    public int getSize(int index) {
+
+        int opcode = getOpcode(index);
+        switch (getKind(opcode)) {
+            case KIND_IMMEDIATE_BYTE:
+                return isWide(index) ? 3 : 2;
+            case KIND_IMMEDIATE_SHORT:
+            case KIND_BRANCH:
+                return 3;
+            case KIND_INCREMENT:
+                return isWide(index) ? 5 : 3;
+            case KIND_MULTIANEWARRAY:
+                return 4;
+            case KIND_WIDE_BRANCH:
+            case KIND_INVOKE_INTERFACE:
+            case KIND_INVOKE_DYNAMIC:
+                return 5;
+            case KIND_TABLE_SWITCH:
+                // the table contains the low and the high value
+                return 1 + getPadding(offsets[index]) + 4 + 4 * switchTables[index].length;
+            case KIND_LOOKUP_SWITCH:
+                return 1 + getPadding(offsets[index]) + 8 + 4 * switchTables[index].length;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+        Get the index of the instruction at a given offset.
+        @param offset the offset in the code.
+        @return the index or -1 if no instruction starts at this offset
+     */
+    public int getIndex(int offset) {
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle] < offset) {
+                low = middle + 1;
+            } else if (offsets[middle] > offset) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+        Create an <tt>AbstractInstruction</tt> that describes an instruction. Changes to
+        the returned instruction are not reflected in this list.
+        @param index the index of the instruction.
+        @return the instruction
+     */
+    public AbstractInstruction getInstruction(int index) {
+
+        int opcode = getOpcode(index);
+        int operand = operands[index];
+        int extraOperand = extraOperands[index];
+        AbstractInstruction instruction;
+        switch (getKind(opcode)) {
+            case KIND_IMMEDIATE_BYTE:
+                instruction = new ImmediateByteInstruction(opcode, isWide(index), operand);
+                break;
+            case KIND_IMMEDIATE_SHORT:
+                instruction = new ImmediateShortInstruction(opcode, operand);
+                break;
+            case KIND_BRANCH:
+                instruction = new BranchInstruction(opcode, operand);
+                break;
+            case KIND_WIDE_BRANCH:
+                instruction = new WideBranchInstruction(opcode, operand);
+                break;
+            case KIND_INCREMENT:
+                instruction = new IncrementInstruction(opcode, isWide(index), operand, extraOperand);
+                break;
+            case KIND_TABLE_SWITCH:
+                TableSwitchInstruction tableSwitch = new TableSwitchInstruction(opcode);
+                int[] table = switchTables[index];
+                int[] jumpOffsets = new int[table.length - 2];
+                System.arraycopy(table, 2, jumpOffsets, 0, jumpOffsets.length);
+                tableSwitch.setDefaultOffset(operand);
+                tableSwitch.setLowByte(table[0]);
+                tableSwitch.setHighByte(table[1]);
+                tableSwitch.setJumpOffsets(jumpOffsets);
+                instruction = tableSwitch;
+                break;
+            case KIND_LOOKUP_SWITCH:
+                LookupSwitchInstruction lookupSwitch = new LookupSwitchInstruction(opcode);
+                int[] pairs = switchTables[index];
+                List matchOffsetPairs = new ArrayList(pairs.length / 2);
+                for (int i = 0; i < pairs.length; i += 2) {
+                    matchOffsetPairs.add(new MatchOffsetPair(pairs[i], pairs[i + 1]));
+                }
+                lookupSwitch.setDefaultOffset(operand);
+                lookupSwitch.setMatchOffsetPairs(matchOffsetPairs);
+                instruction = lookupSwitch;
+                break;
+            case KIND_INVOKE_INTERFACE:
+                instruction = new InvokeInterfaceInstruction(opcode, operand, extraOperand);
+                break;
+            case KIND_INVOKE_DYNAMIC:
+                instruction = new InvokeDynamicInstruction(opcode, operand);
+                break;
+            case KIND_MULTIANEWARRAY:
+                MultianewarrayInstruction multianewarray = new MultianewarrayInstruction(opcode);
+                multianewarray.setImmediateShort(operand);
+                multianewarray.setDimensions(extraOperand);
+                instruction = multianewarray;
+                break;
+            default:
+                instruction = new SimpleInstruction(opcode);
+        }
+        instruction.setOffset(offsets[index]);
+        return instruction;
+    }
+
+    /**
+        Create <tt>AbstractInstruction</tt> objects for all instructions.
+        @return the <tt>java.util.List</tt> with the instructions
+     */
+    public ArrayList toInstructions() {
+
+        ArrayList instructions = new ArrayList(size);
+        for (int i = 0; i < size; i++) {
+            instructions.add(getInstruction(i));
+        }
+        return instructions;
+    }
+
+    /**
+        Release the unused capacity of this list.
+     */
+    public void trimToSize() {
+        if (opcodes.length > size && size > 0) {
+            resize(size);
+        }
+    }
+
+    /**
+        Get the number of padding bytes that follow the opcode of a switch instruction.
+        @param offset the offset of the switch instruction.
+        @return the number of padding bytes
+     */
+    public static int getPadding(int offset) {
+        return 3 - (offset & 3);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > opcodes.length) {
+            resize(Math.max(capacity, opcodes.length * 2));
+        }
+    }
+
+    private void resize(int capacity) {
+        opcodes = copyOf(opcodes, capacity);
+        offsets = copyOf(offsets, capacity);
+        operands = copyOf(operands, capacity);
+        extraOperands = copyOf(extraOperands, capacity);
+        if (switchTables != null) {
+            int[][] newSwitchTables = new int[capacity][];
+            System.arraycopy(switchTables, 0, newSwitchTables, 0, size);
+            switchTables = newSwitchTables;
+        }
+    }
+
+    private int[] copyOf(int[] array, int capacity) {
+        int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+}
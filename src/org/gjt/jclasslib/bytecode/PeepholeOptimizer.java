@@ -0,0 +1,1078 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.bytecode;
+
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.io.ByteCodeWriter;
+import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.attributes.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+    Performs peephole optimizations on a list of instructions such as the one
+    supplied by a <tt>ByteCodeReader</tt>. The following optimizations are
+    repeated until the code does not change anymore:
+    <ul>
+        <li>removal of values that are loaded and immediately stored to the same local
+            variable or pushed and immediately popped, of stores to local variables that
+            are never read and of stores whose only read is the directly following load</li>
+        <li>threading of branches to <tt>goto</tt> instructions and removal of branches
+            to the next instruction</li>
+        <li>removal of code that cannot be reached</li>
+        <li>folding of <tt>int</tt> arithmetic and conditional branches on constants pushed by
+            <tt>iconst_&lt;i&gt;</tt>, <tt>bipush</tt> and <tt>sipush</tt></li>
+    </ul>
+    Finally, <tt>lookupswitch</tt> and <tt>tableswitch</tt> instructions are converted
+    into each other depending on the density of their keys.
+    <p>
+    Patterns never span instructions that are branch targets or boundaries in the exception
+    table. The exception, line number and local variable tables of the associated
+    <tt>CodeAttribute</tt> are remapped to the new offsets.
+    <p>
+    The optimizer does not compute stack map frames. A <tt>StackMapTable</tt> attribute
+    is removed since its frames describe the original code, which is only valid for
+    class files up to version 50 (Java 6), where the JVM falls back to verification by
+    type inference. Code with a <tt>StackMapTable</tt> in class files of version 51
+    or later is left unchanged, see <tt>canOptimize</tt>.
+*/
+public class PeepholeOptimizer implements Opcodes {
+
+    private static final String STACK_MAP_TABLE = "StackMapTable";
+    private static final int STACK_MAP_REQUIRED_MAJOR_VERSION = 51;
+
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_DOUBLE = 3;
+
+    /**
+        Optimize the code of a <tt>Code</tt> attribute. Does nothing if
+        <tt>canOptimize</tt> returns <tt>false</tt>.
+        @param codeAttribute the <tt>CodeAttribute</tt> whose code is optimized.
+        @return whether the code has been changed
+        @throws InvalidByteCodeException if the code or its tables are invalid or
+                                         a branch offset of the optimized code
+                                         is out of range
+        @throws IOException if the code cannot be read or written
+     */
+    public static boolean optimize(CodeAttribute codeAttribute)
+        throws InvalidByteCodeException, IOException
+    {
+        if (!canOptimize(codeAttribute)) {
+            return false;
+        }
+        List instructions = ByteCodeReader.readByteCode(codeAttribute.getCode());
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(instructions, codeAttribute);
+        if (!optimizer.optimize()) {
+            return false;
+        }
+        codeAttribute.setCode(ByteCodeWriter.writeByteCode(optimizer.createInstructions()));
+        return true;
+    }
+
+    /**
+        Optimize a list of instructions such as the one supplied by a
+        <tt>ByteCodeReader</tt>. Offsets of branch instructions will be adapted
+        to the optimized code. Exception, line number and local variable tables
+        in the associated <tt>CodeAttribute</tt> will also be updated.
+
+        @param instructions the list of instructions which is to be optimized.
+                            If the code is changed, the instructions that are
+                            retained are modified. If an exception is thrown,
+                            neither the instructions nor the <tt>CodeAttribute</tt>
+                            are modified.
+        @param codeAttribute the <tt>CodeAttribute</tt> pertaining to the supplied
+                             list of instructions, may be <tt>null</tt>.
+        @return the resulting list of instructions. The supplied list is returned
+                unchanged if <tt>canOptimize</tt> returns <tt>false</tt> for the
+                <tt>CodeAttribute</tt>.
+        @throws InvalidByteCodeException if the code or its tables are invalid or
+                                         a branch offset of the optimized code
+                                         is out of range
+     */
+    public static List optimize(List instructions, CodeAttribute codeAttribute)
+        throws InvalidByteCodeException
+    {
+        if (codeAttribute != null && !canOptimize(codeAttribute)) {
+            return instructions;
+        }
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(instructions, codeAttribute);
+        if (!optimizer.optimize()) {
+            return instructions;
+        }
+        return optimizer.createInstructions();
+    }
+
+    /**
+        Check whether the code of a <tt>Code</tt> attribute may be optimized. This is
+        not the case if the code has a <tt>StackMapTable</tt> attribute and the class
+        file has version 51 or later, since the JVM requires stack map frames for
+        such code and the optimizer cannot compute them.
+        @param codeAttribute the <tt>CodeAttribute</tt>.
+        @return whether the code may be optimized
+        @throws InvalidByteCodeException if the name of an attribute cannot be resolved
+     */
+    public static boolean canOptimize(CodeAttribute codeAttribute) throws InvalidByteCodeException {
+
+        AttributeInfo[] attributes = codeAttribute.getAttributes();
+        for (int i = 0; attributes != null && i < attributes.length; i++) {
+            if (STACK_MAP_TABLE.equals(attributes[i].getName())) {
+                ClassFile classFile = codeAttribute.getClassFile();
+                return classFile != null && classFile.getMajorVersion() < STACK_MAP_REQUIRED_MAJOR_VERSION;
+            }
+        }
+        return true;
+    }
+
+    private final CodeAttribute codeAttribute;
+    private final int[] offsets;
+    private final int codeLength;
+
+    private final List nodes = new ArrayList();
+    private final List exceptionRanges = new ArrayList();
+    private final List lineNumbers = new ArrayList();
+    private final List localVariableRanges = new ArrayList();
+
+    private PeepholeOptimizer(List instructions, CodeAttribute codeAttribute)
+        throws InvalidByteCodeException
+    {
+        this.codeAttribute = codeAttribute;
+
+        int instructionCount = instructions.size();
+        offsets = new int[instructionCount];
+        for (int i = 0; i < instructionCount; i++) {
+            AbstractInstruction instruction = (AbstractInstruction)instructions.get(i);
+            offsets[i] = instruction.getOffset();
+            nodes.add(new Node(instruction, i));
+        }
+        if (instructionCount == 0) {
+            codeLength = 0;
+        } else {
+            AbstractInstruction lastInstruction = (AbstractInstruction)instructions.get(instructionCount - 1);
+            codeLength = lastInstruction.getOffset() + getSize(lastInstruction, lastInstruction.getOffset());
+        }
+
+        for (int i = 0; i < instructionCount; i++) {
+            readBranchTargets((Node)nodes.get(i));
+        }
+        if (codeAttribute != null) {
+            readTables();
+        }
+    }
+
+    private void readBranchTargets(Node node) throws InvalidByteCodeException {
+
+        AbstractInstruction instruction = node.instruction;
+        int offset = instruction.getOffset();
+        if (instruction instanceof TableSwitchInstruction) {
+            TableSwitchInstruction tableSwitch = (TableSwitchInstruction)instruction;
+            int[] jumpOffsets = tableSwitch.getJumpOffsets();
+            node.target = getNode(offset + tableSwitch.getDefaultOffset(), false);
+            node.targets = new Node[jumpOffsets.length];
+            for (int i = 0; i < jumpOffsets.length; i++) {
+                node.targets[i] = getNode(offset + jumpOffsets[i], false);
+            }
+        } else if (instruction instanceof LookupSwitchInstruction) {
+            LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction)instruction;
+            List matchOffsetPairs = lookupSwitch.getMatchOffsetPairs();
+            node.target = getNode(offset + lookupSwitch.getDefaultOffset(), false);
+            node.targets = new Node[matchOffsetPairs.size()];
+            node.matches = new int[matchOffsetPairs.size()];
+            for (int i = 0; i < matchOffsetPairs.size(); i++) {
+                MatchOffsetPair matchOffsetPair = (MatchOffsetPair)matchOffsetPairs.get(i);
+                node.targets[i] = getNode(offset + matchOffsetPair.getOffset(), false);
+                node.matches[i] = matchOffsetPair.getMatch();
+            }
+        } else if (instruction instanceof AbstractBranchInstruction) {
+            node.target = getNode(offset + ((AbstractBranchInstruction)instruction).getBranchOffset(), false);
+        }
+    }
+
+    private void readTables() throws InvalidByteCodeException {
+
+        ExceptionTableEntry[] exceptionTable = codeAttribute.getExceptionTable();
+        if (exceptionTable != null) {
+            for (int i = 0; i < exceptionTable.length; i++) {
+                ExceptionTableEntry entry = exceptionTable[i];
+                exceptionRanges.add(new Range(entry,
+                                              getNode(entry.getStartPc(), false),
+                                              getNode(entry.getEndPc(), true),
+                                              getNode(entry.getHandlerPc(), false)));
+            }
+        }
+
+        AttributeInfo[] attributes = codeAttribute.getAttributes();
+        if (attributes == null) {
+            return;
+        }
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i] instanceof LineNumberTableAttribute) {
+                LineNumberTableEntry[] entries = ((LineNumberTableAttribute)attributes[i]).getLineNumberTable();
+                for (int j = 0; j < entries.length; j++) {
+                    lineNumbers.add(new Range(entries[j], getNode(entries[j].getStartPc(), false), null, null));
+                }
+            } else if (attributes[i] instanceof LocalVariableCommonAttribute) {
+                LocalVariableCommonEntry[] entries = ((LocalVariableCommonAttribute)attributes[i]).getLocalVariableEntries();
+                for (int j = 0; j < entries.length; j++) {
+                    localVariableRanges.add(new Range(entries[j],
+                                                      getNode(entries[j].getStartPc(), false),
+                                                      getNode(entries[j].getStartPc() + entries[j].getLength(), true),
+                                                      null));
+                }
+            }
+        }
+    }
+
+    private Node getNode(int offset, boolean allowEnd) throws InvalidByteCodeException {
+
+        if (allowEnd && offset == codeLength) {
+            return null;
+        }
+        int index = Arrays.binarySearch(offsets, offset);
+        if (index < 0) {
+            throw new InvalidByteCodeException("Invalid code offset " + offset);
+        }
+        return (Node)nodes.get(index);
+    }
+
+    private boolean optimize() {
+
+        boolean changed = false;
+        boolean passChanged;
+        do {
+            passChanged = removeUnreachableCode();
+            passChanged |= threadBranches();
+            passChanged |= foldConstants();
+            passChanged |= removeRedundantLoadsAndStores();
+            changed |= passChanged;
+        } while (passChanged);
+
+        changed |= convertSwitches();
+        return changed;
+    }
+
+    private boolean removeUnreachableCode() {
+
+        if (nodes.isEmpty()) {
+            return false;
+        }
+        boolean[] reachable = new boolean[nodes.size()];
+        LinkedList pendingNodes = new LinkedList();
+        markReachable(resolve(getNode(0)), reachable, pendingNodes);
+
+        boolean handlerAdded;
+        do {
+            while (!pendingNodes.isEmpty()) {
+                Node node = (Node)pendingNodes.removeFirst();
+                if (!isUnconditional(node.instruction.getOpcode())) {
+                    markReachable(getNextNode(node), reachable, pendingNodes);
+                }
+                if (node.target != null) {
+                    markReachable(resolve(node.target), reachable, pendingNodes);
+                }
+                if (node.targets != null) {
+                    for (int i = 0; i < node.targets.length; i++) {
+                        markReachable(resolve(node.targets[i]), reachable, pendingNodes);
+                    }
+                }
+            }
+            handlerAdded = false;
+            for (int i = 0; i < exceptionRanges.size(); i++) {
+                Range range = (Range)exceptionRanges.get(i);
+                Node handler = resolve(range.handler);
+                if (handler != null && !reachable[handler.index] && isAnyReachable(range, reachable)) {
+                    markReachable(handler, reachable, pendingNodes);
+                    handlerAdded = true;
+                }
+            }
+        } while (handlerAdded);
+
+        boolean changed = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = getNode(i);
+            if (!node.removed && !reachable[i]) {
+                node.removed = true;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void markReachable(Node node, boolean[] reachable, LinkedList pendingNodes) {
+
+        if (node != null && !reachable[node.index]) {
+            reachable[node.index] = true;
+            pendingNodes.add(node);
+        }
+    }
+
+    private boolean isAnyReachable(Range range, boolean[] reachable) {
+
+        Node start = resolve(range.start);
+        Node end = resolve(range.end);
+        int endIndex = end == null ? nodes.size() : end.index;
+        for (int i = start == null ? endIndex : start.index; i < endIndex; i++) {
+            if (reachable[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean threadBranches() {
+
+        boolean changed = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = getNode(i);
+            int opcode = node.instruction.getOpcode();
+            if (node.removed || opcode == OPCODE_JSR || opcode == OPCODE_JSR_W) {
+                continue;
+            }
+            if (node.target != null) {
+                Node target = getFinalTarget(node.target);
+                if (target != resolve(node.target)) {
+                    node.target = target;
+                    changed = true;
+                }
+            }
+            if (node.targets != null) {
+                for (int j = 0; j < node.targets.length; j++) {
+                    Node target = getFinalTarget(node.targets[j]);
+                    if (target != resolve(node.targets[j])) {
+                        node.targets[j] = target;
+                        changed = true;
+                    }
+                }
+            }
+            if (node.target != null && node.targets == null && resolve(node.target) == getNextNode(node)) {
+                if (isGoto(node)) {
+                    node.removed = true;
+                } else {
+                    // the branch is taken or not, the next instruction is the same
+                    node.instruction = new SimpleInstruction(isCompareBranch(opcode) ? OPCODE_POP2 : OPCODE_POP);
+                }
+                node.target = null;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private Node getFinalTarget(Node target) {
+
+        Node currentTarget = resolve(target);
+        Set visitedNodes = new HashSet();
+        while (currentTarget != null && isGoto(currentTarget) && visitedNodes.add(currentTarget)) {
+            currentTarget = resolve(currentTarget.target);
+        }
+        return currentTarget;
+    }
+
+    private boolean foldConstants() {
+
+        boolean[] labels = getLabels();
+        boolean changed = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node first = getNode(i);
+            if (first.removed || !isIntConstant(first.instruction)) {
+                continue;
+            }
+            Node second = getNextNode(first);
+            if (second == null || labels[second.index]) {
+                continue;
+            }
+            int value = getIntConstant(first.instruction);
+            int opcode = second.instruction.getOpcode();
+            if (opcode == OPCODE_INEG || opcode == OPCODE_I2B || opcode == OPCODE_I2C || opcode == OPCODE_I2S) {
+                changed |= replaceByConstant(first, foldUnary(opcode, value), second, null);
+            } else if (opcode >= OPCODE_IFEQ && opcode <= OPCODE_IFLE) {
+                foldBranch(first, second, null, compare(opcode - OPCODE_IFEQ, value, 0));
+                changed = true;
+            } else if (isIntConstant(second.instruction)) {
+                Node third = getNextNode(second);
+                if (third == null || labels[third.index]) {
+                    continue;
+                }
+                int secondValue = getIntConstant(second.instruction);
+                int thirdOpcode = third.instruction.getOpcode();
+                if (thirdOpcode >= OPCODE_IF_ICMPEQ && thirdOpcode <= OPCODE_IF_ICMPLE) {
+                    foldBranch(first, second, third, compare(thirdOpcode - OPCODE_IF_ICMPEQ, value, secondValue));
+                    changed = true;
+                } else if (isFoldableBinary(thirdOpcode, secondValue)) {
+                    changed |= replaceByConstant(first, foldBinary(thirdOpcode, value, secondValue), second, third);
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean replaceByConstant(Node first, int value, Node second, Node third) {
+
+        AbstractInstruction instruction = createIntConstant(value);
+        if (instruction == null) {
+            return false;
+        }
+        first.instruction = instruction;
+        second.removed = true;
+        if (third != null) {
+            third.removed = true;
+        }
+        return true;
+    }
+
+    private void foldBranch(Node first, Node second, Node branch, boolean taken) {
+
+        if (branch == null) {
+            branch = second;
+        } else {
+            second.removed = true;
+        }
+        if (taken) {
+            first.instruction = new BranchInstruction(OPCODE_GOTO);
+            first.target = branch.target;
+        } else {
+            first.removed = true;
+        }
+        branch.removed = true;
+    }
+
+    private boolean removeRedundantLoadsAndStores() {
+
+        boolean[] labels = getLabels();
+        Map readCounts = getLocalVariableReadCounts();
+        boolean changed = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node first = getNode(i);
+            if (first.removed || isWide(first.instruction)) {
+                continue;
+            }
+            int opcode = first.instruction.getOpcode();
+            if (isStore(opcode) && getReadCount(readCounts, first.instruction) == 0) {
+                // the stored value is never read
+                first.instruction = new SimpleInstruction(isWideType(getLocalVariableType(opcode)) ? OPCODE_POP2 : OPCODE_POP);
+                changed = true;
+                continue;
+            }
+            Node second = getNextNode(first);
+            if (second == null || labels[second.index] || isWide(second.instruction)) {
+                continue;
+            }
+            int secondOpcode = second.instruction.getOpcode();
+            boolean redundant;
+            if (isLoad(opcode) && isStore(secondOpcode)) {
+                redundant = isSameLocalVariable(first.instruction, second.instruction);
+            } else if (isStore(opcode) && isLoad(secondOpcode)) {
+                redundant = isSameLocalVariable(first.instruction, second.instruction) &&
+                            getReadCount(readCounts, first.instruction) == 1;
+            } else {
+                int pushSize = getPushSize(opcode);
+                redundant = (pushSize == 1 && secondOpcode == OPCODE_POP) || (pushSize == 2 && secondOpcode == OPCODE_POP2);
+            }
+            if (redundant) {
+                first.removed = true;
+                second.removed = true;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private Map getLocalVariableReadCounts() {
+
+        Map readCounts = new HashMap();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = getNode(i);
+            if (node.removed) {
+                continue;
+            }
+            int opcode = node.instruction.getOpcode();
+            if (isLoad(opcode) || opcode == OPCODE_IINC || opcode == OPCODE_RET) {
+                int localVariableIndex = getLocalVariableIndex(node.instruction);
+                addReadCount(readCounts, localVariableIndex);
+                if (isLoad(opcode) && isWideType(getLocalVariableType(opcode))) {
+                    addReadCount(readCounts, localVariableIndex + 1);
+                }
+            }
+        }
+        return readCounts;
+    }
+
+    private void addReadCount(Map readCounts, int localVariableIndex) {
+
+        Integer key = new Integer(localVariableIndex);
+        Integer count = (Integer)readCounts.get(key);
+        readCounts.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+    }
+
+    private int getReadCount(Map readCounts, AbstractInstruction store) {
+
+        int localVariableIndex = getLocalVariableIndex(store);
+        int readCount = getReadCount(readCounts, localVariableIndex);
+        if (isWideType(getLocalVariableType(store.getOpcode()))) {
+            readCount = Math.max(readCount, getReadCount(readCounts, localVariableIndex + 1));
+        }
+        return readCount;
+    }
+
+    private int getReadCount(Map readCounts, int localVariableIndex) {
+
+        Integer count = (Integer)readCounts.get(new Integer(localVariableIndex));
+        return count == null ? 0 : count.intValue();
+    }
+
+    private boolean convertSwitches() {
+
+        boolean changed = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = getNode(i);
+            if (!node.removed && node.targets != null) {
+                changed |= convertSwitch(node);
+            }
+        }
+        return changed;
+    }
+
+    private boolean convertSwitch(Node node) {
+
+        Node defaultTarget = resolve(node.target);
+        List keys = new ArrayList();
+        List targets = new ArrayList();
+        for (int i = 0; i < node.targets.length; i++) {
+            Node target = resolve(node.targets[i]);
+            if (target != defaultTarget) {
+                keys.add(new Integer(node.matches == null ? getLowByte(node) + i : node.matches[i]));
+                targets.add(target);
+            }
+        }
+        int keyCount = keys.size();
+        if (keyCount == 0) {
+            return false;
+        }
+
+        // the same cost model that javac uses for choosing the switch instruction
+        long low = ((Integer)keys.get(0)).intValue();
+        long high = ((Integer)keys.get(keyCount - 1)).intValue();
+        long tableSpaceCost = 4 + (high - low + 1);
+        long tableTimeCost = 3;
+        long lookupSpaceCost = 3 + 2 * keyCount;
+        long lookupTimeCost = keyCount;
+        boolean useTable = tableSpaceCost + 3 * tableTimeCost <= lookupSpaceCost + 3 * lookupTimeCost;
+
+        if (useTable) {
+            if (node.matches == null && getLowByte(node) == low && node.targets.length == high - low + 1) {
+                return false;
+            }
+            TableSwitchInstruction tableSwitch = new TableSwitchInstruction(OPCODE_TABLESWITCH);
+            tableSwitch.setLowByte((int)low);
+            tableSwitch.setHighByte((int)high);
+            tableSwitch.setJumpOffsets(new int[(int)(high - low + 1)]);
+            node.instruction = tableSwitch;
+            node.matches = null;
+            node.targets = new Node[(int)(high - low + 1)];
+            Arrays.fill(node.targets, defaultTarget);
+            for (int i = 0; i < keyCount; i++) {
+                node.targets[(int)(((Integer)keys.get(i)).intValue() - low)] = (Node)targets.get(i);
+            }
+        } else {
+            if (node.matches != null && node.matches.length == keyCount) {
+                return false;
+            }
+            LookupSwitchInstruction lookupSwitch = new LookupSwitchInstruction(OPCODE_LOOKUPSWITCH);
+            List matchOffsetPairs = new ArrayList(keyCount);
+            node.instruction = lookupSwitch;
+            node.matches = new int[keyCount];
+            node.targets = (Node[])targets.toArray(new Node[keyCount]);
+            for (int i = 0; i < keyCount; i++) {
+                node.matches[i] = ((Integer)keys.get(i)).intValue();
+                matchOffsetPairs.add(new MatchOffsetPair(node.matches[i], 0));
+            }
+            lookupSwitch.setMatchOffsetPairs(matchOffsetPairs);
+        }
+        return true;
+    }
+
+    private List createInstructions() throws InvalidByteCodeException {
+
+        List liveNodes = new ArrayList();
+        int currentOffset = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = getNode(i);
+            if (!node.removed) {
+                node.newOffset = currentOffset;
+                currentOffset += getSize(node.instruction, currentOffset);
+                liveNodes.add(node);
+            }
+        }
+        int newCodeLength = currentOffset;
+        if (newCodeLength > 65535) {
+            throw new InvalidByteCodeException("Code too large");
+        }
+        for (int i = 0; i < liveNodes.size(); i++) {
+            Node node = (Node)liveNodes.get(i);
+            if (node.instruction instanceof BranchInstruction) {
+                int branchOffset = getBranchOffset(node, node.target);
+                if (branchOffset < Short.MIN_VALUE || branchOffset > Short.MAX_VALUE) {
+                    throw new InvalidByteCodeException("Branch offset out of range");
+                }
+            }
+        }
+
+        List instructions = new ArrayList(liveNodes.size());
+        for (int i = 0; i < liveNodes.size(); i++) {
+            Node node = (Node)liveNodes.get(i);
+            writeBranchTargets(node);
+            node.instruction.setOffset(node.newOffset);
+            instructions.add(node.instruction);
+        }
+        if (codeAttribute != null) {
+            writeTables(newCodeLength);
+        }
+        return instructions;
+    }
+
+    private void writeBranchTargets(Node node) throws InvalidByteCodeException {
+
+        AbstractInstruction instruction = node.instruction;
+        if (instruction instanceof TableSwitchInstruction) {
+            TableSwitchInstruction tableSwitch = (TableSwitchInstruction)instruction;
+            tableSwitch.setDefaultOffset(getBranchOffset(node, node.target));
+            int[] jumpOffsets = tableSwitch.getJumpOffsets();
+            for (int i = 0; i < jumpOffsets.length; i++) {
+                jumpOffsets[i] = getBranchOffset(node, node.targets[i]);
+            }
+        } else if (instruction instanceof LookupSwitchInstruction) {
+            LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction)instruction;
+            lookupSwitch.setDefaultOffset(getBranchOffset(node, node.target));
+            List matchOffsetPairs = lookupSwitch.getMatchOffsetPairs();
+            for (int i = 0; i < matchOffsetPairs.size(); i++) {
+                ((MatchOffsetPair)matchOffsetPairs.get(i)).setOffset(getBranchOffset(node, node.targets[i]));
+            }
+        } else if (instruction instanceof AbstractBranchInstruction) {
+            ((AbstractBranchInstruction)instruction).setBranchOffset(getBranchOffset(node, node.target));
+        }
+    }
+
+    private int getBranchOffset(Node node, Node target) throws InvalidByteCodeException {
+
+        Node resolvedTarget = resolve(target);
+        if (resolvedTarget == null) {
+            throw new InvalidByteCodeException("Invalid branch target");
+        }
+        return resolvedTarget.newOffset - node.newOffset;
+    }
+
+    private void writeTables(int newCodeLength) throws InvalidByteCodeException {
+
+        List exceptionTable = new ArrayList();
+        for (int i = 0; i < exceptionRanges.size(); i++) {
+            Range range = (Range)exceptionRanges.get(i);
+            Node start = resolve(range.start);
+            Node end = resolve(range.end);
+            Node handler = resolve(range.handler);
+            if (start != end && handler != null) {
+                ExceptionTableEntry entry = (ExceptionTableEntry)range.entry;
+                entry.setStartPc(start.newOffset);
+                entry.setEndPc(end == null ? newCodeLength : end.newOffset);
+                entry.setHandlerPc(handler.newOffset);
+                exceptionTable.add(entry);
+            }
+        }
+        codeAttribute.setExceptionTable(
+            (ExceptionTableEntry[])exceptionTable.toArray(new ExceptionTableEntry[exceptionTable.size()])
+        );
+
+        // a line number of a removed instruction is superseded by a line number
+        // of the instruction that takes its place
+        SortedMap lineNumberEntries = new TreeMap();
+        for (int i = 0; i < lineNumbers.size(); i++) {
+            Range range = (Range)lineNumbers.get(i);
+            Node start = resolve(range.start);
+            if (start != null) {
+                LineNumberTableEntry entry = (LineNumberTableEntry)range.entry;
+                entry.setStartPc(start.newOffset);
+                lineNumberEntries.put(new Integer(start.index), entry);
+            }
+        }
+
+        Set localVariableEntries = new HashSet();
+        for (int i = 0; i < localVariableRanges.size(); i++) {
+            Range range = (Range)localVariableRanges.get(i);
+            Node start = resolve(range.start);
+            Node end = resolve(range.end);
+            if (start != end) {
+                LocalVariableCommonEntry entry = (LocalVariableCommonEntry)range.entry;
+                entry.setStartPc(start.newOffset);
+                entry.setLength((end == null ? newCodeLength : end.newOffset) - start.newOffset);
+                localVariableEntries.add(entry);
+            }
+        }
+
+        AttributeInfo[] attributes = codeAttribute.getAttributes();
+        if (attributes == null) {
+            return;
+        }
+        List retainedAttributes = new ArrayList(attributes.length);
+        for (int i = 0; i < attributes.length; i++) {
+            AttributeInfo attribute = attributes[i];
+            if (attribute instanceof LineNumberTableAttribute) {
+                List entries = retainEntries(((LineNumberTableAttribute)attribute).getLineNumberTable(),
+                                             new HashSet(lineNumberEntries.values()));
+                ((LineNumberTableAttribute)attribute).setLineNumberTable(
+                    (LineNumberTableEntry[])entries.toArray(new LineNumberTableEntry[entries.size()])
+                );
+            } else if (attribute instanceof LocalVariableCommonAttribute) {
+                List entries = retainEntries(((LocalVariableCommonAttribute)attribute).getLocalVariableEntries(),
+                                             localVariableEntries);
+                ((LocalVariableCommonAttribute)attribute).setLocalVariableEntries(
+                    (LocalVariableCommonEntry[])entries.toArray(new LocalVariableCommonEntry[entries.size()])
+                );
+            } else if (STACK_MAP_TABLE.equals(attribute.getName())) {
+                continue;
+            }
+            retainedAttributes.add(attribute);
+        }
+        codeAttribute.setAttributes((AttributeInfo[])retainedAttributes.toArray(new AttributeInfo[retainedAttributes.size()]));
+    }
+
+    private List retainEntries(Object[] entries, Set retainedEntries) {
+
+        List result = new ArrayList();
+        for (int i = 0; i < entries.length; i++) {
+            if (retainedEntries.contains(entries[i])) {
+                result.add(entries[i]);
+            }
+        }
+        return result;
+    }
+
+    private boolean[] getLabels() {
+
+        boolean[] labels = new boolean[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = getNode(i);
+            if (node.removed) {
+                continue;
+            }
+            markLabel(labels, node.target);
+            if (node.targets != null) {
+                for (int j = 0; j < node.targets.length; j++) {
+                    markLabel(labels, node.targets[j]);
+                }
+            }
+        }
+        for (int i = 0; i < exceptionRanges.size(); i++) {
+            Range range = (Range)exceptionRanges.get(i);
+            markLabel(labels, range.start);
+            markLabel(labels, range.end);
+            markLabel(labels, range.handler);
+        }
+        return labels;
+    }
+
+    private void markLabel(boolean[] labels, Node node) {
+
+        Node resolvedNode = resolve(node);
+        if (resolvedNode != null) {
+            labels[resolvedNode.index] = true;
+        }
+    }
+
+    private Node getNode(int index) {
+        return (Node)nodes.get(index);
+    }
+
+    private Node getNextNode(Node node) {
+        return node.index + 1 < nodes.size() ? resolve(getNode(node.index + 1)) : null;
+    }
+
+    // references to removed instructions are transferred to the next
+    // instruction that is retained or to the end of the code
+    private Node resolve(Node node) {
+
+        Node currentNode = node;
+        while (currentNode != null && currentNode.removed) {
+            currentNode = currentNode.index + 1 < nodes.size() ? getNode(currentNode.index + 1) : null;
+        }
+        return currentNode;
+    }
+
+    private int getLowByte(Node node) {
+        return ((TableSwitchInstruction)node.instruction).getLowByte();
+    }
+
+    private static int getSize(AbstractInstruction instruction, int offset) {
+
+        if (instruction instanceof PaddedInstruction) {
+            return ((PaddedInstruction)instruction).getPaddedSize(offset);
+        } else {
+            return instruction.getSize();
+        }
+    }
+
+    private static boolean isGoto(Node node) {
+
+        int opcode = node.instruction.getOpcode();
+        return opcode == OPCODE_GOTO || opcode == OPCODE_GOTO_W;
+    }
+
+    private static boolean isUnconditional(int opcode) {
+
+        switch (opcode) {
+            case OPCODE_GOTO:
+            case OPCODE_GOTO_W:
+            case OPCODE_TABLESWITCH:
+            case OPCODE_LOOKUPSWITCH:
+            case OPCODE_IRETURN:
+            case OPCODE_LRETURN:
+            case OPCODE_FRETURN:
+            case OPCODE_DRETURN:
+            case OPCODE_ARETURN:
+            case OPCODE_RETURN:
+            case OPCODE_ATHROW:
+            case OPCODE_RET:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isCompareBranch(int opcode) {
+        return opcode >= OPCODE_IF_ICMPEQ && opcode <= OPCODE_IF_ACMPNE;
+    }
+
+    private static boolean isWide(AbstractInstruction instruction) {
+        return instruction instanceof ImmediateByteInstruction && ((ImmediateByteInstruction)instruction).isWide();
+    }
+
+    private static boolean isLoad(int opcode) {
+        return (opcode >= OPCODE_ILOAD && opcode <= OPCODE_ALOAD) || (opcode >= OPCODE_ILOAD_0 && opcode <= OPCODE_ALOAD_3);
+    }
+
+    private static boolean isStore(int opcode) {
+        return (opcode >= OPCODE_ISTORE && opcode <= OPCODE_ASTORE) || (opcode >= OPCODE_ISTORE_0 && opcode <= OPCODE_ASTORE_3);
+    }
+
+    // 0 to 4 for int, long, float, double and reference
+    private static int getLocalVariableType(int opcode) {
+
+        if (opcode >= OPCODE_ILOAD && opcode <= OPCODE_ALOAD) {
+            return opcode - OPCODE_ILOAD;
+        } else if (opcode >= OPCODE_ILOAD_0 && opcode <= OPCODE_ALOAD_3) {
+            return (opcode - OPCODE_ILOAD_0) / 4;
+        } else if (opcode >= OPCODE_ISTORE && opcode <= OPCODE_ASTORE) {
+            return opcode - OPCODE_ISTORE;
+        } else {
+            return (opcode - OPCODE_ISTORE_0) / 4;
+        }
+    }
+
+    private static boolean isWideType(int localVariableType) {
+        return localVariableType == TYPE_LONG || localVariableType == TYPE_DOUBLE;
+    }
+
+    private static int getLocalVariableIndex(AbstractInstruction instruction) {
+
+        int opcode = instruction.getOpcode();
+        if (opcode >= OPCODE_ILOAD_0 && opcode <= OPCODE_ALOAD_3) {
+            return (opcode - OPCODE_ILOAD_0) % 4;
+        } else if (opcode >= OPCODE_ISTORE_0 && opcode <= OPCODE_ASTORE_3) {
+            return (opcode - OPCODE_ISTORE_0) % 4;
+        } else {
+            return ((ImmediateByteInstruction)instruction).getImmediateByte();
+        }
+    }
+
+    private static boolean isSameLocalVariable(AbstractInstruction load, AbstractInstruction store) {
+
+        return getLocalVariableType(load.getOpcode()) == getLocalVariableType(store.getOpcode()) &&
+               getLocalVariableIndex(load) == getLocalVariableIndex(store);
+    }
+
+    // the number of stack words pushed by an instruction without side effects
+    private static int getPushSize(int opcode) {
+
+        if (isLoad(opcode)) {
+            return isWideType(getLocalVariableType(opcode)) ? 2 : 1;
+        }
+        switch (opcode) {
+            case OPCODE_ACONST_NULL:
+            case OPCODE_ICONST_M1:
+            case OPCODE_ICONST_0:
+            case OPCODE_ICONST_1:
+            case OPCODE_ICONST_2:
+            case OPCODE_ICONST_3:
+            case OPCODE_ICONST_4:
+            case OPCODE_ICONST_5:
+            case OPCODE_FCONST_0:
+            case OPCODE_FCONST_1:
+            case OPCODE_FCONST_2:
+            case OPCODE_BIPUSH:
+            case OPCODE_SIPUSH:
+            case OPCODE_DUP:
+                return 1;
+            case OPCODE_LCONST_0:
+            case OPCODE_LCONST_1:
+            case OPCODE_DCONST_0:
+            case OPCODE_DCONST_1:
+            case OPCODE_DUP2:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isIntConstant(AbstractInstruction instruction) {
+
+        int opcode = instruction.getOpcode();
+        return (opcode >= OPCODE_ICONST_M1 && opcode <= OPCODE_ICONST_5) ||
+               opcode == OPCODE_BIPUSH || opcode == OPCODE_SIPUSH;
+    }
+
+    private static int getIntConstant(AbstractInstruction instruction) {
+
+        switch (instruction.getOpcode()) {
+            case OPCODE_BIPUSH:
+                return (byte)((ImmediateByteInstruction)instruction).getImmediateByte();
+            case OPCODE_SIPUSH:
+                return (short)((ImmediateShortInstruction)instruction).getImmediateShort();
+            default:
+                return instruction.getOpcode() - OPCODE_ICONST_0;
+        }
+    }
+
+    private static AbstractInstruction createIntConstant(int value) {
+
+        if (value >= -1 && value <= 5) {
+            return new SimpleInstruction(OPCODE_ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return new ImmediateByteInstruction(OPCODE_BIPUSH, false, value & 0xff);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return new ImmediateShortInstruction(OPCODE_SIPUSH, value & 0xffff);
+        } else {
+            return null;
+        }
+    }
+
+    private static int foldUnary(int opcode, int value) {
+
+        switch (opcode) {
+            case OPCODE_INEG:
+                return -value;
+            case OPCODE_I2B:
+                return (byte)value;
+            case OPCODE_I2C:
+                return (char)value;
+            default:
+                return (short)value;
+        }
+    }
+
+    private static boolean isFoldableBinary(int opcode, int secondValue) {
+
+        switch (opcode) {
+            case OPCODE_IADD:
+            case OPCODE_ISUB:
+            case OPCODE_IMUL:
+            case OPCODE_ISHL:
+            case OPCODE_ISHR:
+            case OPCODE_IUSHR:
+            case OPCODE_IAND:
+            case OPCODE_IOR:
+            case OPCODE_IXOR:
+                return true;
+            case OPCODE_IDIV:
+            case OPCODE_IREM:
+                // division by zero throws an ArithmeticException
+                return secondValue != 0;
+            default:
+                return false;
+        }
+    }
+
+    private static int foldBinary(int opcode, int value1, int value2) {
+
+        switch (opcode) {
+            case OPCODE_IADD:
+                return value1 + value2;
+            case OPCODE_ISUB:
+                return value1 - value2;
+            case OPCODE_IMUL:
+                return value1 * value2;
+            case OPCODE_IDIV:
+                return value1 / value2;
+            case OPCODE_IREM:
+                return value1 % value2;
+            case OPCODE_ISHL:
+                return value1 << value2;
+            case OPCODE_ISHR:
+                return value1 >> value2;
+            case OPCODE_IUSHR:
+                return value1 >>> value2;
+            case OPCODE_IAND:
+                return value1 & value2;
+            case OPCODE_IOR:
+                return value1 | value2;
+            default:
+                return value1 ^ value2;
+        }
+    }
+
+    // conditions in the order eq, ne, lt, ge, gt, le of the branch opcodes
+    private static boolean compare(int condition, int value1, int value2) {
+
+        switch (condition) {
+            case 0:
+                return value1 == value2;
+            case 1:
+                return value1 != value2;
+            case 2:
+                return value1 < value2;
+            case 3:
+                return value1 >= value2;
+            case 4:
+                return value1 > value2;
+            default:
+                return value1 <= value2;
+        }
+    }
+
+    private static class Node {
+
+        private AbstractInstruction instruction;
+        private final int index;
+        private boolean removed;
+        private int newOffset;
+        // the branch target or the default target of a switch
+        private Node target;
+        private Node[] targets;
+        private int[] matches;
+
+        private Node(AbstractInstruction instruction, int index) {
+            this.instruction = instruction;
+            this.index = index;
+        }
+    }
+
+    private static class Range {
+
+        private final Object entry;
+        private final Node start;
+        private final Node end;
+        private final Node handler;
+
+        private Range(Object entry, Node start, Node end, Node handler) {
+            this.entry = entry;
+            this.start = start;
+            this.end = end;
+            this.handler = handler;
+        }
+    }
+
+}
@@ -10,6 +10,7 @@ package org.gjt.jclasslib.io;
 import org.gjt.jclasslib.bytecode.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -67,6 +68,132 @@ public class ByteCodeReader implements Opcodes {
         return instructions;
     }
     
+    /**
+        Converts the code to a packed list of instructions. No
+        <tt>AbstractInstruction</tt> objects are created.
+        @param code the code as an array of bytes from which to read the instructions
+        @return the <tt>InstructionList</tt> with the instructions
+        @throws IOException if the code is invalid or truncated
+     */
+    public static InstructionList readInstructionList(byte[] code) throws IOException {
+
+        // most instructions are between one and three bytes long
+        InstructionList instructions = new InstructionList(code.length / 2 + 1);
+
+        boolean wide = false;
+        int position = 0;
+        while (position < code.length) {
+            int offset = position;
+            int opcode = code[position++] & 0xff;
+
+            switch (InstructionList.getKind(opcode)) {
+
+                case InstructionList.KIND_SIMPLE:
+                    instructions.add(opcode, offset, 0);
+                    break;
+
+                case InstructionList.KIND_IMMEDIATE_BYTE:
+                    if (wide) {
+                        checkLength(code, position, 2);
+                        instructions.add(opcode, offset, readUnsignedShort(code, position));
+                        position += 2;
+                    } else {
+                        checkLength(code, position, 1);
+                        instructions.add(opcode, offset, code[position++] & 0xff);
+                    }
+                    break;
+
+                case InstructionList.KIND_IMMEDIATE_SHORT:
+                    checkLength(code, position, 2);
+                    instructions.add(opcode, offset, readUnsignedShort(code, position));
+                    position += 2;
+                    break;
+
+                case InstructionList.KIND_BRANCH:
+                    checkLength(code, position, 2);
+                    instructions.add(opcode, offset, (short)readUnsignedShort(code, position));
+                    position += 2;
+                    break;
+
+                case InstructionList.KIND_WIDE_BRANCH:
+                    checkLength(code, position, 4);
+                    instructions.add(opcode, offset, readInt(code, position));
+                    position += 4;
+                    break;
+
+                case InstructionList.KIND_INCREMENT:
+                    if (wide) {
+                        checkLength(code, position, 4);
+                        instructions.add(opcode, offset, readUnsignedShort(code, position), readUnsignedShort(code, position + 2));
+                        position += 4;
+                    } else {
+                        checkLength(code, position, 2);
+                        instructions.add(opcode, offset, code[position] & 0xff, code[position + 1] & 0xff);
+                        position += 2;
+                    }
+                    break;
+
+                case InstructionList.KIND_TABLE_SWITCH:
+                case InstructionList.KIND_LOOKUP_SWITCH:
+                    position += InstructionList.getPadding(offset);
+                    checkLength(code, position, 8);
+                    int defaultOffset = readInt(code, position);
+                    int count = readInt(code, position + 4);
+                    int[] table;
+                    if (opcode == OPCODE_TABLESWITCH) {
+                        int low = count;
+                        checkLength(code, position, 12);
+                        int high = readInt(code, position + 8);
+                        position += 12;
+                        long numberOfOffsets = (long)high - low + 1;
+                        if (numberOfOffsets < 0 || numberOfOffsets > (code.length - position) / 4) {
+                            throw new EOFException();
+                        }
+                        table = new int[(int)numberOfOffsets + 2];
+                        table[0] = low;
+                        table[1] = high;
+                    } else {
+                        position += 8;
+                        if (count < 0 || count > (code.length - position) / 8) {
+                            throw new EOFException();
+                        }
+                        table = new int[2 * count];
+                    }
+                    for (int i = opcode == OPCODE_TABLESWITCH ? 2 : 0; i < table.length; i++) {
+                        table[i] = readInt(code, position);
+                        position += 4;
+                    }
+                    instructions.addSwitch(opcode, offset, defaultOffset, table);
+                    break;
+
+                case InstructionList.KIND_INVOKE_INTERFACE:
+                    checkLength(code, position, 4);
+                    instructions.add(opcode, offset, readUnsignedShort(code, position), code[position + 2] & 0xff);
+                    position += 4;
+                    break;
+
+                case InstructionList.KIND_INVOKE_DYNAMIC:
+                    checkLength(code, position, 4);
+                    instructions.add(opcode, offset, readUnsignedShort(code, position));
+                    position += 4;
+                    break;
+
+                case InstructionList.KIND_MULTIANEWARRAY:
+                    checkLength(code, position, 3);
+                    instructions.add(opcode, offset, readUnsignedShort(code, position), code[position + 2] & 0xff);
+                    position += 3;
+                    break;
+
+                default:
+                    throw new IOException("invalid opcode 0x" + Integer.toHexString(opcode));
+            }
+            wide = (opcode == OPCODE_WIDE);
+        }
+
+        instructions.trimToSize();
+        return instructions;
+    }
+
     private static AbstractInstruction readNextInstruction(ByteCodeInputStream bcis, boolean wide)
         throws IOException
     {
@@ -74,255 +201,49 @@ public class ByteCodeReader implements Opcodes {
 
         int opcode = bcis.readUnsignedByte();
 
-        switch (opcode) {
+        switch (InstructionList.getKind(opcode)) {
             
-            case OPCODE_WIDE:
-            case OPCODE_NOP:
-            case OPCODE_ACONST_NULL:
-            case OPCODE_ICONST_M1:
-            case OPCODE_ICONST_0:
-            case OPCODE_ICONST_1:
-            case OPCODE_ICONST_2:
-            case OPCODE_ICONST_3:
-            case OPCODE_ICONST_4:
-            case OPCODE_ICONST_5:
-            case OPCODE_LCONST_0:
-            case OPCODE_LCONST_1:
-            case OPCODE_FCONST_0:
-            case OPCODE_FCONST_1:
-            case OPCODE_FCONST_2:
-            case OPCODE_DCONST_0:
-            case OPCODE_DCONST_1:
-            case OPCODE_ILOAD_0:
-            case OPCODE_ILOAD_1:
-            case OPCODE_ILOAD_2:
-            case OPCODE_ILOAD_3:
-            case OPCODE_LLOAD_0:
-            case OPCODE_LLOAD_1:
-            case OPCODE_LLOAD_2:
-            case OPCODE_LLOAD_3:
-            case OPCODE_FLOAD_0:
-            case OPCODE_FLOAD_1:
-            case OPCODE_FLOAD_2:
-            case OPCODE_FLOAD_3:
-            case OPCODE_DLOAD_0:
-            case OPCODE_DLOAD_1:
-            case OPCODE_DLOAD_2:
-            case OPCODE_DLOAD_3:
-            case OPCODE_ALOAD_0:
-            case OPCODE_ALOAD_1:
-            case OPCODE_ALOAD_2:
-            case OPCODE_ALOAD_3:
-            case OPCODE_IALOAD:
-            case OPCODE_LALOAD:
-            case OPCODE_FALOAD:
-            case OPCODE_DALOAD:
-            case OPCODE_AALOAD:
-            case OPCODE_BALOAD:
-            case OPCODE_CALOAD:
-            case OPCODE_SALOAD:
-            case OPCODE_ISTORE_0:
-            case OPCODE_ISTORE_1:
-            case OPCODE_ISTORE_2:
-            case OPCODE_ISTORE_3:
-            case OPCODE_LSTORE_0:
-            case OPCODE_LSTORE_1:
-            case OPCODE_LSTORE_2:
-            case OPCODE_LSTORE_3:
-            case OPCODE_FSTORE_0:
-            case OPCODE_FSTORE_1:
-            case OPCODE_FSTORE_2:
-            case OPCODE_FSTORE_3:
-            case OPCODE_DSTORE_0:
-            case OPCODE_DSTORE_1:
-            case OPCODE_DSTORE_2:
-            case OPCODE_DSTORE_3:
-            case OPCODE_ASTORE_0:
-            case OPCODE_ASTORE_1:
-            case OPCODE_ASTORE_2:
-            case OPCODE_ASTORE_3:
-            case OPCODE_IASTORE:
-            case OPCODE_LASTORE:
-            case OPCODE_FASTORE:
-            case OPCODE_DASTORE:
-            case OPCODE_AASTORE:
-            case OPCODE_BASTORE:
-            case OPCODE_CASTORE:
-            case OPCODE_SASTORE:
-            case OPCODE_POP:
-            case OPCODE_POP2:
-            case OPCODE_DUP:
-            case OPCODE_DUP_X1:
-            case OPCODE_DUP_X2:
-            case OPCODE_DUP2:
-            case OPCODE_DUP2_X1:
-            case OPCODE_DUP2_X2:
-            case OPCODE_SWAP:
-            case OPCODE_IADD:
-            case OPCODE_LADD:
-            case OPCODE_FADD:
-            case OPCODE_DADD:
-            case OPCODE_ISUB:
-            case OPCODE_LSUB:
-            case OPCODE_FSUB:
-            case OPCODE_DSUB:
-            case OPCODE_IMUL:
-            case OPCODE_LMUL:
-            case OPCODE_FMUL:
-            case OPCODE_DMUL:
-            case OPCODE_IDIV:
-            case OPCODE_LDIV:
-            case OPCODE_FDIV:
-            case OPCODE_DDIV:
-            case OPCODE_IREM:
-            case OPCODE_LREM:
-            case OPCODE_FREM:
-            case OPCODE_DREM:
-            case OPCODE_INEG:
-            case OPCODE_LNEG:
-            case OPCODE_FNEG:
-            case OPCODE_DNEG:
-            case OPCODE_ISHL:
-            case OPCODE_LSHL:
-            case OPCODE_ISHR:
-            case OPCODE_LSHR:
-            case OPCODE_IUSHR:
-            case OPCODE_LUSHR:
-            case OPCODE_IAND:
-            case OPCODE_LAND:
-            case OPCODE_IOR:
-            case OPCODE_LOR:
-            case OPCODE_IXOR:
-            case OPCODE_LXOR:
-            case OPCODE_I2L:
-            case OPCODE_I2F:
-            case OPCODE_I2D:
-            case OPCODE_L2I:
-            case OPCODE_L2F:
-            case OPCODE_L2D:
-            case OPCODE_F2I:
-            case OPCODE_F2L:
-            case OPCODE_F2D:
-            case OPCODE_D2I:
-            case OPCODE_D2L:
-            case OPCODE_D2F:
-            case OPCODE_I2B:
-            case OPCODE_I2C:
-            case OPCODE_I2S:
-            case OPCODE_LCMP:
-            case OPCODE_FCMPL:
-            case OPCODE_FCMPG:
-            case OPCODE_DCMPL:
-            case OPCODE_DCMPG:
-            case OPCODE_IRETURN:
-            case OPCODE_LRETURN:
-            case OPCODE_FRETURN:
-            case OPCODE_DRETURN:
-            case OPCODE_ARETURN:
-            case OPCODE_RETURN:
-            case OPCODE_ARRAYLENGTH:
-            case OPCODE_ATHROW:
-            case OPCODE_MONITORENTER:
-            case OPCODE_MONITOREXIT:
-            case OPCODE_BREAKPOINT:
-            case OPCODE_IMPDEP1:
-            case OPCODE_IMPDEP2:
-                
+            case InstructionList.KIND_SIMPLE:
                 instruction = new SimpleInstruction(opcode);
                 break;
 
-            case OPCODE_BIPUSH:
-            case OPCODE_LDC:
-            case OPCODE_ILOAD:  // subject to wide
-            case OPCODE_LLOAD:  // subject to wide
-            case OPCODE_FLOAD:  // subject to wide
-            case OPCODE_DLOAD:  // subject to wide
-            case OPCODE_ALOAD:  // subject to wide
-            case OPCODE_ISTORE: // subject to wide
-            case OPCODE_LSTORE: // subject to wide
-            case OPCODE_FSTORE: // subject to wide
-            case OPCODE_DSTORE: // subject to wide
-            case OPCODE_ASTORE: // subject to wide
-            case OPCODE_RET:    // subject to wide
-            case OPCODE_NEWARRAY:
-
+            case InstructionList.KIND_IMMEDIATE_BYTE:
                 instruction = new ImmediateByteInstruction(opcode, wide);
                 break;
 
-            case OPCODE_LDC_W:
-            case OPCODE_LDC2_W:
-            case OPCODE_GETSTATIC:
-            case OPCODE_PUTSTATIC:
-            case OPCODE_GETFIELD:
-            case OPCODE_PUTFIELD:
-            case OPCODE_INVOKEVIRTUAL:
-            case OPCODE_INVOKESPECIAL:
-            case OPCODE_INVOKESTATIC:
-            case OPCODE_NEW:
-            case OPCODE_ANEWARRAY:
-            case OPCODE_CHECKCAST:
-            case OPCODE_INSTANCEOF:
-            case OPCODE_SIPUSH: // the only immediate short instruction that does
-                                // not have an immediate constant pool reference
-
+            case InstructionList.KIND_IMMEDIATE_SHORT:
                 instruction = new ImmediateShortInstruction(opcode);
                 break;
 
-            case OPCODE_IFEQ:
-            case OPCODE_IFNE:
-            case OPCODE_IFLT:
-            case OPCODE_IFGE:
-            case OPCODE_IFGT:
-            case OPCODE_IFLE:
-            case OPCODE_IF_ICMPEQ:
-            case OPCODE_IF_ICMPNE:
-            case OPCODE_IF_ICMPLT:
-            case OPCODE_IF_ICMPGE:
-            case OPCODE_IF_ICMPGT:
-            case OPCODE_IF_ICMPLE:
-            case OPCODE_IF_ACMPEQ:
-            case OPCODE_IF_ACMPNE:
-            case OPCODE_GOTO:
-            case OPCODE_JSR:
-            case OPCODE_IFNULL:
-            case OPCODE_IFNONNULL:
-
+            case InstructionList.KIND_BRANCH:
                 instruction = new BranchInstruction(opcode);
                 break;
 
-            case OPCODE_GOTO_W:
-            case OPCODE_JSR_W:
-
+            case InstructionList.KIND_WIDE_BRANCH:
                 instruction = new WideBranchInstruction(opcode);
                 break;
                 
-            case OPCODE_IINC: // subject to wide
-
+            case InstructionList.KIND_INCREMENT:
                 instruction = new IncrementInstruction(opcode, wide);
                 break;
                 
-            case OPCODE_TABLESWITCH:
-
+            case InstructionList.KIND_TABLE_SWITCH:
                 instruction = new TableSwitchInstruction(opcode);
                 break;
                 
-            case OPCODE_LOOKUPSWITCH:
-
+            case InstructionList.KIND_LOOKUP_SWITCH:
                 instruction = new LookupSwitchInstruction(opcode);
                 break;
                 
-            case OPCODE_INVOKEINTERFACE:
-
+            case InstructionList.KIND_INVOKE_INTERFACE:
                 instruction = new InvokeInterfaceInstruction(opcode);
                 break;
 
-            case OPCODE_INVOKEDYNAMIC:
-
+            case InstructionList.KIND_INVOKE_DYNAMIC:
                 instruction = new InvokeDynamicInstruction(opcode);
                 break;
 
-            case OPCODE_MULTIANEWARRAY:
-            
+            case InstructionList.KIND_MULTIANEWARRAY:
                 instruction = new MultianewarrayInstruction(opcode);
                 break;
                 
@@ -333,5 +254,20 @@ public class ByteCodeReader implements Opcodes {
         instruction.read(bcis);
         return instruction;
     }
+
+    private static void checkLength(byte[] code, int position, int length) throws EOFException {
+        if (position + length > code.length) {
+            throw new EOFException();
+        }
+    }
+
+    private static int readUnsignedShort(byte[] code, int position) {
+        return ((code[position] & 0xff) << 8) | (code[position + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] code, int position) {
+        return ((code[position] & 0xff) << 24) | ((code[position + 1] & 0xff) << 16) |
+               ((code[position + 2] & 0xff) << 8) | (code[position + 3] & 0xff);
+    }
     
 }
@@ -8,6 +8,8 @@
 package org.gjt.jclasslib.io;
 
 import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.InstructionList;
+import org.gjt.jclasslib.bytecode.Opcodes;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -21,7 +23,7 @@ import java.util.List;
     @author <a href="mailto:jclasslib@ej-technologies.com">Ingo Kegel</a>
     @version $Revision: 1.5 $ $Date: 2003-08-18 07:58:12 $
 */
-public class ByteCodeWriter {
+public class ByteCodeWriter implements Opcodes {
 
     private ByteCodeWriter() {
     }
@@ -45,6 +47,84 @@ public class ByteCodeWriter {
         return baos.toByteArray();
     }
     
+    /**
+        Converts a packed list of instructions to code. Switch instructions
+        are padded according to the position at which they are written.
+        @param instructions the <tt>InstructionList</tt> with the instructions
+        @return the code as an array of bytes
+        @throws IOException if an instruction has an invalid opcode
+     */
+    public static byte[] writeByteCode(InstructionList instructions) throws IOException {
+
+        int length = 0;
+        for (int i = 0; i < instructions.size(); i++) {
+            length += getSize(instructions, i, length);
+        }
+
+        byte[] code = new byte[length];
+        int position = 0;
+        for (int i = 0; i < instructions.size(); i++) {
+            int opcode = instructions.getOpcode(i);
+            int operand = instructions.getOperand(i);
+            int extraOperand = instructions.getExtraOperand(i);
+            int offset = position;
+            code[position++] = (byte)opcode;
+
+            switch (InstructionList.getKind(opcode)) {
+                case InstructionList.KIND_IMMEDIATE_BYTE:
+                    if (instructions.isWide(i)) {
+                        position = writeShort(code, position, operand);
+                    } else {
+                        code[position++] = (byte)operand;
+                    }
+                    break;
+                case InstructionList.KIND_IMMEDIATE_SHORT:
+                case InstructionList.KIND_BRANCH:
+                    position = writeShort(code, position, operand);
+                    break;
+                case InstructionList.KIND_WIDE_BRANCH:
+                    position = writeInt(code, position, operand);
+                    break;
+                case InstructionList.KIND_INCREMENT:
+                    if (instructions.isWide(i)) {
+                        position = writeShort(code, position, operand);
+                        position = writeShort(code, position, extraOperand);
+                    } else {
+                        code[position++] = (byte)operand;
+                        code[position++] = (byte)extraOperand;
+                    }
+                    break;
+                case InstructionList.KIND_TABLE_SWITCH:
+                case InstructionList.KIND_LOOKUP_SWITCH:
+                    // padding bytes are already zero
+                    position += InstructionList.getPadding(offset);
+                    int[] table = instructions.getSwitchTable(i);
+                    position = writeInt(code, position, operand);
+                    if (opcode == OPCODE_LOOKUPSWITCH) {
+                        position = writeInt(code, position, table.length / 2);
+                    }
+                    for (int j = 0; j < table.length; j++) {
+                        position = writeInt(code, position, table[j]);
+                    }
+                    break;
+                case InstructionList.KIND_INVOKE_INTERFACE:
+                    position = writeShort(code, position, operand);
+                    code[position++] = (byte)extraOperand;
+                    code[position++] = 0;
+                    break;
+                case InstructionList.KIND_INVOKE_DYNAMIC:
+                    position = writeShort(code, position, operand);
+                    position = writeShort(code, position, 0);
+                    break;
+                case InstructionList.KIND_MULTIANEWARRAY:
+                    position = writeShort(code, position, operand);
+                    code[position++] = (byte)extraOperand;
+                    break;
+            }
+        }
+        return code;
+    }
+    
     private static void writeNextInstruction(ByteCodeOutputStream bcos,
                                              AbstractInstruction instruction)
         throws IOException
@@ -52,5 +132,34 @@ public class ByteCodeWriter {
         instruction.write(bcos);
         
     }
+
+    private static int getSize(InstructionList instructions, int index, int offset) throws IOException {
+
+        int opcode = instructions.getOpcode(index);
+        switch (InstructionList.getKind(opcode)) {
+            case InstructionList.KIND_INVALID:
+                throw new IOException("invalid opcode 0x" + Integer.toHexString(opcode));
+            case InstructionList.KIND_TABLE_SWITCH:
+                return 1 + InstructionList.getPadding(offset) + 4 + 4 * instructions.getSwitchTable(index).length;
+            case InstructionList.KIND_LOOKUP_SWITCH:
+                return 1 + InstructionList.getPadding(offset) + 8 + 4 * instructions.getSwitchTable(index).length;
+            default:
+                return instructions.getSize(index);
+        }
+    }
+
+    private static int writeShort(byte[] code, int position, int value) {
+        code[position] = (byte)(value >>> 8);
+        code[position + 1] = (byte)value;
+        return position + 2;
+    }
+
+    private static int writeInt(byte[] code, int position, int value) {
+        code[position] = (byte)(value >>> 24);
+        code[position + 1] = (byte)(value >>> 16);
+        code[position + 2] = (byte)(value >>> 8);
+        code[position + 3] = (byte)value;
+        return position + 4;
+    }
     
 }
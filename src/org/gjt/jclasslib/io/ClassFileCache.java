@@ -0,0 +1,366 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.io;
+
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Process-wide cache of parsed class files. Entries are keyed by the canonical
+ * path of the class file or archive and the name of the archive entry, and are
+ * read again when the modification time or size of the file changes.
+ * <p>
+ * The memory of a parsed class file is estimated from the size of its bytes.
+ * The least recently used class files are evicted when the total estimated
+ * memory exceeds the budget given by the <tt>jclasslib.io.classFileCacheSize</tt>
+ * system property. Evicted class files are still held by soft references, so
+ * they can be returned without parsing until the garbage collector clears them.
+ * <p>
+ * Cached <tt>ClassFile</tt> structures are shared and must not be modified.
+ */
+public class ClassFileCache {
+
+    /**
+     * Set this JVM System property to the maximum estimated number of bytes that
+     * the strongly cached class files may occupy. The default is 64 MB.
+     */
+    public static final String SYSTEM_PROPERTY_CACHE_SIZE = "jclasslib.io.classFileCacheSize";
+
+    private static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+    // approximate ratio of the heap used by a ClassFile to the size of its bytes
+    private static final int MEMORY_PER_BYTE = 8;
+
+    private static final ClassFileCache INSTANCE = new ClassFileCache(Long.getLong(SYSTEM_PROPERTY_CACHE_SIZE, DEFAULT_CACHE_SIZE).longValue());
+
+    private final long maxSize;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private final Map<String, SoftCacheEntry> softEntries = new HashMap<String, SoftCacheEntry>();
+    private final ReferenceQueue<ClassFile> referenceQueue = new ReferenceQueue<ClassFile>();
+    private long size;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Get the shared instance.
+     *
+     * @return the instance
+     */
+    public static ClassFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize the maximum estimated number of bytes occupied by strongly cached class files
+     */
+    public ClassFileCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get a parsed class file, reading it only if it is not cached, if the file
+     * has changed since it was cached or if it was cached with different
+     * content hash options.
+     *
+     * @param file the class file or the archive that contains the class file
+     * @param entryName the name of the entry in the archive or <tt>null</tt> if
+     *                  <tt>file</tt> is a class file
+     * @param contentHashOptions the options for the content hashes, see
+     *                           <tt>ClassFile.setContentHashOptions</tt>
+     * @return the shared <tt>ClassFile</tt> structure or <tt>null</tt> if the archive
+     *         does not contain the entry
+     * @throws InvalidByteCodeException if the code is invalid
+     * @throws IOException if an exception occurs while reading the file
+     */
+    public ClassFile getClassFile(File file, String entryName, int contentHashOptions)
+        throws InvalidByteCodeException, IOException
+    {
+        String key = getKey(file, entryName);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (this) {
+            expungeSoftEntries();
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                entry = restoreSoftEntry(key);
+            }
+            if (entry != null) {
+                if (entry.lastModified == lastModified && entry.length == length &&
+                        entry.contentHashOptions == contentHashOptions)
+                {
+                    hitCount++;
+                    return entry.classFile;
+                }
+                remove(key);
+            }
+            missCount++;
+        }
+
+        byte[] bytes = (entryName == null) ? readBytes(file) : readBytes(file, entryName);
+        if (bytes == null) {
+            return null;
+        }
+        ClassFile classFile = ClassFileReader.readFromInputStream(new ByteArrayInputStream(bytes), contentHashOptions);
+        long memorySize = (long)bytes.length * MEMORY_PER_BYTE;
+        synchronized (this) {
+            remove(key);
+            if (memorySize <= maxSize) {
+                entries.put(key, new CacheEntry(classFile, lastModified, length, contentHashOptions, memorySize));
+                size += memorySize;
+                evict();
+            }
+        }
+        return classFile;
+    }
+
+    /**
+     * Remove a class file from the cache, so that it is read again by the next
+     * call to <tt>getClassFile</tt>.
+     *
+     * @param file the class file or the archive that contains the class file
+     * @param entryName the name of the entry in the archive or <tt>null</tt> if
+     *                  <tt>file</tt> is a class file
+     * @throws IOException if the canonical path of the file cannot be determined
+     */
+    public void invalidate(File file, String entryName) throws IOException {
+        String key = getKey(file, entryName);
+        synchronized (this) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Keep a class file only through a soft reference, so that the garbage
+     * collector can reclaim it when memory is needed. The class file is cached
+     * strongly again when it is requested by <tt>getClassFile</tt>.
+     *
+     * @param file the class file or the archive that contains the class file
+     * @param entryName the name of the entry in the archive or <tt>null</tt> if
+     *                  <tt>file</tt> is a class file
+     * @throws IOException if the canonical path of the file cannot be determined
+     */
+    public void demote(File file, String entryName) throws IOException {
+        String key = getKey(file, entryName);
+        synchronized (this) {
+            CacheEntry entry = entries.remove(key);
+            if (entry != null) {
+                size -= entry.memorySize;
+                softEntries.put(key, new SoftCacheEntry(key, entry, referenceQueue));
+            }
+        }
+    }
+
+    /**
+     * Remove all cached class files.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        softEntries.clear();
+        size = 0;
+    }
+
+    /**
+     * Get the estimated number of bytes currently occupied by strongly cached class files.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of requests that have been answered with a cached class file,
+     * including class files that were only held by soft references.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of requests for which a class file had to be read.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of class files that have been evicted because the memory
+     * budget was exceeded.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized String toString() {
+        return "ClassFileCache[" + entries.size() + " class files, " + size + " bytes, " +
+                softEntries.size() + " soft, " + hitCount + " hits, " + missCount + " misses, " +
+                evictionCount + " evictions]";
+    }
+
+    private static String getKey(File file, String entryName) throws IOException {
+        return file.getCanonicalPath() + (entryName == null ? "" : "!" + entryName);
+    }
+
+    private void remove(String key) {
+        CacheEntry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.memorySize;
+        }
+        softEntries.remove(key);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, CacheEntry> mapEntry = it.next();
+            CacheEntry entry = mapEntry.getValue();
+            size -= entry.memorySize;
+            it.remove();
+            softEntries.put(mapEntry.getKey(), new SoftCacheEntry(mapEntry.getKey(), entry, referenceQueue));
+            evictionCount++;
+        }
+    }
+
+    private CacheEntry restoreSoftEntry(String key) {
+        SoftCacheEntry softEntry = softEntries.remove(key);
+        if (softEntry == null) {
+            return null;
+        }
+        ClassFile classFile = softEntry.get();
+        if (classFile == null) {
+            return null;
+        }
+        CacheEntry entry = new CacheEntry(classFile, softEntry.lastModified, softEntry.length,
+                softEntry.contentHashOptions, softEntry.memorySize);
+        entries.put(key, entry);
+        size += entry.memorySize;
+        evict();
+        return entry;
+    }
+
+    private void expungeSoftEntries() {
+        SoftCacheEntry softEntry;
+        while ((softEntry = (SoftCacheEntry)referenceQueue.poll()) != null) {
+            if (softEntries.get(softEntry.key) == softEntry) {
+                softEntries.remove(softEntry.key);
+            }
+        }
+    }
+
+    private static byte[] readBytes(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return readBytes(in, file.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readBytes(File archive, String entryName) throws IOException {
+        ZipFile zipFile = new ZipFile(archive);
+        try {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null) {
+                return null;
+            }
+            InputStream in = zipFile.getInputStream(entry);
+            try {
+                return readBytes(in, entry.getSize());
+            } finally {
+                in.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static byte[] readBytes(InputStream in, long sizeHint) throws IOException {
+        byte[] bytes = new byte[(int)Math.max(1024, Math.min(sizeHint, Integer.MAX_VALUE - 8))];
+        int length = 0;
+        while (true) {
+            if (length == bytes.length) {
+                // the size hint was too small or exact
+                int nextByte = in.read();
+                if (nextByte < 0) {
+                    return bytes;
+                }
+                byte[] newBytes = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, newBytes, 0, length);
+                bytes = newBytes;
+                bytes[length++] = (byte)nextByte;
+            }
+            int count = in.read(bytes, length, bytes.length - length);
+            if (count < 0) {
+                break;
+            }
+            length += count;
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, 0, result, 0, length);
+        return result;
+    }
+
+    private static class CacheEntry {
+
+        private final ClassFile classFile;
+        private final long lastModified;
+        private final long length;
+        private final int contentHashOptions;
+        private final long memorySize;
+
+        private CacheEntry(ClassFile classFile, long lastModified, long length, int contentHashOptions, long memorySize) {
+            this.classFile = classFile;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.contentHashOptions = contentHashOptions;
+            this.memorySize = memorySize;
+        }
+    }
+
+    private static class SoftCacheEntry extends SoftReference<ClassFile> {
+
+        private final String key;
+        private final long lastModified;
+        private final long length;
+        private final int contentHashOptions;
+        private final long memorySize;
+
+        private SoftCacheEntry(String key, CacheEntry entry, ReferenceQueue<ClassFile> queue) {
+            super(entry.classFile, queue);
+            this.key = key;
+            this.lastModified = entry.lastModified;
+            this.length = entry.length;
+            this.contentHashOptions = entry.contentHashOptions;
+            this.memorySize = entry.memorySize;
+        }
+    }
+
+}
@@ -27,7 +27,8 @@ public class ClassFileReader {
 
     /**
         Looks up a class file in the specified class path and converts it 
-        to a <tt>ClassFile</tt> structure.
+        to a <tt>ClassFile</tt> structure. Use <tt>ClassFileCache</tt> to share
+        unmodified structures between callers.
         @param classPath the class path from which to read the <tt>ClassFile</tt> structure
         @param packageName the name of the package in which the class resides
         @param className the simple name of the class
@@ -38,6 +39,26 @@ public class ClassFileReader {
     public static ClassFile readFromClassPath(String[] classPath, String packageName, String className)
         throws InvalidByteCodeException, IOException
     {
+        return readFromClassPath(classPath, packageName, className, ContentHash.NONE);
+    }
+
+    /**
+        Looks up a class file in the specified class path and converts it
+        to a <tt>ClassFile</tt> structure. Use <tt>ClassFileCache</tt> to share
+        unmodified structures between callers.
+        @param classPath the class path from which to read the <tt>ClassFile</tt> structure
+        @param packageName the name of the package in which the class resides
+        @param className the simple name of the class
+        @param contentHashOptions the options for the content hashes, see
+                                  <tt>ClassFile.setContentHashOptions</tt>
+        @return the new <tt>ClassFile</tt> structure or <tt>null</tt> if it cannot be found
+        @throws InvalidByteCodeException if the code is invalid
+        @throws IOException if an exception occurs while reading the file
+     */
+    public static ClassFile readFromClassPath(String[] classPath, String packageName, String className,
+                                              int contentHashOptions)
+        throws InvalidByteCodeException, IOException
+    {
         
         String relativePath = packageName.replace('.', File.separatorChar) + (packageName.length() == 0 ? "" : File.separator) + className + ".class";
         String jarRelativePath = relativePath.replace(File.separatorChar, '/');
@@ -49,14 +70,14 @@ public class ClassFileReader {
             if (currentClassPathEntry.isDirectory()) {
                 File testFile = new File(currentClassPathEntry, relativePath);
                 if (testFile.exists()) {
-                    return readFromFile(testFile);
+                    return readFromFile(testFile, contentHashOptions);
                 }
             } else if (currentClassPathEntry.isFile()) {
                 JarFile jarFile = new JarFile(currentClassPathEntry);
                 try {
                     JarEntry jarEntry = jarFile.getJarEntry(jarRelativePath);
                     if (jarEntry != null) {
-                        return readFromInputStream(jarFile.getInputStream(jarEntry));
+                        return readFromInputStream(jarFile.getInputStream(jarEntry), contentHashOptions);
                     }
                 } finally {
                     jarFile.close();
@@ -78,7 +99,23 @@ public class ClassFileReader {
         throws InvalidByteCodeException, IOException
     {
 
-        return readFromInputStream(new FileInputStream(file));
+        return readFromFile(file, ContentHash.NONE);
+    }
+
+    /**
+        Converts a class file to a <tt>ClassFile</tt> structure.
+        @param file the file from which to read the <tt>ClassFile</tt> structure
+        @param contentHashOptions the options for the content hashes, see
+                                  <tt>ClassFile.setContentHashOptions</tt>
+        @return the new <tt>ClassFile</tt> structure
+        @throws InvalidByteCodeException if the code is invalid
+        @throws IOException if an exception occurs while reading the file
+     */
+    public static ClassFile readFromFile(File file, int contentHashOptions)
+        throws InvalidByteCodeException, IOException
+    {
+
+        return readFromInputStream(new FileInputStream(file), contentHashOptions);
     }
 
     /**
@@ -94,10 +131,29 @@ public class ClassFileReader {
         throws InvalidByteCodeException, IOException
     {
 
+        return readFromInputStream(is, ContentHash.NONE);
+    }
+
+    /**
+        Converts a class file to a <tt>ClassFile</tt> structure.
+        @param is the input stream from which to read the
+                  <tt>ClassFile</tt> structure
+        @param contentHashOptions the options for the content hashes, see
+                                  <tt>ClassFile.setContentHashOptions</tt>
+        @return the new <tt>ClassFile</tt> structure
+        @throws InvalidByteCodeException if the code is invalid
+        @throws IOException if an exception occurs while reading from
+                            the input stream
+     */
+    public static ClassFile readFromInputStream(InputStream is, int contentHashOptions)
+        throws InvalidByteCodeException, IOException
+    {
+
         DataInputStream in = new DataInputStream(
                                 new BufferedInputStream(is));
 
         ClassFile classFile = new ClassFile();
+        classFile.setContentHashOptions(contentHashOptions);
         classFile.read(in);
         in.close();
         return classFile;
@@ -0,0 +1,341 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.io;
+
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+/**
+    Read-only view of the constant pool in the raw bytes of a class file.
+    Only the tags and the offsets of the constant pool entries are decoded,
+    no <tt>ClassFile</tt> or <tt>CPInfo</tt> structures are created. This is
+    intended for scanning large numbers of class files where most of them
+    are discarded after a quick look at their constants.
+*/
+public class RawConstantPool {
+
+    private static final int MAGIC_NUMBER = 0xcafebabe;
+    private static final int CONSTANT_POOL_OFFSET = 10;
+
+    private final byte[] bytes;
+    private final byte[] tags;
+    private final int[] offsets;
+    private final int endOffset;
+
+    private RawConstantPool(byte[] bytes, byte[] tags, int[] offsets, int endOffset) {
+        this.bytes = bytes;
+        this.tags = tags;
+        this.offsets = offsets;
+        this.endOffset = endOffset;
+    }
+
+    /**
+        Index the constant pool of a class file.
+        @param bytes the bytes of the class file
+        @return the constant pool
+        @throws InvalidByteCodeException if the class file is invalid
+     */
+    public static RawConstantPool read(byte[] bytes) throws InvalidByteCodeException {
+
+        try {
+            if (readInt(bytes, 0) != MAGIC_NUMBER) {
+                throw new InvalidByteCodeException("Invalid magic number");
+            }
+            int count = readUnsignedShort(bytes, CONSTANT_POOL_OFFSET - 2);
+            byte[] tags = new byte[count];
+            int[] offsets = new int[count];
+            int offset = CONSTANT_POOL_OFFSET;
+            for (int i = 1; i < count; i++) {
+                byte tag = bytes[offset];
+                tags[i] = tag;
+                offsets[i] = offset + 1;
+                switch (tag) {
+                    case CPInfo.CONSTANT_UTF8:
+                        offset += 3 + readUnsignedShort(bytes, offset + 1);
+                        break;
+                    case CPInfo.CONSTANT_CLASS:
+                    case CPInfo.CONSTANT_STRING:
+                    case CPInfo.CONSTANT_METHOD_TYPE:
+                        offset += 3;
+                        break;
+                    case CPInfo.CONSTANT_METHOD_HANDLE:
+                        offset += 4;
+                        break;
+                    case CPInfo.CONSTANT_INTEGER:
+                    case CPInfo.CONSTANT_FLOAT:
+                    case CPInfo.CONSTANT_FIELDREF:
+                    case CPInfo.CONSTANT_METHODREF:
+                    case CPInfo.CONSTANT_INTERFACE_METHODREF:
+                    case CPInfo.CONSTANT_NAME_AND_TYPE:
+                    case CPInfo.CONSTANT_INVOKE_DYNAMIC:
+                        offset += 5;
+                        break;
+                    case CPInfo.CONSTANT_LONG:
+                    case CPInfo.CONSTANT_DOUBLE:
+                        offset += 9;
+                        // long and double constants occupy two slots
+                        i++;
+                        break;
+                    default:
+                        throw new InvalidByteCodeException("Invalid constant pool tag " + tag + " at index " + i);
+                }
+            }
+            if (offset > bytes.length) {
+                throw new InvalidByteCodeException("Truncated constant pool");
+            }
+            return new RawConstantPool(bytes, tags, offsets, offset);
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            throw new InvalidByteCodeException("Truncated constant pool");
+        }
+    }
+
+    /**
+        Get the raw bytes of the class file.
+        @return the bytes
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+        Get the constant pool count as defined in the class file. Valid
+        indices range from 1 to the count minus 1.
+        @return the count
+     */
+    public int getCount() {
+        return tags.length;
+    }
+
+    /**
+        Get the offset of the first byte after the constant pool, where
+        the access flags of the class are located.
+        @return the offset
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+        Get the tag of a constant pool entry.
+        @param index the constant pool index
+        @return the tag as defined by the <tt>CONSTANT_</tt> constants in <tt>CPInfo</tt>,
+                0 for invalid indices and the second slot of long and double constants
+     */
+    public byte getTag(int index) {
+        return (index > 0 && index < tags.length) ? tags[index] : 0;
+    }
+
+    /**
+        Get the constant pool index of the name of this class.
+        @return the index
+     */
+    public int getThisClassIndex() {
+        return readUnsignedShort(bytes, endOffset + 2);
+    }
+
+    /**
+        Get the name of this class.
+        @return the name with '/' as package separator
+        @throws InvalidByteCodeException if the constant pool is inconsistent
+     */
+    public String getThisClassName() throws InvalidByteCodeException {
+        return getClassName(getThisClassIndex());
+    }
+
+    /**
+        Get the first <tt>u2</tt> value of a constant pool entry. This is the name
+        index of a <tt>CONSTANT_Class</tt>, the string index of a <tt>CONSTANT_String</tt>,
+        the class index of a field or method reference, the name index of a
+        <tt>CONSTANT_NameAndType</tt>, the descriptor index of a <tt>CONSTANT_MethodType</tt>
+        and the bootstrap method attribute index of a <tt>CONSTANT_InvokeDynamic</tt>.
+        @param index the constant pool index
+        @return the value
+     */
+    public int getFirstIndex(int index) {
+        return readUnsignedShort(bytes, offsets[index]);
+    }
+
+    /**
+        Get the second <tt>u2</tt> value of a constant pool entry. This is the
+        name and type index of a field or method reference or of a
+        <tt>CONSTANT_InvokeDynamic</tt> and the descriptor index of a
+        <tt>CONSTANT_NameAndType</tt>.
+        @param index the constant pool index
+        @return the value
+     */
+    public int getSecondIndex(int index) {
+        return readUnsignedShort(bytes, offsets[index] + 2);
+    }
+
+    /**
+        Get the name of a <tt>CONSTANT_Class</tt> entry.
+        @param index the constant pool index
+        @return the name with '/' as package separator
+        @throws InvalidByteCodeException if the entry is not a <tt>CONSTANT_Class</tt>
+     */
+    public String getClassName(int index) throws InvalidByteCodeException {
+        checkTag(index, CPInfo.CONSTANT_CLASS);
+        return getUtf8(getFirstIndex(index));
+    }
+
+    /**
+        Get the length in bytes of a <tt>CONSTANT_Utf8</tt> entry.
+        @param index the constant pool index
+        @return the length
+     */
+    public int getUtf8Length(int index) {
+        return readUnsignedShort(bytes, offsets[index]);
+    }
+
+    /**
+        Get the offset of the first data byte of a <tt>CONSTANT_Utf8</tt> entry in the class file.
+        @param index the constant pool index
+        @return the offset
+     */
+    public int getUtf8Offset(int index) {
+        return offsets[index] + 2;
+    }
+
+    /**
+        Decode a <tt>CONSTANT_Utf8</tt> entry.
+        @param index the constant pool index
+        @return the string
+        @throws InvalidByteCodeException if the entry is not a <tt>CONSTANT_Utf8</tt>
+     */
+    public String getUtf8(int index) throws InvalidByteCodeException {
+
+        checkTag(index, CPInfo.CONSTANT_UTF8);
+        int offset = getUtf8Offset(index);
+        int end = offset + getUtf8Length(index);
+        char[] chars = new char[end - offset];
+        int length = 0;
+        while (offset < end) {
+            int c = bytes[offset++] & 0xff;
+            if (c < 0x80) {
+                chars[length++] = (char)c;
+            } else if ((c & 0xe0) == 0xc0) {
+                chars[length++] = (char)(((c & 0x1f) << 6) | (bytes[offset++] & 0x3f));
+            } else {
+                chars[length++] = (char)(((c & 0x0f) << 12) | ((bytes[offset] & 0x3f) << 6) | (bytes[offset + 1] & 0x3f));
+                offset += 2;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+        Check whether a <tt>CONSTANT_Utf8</tt> entry is equal to a pattern.
+        @param index the constant pool index
+        @param pattern the pattern encoded with {@link #encodeUtf8(String)}
+        @return the result
+     */
+    public boolean utf8Equals(int index, byte[] pattern) {
+
+        if (getTag(index) != CPInfo.CONSTANT_UTF8 || getUtf8Length(index) != pattern.length) {
+            return false;
+        }
+        int offset = getUtf8Offset(index);
+        for (int i = 0; i < pattern.length; i++) {
+            if (bytes[offset + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+        Check whether a <tt>CONSTANT_Utf8</tt> entry contains a pattern.
+        @param index the constant pool index
+        @param pattern the pattern encoded with {@link #encodeUtf8(String)}
+        @return the result
+     */
+    public boolean utf8Contains(int index, byte[] pattern) {
+
+        if (getTag(index) != CPInfo.CONSTANT_UTF8) {
+            return false;
+        }
+        int offset = getUtf8Offset(index);
+        int last = offset + getUtf8Length(index) - pattern.length;
+        if (pattern.length == 0) {
+            return true;
+        }
+        byte first = pattern[0];
+        for (int start = offset; start <= last; start++) {
+            if (bytes[start] != first) {
+                continue;
+            }
+            int i = 1;
+            while (i < pattern.length && bytes[start + i] == pattern[i]) {
+                i++;
+            }
+            if (i == pattern.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+        Encode a string in the modified UTF-8 format used by the constant pool,
+        so that it can be compared directly with <tt>CONSTANT_Utf8</tt> entries.
+        @param string the string
+        @return the encoded bytes
+     */
+    public static byte[] encodeUtf8(String string) {
+
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            length += (c >= 0x01 && c <= 0x7f) ? 1 : (c <= 0x7ff ? 2 : 3);
+        }
+        byte[] encoded = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= 0x01 && c <= 0x7f) {
+                encoded[offset++] = (byte)c;
+            } else if (c <= 0x7ff) {
+                encoded[offset++] = (byte)(0xc0 | (c >> 6));
+                encoded[offset++] = (byte)(0x80 | (c & 0x3f));
+            } else {
+                encoded[offset++] = (byte)(0xe0 | (c >> 12));
+                encoded[offset++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+                encoded[offset++] = (byte)(0x80 | (c & 0x3f));
+            }
+        }
+        return encoded;
+    }
+
+    /**
+        Read a big-endian <tt>u2</tt> value.
+        @param bytes the bytes
+        @param offset the offset
+        @return the value
+     */
+    public static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    /**
+        Read a big-endian <tt>u4</tt> value.
+        @param bytes the bytes
+        @param offset the offset
+        @return the value
+     */
+    public static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) |
+                ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    private void checkTag(int index, byte tag) throws InvalidByteCodeException {
+        if (getTag(index) != tag) {
+            throw new InvalidByteCodeException("Constant pool entry " + index + " is not of type " + tag);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.io;
+
+/**
+ * Immutable text of a source file together with an index of line start offsets.
+ * Line terminators are normalized to <tt>'\n'</tt> and the last line is always
+ * terminated, so offsets can be used directly in a Swing text document.
+ */
+public class SourceText {
+
+    private final String text;
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    SourceText(String text, int[] lineStarts, int lineCount) {
+        this.text = text;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Get the complete text.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the number of lines.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Get the offset of the first character of a line. Line numbers outside of
+     * the text are clamped to the first or the last line.
+     *
+     * @param lineNumber the line number, starting at 1 as in the
+     *                   <tt>LineNumberTable</tt> attribute
+     * @return the offset
+     */
+    public int getLineStartOffset(int lineNumber) {
+        if (lineCount == 0 || lineNumber <= 1) {
+            return 0;
+        }
+        return lineStarts[Math.min(lineNumber, lineCount) - 1];
+    }
+
+    /**
+     * Get the approximate number of bytes occupied by this text on the heap.
+     *
+     * @return the number of bytes
+     */
+    public long getSize() {
+        return 2L * text.length() + 4L * lineStarts.length;
+    }
+
+}
@@ -0,0 +1,346 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Process-wide cache of source file texts. Entries are keyed by the canonical
+ * path of the file and are reloaded when its modification time or size changes.
+ * The least recently used entries are evicted when the total size exceeds the
+ * budget given by the <tt>jclasslib.io.sourceCacheSize</tt> system property.
+ * <p>
+ * Large files are read through a memory-mapped buffer and decoded in chunks,
+ * so no intermediate copy of the raw bytes is kept on the heap. Source files
+ * in archives are given as <tt>archive!entry</tt> and are decoded directly
+ * from the compressed stream without being extracted.
+ */
+public class SourceTextCache {
+
+    /**
+     * Set this JVM System property to the maximum number of bytes that the
+     * cached source texts may occupy. The default is 32 MB.
+     */
+    public static final String SYSTEM_PROPERTY_CACHE_SIZE = "jclasslib.io.sourceCacheSize";
+
+    private static final long DEFAULT_CACHE_SIZE = 32L * 1024 * 1024;
+    private static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+    private static final int DECODE_CHUNK_SIZE = 8192;
+
+    private static final SourceTextCache INSTANCE = new SourceTextCache(Long.getLong(SYSTEM_PROPERTY_CACHE_SIZE, DEFAULT_CACHE_SIZE).longValue());
+
+    private final long maxSize;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * Get the shared instance.
+     *
+     * @return the instance
+     */
+    public static SourceTextCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize the maximum number of bytes occupied by cached texts
+     */
+    public SourceTextCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the text of a source file, reading it only if it is not cached
+     * or if the file has changed since it was cached.
+     *
+     * @param file the source file
+     * @return the text
+     * @throws IOException if an exception occurs while reading the file
+     */
+    public SourceText getSourceText(File file) throws IOException {
+        String entryName = null;
+        if (!file.exists()) {
+            String path = file.getPath();
+            int index = path.indexOf('!');
+            if (index > -1) {
+                file = new File(path.substring(0, index));
+                entryName = path.substring(index + 1);
+            }
+        }
+        String key = file.getCanonicalPath() + (entryName == null ? "" : "!" + entryName);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.lastModified == lastModified && entry.length == length) {
+                    return entry.sourceText;
+                }
+                remove(key);
+            }
+        }
+
+        SourceText sourceText = (entryName == null) ? read(file) : read(file, entryName);
+        synchronized (this) {
+            if (sourceText.getSize() <= maxSize) {
+                remove(key);
+                entries.put(key, new CacheEntry(sourceText, lastModified, length));
+                size += sourceText.getSize();
+                evict();
+            }
+        }
+        return sourceText;
+    }
+
+    /**
+     * Remove all cached texts.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Get the number of bytes currently occupied by cached texts.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private void remove(String key) {
+        CacheEntry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.sourceText.getSize();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().getValue().sourceText.getSize();
+            it.remove();
+        }
+    }
+
+    /**
+     * Read and decode a source file with the platform encoding.
+     *
+     * @param file the source file
+     * @return the text
+     * @throws IOException if an exception occurs while reading the file
+     */
+    public static SourceText read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large: " + file);
+            }
+            ByteBuffer bytes;
+            if (fileSize >= MAPPED_READ_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            } else {
+                bytes = ByteBuffer.allocate((int)fileSize);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                }
+                bytes.flip();
+            }
+            return decode(bytes, Charset.defaultCharset());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read and decode a source file in an archive with the platform encoding.
+     *
+     * @param archive the zip or jar file
+     * @param entryName the name of the entry in the archive
+     * @return the text
+     * @throws IOException if an exception occurs while reading the file
+     *                     or if there is no such entry
+     */
+    public static SourceText read(File archive, String entryName) throws IOException {
+        ZipFile zipFile = new ZipFile(archive);
+        try {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null) {
+                throw new FileNotFoundException(archive.getPath() + "!" + entryName);
+            }
+            InputStream in = zipFile.getInputStream(entry);
+            try {
+                return decode(in, Charset.defaultCharset(), entry.getSize());
+            } finally {
+                in.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Decode a stream to a source text, reading it in chunks.
+     *
+     * @param in the encoded text
+     * @param charset the encoding
+     * @param sizeHint the expected number of bytes, -1 if unknown
+     * @return the text
+     * @throws IOException if an exception occurs while reading from the stream
+     */
+    public static SourceText decode(InputStream in, Charset charset, long sizeHint) throws IOException {
+        CharsetDecoder decoder = newDecoder(charset);
+        TextBuilder builder = new TextBuilder(getInitialCapacity(decoder, sizeHint < 0 ? DECODE_CHUNK_SIZE : sizeHint));
+        ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer bytes = ByteBuffer.allocate(DECODE_CHUNK_SIZE);
+        CharBuffer chunk = CharBuffer.allocate(DECODE_CHUNK_SIZE);
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = channel.read(bytes) < 0;
+            bytes.flip();
+            decodeChunks(decoder, bytes, chunk, builder, endOfInput);
+            bytes.compact();
+        }
+        flushChunks(decoder, chunk, builder);
+        return builder.toSourceText();
+    }
+
+    /**
+     * Decode bytes to a source text, normalizing line terminators and building
+     * the line start index on the fly.
+     *
+     * @param bytes the encoded text
+     * @param charset the encoding
+     * @return the text
+     */
+    public static SourceText decode(ByteBuffer bytes, Charset charset) {
+        CharsetDecoder decoder = newDecoder(charset);
+        TextBuilder builder = new TextBuilder(getInitialCapacity(decoder, bytes.remaining()));
+        CharBuffer chunk = CharBuffer.allocate(DECODE_CHUNK_SIZE);
+        decodeChunks(decoder, bytes, chunk, builder, true);
+        flushChunks(decoder, chunk, builder);
+        return builder.toSourceText();
+    }
+
+    private static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static int getInitialCapacity(CharsetDecoder decoder, long byteCount) {
+        return (int)Math.min(Integer.MAX_VALUE - 8, Math.max(16, (long)(byteCount * decoder.averageCharsPerByte())));
+    }
+
+    private static void decodeChunks(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chunk, TextBuilder builder, boolean endOfInput) {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, chunk, endOfInput);
+            chunk.flip();
+            builder.append(chunk);
+            chunk.clear();
+        } while (result.isOverflow());
+    }
+
+    private static void flushChunks(CharsetDecoder decoder, CharBuffer chunk, TextBuilder builder) {
+        CoderResult result;
+        do {
+            result = decoder.flush(chunk);
+            chunk.flip();
+            builder.append(chunk);
+            chunk.clear();
+        } while (result.isOverflow());
+    }
+
+    private static class TextBuilder {
+
+        private char[] chars;
+        private int length;
+        private int[] lineStarts = new int[256];
+        private int lineCount;
+        private boolean afterCarriageReturn;
+
+        TextBuilder(int capacity) {
+            chars = new char[capacity];
+            lineStarts[0] = 0;
+        }
+
+        void append(CharBuffer chunk) {
+            while (chunk.hasRemaining()) {
+                char c = chunk.get();
+                if (c == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                    continue;
+                }
+                afterCarriageReturn = (c == '\r');
+                if (afterCarriageReturn) {
+                    c = '\n';
+                }
+                appendChar(c);
+            }
+        }
+
+        SourceText toSourceText() {
+            if (length > 0 && chars[length - 1] != '\n') {
+                appendChar('\n');
+            }
+            return new SourceText(new String(chars, 0, length), Arrays.copyOf(lineStarts, Math.max(1, lineCount)), lineCount);
+        }
+
+        private void appendChar(char c) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            chars[length++] = c;
+            if (c == '\n') {
+                lineCount++;
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                }
+                lineStarts[lineCount] = length;
+            }
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final SourceText sourceText;
+        private final long lastModified;
+        private final long length;
+
+        private CacheEntry(SourceText sourceText, long lastModified, long length) {
+            this.sourceText = sourceText;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+}
@@ -155,28 +155,9 @@ public class BasicMDIFrame extends JFrame {
         while (it.hasNext()) {
             MDIConfig.InternalFrameDesc internalFrameDesc = (MDIConfig.InternalFrameDesc)it.next();
 
-
-            Constructor frameConstructor;
-            try {
-                Class frameClass = Class.forName(internalFrameDesc.getClassName());
-                frameConstructor = frameClass.getConstructor(getFrameConstructorArguments(frameClass));
-            } catch (ClassNotFoundException ex) {
-                System.out.println("class not found:" + ex.getMessage());
-                continue;
-            } catch (NoSuchMethodException ex) {
-                System.out.println("constructor not found:" + ex.getMessage());
-                continue;
-            }
-
-            BasicInternalFrame frame;
-            try {
-                frame = (BasicInternalFrame)frameConstructor.newInstance(new Object[] {desktopManager, internalFrameDesc.getInitParam()});
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                Throwable cause = ex.getCause();
-                if (cause != null) {
-                    ex.printStackTrace();
-                }
+            BasicInternalFrame frame = createInternalFrame(internalFrameDesc,
+                    internalFrameDesc == config.getActiveFrameDesc());
+            if (frame == null) {
                 continue;
             }
             desktopManager.resizeFrame(
@@ -207,6 +188,40 @@ public class BasicMDIFrame extends JFrame {
         desktopManager.showAll();
     }
 
+    /**
+        Create an internal frame for a frame description read by <tt>readMDIConfig</tt>.
+        The default implementation invokes the constructor of the stored frame class
+        with the stored initialization parameter.
+        @param internalFrameDesc the frame description.
+        @param active whether the frame will be the active frame.
+        @return the frame or <tt>null</tt> if the frame could not be created.
+     */
+    protected BasicInternalFrame createInternalFrame(MDIConfig.InternalFrameDesc internalFrameDesc, boolean active) {
+
+        Constructor frameConstructor;
+        try {
+            Class frameClass = Class.forName(internalFrameDesc.getClassName());
+            frameConstructor = frameClass.getConstructor(getFrameConstructorArguments(frameClass));
+        } catch (ClassNotFoundException ex) {
+            System.out.println("class not found:" + ex.getMessage());
+            return null;
+        } catch (NoSuchMethodException ex) {
+            System.out.println("constructor not found:" + ex.getMessage());
+            return null;
+        }
+
+        try {
+            return (BasicInternalFrame)frameConstructor.newInstance(new Object[] {desktopManager, internalFrameDesc.getInitParam()});
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            Throwable cause = ex.getCause();
+            if (cause != null) {
+                ex.printStackTrace();
+            }
+            return null;
+        }
+    }
+
     /**
         Get the constructor arguments classes for the constructor of the supplied frame class.
         @param frameClass the frame class.
@@ -64,7 +64,7 @@ public abstract class AbstractStructureWithAttributes extends AbstractStructure
     protected void readAttributes(DataInput in)
         throws InvalidByteCodeException, IOException {
             
-        int attributesCount = in.readUnsignedShort();
+        int attributesCount = ContentHashInput.readHeaderShort(in);
         attributes = new AttributeInfo[attributesCount];
         
         for (int i = 0; i < attributesCount; i++) {
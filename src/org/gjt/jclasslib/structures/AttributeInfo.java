@@ -53,8 +53,8 @@ public class AttributeInfo extends AbstractStructureWithAttributes {
             in.skipBytes(2);
             in.skipBytes(in.readInt());
         } else {
-            int attributeNameIndex = in.readUnsignedShort();
-            int attributeLength = in.readInt();
+            int attributeNameIndex = ContentHashInput.readHeaderShort(in);
+            int attributeLength = ContentHashInput.readHeaderInt(in);
 
             ConstantUtf8Info cpInfoName = classFile.getConstantPoolUtf8Entry(attributeNameIndex);
             String attributeName = null;
@@ -111,14 +111,16 @@ public class AttributeInfo extends AbstractStructureWithAttributes {
                 attributeInfo = new AnnotationDefaultAttribute();
 
             } else if (BootstrapMethodsAttribute.ATTRIBUTE_NAME.equals(attributeName)) {
-                attributeInfo = new BootstrapMethodsAttribute(attributeLength);
+                attributeInfo = new BootstrapMethodsAttribute();
 
             } else {
                 attributeInfo = new AttributeInfo(attributeLength);
             }
             attributeInfo.setAttributeNameIndex(attributeNameIndex);
             attributeInfo.setClassFile(classFile);
+            int hashState = ContentHashInput.beginAttribute(in, attributeName);
             attributeInfo.read(in);
+            ContentHashInput.endAttribute(in, attributeInfo, hashState);
         }
 
         return attributeInfo;
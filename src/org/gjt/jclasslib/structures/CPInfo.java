@@ -146,6 +146,30 @@ public abstract class CPInfo extends AbstractStructure {
         return "";
     }
 
+    /**
+     * Resolve the verbose description of the content of the constant pool entry.
+     * Entries that refer to other constant pool entries override this method and
+     * return the result of <tt>getResolvedVerbose</tt> from <tt>getVerbose</tt>, so
+     * that the description is only resolved once.
+     *
+     * @return the verbose description
+     * @throws InvalidByteCodeException if the byte code is invalid
+     */
+    protected String resolveVerbose() throws InvalidByteCodeException {
+        return getVerbose();
+    }
+
+    /**
+     * Get the verbose description of the content of the constant pool entry
+     * from the resolution cache of the class file.
+     *
+     * @return the verbose description
+     * @throws InvalidByteCodeException if the byte code is invalid
+     */
+    protected String getResolvedVerbose() throws InvalidByteCodeException {
+        return classFile.getResolvedVerbose(this);
+    }
+
     /**
      * Skip a <tt>CPInfo</tt> structure in a <tt>DataInput</tt>. <p>
      *
@@ -8,11 +8,10 @@
 package org.gjt.jclasslib.structures;
 
 import org.gjt.jclasslib.io.Log;
-import org.gjt.jclasslib.structures.constants.ConstantLargeNumeric;
-import org.gjt.jclasslib.structures.constants.ConstantUtf8Info;
+import org.gjt.jclasslib.structures.constants.*;
 
 import java.io.*;
-import java.util.HashMap;
+import java.util.*;
 
 /**
  * The class file structure in which all other structures are hooked up.
@@ -37,6 +36,8 @@ public class ClassFile extends AbstractStructureWithAttributes {
     private int majorVersion;
     private CPInfo[] constantPool;
     private HashMap constantPoolEntryToIndex = new HashMap();
+    // lazily built caches may be shared by concurrent readers of an unmodified class file
+    private volatile String[] resolvedNames;
     private int accessFlags;
     private int thisClass;
     private int superClass;
@@ -44,6 +45,10 @@ public class ClassFile extends AbstractStructureWithAttributes {
     private FieldInfo[] fields;
     private MethodInfo[] methods;
     private File sourceFile;
+    private volatile MemberLookup fieldLookup;
+    private volatile MemberLookup methodLookup;
+    private int contentHashOptions = ContentHash.NONE;
+    private long contentHash;
 
     /**
      * Constructor.
@@ -130,6 +135,8 @@ public class ClassFile extends AbstractStructureWithAttributes {
      */
     public void setConstantPool(CPInfo[] constantPool) {
         this.constantPool = constantPool;
+        resolvedNames = null;
+        invalidateMemberIndices();
         for (int i = 0; i < constantPool.length; i++) {
             constantPoolEntryToIndex.put(constantPool[i], new Integer(i));
         }
@@ -145,6 +152,11 @@ public class ClassFile extends AbstractStructureWithAttributes {
     public void enlargeConstantPool(CPInfo[] enlargedConstantPool) {
         int startIndex = constantPool == null ? 0 : constantPool.length;
         this.constantPool = enlargedConstantPool;
+        if (resolvedNames != null) {
+            String[] enlargedResolvedNames = new String[enlargedConstantPool.length];
+            System.arraycopy(resolvedNames, 0, enlargedResolvedNames, 0, Math.min(startIndex, resolvedNames.length));
+            resolvedNames = enlargedResolvedNames;
+        }
         for (int i = startIndex; i < constantPool.length; i++) {
             if (constantPool[i] != null) {
                 constantPoolEntryToIndex.put(constantPool[i], new Integer(i));
@@ -160,6 +172,8 @@ public class ClassFile extends AbstractStructureWithAttributes {
      */
     public void registerConstantPoolEntry(int index) {
         constantPoolEntryToIndex.put(constantPool[index], new Integer(index));
+        invalidateResolvedName(index);
+        invalidateMemberIndices();
     }
 
     /**
@@ -170,6 +184,8 @@ public class ClassFile extends AbstractStructureWithAttributes {
      */
     public void unregisterConstantPoolEntry(int index) {
         constantPoolEntryToIndex.remove(constantPool[index]);
+        invalidateResolvedName(index);
+        invalidateMemberIndices();
     }
 
     /**
@@ -280,6 +296,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
      */
     public void setFields(FieldInfo[] fields) {
         this.fields = fields;
+        fieldLookup = null;
     }
 
     /**
@@ -298,6 +315,37 @@ public class ClassFile extends AbstractStructureWithAttributes {
      */
     public void setMethods(MethodInfo[] methods) {
         this.methods = methods;
+        methodLookup = null;
+    }
+
+    /**
+     * Set the options for the content hashes that are computed when this class file
+     * is read. By default, no content hashes are computed.
+     *
+     * @param contentHashOptions <tt>ContentHash.NONE</tt> or a combination of the other
+     *                           constants in <tt>ContentHash</tt>
+     */
+    public void setContentHashOptions(int contentHashOptions) {
+        this.contentHashOptions = contentHashOptions;
+    }
+
+    /**
+     * Get the options for the content hashes of this class file.
+     *
+     * @return the options
+     */
+    public int getContentHashOptions() {
+        return contentHashOptions;
+    }
+
+    /**
+     * Get the structural hash of this class file that has been computed while it was read.
+     * Class files with equal hashes for the same options can be treated as unchanged.
+     *
+     * @return the hash, 0 if the class file has been read without content hash options
+     */
+    public long getContentHash() {
+        return contentHash;
     }
 
     /**
@@ -363,7 +411,9 @@ public class ClassFile extends AbstractStructureWithAttributes {
 
     /**
      * Get an approximate verbose description of the content of the constant pool entry
-     * at the specified index.
+     * at the specified index. Descriptions are resolved once and cached until the entry
+     * or an entry it refers to is changed with <tt>registerConstantPoolEntry</tt>,
+     * <tt>unregisterConstantPoolEntry</tt> or <tt>setConstantPool</tt>.
      *
      * @param index the index
      * @return the description
@@ -379,8 +429,37 @@ public class ClassFile extends AbstractStructureWithAttributes {
         CPInfo cpInfo = constantPool[index];
         if (cpInfo == null) {
             return "invalid constant pool index";
+        }
+
+        // concurrent readers at worst resolve the same name twice
+        String[] names = resolvedNames;
+        if (names == null || names.length != constantPool.length) {
+            names = new String[constantPool.length];
+            resolvedNames = names;
+        }
+        String name = names[index];
+        if (name == null) {
+            name = cpInfo.resolveVerbose();
+            names[index] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Get the cached verbose description of a constant pool entry. Entries that are not
+     * registered in the constant pool of this class file are resolved directly.
+     *
+     * @param cpInfo the constant pool entry
+     * @return the description
+     * @throws InvalidByteCodeException if the entry is invalid
+     */
+    String getResolvedVerbose(CPInfo cpInfo) throws InvalidByteCodeException {
+
+        int index = getConstantPoolIndex(cpInfo);
+        if (index > 0 && constantPool[index] == cpInfo) {
+            return getConstantPoolEntryName(index);
         } else {
-            return cpInfo.getVerbose();
+            return cpInfo.resolveVerbose();
         }
     }
 
@@ -393,14 +472,19 @@ public class ClassFile extends AbstractStructureWithAttributes {
      * @throws InvalidByteCodeException
      */
     public int getFieldIndex(String name, String descriptor) throws InvalidByteCodeException {
+        return getFieldLookup().getIndex(name, descriptor);
+    }
 
-        for (int i = 0; i < fields.length; i++) {
-            FieldInfo field = fields[i];
-            if (field.getName().equals(name) && field.getDescriptor().equals(descriptor)) {
-                return i;
-            }
-        }
-        return -1;
+    /**
+     * Get the index of the first field with a given name.
+     *
+     * @param name the field name.
+     * @return the index or <tt>-1</tt> if not found.
+     * @throws InvalidByteCodeException
+     */
+    public int getFieldIndex(String name) throws InvalidByteCodeException {
+        int[] indices = getFieldLookup().getIndices(name);
+        return indices.length == 0 ? -1 : indices[0];
     }
 
     /**
@@ -421,6 +505,23 @@ public class ClassFile extends AbstractStructureWithAttributes {
         }
     }
 
+    /**
+     * Get the <tt>FieldInfo</tt> of the first field with a given name.
+     *
+     * @param name the field name.
+     * @return the <tt>FieldInfo</tt> or <tt>null</tt> if not found.
+     * @throws InvalidByteCodeException
+     */
+    public FieldInfo getField(String name) throws InvalidByteCodeException {
+
+        int index = getFieldIndex(name);
+        if (index < 0) {
+            return null;
+        } else {
+            return fields[index];
+        }
+    }
+
     /**
      * Get the index of a method for given method name and signature.
      *
@@ -430,14 +531,18 @@ public class ClassFile extends AbstractStructureWithAttributes {
      * @throws InvalidByteCodeException
      */
     public int getMethodIndex(String name, String descriptor) throws InvalidByteCodeException {
+        return getMethodLookup().getIndex(name, descriptor);
+    }
 
-        for (int i = 0; i < methods.length; i++) {
-            MethodInfo method = methods[i];
-            if (method.getName().equals(name) && method.getDescriptor().equals(descriptor)) {
-                return i;
-            }
-        }
-        return -1;
+    /**
+     * Get the indices of all methods with a given name.
+     *
+     * @param name the method name.
+     * @return the indices in ascending order, an empty array if not found.
+     * @throws InvalidByteCodeException
+     */
+    public int[] getMethodIndices(String name) throws InvalidByteCodeException {
+        return getMethodLookup().getIndices(name).clone();
     }
 
     /**
@@ -458,9 +563,57 @@ public class ClassFile extends AbstractStructureWithAttributes {
         }
     }
 
+    /**
+     * Get the <tt>MethodInfo</tt> structures of all methods with a given name.
+     *
+     * @param name the method name.
+     * @return the methods in class file order, an empty array if not found.
+     * @throws InvalidByteCodeException
+     */
+    public MethodInfo[] getMethods(String name) throws InvalidByteCodeException {
+
+        int[] indices = getMethodLookup().getIndices(name);
+        MethodInfo[] namedMethods = new MethodInfo[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            namedMethods[i] = methods[indices[i]];
+        }
+        return namedMethods;
+    }
+
+    /**
+     * Discard the name and descriptor lookup tables of fields and methods.
+     * Called when a class member or the constant pool is modified.
+     */
+    void invalidateMemberIndices() {
+        fieldLookup = null;
+        methodLookup = null;
+    }
+
+    private MemberLookup getFieldLookup() throws InvalidByteCodeException {
+        MemberLookup lookup = fieldLookup;
+        if (lookup == null) {
+            lookup = new MemberLookup(fields);
+            fieldLookup = lookup;
+        }
+        return lookup;
+    }
+
+    private MemberLookup getMethodLookup() throws InvalidByteCodeException {
+        MemberLookup lookup = methodLookup;
+        if (lookup == null) {
+            lookup = new MemberLookup(methods);
+            methodLookup = lookup;
+        }
+        return lookup;
+    }
+
     public void read(DataInput in)
             throws InvalidByteCodeException, IOException {
 
+        if (contentHashOptions != ContentHash.NONE) {
+            in = new ContentHashInput(in, this, contentHashOptions);
+        }
+        ContentHashInput.beginScope(in);
         readMagicNumber(in);
         readVersion(in);
         readConstantPool(in);
@@ -471,6 +624,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
         readFields(in);
         readMethods(in);
         readAttributes(in);
+        contentHash = ContentHashInput.endScope(in);
     }
 
     public void write(DataOutput in)
@@ -540,10 +694,63 @@ public class ClassFile extends AbstractStructureWithAttributes {
         checkMajorVersion(majorVersion);
     }
 
+    private void invalidateResolvedName(int index) {
+
+        String[] names = resolvedNames;
+        if (names == null || index >= names.length) {
+            return;
+        }
+
+        // clear the entry and all entries that refer to it directly or indirectly
+        boolean[] invalid = new boolean[names.length];
+        invalid[index] = true;
+        names[index] = null;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < names.length; i++) {
+                if (!invalid[i] && refersToInvalidEntry(constantPool[i], invalid)) {
+                    invalid[i] = true;
+                    names[i] = null;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private static boolean refersToInvalidEntry(CPInfo cpInfo, boolean[] invalid) {
+
+        if (cpInfo instanceof ConstantReference) {
+            ConstantReference reference = (ConstantReference)cpInfo;
+            return isInvalid(reference.getClassIndex(), invalid) ||
+                   isInvalid(reference.getNameAndTypeIndex(), invalid);
+        } else if (cpInfo instanceof ConstantNameAndTypeInfo) {
+            ConstantNameAndTypeInfo nameAndType = (ConstantNameAndTypeInfo)cpInfo;
+            return isInvalid(nameAndType.getNameIndex(), invalid) ||
+                   isInvalid(nameAndType.getDescriptorIndex(), invalid);
+        } else if (cpInfo instanceof ConstantClassInfo) {
+            return isInvalid(((ConstantClassInfo)cpInfo).getNameIndex(), invalid);
+        } else if (cpInfo instanceof ConstantStringInfo) {
+            return isInvalid(((ConstantStringInfo)cpInfo).getStringIndex(), invalid);
+        } else if (cpInfo instanceof ConstantMethodHandleInfo) {
+            return isInvalid(((ConstantMethodHandleInfo)cpInfo).getReferenceIndex(), invalid);
+        } else if (cpInfo instanceof ConstantInvokeDynamicInfo) {
+            return isInvalid(((ConstantInvokeDynamicInfo)cpInfo).getNameAndTypeIndex(), invalid);
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean isInvalid(int index, boolean[] invalid) {
+        return index >= 0 && index < invalid.length && invalid[index];
+    }
+
     private void readConstantPool(DataInput in)
             throws InvalidByteCodeException, IOException {
 
         constantPoolEntryToIndex.clear();
+        resolvedNames = null;
+        ContentHashInput.beginConstantPool(in);
         int constantPoolCount = in.readUnsignedShort();
         if (debug) debug("read constant pool count " + constantPoolCount);
 
@@ -568,6 +775,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
                 }
             }
         }
+        ContentHashInput.endConstantPool(in);
     }
 
     private void writeConstantPool(DataOutput out)
@@ -611,7 +819,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
 
     private void readThisClass(DataInput in) throws IOException {
 
-        thisClass = in.readUnsignedShort();
+        thisClass = ContentHashInput.readConstantPoolIndex(in);
         if (debug) debug("read this_class index " + thisClass);
     }
 
@@ -623,7 +831,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
 
     private void readSuperClass(DataInput in) throws IOException {
 
-        superClass = in.readUnsignedShort();
+        superClass = ContentHashInput.readConstantPoolIndex(in);
         if (debug) debug("read super_class index " + superClass);
     }
 
@@ -641,7 +849,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
         interfaces = new int[interfacesCount];
 
         for (int i = 0; i < interfacesCount; i++) {
-            interfaces[i] = in.readUnsignedShort();
+            interfaces[i] = ContentHashInput.readConstantPoolIndex(in);
             if (debug) debug("read interface index " + interfaces[i]);
         }
 
@@ -668,6 +876,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
         if (debug) debug("read fields count " + fieldsCount);
 
         fields = new FieldInfo[fieldsCount];
+        fieldLookup = null;
 
         for (int i = 0; i < fieldsCount; i++) {
             fields[i] = FieldInfo.create(in, this);
@@ -699,6 +908,7 @@ public class ClassFile extends AbstractStructureWithAttributes {
         if (debug) debug("read methods count " + methodsCount);
 
         methods = new MethodInfo[methodsCount];
+        methodLookup = null;
 
         for (int i = 0; i < methodsCount; i++) {
             methods[i] = MethodInfo.create(in, this);
@@ -748,4 +958,58 @@ public class ClassFile extends AbstractStructureWithAttributes {
     protected String printAccessFlagsVerbose(int accessFlags) {
         return printAccessFlagsVerbose(AccessFlags.CLASS_ACCESS_FLAGS, AccessFlags.CLASS_ACCESS_FLAGS_VERBOSE, accessFlags);
     }
+
+    // lookup tables for class members, built on first use
+    private static class MemberLookup {
+
+        private static final int[] NO_INDICES = new int[0];
+
+        // names cannot contain ';', so the key is unique
+        private final HashMap signatureToIndex = new HashMap();
+        private final HashMap nameToIndices = new HashMap();
+
+        MemberLookup(ClassMember[] members) throws InvalidByteCodeException {
+
+            if (members == null) {
+                return;
+            }
+            HashMap nameToIndexList = new HashMap();
+            for (int i = 0; i < members.length; i++) {
+                String name = members[i].getName();
+                String key = name + ";" + members[i].getDescriptor();
+                // duplicate members are invalid, the first one wins as in a linear search
+                if (!signatureToIndex.containsKey(key)) {
+                    signatureToIndex.put(key, new Integer(i));
+                }
+                List indexList = (List)nameToIndexList.get(name);
+                if (indexList == null) {
+                    indexList = new ArrayList(1);
+                    nameToIndexList.put(name, indexList);
+                }
+                indexList.add(new Integer(i));
+            }
+
+            Iterator it = nameToIndexList.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry entry = (Map.Entry)it.next();
+                List indexList = (List)entry.getValue();
+                int[] indices = new int[indexList.size()];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = ((Integer)indexList.get(i)).intValue();
+                }
+                nameToIndices.put(entry.getKey(), indices);
+            }
+        }
+
+        int getIndex(String name, String descriptor) {
+            Integer index = (Integer)signatureToIndex.get(name + ";" + descriptor);
+            return index == null ? -1 : index.intValue();
+        }
+
+        int[] getIndices(String name) {
+            int[] indices = (int[])nameToIndices.get(name);
+            return indices == null ? NO_INDICES : indices;
+        }
+    }
+
 }
@@ -27,6 +27,8 @@ public abstract class ClassMember extends AbstractStructureWithAttributes
     /** the constant pool index of the descriptor of this class member. */
     protected int descriptorIndex;
 
+    private long contentHash;
+
     /**
         Get the access flags of this class member.
         @return the access flags
@@ -43,6 +45,15 @@ public abstract class ClassMember extends AbstractStructureWithAttributes
         this.accessFlags = accessFlags;
     }
 
+    /**
+        Get the structural hash of this class member that has been computed while
+        it was read, see <tt>ClassFile.setContentHashOptions</tt>.
+        @return the hash, 0 if the class file has been read without content hash options
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
     /**
         Get the constant pool index of the name of this class member.
         @return the index
@@ -57,6 +68,9 @@ public abstract class ClassMember extends AbstractStructureWithAttributes
      */
     public void setNameIndex(int nameIndex) {
         this.nameIndex = nameIndex;
+        if (classFile != null) {
+            classFile.invalidateMemberIndices();
+        }
     }
 
     /**
@@ -73,6 +87,9 @@ public abstract class ClassMember extends AbstractStructureWithAttributes
      */
     public void setDescriptorIndex(int descriptorIndex) {
         this.descriptorIndex = descriptorIndex;
+        if (classFile != null) {
+            classFile.invalidateMemberIndices();
+        }
     }
 
     /**
@@ -122,11 +139,13 @@ public abstract class ClassMember extends AbstractStructureWithAttributes
     public void read(DataInput in)
         throws InvalidByteCodeException, IOException {
 
+        ContentHashInput.beginScope(in);
         accessFlags = in.readUnsignedShort();
-        nameIndex = in.readUnsignedShort();
-        descriptorIndex = in.readUnsignedShort();
+        nameIndex = ContentHashInput.readConstantPoolIndex(in);
+        descriptorIndex = ContentHashInput.readConstantPoolIndex(in);
 
         readAttributes(in);
+        contentHash = ContentHashInput.endScope(in);
 
     }
 
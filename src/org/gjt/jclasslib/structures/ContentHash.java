@@ -0,0 +1,117 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.structures;
+
+/**
+    Options and helpers for the structural content hashes of <tt>ClassFile</tt>,
+    <tt>ClassMember</tt> and <tt>CodeAttribute</tt> structures. The hashes are
+    64 bit FNV-1a hashes that are computed while a class file is read if the
+    <tt>ClassFileReader</tt> is passed content hash options.
+    <p>
+    With <tt>DEFAULT</tt> options, the content hash of a class file is the hash of its
+    bytes as returned by <tt>hash(byte[])</tt>, and the content hash of a member or a
+    <tt>Code</tt> attribute is the hash of the bytes of that structure.
+*/
+public class ContentHash {
+
+    /** Do not compute content hashes. */
+    public static final int NONE = -1;
+
+    /** Hash all bytes of a structure. */
+    public static final int DEFAULT = 0;
+
+    /**
+        Do not hash the <tt>SourceFile</tt>, <tt>SourceDebugExtension</tt>,
+        <tt>LineNumberTable</tt>, <tt>LocalVariableTable</tt> and
+        <tt>LocalVariableTypeTable</tt> attributes. Unless constant pool ordering is
+        ignored as well, the hash of a class file still includes the constant pool with
+        the strings referenced by these attributes.
+     */
+    public static final int IGNORE_DEBUG_INFO = 1;
+
+    /**
+        Do not hash the constant pool itself. Constant pool references are hashed
+        by the contents of the referenced entries, so that unused entries and the
+        order of the entries do not matter. This covers all references that are
+        parsed by jclasslib, the instructions of the code and the <tt>StackMapTable</tt>,
+        <tt>NestHost</tt>, <tt>NestMembers</tt>, <tt>PermittedSubclasses</tt> and
+        <tt>MethodParameters</tt> attributes. Other attributes that jclasslib does not
+        parse are hashed by their bytes.
+     */
+    public static final int IGNORE_CONSTANT_POOL_ORDER = 2;
+
+    static final long INITIAL_VALUE = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private static final String[] DEBUG_ATTRIBUTE_NAMES = {
+        "SourceFile",
+        "SourceDebugExtension",
+        "LineNumberTable",
+        "LocalVariableTable",
+        "LocalVariableTypeTable"
+    };
+
+    private ContentHash() {
+    }
+
+    /**
+        Calculate the hash of a byte array. This is the content hash of a class file
+        with the given bytes that is read with <tt>DEFAULT</tt> options.
+        @param bytes the bytes.
+        @return the hash
+     */
+    public static long hash(byte[] bytes) {
+        return update(INITIAL_VALUE, bytes, 0, bytes.length);
+    }
+
+    /**
+        Check whether an attribute is excluded from the hash by <tt>IGNORE_DEBUG_INFO</tt>.
+        @param attributeName the name of the attribute.
+        @return excluded or not
+     */
+    public static boolean isDebugAttribute(String attributeName) {
+        for (int i = 0; i < DEBUG_ATTRIBUTE_NAMES.length; i++) {
+            if (DEBUG_ATTRIBUTE_NAMES[i].equals(attributeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long update(long hash, int b) {
+        return (hash ^ (b & 0xff)) * PRIME;
+    }
+
+    static long update(long hash, byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ (bytes[i] & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+
+    static long updateShort(long hash, int value) {
+        return update(update(hash, value >>> 8), value);
+    }
+
+    static long updateInt(long hash, int value) {
+        return updateShort(updateShort(hash, value >>> 16), value);
+    }
+
+    static long updateLong(long hash, long value) {
+        return updateInt(updateInt(hash, (int)(value >>> 32)), (int)value);
+    }
+
+    static long updateString(long hash, String string) {
+        hash = updateInt(hash, string.length());
+        for (int i = 0; i < string.length(); i++) {
+            hash = updateShort(hash, string.charAt(i));
+        }
+        return hash;
+    }
+
+}
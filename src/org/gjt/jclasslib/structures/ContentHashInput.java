@@ -0,0 +1,586 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.structures;
+
+import org.gjt.jclasslib.bytecode.InstructionList;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.io.ByteCodeReader;
+import org.gjt.jclasslib.structures.constants.*;
+
+import java.io.*;
+
+/**
+    <tt>DataInput</tt> that computes the content hashes of the structures of a
+    class file while it is read. Every byte that is read is added to the hashes of
+    all structures that are currently being read, so no second pass over the data
+    is required.
+    <p>
+    Structures call the static methods of this class with the <tt>DataInput</tt> they
+    are reading from. These methods fall back to plain reads if the input is not a
+    <tt>ContentHashInput</tt>.
+*/
+public class ContentHashInput implements DataInput, Opcodes {
+
+    private static final int ATTRIBUTE_HASHED = 0;
+    private static final int ATTRIBUTE_EXCLUDED = 1;
+    private static final int ATTRIBUTE_STACK_MAP_TABLE = 2;
+    private static final int ATTRIBUTE_CLASS = 3;
+    private static final int ATTRIBUTE_CLASS_LIST = 4;
+    private static final int ATTRIBUTE_METHOD_PARAMETERS = 5;
+
+    private static final int ITEM_OBJECT = 7;
+    private static final int ITEM_UNINITIALIZED = 8;
+
+    private static final byte STATE_IN_PROGRESS = 1;
+    private static final byte STATE_DONE = 2;
+
+    private final DataInput in;
+    private final ClassFile classFile;
+    private final int options;
+
+    private long[] scopes = new long[4];
+    private int depth;
+    private int suspended;
+
+    private long[] constantHashes;
+    private byte[] constantStates;
+
+    /**
+        Constructor.
+        @param in the <tt>DataInput</tt> from which to read.
+        @param classFile the class file that is read.
+        @param options the options, a combination of the constants in <tt>ContentHash</tt>.
+     */
+    ContentHashInput(DataInput in, ClassFile classFile, int options) {
+        this.in = in;
+        this.classFile = classFile;
+        this.options = options;
+    }
+
+    /**
+        Start the hash of a structure.
+        @param in the <tt>DataInput</tt> from which the structure is read.
+     */
+    public static void beginScope(DataInput in) {
+        if (in instanceof ContentHashInput) {
+            ContentHashInput hashInput = (ContentHashInput)in;
+            if (hashInput.depth == hashInput.scopes.length) {
+                long[] newScopes = new long[hashInput.depth * 2];
+                System.arraycopy(hashInput.scopes, 0, newScopes, 0, hashInput.depth);
+                hashInput.scopes = newScopes;
+            }
+            hashInput.scopes[hashInput.depth++] = ContentHash.INITIAL_VALUE;
+        }
+    }
+
+    /**
+        Finish the hash of a structure that has been started with <tt>beginScope</tt>.
+        @param in the <tt>DataInput</tt> from which the structure has been read.
+        @return the hash or 0 if no hashes are computed
+     */
+    public static long endScope(DataInput in) {
+        if (in instanceof ContentHashInput) {
+            ContentHashInput hashInput = (ContentHashInput)in;
+            return hashInput.scopes[--hashInput.depth];
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+        Read a constant pool index. If constant pool ordering is ignored, the contents
+        of the referenced entry are hashed instead of the index.
+        @param in the <tt>DataInput</tt> from which to read.
+        @return the index
+        @throws IOException if an exception occurs with the <tt>DataInput</tt>
+     */
+    public static int readConstantPoolIndex(DataInput in) throws IOException {
+        if (isIgnored(in, ContentHash.IGNORE_CONSTANT_POOL_ORDER)) {
+            ContentHashInput hashInput = (ContentHashInput)in;
+            int index = hashInput.readUnhashedShort();
+            hashInput.updateLong(hashInput.getConstantHash(index));
+            return index;
+        } else {
+            return in.readUnsignedShort();
+        }
+    }
+
+    /**
+        Read an unsigned short that is only hashed with <tt>DEFAULT</tt> options, such
+        as a count of attributes that may include debug attributes.
+        @param in the <tt>DataInput</tt> from which to read.
+        @return the value
+        @throws IOException if an exception occurs with the <tt>DataInput</tt>
+     */
+    public static int readHeaderShort(DataInput in) throws IOException {
+        if (in instanceof ContentHashInput && ((ContentHashInput)in).options != ContentHash.DEFAULT) {
+            return ((ContentHashInput)in).readUnhashedShort();
+        } else {
+            return in.readUnsignedShort();
+        }
+    }
+
+    /**
+        Read an int that is only hashed with <tt>DEFAULT</tt> options, such as the
+        length of an attribute.
+        @param in the <tt>DataInput</tt> from which to read.
+        @return the value
+        @throws IOException if an exception occurs with the <tt>DataInput</tt>
+     */
+    public static int readHeaderInt(DataInput in) throws IOException {
+        if (in instanceof ContentHashInput && ((ContentHashInput)in).options != ContentHash.DEFAULT) {
+            ContentHashInput hashInput = (ContentHashInput)in;
+            hashInput.suspended++;
+            try {
+                return hashInput.readInt();
+            } finally {
+                hashInput.suspended--;
+            }
+        } else {
+            return in.readInt();
+        }
+    }
+
+    /**
+        Must be called before the constant pool of a class file is read.
+        @param in the <tt>DataInput</tt> from which the constant pool is read.
+     */
+    public static void beginConstantPool(DataInput in) {
+        if (isIgnored(in, ContentHash.IGNORE_CONSTANT_POOL_ORDER)) {
+            ((ContentHashInput)in).suspended++;
+        }
+    }
+
+    /**
+        Must be called after the constant pool of a class file has been read.
+        @param in the <tt>DataInput</tt> from which the constant pool has been read.
+     */
+    public static void endConstantPool(DataInput in) {
+        if (in instanceof ContentHashInput) {
+            ContentHashInput hashInput = (ContentHashInput)in;
+            hashInput.constantHashes = null;
+            hashInput.constantStates = null;
+            if ((hashInput.options & ContentHash.IGNORE_CONSTANT_POOL_ORDER) != 0) {
+                hashInput.suspended--;
+            }
+        }
+    }
+
+    /**
+        Read the code of a <tt>Code</tt> attribute. If constant pool ordering is
+        ignored, the constant pool references of the instructions are hashed
+        by the contents of the referenced entries.
+        @param in the <tt>DataInput</tt> from which to read.
+        @param code the array for the code.
+        @throws IOException if an exception occurs with the <tt>DataInput</tt>
+     */
+    public static void readCode(DataInput in, byte[] code) throws IOException {
+        if (isIgnored(in, ContentHash.IGNORE_CONSTANT_POOL_ORDER)) {
+            ContentHashInput hashInput = (ContentHashInput)in;
+            hashInput.suspended++;
+            try {
+                hashInput.readFully(code);
+            } finally {
+                hashInput.suspended--;
+            }
+            hashInput.updateCode(code);
+        } else {
+            in.readFully(code);
+        }
+    }
+
+    /**
+        Must be called after the header of an attribute has been read with
+        <tt>readHeaderShort</tt> and <tt>readHeaderInt</tt> and before the contents of the
+        attribute are read. Unless <tt>DEFAULT</tt> options are used, an attribute is
+        hashed by its name and its contents but not by its length, which changes
+        with excluded debug attributes.
+        @param in the <tt>DataInput</tt> from which the attribute is read.
+        @param attributeName the name of the attribute.
+        @return the state that must be passed to <tt>endAttribute</tt>
+     */
+    public static int beginAttribute(DataInput in, String attributeName) {
+
+        if (!(in instanceof ContentHashInput)) {
+            return ATTRIBUTE_HASHED;
+        }
+        ContentHashInput hashInput = (ContentHashInput)in;
+        if (hashInput.options == ContentHash.DEFAULT) {
+            // the header has been hashed as it is
+            return ATTRIBUTE_HASHED;
+        }
+        if ((hashInput.options & ContentHash.IGNORE_DEBUG_INFO) != 0 && ContentHash.isDebugAttribute(attributeName)) {
+            hashInput.suspended++;
+            return ATTRIBUTE_EXCLUDED;
+        }
+        hashInput.updateString(attributeName);
+        int state = ATTRIBUTE_HASHED;
+        if ((hashInput.options & ContentHash.IGNORE_CONSTANT_POOL_ORDER) != 0) {
+            state = getRawAttributeState(attributeName);
+        }
+        if (state != ATTRIBUTE_HASHED) {
+            // hashed in a canonical form by endAttribute
+            hashInput.suspended++;
+        }
+        return state;
+    }
+
+    /**
+        Must be called after the contents of an attribute have been read.
+        @param in the <tt>DataInput</tt> from which the attribute has been read.
+        @param attributeInfo the attribute.
+        @param state the state returned by <tt>beginAttribute</tt>.
+     */
+    public static void endAttribute(DataInput in, AttributeInfo attributeInfo, int state) {
+
+        if (state == ATTRIBUTE_HASHED) {
+            return;
+        }
+        ContentHashInput hashInput = (ContentHashInput)in;
+        hashInput.suspended--;
+        if (state != ATTRIBUTE_EXCLUDED) {
+            hashInput.updateRawAttribute(attributeInfo.getInfo(), state);
+        }
+    }
+
+    // attributes that are not parsed by jclasslib but contain constant pool indices
+    private static int getRawAttributeState(String attributeName) {
+        if (attributeName.equals("StackMapTable")) {
+            return ATTRIBUTE_STACK_MAP_TABLE;
+        } else if (attributeName.equals("NestHost")) {
+            return ATTRIBUTE_CLASS;
+        } else if (attributeName.equals("NestMembers") || attributeName.equals("PermittedSubclasses")) {
+            return ATTRIBUTE_CLASS_LIST;
+        } else if (attributeName.equals("MethodParameters")) {
+            return ATTRIBUTE_METHOD_PARAMETERS;
+        } else {
+            return ATTRIBUTE_HASHED;
+        }
+    }
+
+    private static boolean isIgnored(DataInput in, int option) {
+        return in instanceof ContentHashInput && (((ContentHashInput)in).options & option) != 0;
+    }
+
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        in.readFully(b, off, len);
+        updateBytes(b, off, len);
+    }
+
+    public int skipBytes(int n) throws IOException {
+        // skipped bytes are hashed as well
+        readFully(new byte[n]);
+        return n;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readUnsignedByte() != 0;
+    }
+
+    public byte readByte() throws IOException {
+        byte value = in.readByte();
+        update(value);
+        return value;
+    }
+
+    public int readUnsignedByte() throws IOException {
+        int value = in.readUnsignedByte();
+        update(value);
+        return value;
+    }
+
+    public short readShort() throws IOException {
+        short value = in.readShort();
+        updateShort(value);
+        return value;
+    }
+
+    public int readUnsignedShort() throws IOException {
+        int value = in.readUnsignedShort();
+        updateShort(value);
+        return value;
+    }
+
+    public char readChar() throws IOException {
+        char value = in.readChar();
+        updateShort(value);
+        return value;
+    }
+
+    public int readInt() throws IOException {
+        int value = in.readInt();
+        updateInt(value);
+        return value;
+    }
+
+    public long readLong() throws IOException {
+        long value = in.readLong();
+        updateLong(value);
+        return value;
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public String readLine() throws IOException {
+        String line = in.readLine();
+        if (line != null) {
+            updateString(line);
+        }
+        return line;
+    }
+
+    public String readUTF() throws IOException {
+        // reads the length and the bytes from this input so that they are hashed
+        return DataInputStream.readUTF(this);
+    }
+
+    private int readUnhashedShort() throws IOException {
+        suspended++;
+        try {
+            return readUnsignedShort();
+        } finally {
+            suspended--;
+        }
+    }
+
+    private void update(int b) {
+        if (suspended == 0) {
+            for (int i = 0; i < depth; i++) {
+                scopes[i] = ContentHash.update(scopes[i], b);
+            }
+        }
+    }
+
+    private void updateBytes(byte[] bytes, int offset, int length) {
+        if (suspended == 0) {
+            for (int i = 0; i < depth; i++) {
+                scopes[i] = ContentHash.update(scopes[i], bytes, offset, length);
+            }
+        }
+    }
+
+    private void updateShort(int value) {
+        update(value >>> 8);
+        update(value);
+    }
+
+    private void updateInt(int value) {
+        updateShort(value >>> 16);
+        updateShort(value);
+    }
+
+    private void updateLong(long value) {
+        updateInt((int)(value >>> 32));
+        updateInt((int)value);
+    }
+
+    private void updateString(String string) {
+        if (suspended == 0) {
+            for (int i = 0; i < depth; i++) {
+                scopes[i] = ContentHash.updateString(scopes[i], string);
+            }
+        }
+    }
+
+    private void updateCode(byte[] code) {
+
+        InstructionList instructions;
+        try {
+            instructions = ByteCodeReader.readInstructionList(code);
+        } catch (IOException ex) {
+            updateBytes(code, 0, code.length);
+            return;
+        }
+
+        for (int i = 0; i < instructions.size(); i++) {
+            int opcode = instructions.getOpcode(i);
+            int operand = instructions.getOperand(i);
+            update(opcode);
+            switch (InstructionList.getKind(opcode)) {
+                case InstructionList.KIND_IMMEDIATE_BYTE:
+                    if (opcode == OPCODE_LDC) {
+                        updateLong(getConstantHash(operand));
+                    } else {
+                        updateShort(operand);
+                    }
+                    break;
+                case InstructionList.KIND_IMMEDIATE_SHORT:
+                    if (opcode == OPCODE_SIPUSH) {
+                        updateShort(operand);
+                    } else {
+                        updateLong(getConstantHash(operand));
+                    }
+                    break;
+                case InstructionList.KIND_INVOKE_INTERFACE:
+                case InstructionList.KIND_INVOKE_DYNAMIC:
+                case InstructionList.KIND_MULTIANEWARRAY:
+                    updateLong(getConstantHash(operand));
+                    update(instructions.getExtraOperand(i));
+                    break;
+                case InstructionList.KIND_TABLE_SWITCH:
+                case InstructionList.KIND_LOOKUP_SWITCH:
+                    updateInt(operand);
+                    int[] table = instructions.getSwitchTable(i);
+                    updateInt(table.length);
+                    for (int j = 0; j < table.length; j++) {
+                        updateInt(table[j]);
+                    }
+                    break;
+                case InstructionList.KIND_SIMPLE:
+                    break;
+                default:
+                    updateInt(operand);
+                    updateInt(instructions.getExtraOperand(i));
+            }
+        }
+    }
+
+    private void updateRawAttribute(byte[] info, int state) {
+
+        // constant pool indices are replaced by the hashes of the referenced entries
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(info.length * 2);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            DataInputStream attributeIn = new DataInputStream(new ByteArrayInputStream(info));
+            if (state == ATTRIBUTE_STACK_MAP_TABLE) {
+                int numberOfEntries = attributeIn.readUnsignedShort();
+                out.writeShort(numberOfEntries);
+                for (int i = 0; i < numberOfEntries; i++) {
+                    copyStackMapFrame(attributeIn, out);
+                }
+            } else if (state == ATTRIBUTE_CLASS) {
+                out.writeLong(getConstantHash(attributeIn.readUnsignedShort()));
+            } else if (state == ATTRIBUTE_CLASS_LIST) {
+                int count = attributeIn.readUnsignedShort();
+                out.writeShort(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(getConstantHash(attributeIn.readUnsignedShort()));
+                }
+            } else if (state == ATTRIBUTE_METHOD_PARAMETERS) {
+                int count = attributeIn.readUnsignedByte();
+                out.writeByte(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(getConstantHash(attributeIn.readUnsignedShort()));
+                    out.writeShort(attributeIn.readUnsignedShort());
+                }
+            }
+            if (attributeIn.available() > 0) {
+                throw new IOException("unexpected attribute length");
+            }
+            out.close();
+        } catch (IOException ex) {
+            updateBytes(info, 0, info.length);
+            return;
+        }
+        byte[] canonicalBytes = bytes.toByteArray();
+        updateBytes(canonicalBytes, 0, canonicalBytes.length);
+    }
+
+    private void copyStackMapFrame(DataInputStream attributeIn, DataOutputStream out) throws IOException {
+
+        int frameType = attributeIn.readUnsignedByte();
+        out.writeByte(frameType);
+        if (frameType < 64) {
+            // same_frame
+        } else if (frameType < 128) {
+            copyVerificationTypes(attributeIn, out, 1);
+        } else if (frameType == 247) {
+            out.writeShort(attributeIn.readUnsignedShort());
+            copyVerificationTypes(attributeIn, out, 1);
+        } else if (frameType >= 248 && frameType <= 251) {
+            out.writeShort(attributeIn.readUnsignedShort());
+        } else if (frameType >= 252 && frameType <= 254) {
+            out.writeShort(attributeIn.readUnsignedShort());
+            copyVerificationTypes(attributeIn, out, frameType - 251);
+        } else if (frameType == 255) {
+            out.writeShort(attributeIn.readUnsignedShort());
+            int numberOfLocals = attributeIn.readUnsignedShort();
+            out.writeShort(numberOfLocals);
+            copyVerificationTypes(attributeIn, out, numberOfLocals);
+            int numberOfStackItems = attributeIn.readUnsignedShort();
+            out.writeShort(numberOfStackItems);
+            copyVerificationTypes(attributeIn, out, numberOfStackItems);
+        } else {
+            throw new IOException("invalid frame type " + frameType);
+        }
+    }
+
+    private void copyVerificationTypes(DataInputStream attributeIn, DataOutputStream out, int count) throws IOException {
+
+        for (int i = 0; i < count; i++) {
+            int tag = attributeIn.readUnsignedByte();
+            out.writeByte(tag);
+            if (tag == ITEM_OBJECT) {
+                out.writeLong(getConstantHash(attributeIn.readUnsignedShort()));
+            } else if (tag == ITEM_UNINITIALIZED) {
+                out.writeShort(attributeIn.readUnsignedShort());
+            }
+        }
+    }
+
+    private long getConstantHash(int index) {
+
+        CPInfo[] constantPool = classFile.getConstantPool();
+        if (index <= 0 || index >= constantPool.length || constantPool[index] == null) {
+            return ContentHash.updateInt(ContentHash.INITIAL_VALUE, index);
+        }
+        if (constantHashes == null) {
+            constantHashes = new long[constantPool.length];
+            constantStates = new byte[constantPool.length];
+        }
+        if (constantStates[index] == STATE_IN_PROGRESS) {
+            // circular reference in an invalid class file
+            return ContentHash.INITIAL_VALUE;
+        } else if (constantStates[index] == STATE_DONE) {
+            return constantHashes[index];
+        }
+
+        constantStates[index] = STATE_IN_PROGRESS;
+        CPInfo cpInfo = constantPool[index];
+        long hash = ContentHash.update(ContentHash.INITIAL_VALUE, cpInfo.getTag());
+        if (cpInfo instanceof ConstantUtf8Info) {
+            hash = ContentHash.updateString(hash, ((ConstantUtf8Info)cpInfo).getString());
+        } else if (cpInfo instanceof ConstantNumeric) {
+            hash = ContentHash.updateInt(hash, ((ConstantNumeric)cpInfo).getBytes());
+        } else if (cpInfo instanceof ConstantLargeNumeric) {
+            hash = ContentHash.updateInt(hash, ((ConstantLargeNumeric)cpInfo).getHighBytes());
+            hash = ContentHash.updateInt(hash, ((ConstantLargeNumeric)cpInfo).getLowBytes());
+        } else if (cpInfo instanceof ConstantClassInfo) {
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantClassInfo)cpInfo).getNameIndex()));
+        } else if (cpInfo instanceof ConstantStringInfo) {
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantStringInfo)cpInfo).getStringIndex()));
+        } else if (cpInfo instanceof ConstantReference) {
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantReference)cpInfo).getClassIndex()));
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantReference)cpInfo).getNameAndTypeIndex()));
+        } else if (cpInfo instanceof ConstantNameAndTypeInfo) {
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantNameAndTypeInfo)cpInfo).getNameIndex()));
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantNameAndTypeInfo)cpInfo).getDescriptorIndex()));
+        } else if (cpInfo instanceof ConstantMethodHandleInfo) {
+            hash = ContentHash.update(hash, ((ConstantMethodHandleInfo)cpInfo).getType());
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantMethodHandleInfo)cpInfo).getReferenceIndex()));
+        } else if (cpInfo instanceof ConstantInvokeDynamicInfo) {
+            // the bootstrap method index refers to the BootstrapMethods attribute
+            hash = ContentHash.updateShort(hash, ((ConstantInvokeDynamicInfo)cpInfo).getBootstrapMethodAttributeIndex());
+            hash = ContentHash.updateLong(hash, getConstantHash(((ConstantInvokeDynamicInfo)cpInfo).getNameAndTypeIndex()));
+        }
+        constantHashes[index] = hash;
+        constantStates[index] = STATE_DONE;
+        return hash;
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.structures;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+    Parsed form of a method descriptor. Instances are immutable and interned,
+    so a descriptor string that occurs at many call sites is only parsed once.
+    <p>
+    Types are kept as field descriptors like <tt>I</tt>, <tt>[J</tt> or
+    <tt>Ljava/lang/String;</tt>. The static helpers of this class work on
+    single field descriptors.
+*/
+public class MethodDescriptor {
+
+    private static final ConcurrentMap DESCRIPTORS = new ConcurrentHashMap();
+
+    /**
+     * Get the parsed form of a method descriptor.
+     * @param descriptor the method descriptor.
+     * @return the interned <tt>MethodDescriptor</tt>
+     * @throws InvalidByteCodeException if the descriptor is invalid
+     */
+    public static MethodDescriptor forDescriptor(String descriptor) throws InvalidByteCodeException {
+
+        MethodDescriptor methodDescriptor = (MethodDescriptor)DESCRIPTORS.get(descriptor);
+        if (methodDescriptor == null) {
+            methodDescriptor = new MethodDescriptor(descriptor);
+            MethodDescriptor previous = (MethodDescriptor)DESCRIPTORS.putIfAbsent(descriptor, methodDescriptor);
+            if (previous != null) {
+                methodDescriptor = previous;
+            }
+        }
+        return methodDescriptor;
+    }
+
+    /**
+     * Get the number of stack words or local variable slots of a field type.
+     * @param fieldDescriptor the field descriptor. <tt>V</tt> has a size of 0.
+     * @return the size
+     */
+    public static int getTypeSize(String fieldDescriptor) {
+
+        char type = fieldDescriptor.charAt(0);
+        if (type == 'V') {
+            return 0;
+        } else if (type == 'J' || type == 'D') {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * Get the Java source name of a field type, for example <tt>java.lang.String[]</tt>
+     * for <tt>[Ljava/lang/String;</tt>.
+     * @param fieldDescriptor the field descriptor.
+     * @return the name
+     * @throws InvalidByteCodeException if the descriptor is invalid
+     */
+    public static String getJavaTypeName(String fieldDescriptor) throws InvalidByteCodeException {
+
+        int dimensions = 0;
+        while (dimensions < fieldDescriptor.length() && fieldDescriptor.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        if (getTypeEnd(fieldDescriptor, 0, true) != fieldDescriptor.length()) {
+            throw new InvalidByteCodeException("Invalid field descriptor " + fieldDescriptor);
+        }
+
+        StringBuffer buffer = new StringBuffer();
+        char type = fieldDescriptor.charAt(dimensions);
+        switch (type) {
+            case 'B': buffer.append("byte"); break;
+            case 'C': buffer.append("char"); break;
+            case 'D': buffer.append("double"); break;
+            case 'F': buffer.append("float"); break;
+            case 'I': buffer.append("int"); break;
+            case 'J': buffer.append("long"); break;
+            case 'S': buffer.append("short"); break;
+            case 'Z': buffer.append("boolean"); break;
+            case 'V': buffer.append("void"); break;
+            default:
+                buffer.append(fieldDescriptor.substring(dimensions + 1, fieldDescriptor.length() - 1).replace('/', '.'));
+        }
+        for (int i = 0; i < dimensions; i++) {
+            buffer.append("[]");
+        }
+        return buffer.toString();
+    }
+
+    private final String descriptor;
+    private final String[] parameterTypes;
+    private final int[] parameterSlots;
+    private final int argumentsSize;
+    private final String returnType;
+
+    private MethodDescriptor(String descriptor) throws InvalidByteCodeException {
+        this.descriptor = descriptor;
+
+        if (descriptor.length() == 0 || descriptor.charAt(0) != '(') {
+            throw new InvalidByteCodeException("Invalid method descriptor " + descriptor);
+        }
+
+        String[] types = new String[descriptor.length()];
+        int[] slots = new int[descriptor.length()];
+        int count = 0;
+        int size = 0;
+        int position = 1;
+        while (position < descriptor.length() && descriptor.charAt(position) != ')') {
+            int end = getTypeEnd(descriptor, position, false);
+            if (end < 0) {
+                throw new InvalidByteCodeException("Invalid method descriptor " + descriptor);
+            }
+            types[count] = descriptor.substring(position, end);
+            slots[count] = size;
+            size += getTypeSize(types[count]);
+            count++;
+            position = end;
+        }
+        if (position >= descriptor.length() || getTypeEnd(descriptor, position + 1, true) != descriptor.length()) {
+            throw new InvalidByteCodeException("Invalid method descriptor " + descriptor);
+        }
+
+        parameterTypes = new String[count];
+        System.arraycopy(types, 0, parameterTypes, 0, count);
+        parameterSlots = new int[count];
+        System.arraycopy(slots, 0, parameterSlots, 0, count);
+        argumentsSize = size;
+        returnType = descriptor.substring(position + 1);
+    }
+
+    /**
+     * Get the descriptor string.
+     * @return the descriptor
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Get the number of parameters.
+     * @return the number
+     */
+    public int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    /**
+     * Get the field descriptor of a parameter.
+     * @param index the index of the parameter.
+     * @return the field descriptor
+     */
+    public String getParameterType(int index) {
+        return parameterTypes[index];
+    }
+
+    /**
+     * Get the local variable slot of a parameter, not counting <tt>this</tt>.
+     * @param index the index of the parameter.
+     * @return the slot
+     */
+    public int getParameterSlot(int index) {
+        return parameterSlots[index];
+    }
+
+    /**
+     * Get the number of stack words or local variable slots of all parameters,
+     * not including <tt>this</tt>.
+     * @return the size
+     */
+    public int getArgumentsSize() {
+        return argumentsSize;
+    }
+
+    /**
+     * Get the field descriptor of the return type.
+     * @return the field descriptor, <tt>V</tt> for <tt>void</tt>.
+     */
+    public String getReturnType() {
+        return returnType;
+    }
+
+    /**
+     * Get the number of stack words of the return value.
+     * @return the size, 0 for <tt>void</tt>.
+     */
+    public int getReturnSize() {
+        return getTypeSize(returnType);
+    }
+
+    /**
+     * Get the change of the operand stack depth caused by an invocation of a method
+     * with this descriptor, not counting the receiver.
+     * @return the stack effect
+     */
+    public int getStackEffect() {
+        return getReturnSize() - argumentsSize;
+    }
+
+    /**
+     * Get the Java source form of a method with this descriptor, for example
+     * <tt>void main(java.lang.String[])</tt>.
+     * @param methodName the name of the method.
+     * @return the signature
+     * @throws InvalidByteCodeException if the descriptor is invalid
+     */
+    public String getJavaSignature(String methodName) throws InvalidByteCodeException {
+
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(getJavaTypeName(returnType)).append(' ').append(methodName).append('(');
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(getJavaTypeName(parameterTypes[i]));
+        }
+        buffer.append(')');
+        return buffer.toString();
+    }
+
+    public boolean equals(Object object) {
+        return object instanceof MethodDescriptor && ((MethodDescriptor)object).descriptor.equals(descriptor);
+    }
+
+    public int hashCode() {
+        return descriptor.hashCode();
+    }
+
+    public String toString() {
+        return descriptor;
+    }
+
+    // returns the end index of the field type starting at position or -1 if the type is invalid
+    private static int getTypeEnd(String descriptor, int position, boolean allowVoid) {
+
+        int start = position;
+        while (position < descriptor.length() && descriptor.charAt(position) == '[') {
+            position++;
+        }
+        if (position >= descriptor.length()) {
+            return -1;
+        }
+        switch (descriptor.charAt(position)) {
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+                return position + 1;
+            case 'V':
+                return allowVoid && position == start ? position + 1 : -1;
+            case 'L':
+                int end = descriptor.indexOf(';', position);
+                return end > position + 1 ? end + 1 : -1;
+            default:
+                return -1;
+        }
+    }
+
+}
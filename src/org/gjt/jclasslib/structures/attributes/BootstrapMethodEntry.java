@@ -9,6 +9,7 @@ package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AttributeInfo;
 import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 import org.gjt.jclasslib.structures.constants.ConstantMethodHandleInfo;
 
@@ -71,7 +72,7 @@ public class BootstrapMethodEntry extends AttributeInfo {
 
    @Override
    public void read(DataInput in) throws InvalidByteCodeException, IOException {
-      bootstrapMethodRef = in.readUnsignedShort();
+      bootstrapMethodRef = ContentHashInput.readConstantPoolIndex(in);
       // Use the  allows the AttributeInfo.getName() to work
       ConstantMethodHandleInfo methodHandleInfo = (ConstantMethodHandleInfo) getClassFile().getConstantPool()[bootstrapMethodRef];
       int nameIndex = methodHandleInfo.resolveReferenceIndexNameIndex();
@@ -79,7 +80,7 @@ public class BootstrapMethodEntry extends AttributeInfo {
       int numBootstrapArguments = in.readUnsignedShort();
       bootstrapArguments = new int[numBootstrapArguments];
       for(int n = 0; n < numBootstrapArguments; n ++) {
-         bootstrapArguments[n] = in.readUnsignedShort();
+         bootstrapArguments[n] = ContentHashInput.readConstantPoolIndex(in);
       }
       if (debug) debug("read ");
    }
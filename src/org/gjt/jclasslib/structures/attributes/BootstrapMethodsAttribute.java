@@ -54,15 +54,11 @@ public class BootstrapMethodsAttribute extends AttributeInfo {
      */
     public static final String ATTRIBUTE_NAME = "BootstrapMethods";
 
-    private static final int INITIAL_LENGTH = 6;
-    private int attributeLength;
+    private static final int INITIAL_LENGTH = 2;
+    private static final int ENTRY_LENGTH = 4;
     /** */
     private BootstrapMethodEntry[] bootstrapMethods;
 
-    public BootstrapMethodsAttribute(int attributeLength) {
-        this.attributeLength = attributeLength;
-    }
-
     public BootstrapMethodEntry[] getBootstrapMethods() {
         return bootstrapMethods;
     }
@@ -86,7 +82,11 @@ public class BootstrapMethodsAttribute extends AttributeInfo {
 
     @Override
     public int getAttributeLength() {
-        return INITIAL_LENGTH + attributeLength;
+        int length = INITIAL_LENGTH;
+        for (int i = 0; i < bootstrapMethods.length; i++) {
+            length += ENTRY_LENGTH + 2 * bootstrapMethods[i].getArgumentCount();
+        }
+        return length;
     }
 
     @Override
@@ -8,6 +8,7 @@
 package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -29,6 +30,16 @@ public class CodeAttribute extends AttributeInfo {
     private int maxLocals;
     private byte[] code;
     private ExceptionTableEntry[] exceptionTable;
+    private long contentHash;
+
+    /**
+        Get the structural hash of this code attribute that has been computed while
+        it was read, see <tt>ClassFile.setContentHashOptions</tt>.
+        @return the hash, 0 if the class file has been read without content hash options
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
 
     /**
         Get the maximum stack depth of this code attribute.
@@ -112,14 +123,16 @@ public class CodeAttribute extends AttributeInfo {
     public void read(DataInput in)
         throws InvalidByteCodeException, IOException {
             
+        ContentHashInput.beginScope(in);
         maxStack = in.readUnsignedShort();
         maxLocals = in.readUnsignedShort();
         int codeLength = in.readInt();
         code = new byte[codeLength];
-        in.readFully(code);
+        ContentHashInput.readCode(in, code);
         
         readExceptionTable(in);
         readAttributes(in);
+        contentHash = ContentHashInput.endScope(in);
         if (debug) debug("read ");
     }
 
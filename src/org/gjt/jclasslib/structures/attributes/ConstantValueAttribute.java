@@ -8,6 +8,7 @@
 package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -46,7 +47,7 @@ public class ConstantValueAttribute extends AttributeInfo {
     public void read(DataInput in)
         throws InvalidByteCodeException, IOException {
             
-        constantvalueIndex = in.readUnsignedShort();
+        constantvalueIndex = ContentHashInput.readConstantPoolIndex(in);
         if (debug) debug("read ");
     }
 
@@ -7,6 +7,7 @@
 package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -54,8 +55,8 @@ public class EnclosingMethodAttribute extends AttributeInfo {
             throws InvalidByteCodeException, IOException {
         super.read(in);
 
-        classInfoIndex = in.readUnsignedShort();
-        methodInfoIndex = in.readUnsignedShort();
+        classInfoIndex = ContentHashInput.readConstantPoolIndex(in);
+        methodInfoIndex = ContentHashInput.readConstantPoolIndex(in);
 
         if (debug) debug("read ");
     }
@@ -148,7 +148,7 @@ public class ExceptionTableEntry extends AbstractStructure {
         startPc = in.readUnsignedShort();
         endPc = in.readUnsignedShort();
         handlerPc = in.readUnsignedShort();
-        catchType = in.readUnsignedShort();
+        catchType = ContentHashInput.readConstantPoolIndex(in);
         if (debug) debug("read ");
     }
 
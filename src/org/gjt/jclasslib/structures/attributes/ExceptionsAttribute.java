@@ -8,6 +8,7 @@
 package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -51,7 +52,7 @@ public class ExceptionsAttribute extends AttributeInfo {
         int numberOfExceptions = in.readUnsignedShort();
         exceptionIndexTable = new int[numberOfExceptions];
         for (int i = 0 ; i < numberOfExceptions; i++) {
-            exceptionIndexTable[i] = in.readUnsignedShort();
+            exceptionIndexTable[i] = ContentHashInput.readConstantPoolIndex(in);
         }
         
         if (debug) debug("read ");
@@ -149,9 +149,9 @@ public class InnerClassesEntry extends AbstractStructure
     public void read(DataInput in)
             throws InvalidByteCodeException, IOException {
 
-        innerClassInfoIndex = in.readUnsignedShort();
-        outerClassInfoIndex = in.readUnsignedShort();
-        innerNameIndex = in.readUnsignedShort();
+        innerClassInfoIndex = ContentHashInput.readConstantPoolIndex(in);
+        outerClassInfoIndex = ContentHashInput.readConstantPoolIndex(in);
+        innerNameIndex = ContentHashInput.readConstantPoolIndex(in);
         innerClassAccessFlags = in.readUnsignedShort();
 
         if (debug) debug("read ");
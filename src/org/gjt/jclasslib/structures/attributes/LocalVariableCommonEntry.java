@@ -7,6 +7,7 @@
 package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AbstractStructure;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -128,8 +129,8 @@ public abstract class LocalVariableCommonEntry extends AbstractStructure {
 
         startPc = in.readUnsignedShort();
         length = in.readUnsignedShort();
-        nameIndex = in.readUnsignedShort();
-        descriptorOrSignatureIndex = in.readUnsignedShort();
+        nameIndex = ContentHashInput.readConstantPoolIndex(in);
+        descriptorOrSignatureIndex = ContentHashInput.readConstantPoolIndex(in);
         index = in.readUnsignedShort();
 
         if (debug) debug("read ");
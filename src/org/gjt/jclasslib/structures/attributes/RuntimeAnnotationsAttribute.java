@@ -69,7 +69,7 @@ public class RuntimeAnnotationsAttribute extends AttributeInfo {
 
         out.writeShort(runtimeVisibleAnnotationsLength);
         for (int i = 0; i < runtimeVisibleAnnotationsLength; i++) {
-            runtimeAnnotations[i].write(out);
+            runtimeAnnotations[i].writeAnnotation(out);
         }
 
         if (debug) debug("wrote ");
@@ -78,7 +78,7 @@ public class RuntimeAnnotationsAttribute extends AttributeInfo {
     public int getAttributeLength() {
         int length = INITIAL_LENGTH;
         for (int i = 0; i < runtimeAnnotations.length; i++) {
-            length += runtimeAnnotations[i].getLength();
+            length += runtimeAnnotations[i].getAnnotationLength();
         }
         return length;
     }
@@ -7,6 +7,7 @@
 package org.gjt.jclasslib.structures.attributes;
 
 import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -41,7 +42,7 @@ public class SignatureAttribute extends AttributeInfo {
             throws InvalidByteCodeException, IOException {
         super.read(in);
 
-        signatureIndex = in.readUnsignedShort();
+        signatureIndex = ContentHashInput.readConstantPoolIndex(in);
 
         if (debug) debug("read ");
     }
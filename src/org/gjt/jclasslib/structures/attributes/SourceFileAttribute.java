@@ -7,7 +7,10 @@
 
 package org.gjt.jclasslib.structures.attributes;
 
+import org.gjt.jclasslib.io.SourceText;
+import org.gjt.jclasslib.io.SourceTextCache;
 import org.gjt.jclasslib.structures.AttributeInfo;
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -26,8 +29,6 @@ public class SourceFileAttribute extends AttributeInfo {
     private static final int LENGTH = 2;
     
     private int sourcefileIndex;
-    private String sourceText;
-    private int lineCount;
 
    /**
         Get the constant pool index of the name of the source file.
@@ -48,7 +49,7 @@ public class SourceFileAttribute extends AttributeInfo {
     public void read(DataInput in)
         throws InvalidByteCodeException, IOException {
             
-        sourcefileIndex = in.readUnsignedShort();
+        sourcefileIndex = ContentHashInput.readConstantPoolIndex(in);
         if (debug) debug("read ");
     }
 
@@ -68,33 +69,32 @@ public class SourceFileAttribute extends AttributeInfo {
         super.debug(message + "SourceFile attribute with sourcefile_index " + sourcefileIndex);
     }
 
-   public String getSourceText() {
-      if(sourceText == null) {
-         lineCount = 0;
-         File sourceFile = getClassFile().getSourceFile();
-         StringWriter source = new StringWriter();
-         if(sourceFile != null) {
-            String line;
-            try {
-               BufferedReader reader = new BufferedReader(new FileReader(sourceFile));
-               while((line = reader.readLine()) != null) {
-                  source.append(line);
-                  source.append('\n');
-                  lineCount ++;
-               }
-               reader.close();
-               source.close();
-            } catch (IOException e) {
-               e.printStackTrace();
-            }
-         } else {
-            source.write("No Source");
-         }
-         sourceText = source.toString();
+   /**
+       Get the text of the source file associated with the class file.
+       The text is shared with all other class files from the same source
+       file through the <tt>SourceTextCache</tt>.
+       @return the text or <tt>null</tt> if no source file is set or it cannot be read
+    */
+   public SourceText getSource() {
+      File sourceFile = getClassFile().getSourceFile();
+      if(sourceFile == null) {
+         return null;
+      }
+      try {
+         return SourceTextCache.getInstance().getSourceText(sourceFile);
+      } catch (IOException e) {
+         e.printStackTrace();
+         return null;
       }
-      return sourceText;
    }
+
+   public String getSourceText() {
+      SourceText source = getSource();
+      return source == null ? "No Source" : source.getText();
+   }
+
    public int getLineCount() {
-      return lineCount;
+      SourceText source = getSource();
+      return source == null ? 0 : source.getLineCount();
    }
 }
@@ -34,6 +34,10 @@ public class ConstantClassInfo extends CPInfo {
     }
     
     public String getVerbose() throws InvalidByteCodeException {
+        return getResolvedVerbose();
+    }
+
+    protected String resolveVerbose() throws InvalidByteCodeException {
         return getName();
     }
     
@@ -37,6 +37,10 @@ public class ConstantInvokeDynamicInfo extends CPInfo {
     }
 
     public String getVerbose() throws InvalidByteCodeException {
+        return getResolvedVerbose();
+    }
+
+    protected String resolveVerbose() throws InvalidByteCodeException {
         ConstantNameAndTypeInfo nameAndType = getNameAndTypeInfo();
 
         return "bootstrap method attribute index " + bootstrapMethodAttributeIndex + ", " +
@@ -52,6 +52,10 @@ public class ConstantMethodHandleInfo extends CPInfo {
     }
 
     public String getVerbose() throws InvalidByteCodeException {
+        return getResolvedVerbose();
+    }
+
+    protected String resolveVerbose() throws InvalidByteCodeException {
         return getName();
     }
 
@@ -33,7 +33,7 @@ public class ConstantMethodTypeInfo extends ConstantStringInfo {
         return CONSTANT_METHOD_TYPE_VERBOSE;
     }
 
-    public String getVerbose() throws InvalidByteCodeException {
+    protected String resolveVerbose() throws InvalidByteCodeException {
         return getName();
     }
 
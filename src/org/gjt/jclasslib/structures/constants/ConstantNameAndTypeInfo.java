@@ -35,6 +35,10 @@ public class ConstantNameAndTypeInfo extends CPInfo {
     }
     
     public String getVerbose() throws InvalidByteCodeException {
+        return getResolvedVerbose();
+    }
+
+    protected String resolveVerbose() throws InvalidByteCodeException {
         return getName() + getDescriptor();
     }
 
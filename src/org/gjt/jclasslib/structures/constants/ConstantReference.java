@@ -29,6 +29,10 @@ public abstract class ConstantReference extends CPInfo {
     protected int nameAndTypeIndex;
     
     public String getVerbose() throws InvalidByteCodeException {
+        return getResolvedVerbose();
+    }
+
+    protected String resolveVerbose() throws InvalidByteCodeException {
 
         ConstantNameAndTypeInfo nameAndType = getNameAndTypeInfo();
 
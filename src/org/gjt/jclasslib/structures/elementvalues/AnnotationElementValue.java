@@ -6,6 +6,7 @@
 */
 package org.gjt.jclasslib.structures.elementvalues;
 
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -75,7 +76,7 @@ public class AnnotationElementValue extends ElementValue {
     public void read(DataInput in) throws InvalidByteCodeException, IOException {
         super.read(in);
 
-        typeIndex = in.readUnsignedShort();
+        typeIndex = ContentHashInput.readConstantPoolIndex(in);
         int elementValuePairEntriesLength = in.readUnsignedShort();
 
         elementValuePairEntries = new ElementValuePair[elementValuePairEntriesLength];
@@ -90,6 +91,19 @@ public class AnnotationElementValue extends ElementValue {
     public void write(DataOutput out) throws InvalidByteCodeException, IOException {
         super.write(out);
 
+        writeAnnotation(out);
+    }
+
+    /**
+     * Write this annotation without the element value tag, as it appears
+     * in the <tt>annotations</tt> table of an annotations attribute.
+     *
+     * @param out the <tt>DataOutput</tt> to which to write
+     * @throws InvalidByteCodeException if the byte code is invalid
+     * @throws IOException if an exception occurs with the <tt>DataOutput</tt>
+     */
+    public void writeAnnotation(DataOutput out) throws InvalidByteCodeException, IOException {
+
         out.writeShort(typeIndex);
         int elementValuePairEntriesLength = getLength(elementValuePairEntries);
 
@@ -101,6 +115,15 @@ public class AnnotationElementValue extends ElementValue {
         if (debug) debug("wrote ");
     }
 
+    /**
+     * Get the length of this annotation without the element value tag.
+     *
+     * @return the length
+     */
+    public int getAnnotationLength() {
+        return getSpecificLength();
+    }
+
     protected int getSpecificLength() {
         int length = INITIAL_LENGTH;
         for (int i = 0; i < elementValuePairEntries.length; i++) {
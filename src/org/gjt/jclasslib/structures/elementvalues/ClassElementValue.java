@@ -6,6 +6,7 @@
 */
 package org.gjt.jclasslib.structures.elementvalues;
 
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -52,7 +53,7 @@ public class ClassElementValue extends ElementValue {
     public void read(DataInput in) throws InvalidByteCodeException, IOException {
         super.read(in);
 
-        classInfoIndex = in.readUnsignedShort();
+        classInfoIndex = ContentHashInput.readConstantPoolIndex(in);
 
         if (debug) debug("read ");
     }
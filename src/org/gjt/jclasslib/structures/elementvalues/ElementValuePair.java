@@ -87,7 +87,7 @@ public class ElementValuePair extends AbstractStructure {
     public void read(DataInput in) throws InvalidByteCodeException, IOException {
         super.read(in);
 
-        elementNameIndex = in.readUnsignedShort();
+        elementNameIndex = ContentHashInput.readConstantPoolIndex(in);
         elementValue = ElementValue.create(in, classFile);
 
         if (debug) debug("read ");
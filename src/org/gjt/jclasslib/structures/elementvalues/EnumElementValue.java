@@ -6,6 +6,7 @@
 */
 package org.gjt.jclasslib.structures.elementvalues;
 
+import org.gjt.jclasslib.structures.ContentHashInput;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
 import java.io.*;
@@ -71,8 +72,8 @@ public class EnumElementValue extends ElementValue {
 
     public void read(DataInput in) throws InvalidByteCodeException, IOException {
         super.read(in);
-        typeNameIndex = in.readUnsignedShort();
-        constNameIndex = in.readUnsignedShort();
+        typeNameIndex = ContentHashInput.readConstantPoolIndex(in);
+        constNameIndex = ContentHashInput.readConstantPoolIndex(in);
 
         if (debug) debug("read ");
     }
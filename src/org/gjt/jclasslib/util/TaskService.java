@@ -0,0 +1,376 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.util;
+
+import javax.swing.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+    Runs background tasks of the browser on a shared bounded thread pool.
+    Tasks can be cancelled and report determinate or indeterminate progress.
+    Tasks that are submitted with the key of a task that has not finished yet
+    are coalesced with that task.
+    <p>
+    All callbacks of tasks and listeners are invoked on the event dispatch thread.
+*/
+public class TaskService {
+
+    /**
+        A background task.
+     */
+    public static abstract class Task {
+
+        /**
+         * Perform the work of the task. Called on a worker thread.
+         * @param handle the handle for reporting progress and checking for cancellation.
+         * @return the result that is passed to <tt>succeeded</tt>.
+         * @throws Exception if the task fails
+         */
+        protected abstract Object run(Handle handle) throws Exception;
+
+        /**
+         * Called after the task has completed normally.
+         * @param result the result returned by <tt>run</tt>.
+         */
+        protected void succeeded(Object result) {
+        }
+
+        /**
+         * Called after the task has thrown an exception.
+         * @param cause the exception.
+         */
+        protected void failed(Throwable cause) {
+            cause.printStackTrace();
+        }
+
+        /**
+         * Called after the task has been cancelled.
+         */
+        protected void cancelled() {
+        }
+    }
+
+    /**
+        Receives notifications about the tasks of a <tt>TaskService</tt>.
+     */
+    public interface TaskListener {
+
+        /**
+         * Called after a task has been submitted.
+         * @param handle the handle of the task.
+         */
+        public void taskStarted(Handle handle);
+
+        /**
+         * Called after a task has reported progress.
+         * @param handle the handle of the task.
+         */
+        public void taskProgress(Handle handle);
+
+        /**
+         * Called after a task has finished or has been cancelled.
+         * @param handle the handle of the task.
+         */
+        public void taskFinished(Handle handle);
+    }
+
+    private static final int KEEP_ALIVE_SECONDS = 10;
+
+    private final ThreadPoolExecutor executor;
+    private final Map keyToHandle = new HashMap();
+    private final List runningHandles = new ArrayList();
+    private final List listeners = new ArrayList();
+
+    /**
+     * Constructor. The number of worker threads is the number of available processors.
+     */
+    public TaskService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     * @param threadCount the maximum number of worker threads.
+     */
+    public TaskService(int threadCount) {
+        executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "jclasslib task");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Add a listener that is notified about started and finished tasks.
+     * Must be called on the event dispatch thread.
+     * @param listener the listener.
+     */
+    public void addTaskListener(TaskListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     * Must be called on the event dispatch thread.
+     * @param listener the listener.
+     */
+    public void removeTaskListener(TaskListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Submit a task.
+     * @param key the key for coalescing duplicate requests. If a task with the same key
+     *            has not finished yet, the supplied task is not run and the handle of the
+     *            existing task is returned. May be <tt>null</tt>.
+     * @param title the title of the task for display purposes.
+     * @param task the task.
+     * @return the handle of the task
+     */
+    public Handle submit(Object key, String title, Task task) {
+
+        Handle handle;
+        synchronized (keyToHandle) {
+            if (key != null) {
+                handle = (Handle)keyToHandle.get(key);
+                if (handle != null && !handle.isCancelled()) {
+                    return handle;
+                }
+            }
+            handle = new Handle(key, title, task);
+            if (key != null) {
+                keyToHandle.put(key, handle);
+            }
+        }
+
+        final Handle startedHandle = handle;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                runningHandles.add(startedHandle);
+                fireTaskStarted(startedHandle);
+            }
+        });
+        executor.execute(handle.runnable);
+
+        return handle;
+    }
+
+    /**
+     * Get the handles of all tasks that have been started and have not finished yet.
+     * Must be called on the event dispatch thread.
+     * @return the list of <tt>Handle</tt> objects in the order of submission.
+     */
+    public List getRunningTasks() {
+        return Collections.unmodifiableList(runningHandles);
+    }
+
+    /**
+     * Cancel all tasks and stop the worker threads.
+     */
+    public void shutdown() {
+        synchronized (keyToHandle) {
+            Iterator it = new ArrayList(keyToHandle.values()).iterator();
+            while (it.hasNext()) {
+                ((Handle)it.next()).cancel();
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    private void finish(Handle handle) {
+
+        synchronized (keyToHandle) {
+            if (handle.key != null && keyToHandle.get(handle.key) == handle) {
+                keyToHandle.remove(handle.key);
+            }
+        }
+
+        if (handle.isCancelled()) {
+            handle.task.cancelled();
+        } else if (handle.failure != null) {
+            handle.task.failed(handle.failure);
+        } else {
+            handle.task.succeeded(handle.result);
+        }
+
+        runningHandles.remove(handle);
+        fireTaskFinished(handle);
+    }
+
+    private void fireTaskStarted(Handle handle) {
+        Iterator it = new ArrayList(listeners).iterator();
+        while (it.hasNext()) {
+            ((TaskListener)it.next()).taskStarted(handle);
+        }
+    }
+
+    private void fireTaskProgress(Handle handle) {
+        Iterator it = new ArrayList(listeners).iterator();
+        while (it.hasNext()) {
+            ((TaskListener)it.next()).taskProgress(handle);
+        }
+    }
+
+    private void fireTaskFinished(Handle handle) {
+        Iterator it = new ArrayList(listeners).iterator();
+        while (it.hasNext()) {
+            ((TaskListener)it.next()).taskFinished(handle);
+        }
+    }
+
+    /**
+        Handle for a submitted task. Tasks use the handle to report progress,
+        clients use it to cancel the task.
+     */
+    public class Handle {
+
+        private final Object key;
+        private final String title;
+        private final Task task;
+        private final Runnable runnable;
+
+        // written by the worker thread before finish is scheduled on the event dispatch thread
+        private Object result;
+        private Throwable failure;
+
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile String message;
+        private volatile int value;
+        private volatile int maximum;
+        private final AtomicBoolean progressPending = new AtomicBoolean();
+
+        private Handle(Object key, String title, final Task task) {
+            this.key = key;
+            this.title = title;
+            this.task = task;
+            runnable = new Runnable() {
+                public void run() {
+                    try {
+                        if (!cancelled) {
+                            result = task.run(Handle.this);
+                        }
+                    } catch (Throwable ex) {
+                        failure = ex;
+                    } finally {
+                        // the task is only finished after the worker has returned,
+                        // even if it has been cancelled while running
+                        done = true;
+                        SwingUtilities.invokeLater(new Runnable() {
+                            public void run() {
+                                finish(Handle.this);
+                            }
+                        });
+                    }
+                }
+            };
+        }
+
+        /**
+         * Get the title of the task.
+         * @return the title
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Get the current status message of the task.
+         * @return the message or <tt>null</tt> if no message has been set.
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Set the current status message of the task.
+         * @param message the message.
+         */
+        public void setMessage(String message) {
+            this.message = message;
+            fireProgressLater();
+        }
+
+        /**
+         * Get the current progress value.
+         * @return the value
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Get the maximum progress value.
+         * @return the value or 0 if the progress is indeterminate.
+         */
+        public int getMaximum() {
+            return maximum;
+        }
+
+        /**
+         * Report determinate progress. Listeners are notified at most once per
+         * pass of the event dispatch thread, so this method can be called frequently.
+         * @param value the current value.
+         * @param maximum the maximum value.
+         */
+        public void setProgress(int value, int maximum) {
+            this.value = value;
+            this.maximum = maximum;
+            fireProgressLater();
+        }
+
+        /**
+         * Request cancellation of the task. A task that has not been started yet is
+         * not run, a running task should check <tt>isCancelled</tt> periodically.
+         * <tt>cancelled</tt> is called after the worker thread has returned from
+         * <tt>run</tt>.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Check whether cancellation of the task has been requested.
+         * @return the value
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Check whether the worker thread has returned from the task or has
+         * skipped a cancelled task.
+         * @return the value
+         */
+        public boolean isDone() {
+            return done;
+        }
+
+        private void fireProgressLater() {
+            if (progressPending.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progressPending.set(false);
+                        if (runningHandles.contains(Handle.this)) {
+                            fireTaskProgress(Handle.this);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+}
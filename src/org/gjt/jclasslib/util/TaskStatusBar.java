@@ -0,0 +1,139 @@
+/*
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU General Public
+    License as published by the Free Software Foundation; either
+    version 2 of the license, or (at your option) any later version.
+*/
+
+package org.gjt.jclasslib.util;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+
+/**
+    Status bar that shows the progress of the most recently started task of a
+    <tt>TaskService</tt> and allows to cancel it. The status bar is empty if no
+    task is running.
+*/
+public class TaskStatusBar extends JPanel implements TaskService.TaskListener {
+
+    private static final int PROGRESS_BAR_WIDTH = 150;
+
+    private TaskService taskService;
+    private TaskService.Handle currentHandle;
+
+    private JLabel lblMessage;
+    private JProgressBar progressBar;
+    private JButton btnCancel;
+
+    /**
+     * Constructor.
+     * @param taskService the task service whose tasks should be displayed.
+     */
+    public TaskStatusBar(TaskService taskService) {
+        this.taskService = taskService;
+
+        setupControls();
+        setupComponent();
+        taskService.addTaskListener(this);
+        update();
+    }
+
+    /**
+     * Stop displaying the tasks of the task service.
+     */
+    public void dispose() {
+        taskService.removeTaskListener(this);
+    }
+
+    public void taskStarted(TaskService.Handle handle) {
+        currentHandle = handle;
+        update();
+    }
+
+    public void taskProgress(TaskService.Handle handle) {
+        if (handle == currentHandle) {
+            update();
+        }
+    }
+
+    public void taskFinished(TaskService.Handle handle) {
+        if (handle == currentHandle) {
+            List runningTasks = taskService.getRunningTasks();
+            currentHandle = runningTasks.isEmpty() ? null : (TaskService.Handle)runningTasks.get(runningTasks.size() - 1);
+        }
+        update();
+    }
+
+    private void setupControls() {
+
+        lblMessage = new JLabel(" ");
+        progressBar = new JProgressBar();
+        Dimension preferredSize = progressBar.getPreferredSize();
+        preferredSize.width = PROGRESS_BAR_WIDTH;
+        progressBar.setPreferredSize(preferredSize);
+        btnCancel = new JButton("Cancel");
+        btnCancel.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                if (currentHandle != null) {
+                    currentHandle.cancel();
+                    update();
+                }
+            }
+        });
+    }
+
+    private void setupComponent() {
+
+        setLayout(new GridBagLayout());
+        setBorder(BorderFactory.createEmptyBorder(0, 5, 2, 5));
+        GridBagConstraints gc = new GridBagConstraints();
+        gc.gridy = 0;
+        gc.weightx = 1;
+        gc.fill = GridBagConstraints.HORIZONTAL;
+        gc.anchor = GridBagConstraints.WEST;
+        add(lblMessage, gc);
+        gc.weightx = 0;
+        gc.fill = GridBagConstraints.NONE;
+        gc.insets = new Insets(0, 5, 0, 0);
+        add(progressBar, gc);
+        add(btnCancel, gc);
+    }
+
+    private void update() {
+
+        boolean running = currentHandle != null;
+        progressBar.setVisible(running);
+        btnCancel.setVisible(running);
+        if (!running) {
+            lblMessage.setText(" ");
+            progressBar.setIndeterminate(false);
+            return;
+        }
+
+        StringBuffer buffer = new StringBuffer(currentHandle.getTitle());
+        String message = currentHandle.getMessage();
+        if (message != null) {
+            buffer.append(": ").append(message);
+        }
+        int otherCount = taskService.getRunningTasks().size() - 1;
+        if (otherCount > 0) {
+            buffer.append(" (").append(otherCount).append(" more)");
+        }
+        lblMessage.setText(buffer.toString());
+
+        int maximum = currentHandle.getMaximum();
+        if (maximum > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(maximum);
+            progressBar.setValue(currentHandle.getValue());
+        } else {
+            progressBar.setIndeterminate(true);
+        }
+        btnCancel.setEnabled(!currentHandle.isCancelled());
+    }
+
+}